@@ -0,0 +1,51 @@
+package zm.boundary;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import zm.services.AssignmentResult;
+import zm.services.CrewAssignmentService;
+import zm.services.CrewShift;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Automatic RECEIVED -> ASSIGNED transitions for a day from a crew roster; dryRun previews the plan
+@RestController
+@Profile("!reactive")
+@RequestMapping("/api/staff/assignments")
+@CrossOrigin(origins = "*", allowedHeaders = "*")
+public class AssignmentController {
+
+    private static final Logger logger = LoggerFactory.getLogger(AssignmentController.class);
+
+    private final CrewAssignmentService assignmentService;
+
+    public AssignmentController(CrewAssignmentService assignmentService) {
+        this.assignmentService = assignmentService;
+    }
+
+    @PostMapping
+    public ResponseEntity<Object> assign(@RequestBody AssignmentRequest request) {
+        logger.info("Received crew assignment request for {} with {} crews", request.date(),
+            request.crews() == null ? 0 : request.crews().size());
+
+        try {
+            AssignmentResult result = assignmentService.assign(request.date(), request.crews(), request.dryRun());
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Crew assignment rejected: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            logger.error("Unexpected error during crew assignment", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("An unexpected error occurred");
+        }
+    }
+
+    public record AssignmentRequest(LocalDate date, List<CrewShift> crews, boolean dryRun) {
+    }
+}
@@ -1,33 +1,84 @@
 package zm.boundary;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import zm.data.Booking;
+import zm.data.BookingField;
+import zm.data.BookingFilter;
+import zm.data.BookingSpecifications;
 import zm.data.Item;
 import zm.data.State;
 import zm.services.BookingService;
+import zm.services.BulkOperationResult;
+import zm.services.CapacityExceededException;
+import zm.services.ChangeCursor;
+import zm.services.ChangeFeedPage;
 import zm.services.MunicipalityProvider;
+import zm.services.SlotSuggestion;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("/api")
 @CrossOrigin(origins = "*", allowedHeaders = "*")
 public class BookingController {
 
     private static final Logger logger = LoggerFactory.getLogger(BookingController.class);
+    private static final Duration TERMINAL_STATE_MAX_AGE = Duration.ofDays(365);
+    private static final long MAX_AWAIT_SECONDS = 60;
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 500;
+    static final int MAX_LOOKUP_TOKENS = 10_000;
     private final BookingService bookingService;
     private final MunicipalityProvider municipalityProvider;
+    private final ObjectMapper objectMapper;
+    private final ExecutorService awaitExecutor;
 
-    public BookingController(BookingService bookingService, MunicipalityProvider municipalityProvider) {
+    // Parked long-polls are answered on their own threads, never on the thread that published the state change
+    public BookingController(BookingService bookingService, MunicipalityProvider municipalityProvider, ObjectMapper objectMapper,
+                             @Value("${booking.await.threads:4}") int awaitThreads,
+                             @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
         this.bookingService = bookingService;
         this.municipalityProvider = municipalityProvider;
+        this.objectMapper = objectMapper;
+        this.awaitExecutor = virtualThreads
+            ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("booking-await-", 0).factory())
+            : Executors.newFixedThreadPool(awaitThreads);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        awaitExecutor.shutdownNow();
     }
 
     @PostMapping("/bookings")
@@ -74,6 +125,10 @@ public class BookingController {
         } catch (IllegalArgumentException e) {
             logger.warn("Booking request rejected: {}", e.getMessage());
             return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (CapacityExceededException e) {
+            List<SlotSuggestion> suggestions = bookingService.suggestSlots(request.getMunicipality(), request.getDate(), request.getApproxTimeSlot());
+            logger.warn("Booking request rejected due to capacity, {} alternatives suggested", suggestions.size());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new CapacityResponse(e.getMessage(), suggestions));
         } catch (IllegalStateException e) {
             logger.warn("Booking request rejected due to capacity: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
@@ -86,7 +141,8 @@ public class BookingController {
 
     // Booking details by token
     @GetMapping("/bookings/{token}")
-    public ResponseEntity<Object> check(@PathVariable String token) {
+    public ResponseEntity<Object> check(@PathVariable String token,
+                                        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         logger.info("Checking booking with token: {}", token);
         
         if (token == null || token.trim().isEmpty()) {
@@ -101,8 +157,15 @@ public class BookingController {
                 return ResponseEntity.notFound().build();
             }
             
+            String etag = etagOf(booking);
+            CacheControl cacheControl = cacheControlOf(booking);
+            if (etagMatches(ifNoneMatch, etag)) {
+                logger.info("Booking unchanged for token: {}", token);
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cacheControl).build();
+            }
+
             logger.info("Booking found for token: {}", token);
-            return ResponseEntity.ok(booking);
+            return ResponseEntity.ok().eTag(etag).cacheControl(cacheControl).body(BookingView.of(booking));
         } catch (Exception e) {
             logger.error("Error checking booking with token: {}", token, e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -110,6 +173,104 @@ public class BookingController {
         }
     }
 
+    // Long-poll: parks until the booking leaves the given state or the timeout (seconds) expires
+    @GetMapping("/bookings/{token}/await")
+    public DeferredResult<ResponseEntity<Object>> awaitStateChange(@PathVariable String token,
+                                                                   @RequestParam(required = false) String since,
+                                                                   @RequestParam(defaultValue = "30") long timeout) {
+        logger.info("Awaiting state change for booking with token: {}", token);
+
+        long seconds = Math.max(1, Math.min(timeout, MAX_AWAIT_SECONDS));
+        DeferredResult<ResponseEntity<Object>> result = new DeferredResult<>(
+            Duration.ofSeconds(seconds + 5).toMillis(),
+            () -> ResponseEntity.status(HttpStatus.NOT_MODIFIED).build());
+
+        State sinceState;
+        try {
+            sinceState = since == null ? null : State.valueOf(since.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid state provided: {}", since);
+            result.setResult(ResponseEntity.badRequest().body("Invalid state: " + since));
+            return result;
+        }
+
+        try {
+            CompletableFuture<State> change = bookingService.awaitStateChange(token, sinceState, Duration.ofSeconds(seconds));
+            if (change == null) {
+                logger.warn("Booking not found for token: {}", token);
+                result.setResult(ResponseEntity.notFound().build());
+                return result;
+            }
+
+            // The change completes on the publishing thread, so the booking is read back on the await executor
+            change.whenCompleteAsync((state, error) -> {
+                if (error != null) {
+                    logger.error("Error awaiting state change for token: {}", token, error);
+                    result.setResult(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build());
+                } else if (state == null) {
+                    result.setResult(ResponseEntity.status(HttpStatus.NOT_MODIFIED).build());
+                } else {
+                    result.setResult(latestBooking(token));
+                }
+            }, awaitExecutor);
+        } catch (Exception e) {
+            logger.error("Error awaiting state change for token: {}", token, e);
+            result.setResult(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build());
+        }
+        return result;
+    }
+
+    private ResponseEntity<Object> latestBooking(String token) {
+        try {
+            Booking booking = bookingService.check(token);
+            if (booking == null) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.ok().eTag(etagOf(booking)).cacheControl(cacheControlOf(booking)).body(BookingView.of(booking));
+        } catch (Exception e) {
+            logger.error("Error retrieving booking with token: {}", token, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    // Resolves many tokens at once; the token -> booking object is streamed chunk by chunk, with null for unknown tokens
+    @PostMapping("/bookings/lookup")
+    public ResponseEntity<StreamingResponseBody> lookup(@RequestBody LookupRequest request) {
+        List<String> tokens = request.getTokens();
+        logger.info("Looking up {} bookings", tokens == null ? 0 : tokens.size());
+
+        if (tokens == null || tokens.isEmpty() || tokens.contains(null)) {
+            return rejectLookup("A list of tokens is required");
+        }
+        if (tokens.size() > MAX_LOOKUP_TOKENS) {
+            return rejectLookup("At most " + MAX_LOOKUP_TOKENS + " tokens can be looked up at once");
+        }
+
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.writeStartObject();
+                bookingService.lookup(tokens, (token, booking) -> {
+                    try {
+                        generator.writeFieldName(token);
+                        objectMapper.writeValue(generator, booking == null ? null : BookingView.of(booking));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndObject();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    private static ResponseEntity<StreamingResponseBody> rejectLookup(String message) {
+        logger.warn("Lookup request rejected: {}", message);
+        return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN)
+            .body(out -> out.write(message.getBytes(StandardCharsets.UTF_8)));
+    }
+
     @DeleteMapping("/bookings/{token}")
     public ResponseEntity<Void> cancel(@PathVariable String token) {
         logger.info("Cancelling booking with token: {}", token);
@@ -170,29 +331,197 @@ public class BookingController {
         return ResponseEntity.notFound().build();
     }
 
+    // Without filter or paging parameters the whole list is returned, as before; with any of them, one page of matches
     @GetMapping("/staff/bookings")
-    public ResponseEntity<List<Booking>> getAllBookings() {
+    public ResponseEntity<Object> getAllBookings(@RequestParam(required = false) String state,
+                                                 @RequestParam(required = false) String municipality,
+                                                 @RequestParam(required = false) String from,
+                                                 @RequestParam(required = false) String to,
+                                                 @RequestParam(required = false) String slot,
+                                                 @RequestParam(required = false) Integer page,
+                                                 @RequestParam(required = false) Integer size,
+                                                 @RequestParam(required = false) String fields) {
+        if (isSearch(state, municipality, from, to, slot, page, size)) {
+            return searchBookings(state, municipality, from, to, slot, page, size, fields);
+        }
+
         logger.info("Retrieving all bookings");
-        
+
+        if (fields != null) {
+            return sparse(new BookingFilter(null, null, null, null), fields, Pageable.unpaged());
+        }
+
         try {
             List<Booking> bookings = bookingService.getAllBookings();
             logger.info("Retrieved {} bookings", bookings.size());
-            return ResponseEntity.ok(bookings);
+            return ResponseEntity.ok(BookingView.ofAll(bookings));
         } catch (Exception e) {
             logger.error("Error retrieving all bookings", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
+    private ResponseEntity<Object> searchBookings(String state, String municipality, String from, String to, String slot,
+                                                  Integer page, Integer size, String fields) {
+        logger.info("Searching bookings: state={}, municipality={}, from={}, to={}, slot={}", state, municipality, from, to, slot);
+
+        BookingFilter filter;
+        Pageable pageable;
+        try {
+            filter = searchFilter(state, municipality, from, to, slot);
+            pageable = searchPage(page, size);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Booking search rejected: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+
+        if (fields != null) {
+            return sparse(filter, fields, pageable);
+        }
+
+        try {
+            Page<BookingView> views = bookingService.searchBookings(filter, pageable).map(BookingView::of);
+            logger.info("Found {} bookings, returning page {} of {}", views.getTotalElements(), views.getNumber(), views.getTotalPages());
+            return ResponseEntity.ok(BookingView.PageView.of(views));
+        } catch (Exception e) {
+            logger.error("Error searching bookings", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    static boolean isSearch(String state, String municipality, String from, String to, String slot, Integer page, Integer size) {
+        return state != null || municipality != null || from != null || to != null || slot != null || page != null || size != null;
+    }
+
+    // Builds the staff search filter from raw query parameters; state may be a comma-separated list, e.g. RECEIVED,ASSIGNED
+    static BookingFilter searchFilter(String state, String municipality, String from, String to, String slot) {
+        Set<State> states = EnumSet.noneOf(State.class);
+        if (state != null && !state.isBlank()) {
+            for (String name : state.split(",")) {
+                try {
+                    states.add(State.valueOf(name.trim().toUpperCase()));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Invalid state: " + name.trim());
+                }
+            }
+        }
+        try {
+            return new BookingFilter(municipality == null || municipality.isBlank() ? null : municipality,
+                from == null ? null : LocalDate.parse(from),
+                to == null ? null : LocalDate.parse(to),
+                slot == null ? null : LocalTime.parse(slot),
+                states);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date or time: " + e.getParsedString());
+        }
+    }
+
+    static Pageable searchPage(Integer page, Integer size) {
+        int pageNumber = page == null ? 0 : page;
+        int pageSize = size == null ? DEFAULT_PAGE_SIZE : size;
+        if (pageNumber < 0 || pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page must not be negative and size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return PageRequest.of(pageNumber, pageSize, BookingSpecifications.NEWEST_FIRST);
+    }
+
+    // Free-text search over item names and descriptions, e.g. ?q=frigorifico&municipality=Porto&from=2025-03-10&to=2025-03-16
+    @GetMapping("/staff/bookings/items")
+    public ResponseEntity<Object> searchItems(@RequestParam String q,
+                                              @RequestParam(required = false) String municipality,
+                                              @RequestParam(required = false) String from,
+                                              @RequestParam(required = false) String to,
+                                              @RequestParam(required = false) Integer page,
+                                              @RequestParam(required = false) Integer size) {
+        logger.info("Searching booking items for '{}' in municipality {}", q, municipality);
+
+        BookingFilter filter;
+        Pageable pageable;
+        try {
+            filter = searchFilter(null, municipality, from, to, null);
+            pageable = searchPage(page, size);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Item search rejected: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+
+        try {
+            Page<BookingView> views = bookingService.searchItems(q, filter.municipality(), filter.from(), filter.to(), pageable)
+                .map(BookingView::of);
+            logger.info("Found {} bookings with items matching '{}'", views.getTotalElements(), q);
+            return ResponseEntity.ok(BookingView.PageView.of(views));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Item search rejected: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IllegalStateException e) {
+            logger.warn("Item search unavailable: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+        } catch (Exception e) {
+            logger.error("Error searching booking items for '{}'", q, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    // Bookings changed after the given cursor, in change-sequence order; the response carries the next cursor.
+    // Sharded deployments answer with a position per shard, "0:123,1:456", which is passed back as it came.
+    @GetMapping("/staff/bookings/changes")
+    public ResponseEntity<Object> getChanges(@RequestParam(defaultValue = "0") String after,
+                                             @RequestParam(defaultValue = "100") int limit) {
+        logger.info("Retrieving booking changes after {}", after);
+
+        try {
+            if (limit < 1) {
+                throw new IllegalArgumentException("Limit must be positive");
+            }
+            ChangeFeedPage page = bookingService.getChangesSince(ChangeCursor.parse(after), limit);
+            logger.info("Retrieved {} changed bookings, next cursor {}", page.bookings().size(), page.next());
+            return ResponseEntity.ok(new BookingView.ChangeFeedView(BookingView.ofAll(page.bookings()), page.next().toString(), page.hasMore()));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Change feed request rejected: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            logger.error("Error retrieving booking changes after {}", after, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    @PostMapping("/staff/bookings/bulk-state")
+    public ResponseEntity<Object> bulkChangeState(@RequestBody BulkStateRequest request) {
+        logger.info("Bulk state change to {} requested", request.getTarget());
+
+        if (request.getTarget() == null) {
+            logger.warn("Bulk state change rejected: target state is null");
+            return ResponseEntity.badRequest().body("Target state is required");
+        }
+
+        try {
+            BookingFilter filter = BookingFilter.of(request.getMunicipality(), request.getFrom(), request.getTo(), request.getState());
+            BulkOperationResult result = bookingService.bulkChangeState(filter, request.getTarget(), request.getResumeAfter(),
+                progress -> logger.debug("Bulk state change progress: {}", progress));
+            logger.info("Bulk state change to {} finished: {} of {} bookings updated",
+                result.target(), result.updated(), result.matched());
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Bulk state change rejected: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            logger.error("Error during bulk state change", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
     @GetMapping("/bookings/state/{state}")
-    public ResponseEntity<Object> getBookingsByState(@PathVariable String state) {
+    public ResponseEntity<Object> getBookingsByState(@PathVariable String state, @RequestParam(required = false) String fields) {
         logger.info("Retrieving bookings with state: {}", state);
         
         try {
             State filterState = State.valueOf(state.toUpperCase());
+            if (fields != null) {
+                return sparse(BookingFilter.of(null, null, null, filterState), fields, Pageable.unpaged());
+            }
             List<Booking> bookings = bookingService.getBookingsByState(filterState);
             logger.info("Retrieved {} bookings with state {}", bookings.size(), state);
-            return ResponseEntity.ok(bookings);
+            return ResponseEntity.ok(BookingView.ofAll(bookings));
         } catch (IllegalArgumentException e) {
             logger.warn("Invalid state provided: {}", state);
             return ResponseEntity.badRequest().body("Invalid state: " + state);
@@ -203,19 +532,44 @@ public class BookingController {
     }
 
     @GetMapping("/municipalities/{municipality}")
-    public ResponseEntity<List<Booking>> getBookingsByMunicipality(@PathVariable String municipality) {
+    public ResponseEntity<Object> getBookingsByMunicipality(@PathVariable String municipality,
+                                                            @RequestParam(required = false) String fields) {
         logger.info("Retrieving bookings for municipality: {}", municipality);
-        
+
+        if (fields != null) {
+            return sparse(BookingFilter.of(municipality, null, null, null), fields, Pageable.unpaged());
+        }
+
         try {
             List<Booking> bookings = bookingService.getBookingsByMunicipality(municipality);
             logger.info("Retrieved {} bookings for municipality {}", bookings.size(), municipality);
-            return ResponseEntity.ok(bookings);
+            return ResponseEntity.ok(BookingView.ofAll(bookings));
         } catch (Exception e) {
             logger.error("Error retrieving bookings by municipality: {}", municipality, e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
+    // Sparse fieldset: only the requested columns are selected and only the requested collections are loaded
+    private ResponseEntity<Object> sparse(BookingFilter filter, String fields, Pageable pageable) {
+        Set<BookingField> requested;
+        try {
+            requested = BookingField.parse(fields);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid fields provided: {}", fields);
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+
+        try {
+            Page<BookingView> views = bookingService.getBookings(filter, requested, pageable).map(BookingView::of);
+            logger.info("Retrieved {} bookings with fields {}", views.getNumberOfElements(), requested);
+            return ResponseEntity.ok(pageable.isPaged() ? BookingView.PageView.of(views) : views.getContent());
+        } catch (Exception e) {
+            logger.error("Error retrieving bookings with fields: {}", fields, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
     @GetMapping("/municipalities")
     public ResponseEntity<List<String>> getMunicipalities() {
         logger.info("Retrieving municipalities list");
@@ -230,6 +584,36 @@ public class BookingController {
         }
     }
 
+    // Every transition bumps the version, so version and state identify the representation
+    static String etagOf(Booking booking) {
+        long version = booking.getVersion() == null ? 0 : booking.getVersion();
+        return "\"" + version + "-" + booking.getCurrentState().getState() + "\"";
+    }
+
+    // Terminal bookings never change again; active ones must be revalidated on every poll
+    static CacheControl cacheControlOf(Booking booking) {
+        if (booking.getCurrentState().getState().isTerminal()) {
+            return CacheControl.maxAge(TERMINAL_STATE_MAX_AGE).cachePublic().immutable();
+        }
+        return CacheControl.noCache();
+    }
+
+    static boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public static class BookingRequest {
         private LocalDate date;
         private LocalTime approxTimeSlot;
@@ -306,6 +690,53 @@ public class BookingController {
         }
     }
 
+    // Body of a 409 for a full slot: the nearest open slots in the same municipality, nearest first
+    public static class CapacityResponse {
+        private String message;
+        private List<SlotSuggestion> suggestions;
+
+        public CapacityResponse() {}
+
+        public CapacityResponse(String message, List<SlotSuggestion> suggestions) {
+            this.message = message;
+            this.suggestions = suggestions;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public void setMessage(String message) {
+            this.message = message;
+        }
+
+        public List<SlotSuggestion> getSuggestions() {
+            return suggestions;
+        }
+
+        public void setSuggestions(List<SlotSuggestion> suggestions) {
+            this.suggestions = suggestions;
+        }
+    }
+
+    public static class LookupRequest {
+        private List<String> tokens;
+
+        public LookupRequest() {}
+
+        public LookupRequest(List<String> tokens) {
+            this.tokens = tokens;
+        }
+
+        public List<String> getTokens() {
+            return tokens;
+        }
+
+        public void setTokens(List<String> tokens) {
+            this.tokens = tokens;
+        }
+    }
+
     public static class StateUpdateRequest {
         private State state;
 
@@ -323,4 +754,71 @@ public class BookingController {
             this.state = state;
         }
     }
+
+    public static class BulkStateRequest {
+        private String municipality;
+        private LocalDate from;
+        private LocalDate to;
+        private State state;
+        private State target;
+        private String resumeAfter;
+
+        public BulkStateRequest() {}
+
+        public BulkStateRequest(String municipality, LocalDate from, LocalDate to, State state, State target) {
+            this.municipality = municipality;
+            this.from = from;
+            this.to = to;
+            this.state = state;
+            this.target = target;
+        }
+
+        public String getMunicipality() {
+            return municipality;
+        }
+
+        public void setMunicipality(String municipality) {
+            this.municipality = municipality;
+        }
+
+        public LocalDate getFrom() {
+            return from;
+        }
+
+        public void setFrom(LocalDate from) {
+            this.from = from;
+        }
+
+        public LocalDate getTo() {
+            return to;
+        }
+
+        public void setTo(LocalDate to) {
+            this.to = to;
+        }
+
+        public State getState() {
+            return state;
+        }
+
+        public void setState(State state) {
+            this.state = state;
+        }
+
+        public State getTarget() {
+            return target;
+        }
+
+        public void setTarget(State target) {
+            this.target = target;
+        }
+
+        public String getResumeAfter() {
+            return resumeAfter;
+        }
+
+        public void setResumeAfter(String resumeAfter) {
+            this.resumeAfter = resumeAfter;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,64 @@
+package zm.boundary;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import org.springframework.data.domain.Page;
+import zm.data.Booking;
+import zm.data.BookingProjection;
+import zm.data.Item;
+import zm.data.RequestState;
+import zm.data.State;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+// Immutable response payload for a booking; decouples the JSON shape from the JPA entity and its lazy collections.
+// Fields left out of a sparse fieldset are null and omitted from the JSON.
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BookingView(String token, LocalDate date, LocalTime approxTimeSlot, String municipality,
+                          List<ItemView> items, StateView currentState, List<StateView> previousStates, Long version,
+                          String crew) {
+
+    public static BookingView of(Booking booking) {
+        List<ItemView> items = booking.getItems() == null ? List.of()
+            : booking.getItems().stream().map(ItemView::of).toList();
+        List<StateView> history = booking.getPreviousStates().stream().map(StateView::of).toList();
+        return new BookingView(booking.getToken(), booking.getDate(), booking.getApproxTimeSlot(), booking.getMunicipality(),
+            items, StateView.of(booking.getCurrentState()), history, booking.getVersion(), booking.getCrew());
+    }
+
+    public static BookingView of(BookingProjection projection) {
+        return new BookingView(projection.token(), projection.date(), projection.approxTimeSlot(), projection.municipality(),
+            projection.items() == null ? null : projection.items().stream().map(ItemView::of).toList(),
+            projection.currentState() == null ? null : StateView.of(projection.currentState()),
+            projection.previousStates() == null ? null : projection.previousStates().stream().map(StateView::of).toList(),
+            projection.version(), null);
+    }
+
+    public static List<BookingView> ofAll(List<Booking> bookings) {
+        return bookings.stream().map(BookingView::of).toList();
+    }
+
+    public record ItemView(String name, String description) {
+        static ItemView of(Item item) {
+            return new ItemView(item.getName(), item.getDescription());
+        }
+    }
+
+    public record StateView(State state, Instant timestamp) {
+        static StateView of(RequestState requestState) {
+            return new StateView(requestState.getState(),
+                requestState.getTimestamp() == null ? null : requestState.getTimestamp().toInstant());
+        }
+    }
+
+    public record ChangeFeedView(List<BookingView> bookings, String next, boolean hasMore) {
+    }
+
+    public record PageView(List<BookingView> bookings, int page, int size, long totalElements, int totalPages) {
+        static PageView of(Page<BookingView> page) {
+            return new PageView(page.getContent(), page.getNumber(), page.getSize(), page.getTotalElements(), page.getTotalPages());
+        }
+    }
+}
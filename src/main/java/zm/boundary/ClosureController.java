@@ -0,0 +1,99 @@
+package zm.boundary;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import zm.data.Closure;
+import zm.services.ClosureCalendar;
+
+import java.net.URI;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+// Holiday and closure calendar: the closed days of a municipality for the booking form, and staff-managed ad-hoc closures
+@RestController
+@Profile("!reactive")
+@RequestMapping("/api")
+@CrossOrigin(origins = "*", allowedHeaders = "*")
+public class ClosureController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClosureController.class);
+    static final int MAX_RANGE_DAYS = 366;
+    static final int DEFAULT_RANGE_DAYS = 60;
+
+    private final ClosureCalendar closureCalendar;
+
+    public ClosureController(ClosureCalendar closureCalendar) {
+        this.closureCalendar = closureCalendar;
+    }
+
+    // Closed days in [from, to], defaulting to the next 60 days; weekends are not listed
+    @GetMapping("/closures/{municipality}")
+    public ResponseEntity<Object> getClosedDays(@PathVariable String municipality,
+                                                @RequestParam(required = false) String from,
+                                                @RequestParam(required = false) String to) {
+        LocalDate first;
+        LocalDate last;
+        try {
+            first = from == null ? LocalDate.now() : LocalDate.parse(from);
+            last = to == null ? first.plusDays(DEFAULT_RANGE_DAYS - 1) : LocalDate.parse(to);
+        } catch (DateTimeException e) {
+            logger.warn("Invalid closed days range: {} to {}", from, to);
+            return ResponseEntity.badRequest().body("Invalid date range");
+        }
+        long days = last.toEpochDay() - first.toEpochDay() + 1;
+        if (days <= 0 || days > MAX_RANGE_DAYS) {
+            logger.warn("Closed days request rejected: {} to {}", first, last);
+            return ResponseEntity.badRequest().body("Range must cover 1 to " + MAX_RANGE_DAYS + " days");
+        }
+
+        BitSet closed = closureCalendar.closedDays(municipality, first, (int) days);
+        List<LocalDate> dates = new ArrayList<>(closed.cardinality());
+        for (int day = closed.nextSetBit(0); day >= 0; day = closed.nextSetBit(day + 1)) {
+            dates.add(first.plusDays(day));
+        }
+        return ResponseEntity.ok(dates);
+    }
+
+    @GetMapping("/staff/closures")
+    public ResponseEntity<List<Closure>> getClosures() {
+        logger.info("Retrieving ad-hoc closures");
+        return ResponseEntity.ok(closureCalendar.getClosures());
+    }
+
+    // A null municipality closes every municipality; lastDay defaults to firstDay
+    @PostMapping("/staff/closures")
+    public ResponseEntity<Object> addClosure(@RequestBody ClosureRequest request) {
+        logger.info("Received closure for {} from {} to {}", request.municipality(), request.firstDay(), request.lastDay());
+
+        try {
+            Closure closure = closureCalendar.addClosure(request.municipality(), request.firstDay(), request.lastDay(), request.reason());
+            return ResponseEntity.created(URI.create("/api/staff/closures/" + closure.getId())).body(closure);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Closure rejected: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            logger.error("Unexpected error adding closure", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("An unexpected error occurred");
+        }
+    }
+
+    @DeleteMapping("/staff/closures/{id}")
+    public ResponseEntity<Void> removeClosure(@PathVariable long id) {
+        if (closureCalendar.removeClosure(id)) {
+            return ResponseEntity.noContent().build();
+        }
+        logger.warn("Closure not found: {}", id);
+        return ResponseEntity.notFound().build();
+    }
+
+    public record ClosureRequest(String municipality, LocalDate firstDay, LocalDate lastDay, String reason) {
+    }
+}
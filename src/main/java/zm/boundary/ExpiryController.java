@@ -0,0 +1,49 @@
+package zm.boundary;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import zm.services.BookingExpiryService;
+
+// Expiry of bookings left open past their date: the last scheduled run's report, or a run on demand
+@RestController
+@Profile("!reactive")
+@RequestMapping("/api/staff/expiry")
+@CrossOrigin(origins = "*", allowedHeaders = "*")
+public class ExpiryController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExpiryController.class);
+
+    private final BookingExpiryService expiryService;
+
+    public ExpiryController(BookingExpiryService expiryService) {
+        this.expiryService = expiryService;
+    }
+
+    @GetMapping
+    public ResponseEntity<Object> lastRun() {
+        return expiryService.lastRun().<ResponseEntity<Object>>map(ResponseEntity::ok).orElseGet(() -> {
+            logger.info("No expiry run recorded on this node yet");
+            return ResponseEntity.notFound().build();
+        });
+    }
+
+    // Runs to completion before responding; the scheduled run covers the usual case
+    @PostMapping
+    public ResponseEntity<Object> expire() {
+        logger.info("Expiry requested");
+        try {
+            return ResponseEntity.ok(expiryService.expire());
+        } catch (IllegalStateException e) {
+            logger.warn("Expiry rejected: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (Exception e) {
+            logger.error("Expiry failed", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Expiry failed");
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package zm.boundary;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import zm.services.BookingExportService;
+import zm.services.ExportJob;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.Optional;
+
+// Columnar (Arrow IPC) exports of bookings, items and state transitions for the analytics team
+@RestController
+@Profile("!reactive")
+@RequestMapping("/api/staff/exports")
+@CrossOrigin(origins = "*", allowedHeaders = "*")
+public class ExportController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExportController.class);
+    static final MediaType ARROW_FILE = MediaType.parseMediaType("application/vnd.apache.arrow.file");
+
+    private final BookingExportService exportService;
+
+    public ExportController(BookingExportService exportService) {
+        this.exportService = exportService;
+    }
+
+    // Starts an export in the background; poll the returned location until it completes
+    @PostMapping
+    public ResponseEntity<ExportJob> start() {
+        ExportJob job = exportService.start();
+        logger.info("Export {} requested", job.id());
+        return ResponseEntity.accepted().location(URI.create("/api/staff/exports/" + job.id())).body(job);
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<ExportJob> status(@PathVariable String id) {
+        return exportService.find(id).map(ResponseEntity::ok).orElseGet(() -> {
+            logger.warn("Export not found: {}", id);
+            return ResponseEntity.notFound().build();
+        });
+    }
+
+    // One file of a completed export, named as listed in its status, e.g. ?path=bookings/date=2025-03-14/part-0.arrow
+    @GetMapping("/{id}/files")
+    public ResponseEntity<Resource> file(@PathVariable String id, @RequestParam String path) {
+        Optional<Path> file = exportService.file(id, path);
+        if (file.isEmpty()) {
+            logger.warn("Export file not found: {} in {}", path, id);
+            return ResponseEntity.notFound().build();
+        }
+        String name = path.replace('/', '_');
+        return ResponseEntity.ok()
+            .contentType(ARROW_FILE)
+            .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(name).build().toString())
+            .body(new FileSystemResource(file.get()));
+    }
+}
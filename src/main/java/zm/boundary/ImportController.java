@@ -0,0 +1,55 @@
+package zm.boundary;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import zm.services.BookingImportService;
+import zm.services.ImportReport;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+// Bulk load of historical bookings, e.g. curl -H 'Content-Type: text/csv' --data-binary @history.csv .../api/staff/imports
+@RestController
+@Profile("!reactive")
+@RequestMapping("/api/staff/imports")
+@CrossOrigin(origins = "*", allowedHeaders = "*")
+public class ImportController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImportController.class);
+    static final String TEXT_CSV = "text/csv";
+    static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+    private final BookingImportService importService;
+
+    public ImportController(BookingImportService importService) {
+        this.importService = importService;
+    }
+
+    // The body is consumed as a stream, so the upload is never held in memory as a whole
+    @PostMapping(consumes = {TEXT_CSV, APPLICATION_NDJSON})
+    public ResponseEntity<Object> importBookings(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType, InputStream body) {
+        BookingImportService.Format format = MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.parseMediaType(TEXT_CSV))
+            ? BookingImportService.Format.CSV
+            : BookingImportService.Format.NDJSON;
+        logger.info("Received {} booking import", format);
+
+        try {
+            ImportReport report = importService.importBookings(body, format);
+            logger.info("Import completed: {} imported, {} rejected", report.imported(), report.rejected());
+            return ResponseEntity.ok(report);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Import rejected: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IOException e) {
+            logger.error("Error reading import upload", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error reading the upload");
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package zm.boundary;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import zm.services.CollectionManifest;
+import zm.services.ManifestService;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.List;
+
+// Daily collection manifests for crews, as JSON or, with ?format=csv or Accept: text/csv, as a printable sheet
+@RestController
+@Profile("!reactive")
+@RequestMapping("/api/staff/manifests")
+@CrossOrigin(origins = "*", allowedHeaders = "*")
+public class ManifestController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ManifestController.class);
+    static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+    static final String CSV_HEADER = "municipality,approx_time_slot,token,state,item,description";
+
+    private final ManifestService manifestService;
+
+    public ManifestController(ManifestService manifestService) {
+        this.manifestService = manifestService;
+    }
+
+    @GetMapping("/{date}")
+    public ResponseEntity<Object> getManifests(@PathVariable String date,
+                                               @RequestParam(required = false) String municipality,
+                                               @RequestParam(required = false) String format,
+                                               @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        logger.info("Retrieving manifests for {} (municipality: {})", date, municipality);
+
+        LocalDate day;
+        try {
+            day = LocalDate.parse(date);
+        } catch (DateTimeException e) {
+            logger.warn("Invalid manifest date: {}", date);
+            return ResponseEntity.badRequest().body("Invalid date: " + date);
+        }
+
+        try {
+            List<CollectionManifest> manifests = municipality == null
+                ? manifestService.getManifests(day)
+                : manifestService.getManifest(day, municipality).stream().toList();
+            if (!wantsCsv(format, accept)) {
+                return ResponseEntity.ok(manifests);
+            }
+            return ResponseEntity.ok()
+                .contentType(TEXT_CSV)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                    ContentDisposition.attachment().filename("manifest-" + day + ".csv").build().toString())
+                .body(toCsv(manifests));
+        } catch (Exception e) {
+            logger.error("Error building manifests for {}", date, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error building manifests");
+        }
+    }
+
+    static boolean wantsCsv(String format, String accept) {
+        if (format != null) {
+            return format.equalsIgnoreCase("csv");
+        }
+        return accept != null && MediaType.parseMediaTypes(accept).stream().anyMatch(TEXT_CSV::equalsTypeAndSubtype);
+    }
+
+    // One line per item, stops in route order
+    static String toCsv(List<CollectionManifest> manifests) {
+        StringBuilder csv = new StringBuilder(CSV_HEADER).append('\n');
+        for (CollectionManifest manifest : manifests) {
+            for (CollectionManifest.Stop stop : manifest.stops()) {
+                for (CollectionManifest.StopItem item : stop.items()) {
+                    csv.append(csvField(manifest.municipality())).append(',')
+                        .append(stop.approxTimeSlot()).append(',')
+                        .append(stop.token()).append(',')
+                        .append(stop.state()).append(',')
+                        .append(csvField(item.name())).append(',')
+                        .append(csvField(item.description())).append('\n');
+                }
+            }
+        }
+        return csv.toString();
+    }
+
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r")) {
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+        return value;
+    }
+}
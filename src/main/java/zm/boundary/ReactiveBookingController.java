@@ -0,0 +1,257 @@
+package zm.boundary;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import zm.boundary.BookingController.BookingRequest;
+import zm.boundary.BookingController.BookingResponse;
+import zm.boundary.BookingController.CapacityResponse;
+import zm.boundary.BookingController.StateUpdateRequest;
+import zm.data.Booking;
+import zm.data.BookingFilter;
+import zm.data.State;
+import zm.services.CapacityExceededException;
+import zm.services.MunicipalityProvider;
+import zm.services.ReactiveBookingService;
+
+import java.time.Duration;
+import java.util.List;
+
+// WebFlux twin of BookingController: same paths, status codes and caching headers, active under the reactive profile
+@RestController
+@Profile("reactive")
+@RequestMapping("/api")
+@CrossOrigin(origins = "*", allowedHeaders = "*")
+public class ReactiveBookingController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveBookingController.class);
+    private static final long MAX_AWAIT_SECONDS = 60;
+    private final ReactiveBookingService bookingService;
+    private final MunicipalityProvider municipalityProvider;
+
+    public ReactiveBookingController(ReactiveBookingService bookingService, MunicipalityProvider municipalityProvider) {
+        this.bookingService = bookingService;
+        this.municipalityProvider = municipalityProvider;
+    }
+
+    @PostMapping("/bookings")
+    public Mono<ResponseEntity<Object>> book(@RequestBody BookingRequest request) {
+        logger.info("Received booking request for municipality: {}", request.getMunicipality());
+
+        if (request.getMunicipality() == null || request.getMunicipality().trim().isEmpty()) {
+            logger.warn("Booking request rejected: municipality is null or empty");
+            return Mono.just(ResponseEntity.badRequest().body("Municipality is required"));
+        }
+
+        if (request.getItems() == null || request.getItems().isEmpty()) {
+            logger.warn("Booking request rejected: items list is empty");
+            return Mono.just(ResponseEntity.badRequest().body("At least one item is required"));
+        }
+
+        if (request.getDate() == null) {
+            logger.warn("Booking request rejected: date is null");
+            return Mono.just(ResponseEntity.badRequest().body("Date is required"));
+        }
+
+        if (request.getApproxTimeSlot() == null) {
+            logger.warn("Booking request rejected: time slot is null");
+            return Mono.just(ResponseEntity.badRequest().body("Time slot is required"));
+        }
+
+        return bookingService.book(request.getDate(), request.getApproxTimeSlot(), request.getItems(), request.getMunicipality())
+            .map(token -> {
+                logger.info("Booking created successfully with token: {}", token);
+                return ResponseEntity.status(HttpStatus.CREATED).<Object>body(new BookingResponse(token, "Booking created successfully"));
+            })
+            .onErrorResume(IllegalArgumentException.class, e -> {
+                logger.warn("Booking request rejected: {}", e.getMessage());
+                return Mono.just(ResponseEntity.badRequest().body(e.getMessage()));
+            })
+            .onErrorResume(CapacityExceededException.class, e -> {
+                logger.warn("Booking request rejected due to capacity, {} alternatives suggested", e.getSuggestions().size());
+                return Mono.just(ResponseEntity.status(HttpStatus.CONFLICT).body(new CapacityResponse(e.getMessage(), e.getSuggestions())));
+            })
+            .onErrorResume(IllegalStateException.class, e -> {
+                logger.warn("Booking request rejected due to capacity: {}", e.getMessage());
+                return Mono.just(ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage()));
+            })
+            .onErrorResume(e -> {
+                logger.error("Unexpected error during booking", e);
+                return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("An unexpected error occurred"));
+            });
+    }
+
+    // Booking details by token
+    @GetMapping("/bookings/{token}")
+    public Mono<ResponseEntity<Object>> check(@PathVariable String token,
+                                              @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        logger.info("Checking booking with token: {}", token);
+
+        return bookingService.check(token)
+            .map(booking -> {
+                String etag = BookingController.etagOf(booking);
+                if (BookingController.etagMatches(ifNoneMatch, etag)) {
+                    logger.info("Booking unchanged for token: {}", token);
+                    return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag)
+                        .cacheControl(BookingController.cacheControlOf(booking)).<Object>build();
+                }
+                logger.info("Booking found for token: {}", token);
+                return ok(booking);
+            })
+            .switchIfEmpty(Mono.fromSupplier(() -> {
+                logger.warn("Booking not found for token: {}", token);
+                return ResponseEntity.notFound().<Object>build();
+            }))
+            .onErrorResume(e -> {
+                logger.error("Error checking booking with token: {}", token, e);
+                return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error retrieving booking"));
+            });
+    }
+
+    // Long-poll without a parked thread: the response is written when the waiter completes or times out
+    @GetMapping("/bookings/{token}/await")
+    public Mono<ResponseEntity<Object>> awaitStateChange(@PathVariable String token,
+                                                         @RequestParam(required = false) String since,
+                                                         @RequestParam(defaultValue = "30") long timeout) {
+        logger.info("Awaiting state change for booking with token: {}", token);
+
+        long seconds = Math.max(1, Math.min(timeout, MAX_AWAIT_SECONDS));
+        State sinceState;
+        try {
+            sinceState = since == null ? null : State.valueOf(since.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid state provided: {}", since);
+            return Mono.just(ResponseEntity.badRequest().body("Invalid state: " + since));
+        }
+
+        return bookingService.awaitStateChange(token, sinceState, Duration.ofSeconds(seconds))
+            .flatMap(change -> {
+                if (change.isEmpty()) {
+                    return Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED).<Object>build());
+                }
+                return bookingService.check(token).map(ReactiveBookingController::ok)
+                    .defaultIfEmpty(ResponseEntity.notFound().<Object>build());
+            })
+            .switchIfEmpty(Mono.fromSupplier(() -> {
+                logger.warn("Booking not found for token: {}", token);
+                return ResponseEntity.notFound().<Object>build();
+            }))
+            .onErrorResume(e -> {
+                logger.error("Error awaiting state change for token: {}", token, e);
+                return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).<Object>build());
+            });
+    }
+
+    @DeleteMapping("/bookings/{token}")
+    public Mono<ResponseEntity<Void>> cancel(@PathVariable String token) {
+        logger.info("Cancelling booking with token: {}", token);
+
+        return bookingService.cancel(token)
+            .map(cancelled -> {
+                if (cancelled) {
+                    logger.info("Booking cancelled successfully: {}", token);
+                    return ResponseEntity.noContent().<Void>build();
+                }
+                logger.warn("Booking not found or already cancelled: {}", token);
+                return ResponseEntity.notFound().<Void>build();
+            })
+            .onErrorResume(e -> {
+                logger.error("Error cancelling booking with token: {}", token, e);
+                return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build());
+            });
+    }
+
+    @PatchMapping("/bookings/{token}/state")
+    public Mono<ResponseEntity<Void>> modify(@PathVariable String token, @RequestBody(required = false) StateUpdateRequest request) {
+        logger.info("Modifying state for booking with token: {}", token);
+
+        // Default to ASSIGNED if no state provided (for backwards compatibility)
+        State newState = request != null && request.getState() != null ? request.getState() : State.ASSIGNED;
+
+        return bookingService.changeState(token, newState)
+            .map(updated -> {
+                if (updated) {
+                    logger.info("Booking state updated successfully: {} to {}", token, newState);
+                    return ResponseEntity.noContent().<Void>build();
+                }
+                logger.warn("Booking not found or state transition invalid: {}", token);
+                return ResponseEntity.notFound().<Void>build();
+            })
+            .onErrorResume(e -> {
+                logger.error("Error updating booking state for token: {}", token, e);
+                return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build());
+            });
+    }
+
+    @PatchMapping("/bookings/state")
+    public Mono<ResponseEntity<Void>> modifyWithoutToken() {
+        logger.warn("Modify request rejected: token is missing");
+        return Mono.just(ResponseEntity.notFound().build());
+    }
+
+    // Lists are streamed to the client as the rows arrive rather than collected first; a search returns one page
+    @GetMapping("/staff/bookings")
+    public ResponseEntity<Object> getAllBookings(@RequestParam(required = false) String state,
+                                                 @RequestParam(required = false) String municipality,
+                                                 @RequestParam(required = false) String from,
+                                                 @RequestParam(required = false) String to,
+                                                 @RequestParam(required = false) String slot,
+                                                 @RequestParam(required = false) Integer page,
+                                                 @RequestParam(required = false) Integer size) {
+        if (!BookingController.isSearch(state, municipality, from, to, slot, page, size)) {
+            logger.info("Retrieving all bookings");
+            return ResponseEntity.ok(bookingService.getAllBookings().map(BookingView::of));
+        }
+
+        logger.info("Searching bookings: state={}, municipality={}, from={}, to={}, slot={}", state, municipality, from, to, slot);
+        BookingFilter filter;
+        Pageable pageable;
+        try {
+            filter = BookingController.searchFilter(state, municipality, from, to, slot);
+            pageable = BookingController.searchPage(page, size);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Booking search rejected: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        return ResponseEntity.ok(bookingService.searchBookings(filter, pageable)
+            .map(result -> BookingView.PageView.of(result.map(BookingView::of))));
+    }
+
+    @GetMapping("/bookings/state/{state}")
+    public ResponseEntity<Object> getBookingsByState(@PathVariable String state) {
+        logger.info("Retrieving bookings with state: {}", state);
+
+        try {
+            State filterState = State.valueOf(state.toUpperCase());
+            return ResponseEntity.ok(bookingService.getBookingsByState(filterState).map(BookingView::of));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid state provided: {}", state);
+            return ResponseEntity.badRequest().body("Invalid state: " + state);
+        }
+    }
+
+    @GetMapping("/municipalities/{municipality}")
+    public ResponseEntity<Flux<BookingView>> getBookingsByMunicipality(@PathVariable String municipality) {
+        logger.info("Retrieving bookings for municipality: {}", municipality);
+        return ResponseEntity.ok(bookingService.getBookingsByMunicipality(municipality).map(BookingView::of));
+    }
+
+    @GetMapping("/municipalities")
+    public ResponseEntity<List<String>> getMunicipalities() {
+        logger.info("Retrieving municipalities list");
+        return ResponseEntity.ok(municipalityProvider.getMunicipalities());
+    }
+
+    private static ResponseEntity<Object> ok(Booking booking) {
+        return ResponseEntity.ok().eTag(BookingController.etagOf(booking))
+            .cacheControl(BookingController.cacheControlOf(booking)).body(BookingView.of(booking));
+    }
+}
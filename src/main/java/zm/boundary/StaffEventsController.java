@@ -0,0 +1,82 @@
+package zm.boundary;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import zm.data.State;
+import zm.services.BookingEvent;
+import zm.services.BookingEventHub;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.function.Predicate;
+
+@RestController
+@Profile("!reactive")
+@RequestMapping("/api/staff")
+@CrossOrigin(origins = "*", allowedHeaders = "*")
+public class StaffEventsController {
+
+    private static final Logger logger = LoggerFactory.getLogger(StaffEventsController.class);
+    private static final Duration STREAM_TIMEOUT = Duration.ofMinutes(30);
+
+    private final BookingEventHub eventHub;
+
+    public StaffEventsController(BookingEventHub eventHub) {
+        this.eventHub = eventHub;
+    }
+
+    // Streams booking-created and state-changed deltas; clients load the list once and apply them
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> events(@RequestParam(required = false) String municipality,
+                                         @RequestParam(required = false) String state) {
+        logger.info("Opening staff event stream (municipality: {}, state: {})", municipality, state);
+
+        Predicate<BookingEvent> filter = event -> true;
+        if (municipality != null && !municipality.isBlank()) {
+            filter = filter.and(event -> municipality.equals(event.municipality()));
+        }
+        if (state != null && !state.isBlank()) {
+            State filterState;
+            try {
+                filterState = State.valueOf(state.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                logger.warn("Invalid state provided: {}", state);
+                return ResponseEntity.badRequest().build();
+            }
+            // Bookings leaving the state are sent too, so clients can take them off their list
+            filter = filter.and(event -> event.concerns(filterState));
+        }
+
+        try {
+            SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT.toMillis());
+            // Heartbeats are comment lines, queued behind the events, that keep idle connections from being closed by proxies
+            BookingEventHub.Subscription subscription = eventHub.subscribe(filter,
+                event -> send(emitter, SseEmitter.event().name(event.type().name()).id(event.token()).data(event)),
+                () -> send(emitter, SseEmitter.event().comment("heartbeat")),
+                emitter::complete);
+            emitter.onCompletion(subscription::cancel);
+            emitter.onTimeout(subscription::cancel);
+            emitter.onError(error -> subscription.cancel());
+            return ResponseEntity.ok(emitter);
+        } catch (Exception e) {
+            logger.error("Error opening staff event stream", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    private static void send(SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
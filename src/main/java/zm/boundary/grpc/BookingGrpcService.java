@@ -0,0 +1,258 @@
+package zm.boundary.grpc;
+
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import zm.data.Booking;
+import zm.data.State;
+import zm.services.BookingEvent;
+import zm.services.BookingEventHub;
+import zm.services.BookingService;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+// gRPC counterpart of BookingController, backed by the same BookingService and event hub
+@Component
+public class BookingGrpcService extends BookingApiGrpc.BookingApiImplBase {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookingGrpcService.class);
+
+    private final BookingService bookingService;
+    private final BookingEventHub eventHub;
+
+    public BookingGrpcService(BookingService bookingService, BookingEventHub eventHub) {
+        this.bookingService = bookingService;
+        this.eventHub = eventHub;
+    }
+
+    @Override
+    public void book(BookingProto.BookRequest request, StreamObserver<BookingProto.BookReply> responseObserver) {
+        logger.info("Received gRPC booking request for municipality: {}", request.getMunicipality());
+
+        if (request.getMunicipality().isBlank() || request.getItemsCount() == 0
+                || request.getDate().isEmpty() || request.getApproxTimeSlot().isEmpty()) {
+            responseObserver.onError(Status.INVALID_ARGUMENT
+                .withDescription("Municipality, items, date and time slot are required").asRuntimeException());
+            return;
+        }
+
+        try {
+            String token = bookingService.book(LocalDate.parse(request.getDate()), LocalTime.parse(request.getApproxTimeSlot()),
+                BookingMessages.fromProto(request.getItemsList()), request.getMunicipality());
+            logger.info("Booking created successfully with token: {}", token);
+            responseObserver.onNext(BookingProto.BookReply.newBuilder().setToken(token).build());
+            responseObserver.onCompleted();
+        } catch (RuntimeException e) {
+            responseObserver.onError(toStatus("booking", e));
+        }
+    }
+
+    @Override
+    public void check(BookingProto.TokenRequest request, StreamObserver<BookingProto.Booking> responseObserver) {
+        try {
+            Booking booking = bookingService.check(request.getToken());
+            if (booking == null) {
+                logger.warn("Booking not found for token: {}", request.getToken());
+                responseObserver.onError(Status.NOT_FOUND.withDescription("Booking not found").asRuntimeException());
+                return;
+            }
+            responseObserver.onNext(BookingMessages.toProto(booking));
+            responseObserver.onCompleted();
+        } catch (RuntimeException e) {
+            responseObserver.onError(toStatus("check", e));
+        }
+    }
+
+    @Override
+    public void cancel(BookingProto.TokenRequest request, StreamObserver<BookingProto.ChangeReply> responseObserver) {
+        try {
+            boolean cancelled = bookingService.cancel(request.getToken());
+            responseObserver.onNext(BookingProto.ChangeReply.newBuilder().setChanged(cancelled).build());
+            responseObserver.onCompleted();
+        } catch (RuntimeException e) {
+            responseObserver.onError(toStatus("cancel", e));
+        }
+    }
+
+    @Override
+    public void changeState(BookingProto.ChangeStateRequest request, StreamObserver<BookingProto.ChangeReply> responseObserver) {
+        try {
+            boolean changed = bookingService.changeState(request.getToken(), BookingMessages.fromProto(request.getState()));
+            responseObserver.onNext(BookingProto.ChangeReply.newBuilder().setChanged(changed).build());
+            responseObserver.onCompleted();
+        } catch (RuntimeException e) {
+            responseObserver.onError(toStatus("state change", e));
+        }
+    }
+
+    @Override
+    public void listByState(BookingProto.ListByStateRequest request, StreamObserver<BookingProto.Booking> responseObserver) {
+        try {
+            State state = BookingMessages.fromProto(request.getState());
+            stream(bookingService.getBookingsByState(state), responseObserver);
+        } catch (RuntimeException e) {
+            responseObserver.onError(toStatus("listing by state", e));
+        }
+    }
+
+    @Override
+    public void listByMunicipality(BookingProto.ListByMunicipalityRequest request, StreamObserver<BookingProto.Booking> responseObserver) {
+        try {
+            stream(bookingService.getBookingsByMunicipality(request.getMunicipality()), responseObserver);
+        } catch (RuntimeException e) {
+            responseObserver.onError(toStatus("listing by municipality", e));
+        }
+    }
+
+    @Override
+    public StreamObserver<BookingProto.WatchRequest> watchStateChanges(StreamObserver<BookingProto.StateChange> responseObserver) {
+        Set<String> tokens = ConcurrentHashMap.newKeySet();
+        Set<String> municipalities = ConcurrentHashMap.newKeySet();
+        WatchStream stream = new WatchStream((ServerCallStreamObserver<BookingProto.StateChange>) responseObserver, eventHub.bufferSize());
+
+        BookingEventHub.Subscription subscription = eventHub.subscribe(
+            event -> tokens.contains(event.token()) || municipalities.contains(event.municipality()),
+            stream::send,
+            () -> stream.fail(Status.RESOURCE_EXHAUSTED.withDescription("Watcher fell too far behind")));
+        stream.observer.setOnCancelHandler(subscription::cancel);
+        logger.info("gRPC state watcher connected, {} subscribers", eventHub.subscriberCount());
+
+        return new StreamObserver<>() {
+            @Override
+            public void onNext(BookingProto.WatchRequest request) {
+                switch (request.getActionCase()) {
+                    case WATCH_TOKEN -> tokens.add(request.getWatchToken());
+                    case UNWATCH_TOKEN -> tokens.remove(request.getUnwatchToken());
+                    case WATCH_MUNICIPALITY -> municipalities.add(request.getWatchMunicipality());
+                    case UNWATCH_MUNICIPALITY -> municipalities.remove(request.getUnwatchMunicipality());
+                    default -> logger.debug("Ignoring empty watch request");
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                subscription.cancel();
+            }
+
+            @Override
+            public void onCompleted() {
+                subscription.cancel();
+                stream.complete();
+            }
+        };
+    }
+
+    private static void stream(List<Booking> bookings, StreamObserver<BookingProto.Booking> responseObserver) {
+        for (Booking booking : bookings) {
+            responseObserver.onNext(BookingMessages.toProto(booking));
+        }
+        responseObserver.onCompleted();
+    }
+
+    private static StatusRuntimeException toStatus(String operation, RuntimeException e) {
+        if (e instanceof IllegalArgumentException || e instanceof DateTimeException) {
+            logger.warn("gRPC {} rejected: {}", operation, e.getMessage());
+            return Status.INVALID_ARGUMENT.withDescription(e.getMessage()).asRuntimeException();
+        }
+        if (e instanceof IllegalStateException) {
+            logger.warn("gRPC {} rejected due to capacity: {}", operation, e.getMessage());
+            return Status.RESOURCE_EXHAUSTED.withDescription(e.getMessage()).asRuntimeException();
+        }
+        logger.error("Unexpected error during gRPC {}", operation, e);
+        return Status.INTERNAL.withDescription("An unexpected error occurred").asRuntimeException();
+    }
+
+    // Hub drains, ready callbacks and the client's half-close arrive on different threads, but a StreamObserver is not
+    // thread-safe. Changes wait here until the transport is ready for them; a client that leaves more than limit
+    // unread is cut off rather than buffered without end.
+    private static final class WatchStream {
+        private final ServerCallStreamObserver<BookingProto.StateChange> observer;
+        private final int limit;
+        private final Queue<BookingProto.StateChange> pending = new ArrayDeque<>();
+        private final ReentrantLock lock = new ReentrantLock();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private WatchStream(ServerCallStreamObserver<BookingProto.StateChange> observer, int limit) {
+            this.observer = observer;
+            this.limit = limit;
+            observer.setOnReadyHandler(this::flush);
+        }
+
+        // Throws once the client has fallen too far behind, so the hub drops its subscription
+        void send(BookingEvent event) {
+            lock.lock();
+            try {
+                if (closed.get()) {
+                    return;
+                }
+                pending.add(BookingMessages.toProto(event));
+                flushPending();
+                if (pending.size() > limit) {
+                    close(Status.RESOURCE_EXHAUSTED.withDescription("Watcher stopped reading"));
+                    throw new IllegalStateException("gRPC watcher left more than " + limit + " changes unread");
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void flush() {
+            lock.lock();
+            try {
+                if (!closed.get()) {
+                    flushPending();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void flushPending() {
+            while (!pending.isEmpty() && observer.isReady()) {
+                observer.onNext(pending.poll());
+            }
+        }
+
+        void complete() {
+            close(null);
+        }
+
+        void fail(Status status) {
+            close(status);
+        }
+
+        private void close(Status status) {
+            lock.lock();
+            try {
+                if (!closed.compareAndSet(false, true)) {
+                    return;
+                }
+                pending.clear();
+                if (observer.isCancelled()) {
+                    return;
+                }
+                if (status == null) {
+                    observer.onCompleted();
+                } else {
+                    observer.onError(status.asRuntimeException());
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package zm.boundary.grpc;
+
+import com.google.protobuf.Timestamp;
+import zm.data.Booking;
+import zm.data.Item;
+import zm.data.RequestState;
+import zm.data.State;
+import zm.services.BookingEvent;
+
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+// Conversions between the domain types and the messages in booking.proto
+final class BookingMessages {
+
+    private BookingMessages() {
+    }
+
+    static BookingProto.Booking toProto(Booking booking) {
+        BookingProto.Booking.Builder builder = BookingProto.Booking.newBuilder()
+            .setToken(booking.getToken())
+            .setDate(booking.getDate().toString())
+            .setApproxTimeSlot(DateTimeFormatter.ISO_LOCAL_TIME.format(booking.getApproxTimeSlot()))
+            .setMunicipality(booking.getMunicipality())
+            .setCurrentState(toProto(booking.getCurrentState()))
+            .setVersion(booking.getVersion() == null ? 0 : booking.getVersion());
+        if (booking.getItems() != null) {
+            booking.getItems().forEach(item -> builder.addItems(BookingProto.Item.newBuilder()
+                .setName(item.getName())
+                .setDescription(item.getDescription() == null ? "" : item.getDescription())));
+        }
+        booking.getPreviousStates().forEach(state -> builder.addPreviousStates(toProto(state)));
+        return builder.build();
+    }
+
+    static BookingProto.RequestState toProto(RequestState requestState) {
+        Instant instant = requestState.getTimestamp().toInstant();
+        return BookingProto.RequestState.newBuilder()
+            .setState(toProto(requestState.getState()))
+            .setTimestamp(Timestamp.newBuilder().setSeconds(instant.getEpochSecond()).setNanos(instant.getNano()))
+            .build();
+    }
+
+    static BookingProto.StateChange toProto(BookingEvent event) {
+        return BookingProto.StateChange.newBuilder()
+            .setType(event.type() == BookingEvent.Type.CREATED
+                ? BookingProto.StateChange.Type.CREATED
+                : BookingProto.StateChange.Type.STATE_CHANGED)
+            .setToken(event.token())
+            .setMunicipality(event.municipality())
+            .setState(toProto(event.state()))
+            .build();
+    }
+
+    static BookingProto.State toProto(State state) {
+        return BookingProto.State.valueOf(state.name());
+    }
+
+    static State fromProto(BookingProto.State state) {
+        if (state == BookingProto.State.STATE_UNSPECIFIED || state == BookingProto.State.UNRECOGNIZED) {
+            throw new IllegalArgumentException("State is required");
+        }
+        return State.valueOf(state.name());
+    }
+
+    static List<Item> fromProto(List<BookingProto.Item> items) {
+        return items.stream()
+            .map(item -> new Item(item.getName(), item.getDescription()))
+            .collect(Collectors.toCollection(ArrayList::new));
+    }
+}
@@ -0,0 +1,97 @@
+package zm.boundary.grpc;
+
+import io.grpc.BindableService;
+import io.grpc.Grpc;
+import io.grpc.InsecureServerCredentials;
+import io.grpc.Server;
+import io.grpc.ServerBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Runs the gRPC services on their own port, or in-process only when booking.grpc.in-process-name is set
+@Component
+@ConditionalOnProperty(name = "booking.grpc.enabled", havingValue = "true", matchIfMissing = true)
+public class GrpcServerLifecycle implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(GrpcServerLifecycle.class);
+
+    private final List<BindableService> services;
+    private final int port;
+    private final String inProcessName;
+    private final boolean virtualThreads;
+    private ExecutorService executor;
+    private volatile Server server;
+
+    public GrpcServerLifecycle(List<BindableService> services,
+                               @Value("${booking.grpc.port:9090}") int port,
+                               @Value("${booking.grpc.in-process-name:}") String inProcessName,
+                               @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.services = services;
+        this.port = port;
+        this.inProcessName = inProcessName;
+        this.virtualThreads = virtualThreads;
+    }
+
+    @Override
+    public void start() {
+        ServerBuilder<?> builder = inProcessName.isBlank()
+            ? Grpc.newServerBuilderForPort(port, InsecureServerCredentials.create())
+            : InProcessServerBuilder.forName(inProcessName);
+        if (virtualThreads) {
+            executor = Executors.newVirtualThreadPerTaskExecutor();
+            builder.executor(executor);
+        }
+        services.forEach(builder::addService);
+
+        try {
+            server = builder.build().start();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not start the gRPC server", e);
+        }
+        logger.info("gRPC server started {}", inProcessName.isBlank() ? "on port " + server.getPort() : "in-process as " + inProcessName);
+    }
+
+    @Override
+    public void stop() {
+        Server running = server;
+        if (running == null) {
+            return;
+        }
+        running.shutdown();
+        try {
+            if (!running.awaitTermination(5, TimeUnit.SECONDS)) {
+                running.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running.shutdownNow();
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        server = null;
+        logger.info("gRPC server stopped");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return server != null;
+    }
+
+    // The bound port, useful when booking.grpc.port is 0; -1 for in-process servers
+    public int getPort() {
+        return server == null ? -1 : server.getPort();
+    }
+}
@@ -0,0 +1,55 @@
+package zm.config;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fasterxml.jackson.datatype.jsr310.ser.InstantSerializer;
+import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateSerializer;
+import com.fasterxml.jackson.datatype.jsr310.ser.LocalTimeSerializer;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import zm.data.State;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+
+@Configuration
+public class JacksonConfig {
+
+    // Fixed ISO formats for the booking payload types, and State names encoded once instead of on every write
+    @Bean
+    public Jackson2ObjectMapperBuilderCustomizer bookingPayloadCustomizer() {
+        return builder -> builder
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .serializerByType(LocalDate.class, new LocalDateSerializer(DateTimeFormatter.ISO_LOCAL_DATE))
+            .serializerByType(LocalTime.class, new LocalTimeSerializer(DateTimeFormatter.ISO_LOCAL_TIME))
+            .serializerByType(Instant.class, InstantSerializer.INSTANCE)
+            .serializerByType(State.class, new StateSerializer());
+    }
+
+    static class StateSerializer extends StdSerializer<State> {
+
+        private static final SerializedString[] NAMES = new SerializedString[State.values().length];
+
+        static {
+            for (State state : State.values()) {
+                NAMES[state.ordinal()] = new SerializedString(state.name());
+            }
+        }
+
+        StateSerializer() {
+            super(State.class);
+        }
+
+        @Override
+        public void serialize(State state, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeString(NAMES[state.ordinal()]);
+        }
+    }
+}
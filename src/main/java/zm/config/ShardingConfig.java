@@ -0,0 +1,154 @@
+package zm.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.hibernate.tool.schema.TargetType;
+import org.hibernate.tool.schema.internal.ExceptionHandlerHaltImpl;
+import org.hibernate.tool.schema.spi.ContributableMatcher;
+import org.hibernate.tool.schema.spi.ExecutionOptions;
+import org.hibernate.tool.schema.spi.SchemaManagementTool;
+import org.hibernate.tool.schema.spi.SchemaManagementToolCoordinator;
+import org.hibernate.tool.schema.spi.ScriptTargetOutput;
+import org.hibernate.tool.schema.spi.TargetDescriptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import zm.data.ShardRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+
+// Active when booking.sharding.count is above 1. Shard 0 is spring.datasource and shard n is configured under
+// booking.sharding.shards.n (url, username, password); every shard's pool takes the spring.datasource.hikari settings.
+@Configuration
+@ConditionalOnExpression("${booking.sharding.count:1} > 1")
+public class ShardingConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardingConfig.class);
+
+    // The reactive profile reaches the database through R2DBC alone, which sees only shard 0, so it refuses to start
+    // rather than miss the other shards' bookings
+    public ShardingConfig(Environment environment) {
+        if (environment.acceptsProfiles(Profiles.of("reactive"))) {
+            throw new IllegalStateException("The reactive profile cannot serve sharded bookings; set booking.sharding.count to 1");
+        }
+    }
+
+    @Bean
+    public ShardRoutingDataSource shardRoutingDataSource(DataSourceProperties primary, Environment environment,
+                                                         @Value("${booking.sharding.count}") int count) {
+        Binder binder = Binder.get(environment);
+        List<DataSource> shards = new ArrayList<>(count);
+        shards.add(pool(primary, binder, 0));
+        for (int shard = 1; shard < count; shard++) {
+            String prefix = "booking.sharding.shards." + shard;
+            DataSourceProperties properties = binder.bind(prefix, DataSourceProperties.class)
+                    .orElseThrow(() -> new IllegalStateException("No datasource configured under " + prefix));
+            shards.add(pool(properties, binder, shard));
+        }
+        logger.info("Bookings are sharded across {} datasources", count);
+        return new ShardRoutingDataSource(shards);
+    }
+
+    // The one DataSource JPA and the transaction manager see
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardRoutingDataSource shardRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+    }
+
+    @Bean
+    public ShardSchema shardSchema(@Value("${spring.jpa.hibernate.ddl-auto:none}") String ddlAuto,
+                                   @Value("${booking.sharding.count}") int count) {
+        return new ShardSchema(!"none".equals(ddlAuto) && !"validate".equals(ddlAuto), count);
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer shardSchemaIntegrator(ShardSchema shardSchema) {
+        return properties -> properties.put("hibernate.integrator_provider", (IntegratorProvider) () -> List.of(shardSchema));
+    }
+
+    private static HikariDataSource pool(DataSourceProperties properties, Binder binder, int shard) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+        pool.setPoolName("shard-" + shard);
+        return pool;
+    }
+
+    // Hibernate only manages the schema of the DataSource it boots against, which is shard 0. The mapping it
+    // compiled is captured here and replayed as a schema update against every other shard, once all singletons,
+    // the entity manager factory included, exist and before anything reads a shard.
+    static class ShardSchema implements Integrator, SmartInitializingSingleton {
+
+        private static final TargetDescriptor DATABASE_ONLY = new TargetDescriptor() {
+            @Override
+            public EnumSet<TargetType> getTargetTypes() {
+                return EnumSet.of(TargetType.DATABASE);
+            }
+
+            @Override
+            public ScriptTargetOutput getScriptTargetOutput() {
+                return null;
+            }
+        };
+
+        private final boolean update;
+        private final int count;
+        private volatile Metadata metadata;
+        private volatile ServiceRegistry serviceRegistry;
+
+        ShardSchema(boolean update, int count) {
+            this.update = update;
+            this.count = count;
+        }
+
+        @Override
+        public void integrate(Metadata metadata, BootstrapContext bootstrapContext, SessionFactoryImplementor sessionFactory) {
+            this.metadata = metadata;
+            this.serviceRegistry = sessionFactory.getServiceRegistry();
+        }
+
+        @Override
+        public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+        }
+
+        @Override
+        public void afterSingletonsInstantiated() {
+            if (!update || metadata == null) {
+                return;
+            }
+            Map<String, Object> settings = serviceRegistry.requireService(ConfigurationService.class).getSettings();
+            ExecutionOptions options = SchemaManagementToolCoordinator.buildExecutionOptions(settings, ExceptionHandlerHaltImpl.INSTANCE);
+            SchemaManagementTool tool = serviceRegistry.requireService(SchemaManagementTool.class);
+            for (int shard = 1; shard < count; shard++) {
+                ShardRoutingDataSource.on(shard, () -> {
+                    tool.getSchemaMigrator(settings).doMigration(metadata, options, ContributableMatcher.ALL, DATABASE_ONLY);
+                    return null;
+                });
+                logger.info("Schema updated on shard {}", shard);
+            }
+        }
+    }
+}
@@ -2,17 +2,31 @@ package zm.data;
 
 import jakarta.persistence.*;
 import lombok.Setter;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.ColumnDefault;
 
+import java.security.SecureRandom;
+import java.util.Optional;
 import java.util.UUID;
 
 import java.util.List;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalTime;
 
 @Entity
-@Table(name = "bookings")
+// Composite indexes lead with the equality filters staff search combines, then the date range it orders by
+@Table(name = "bookings", indexes = {
+    @Index(name = "idx_bookings_change_seq", columnList = "change_seq"),
+    @Index(name = "idx_bookings_municipality_date_slot", columnList = "municipality, date, approx_time_slot"),
+    @Index(name = "idx_bookings_state_date_slot", columnList = "state, date, approx_time_slot"),
+    @Index(name = "idx_bookings_date_token", columnList = "date, token")
+})
 public class Booking {
 
+    private static final SecureRandom TOKEN_RANDOM = new SecureRandom();
+    private static final long ISSUED_40_BITS = (1L << 40) - 1;
+
     @Setter
     @Column(nullable = false)
     private LocalDate date;
@@ -23,6 +37,7 @@ public class Booking {
 
     @Setter
     @ElementCollection
+    @BatchSize(size = 100)
     @CollectionTable(name = "booking_items", joinColumns = @JoinColumn(name = "booking_token"))
     private List<Item> items;
 
@@ -32,7 +47,7 @@ public class Booking {
 
     @Id
     @Column(unique = true, nullable = false)
-    private String token = UUID.randomUUID().toString();
+    private String token = newToken();
 
     @Column(nullable = false)
     @Embedded
@@ -40,9 +55,23 @@ public class Booking {
 
     @Column(nullable = false)
     @ElementCollection
+    @BatchSize(size = 100)
     @CollectionTable(name = "booking_previous_states", joinColumns = @JoinColumn(name = "booking_token"))
     private List<RequestState> previousStates = new java.util.ArrayList<>();
 
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+
+    @Setter
+    @Column(name = "change_seq")
+    private Long changeSeq;
+
+    // Crew the booking was assigned to by the assignment engine; null while unassigned or assigned by hand
+    @Setter
+    private String crew;
+
     public Booking() {
     }
 
@@ -62,6 +91,83 @@ public class Booking {
         this.municipality = municipality;
     }
 
+    // Rebuilds a stored booking without re-running the creation checks, which a past date would fail
+    public static Booking restore(String token, LocalDate date, LocalTime approxTimeSlot, List<Item> items, String municipality,
+                                  RequestState currentState, List<RequestState> previousStates, Long version, Long changeSeq) {
+        Booking booking = new Booking();
+        booking.token = token;
+        booking.date = date;
+        booking.approxTimeSlot = approxTimeSlot;
+        booking.items = items;
+        booking.municipality = municipality;
+        booking.currentState = currentState;
+        booking.previousStates = new java.util.ArrayList<>(previousStates);
+        booking.version = version;
+        booking.changeSeq = changeSeq;
+        return booking;
+    }
+
+    // Gives a booking that was never saved a token naming the shard it will be stored on
+    public void placeOnShard(int shard) {
+        this.token = newToken(shard);
+    }
+
+    // Unsharded tokens are version 7 UUIDs, which lead with the millisecond they were issued in
+    public static String newToken() {
+        long random = TOKEN_RANDOM.nextLong();
+        long msb = (System.currentTimeMillis() << 16) | 0x7000 | (random & 0xfff);
+        return new UUID(msb, leastSignificantBits()).toString();
+    }
+
+    // Sharded tokens are version 8 UUIDs whose first byte is the shard, so a lookup goes straight to its shard, followed
+    // by the low 40 bits of the issuing millisecond. Random (version 4) tokens, including every token issued before
+    // sharding, belong to shard 0.
+    public static String newToken(int shard) {
+        if (shard < 0 || shard > 0xff) {
+            throw new IllegalArgumentException("Shard must be between 0 and 255");
+        }
+        long random = TOKEN_RANDOM.nextLong();
+        long msb = ((long) shard << 56) | ((System.currentTimeMillis() & ISSUED_40_BITS) << 16) | 0x8000 | (random & 0xfff);
+        return new UUID(msb, leastSignificantBits()).toString();
+    }
+
+    // When a token was issued, if it says; random (version 4) tokens do not. A version 8 token's 40 bits of
+    // milliseconds wrap every 34 years, so they are read as the nearest such time to now.
+    public static Optional<Instant> issuedAt(String token) {
+        if (token == null || token.length() != 36 || (token.charAt(14) != '7' && token.charAt(14) != '8')) {
+            return Optional.empty();
+        }
+        UUID uuid;
+        try {
+            uuid = UUID.fromString(token);
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+        if (uuid.version() == 7) {
+            return Optional.of(Instant.ofEpochMilli(uuid.getMostSignificantBits() >>> 16));
+        }
+        long now = System.currentTimeMillis();
+        long issued = (uuid.getMostSignificantBits() >>> 16) & ISSUED_40_BITS;
+        long age = (now - issued) & ISSUED_40_BITS;
+        if (age > ISSUED_40_BITS / 2) {
+            age -= ISSUED_40_BITS + 1;
+        }
+        return Optional.of(Instant.ofEpochMilli(now - age));
+    }
+
+    private static long leastSignificantBits() {
+        return (TOKEN_RANDOM.nextLong() & 0x3fffffffffffffffL) | 0x8000000000000000L;
+    }
+
+    public static int shardOf(String token) {
+        if (token == null || token.length() != 36 || token.charAt(14) != '8') {
+            return 0;
+        }
+        int high = Character.digit(token.charAt(0), 16);
+        int low = Character.digit(token.charAt(1), 16);
+        return high < 0 || low < 0 ? 0 : high * 16 + low;
+    }
+
     public String getToken() {
         return token;
     }
@@ -90,23 +196,37 @@ public class Booking {
         return previousStates;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public Long getChangeSeq() {
+        return changeSeq;
+    }
+
+    public String getCrew() {
+        return crew;
+    }
+
     public boolean changeState(State newState) {
-        if (currentState.getState() == newState) {
+        if (!isTransitionAllowed(currentState.getState(), newState)) {
             return false;
         }
 
-        State current = currentState.getState();
+        previousStates.add(currentState);
+        currentState = new RequestState(newState);
+        return true;
+    }
 
-        if (current == State.FINISHED || current == State.CANCELLED || current == State.REMOVED) {
+    public static boolean isTransitionAllowed(State current, State newState) {
+        if (current == newState) {
             return false;
         }
 
-        if (newState == State.RECEIVED && current != State.RECEIVED) {
+        if (current.isTerminal()) {
             return false;
         }
 
-        previousStates.add(currentState);
-        currentState = new RequestState(newState);
-        return true;
+        return newState != State.RECEIVED;
     }
 }
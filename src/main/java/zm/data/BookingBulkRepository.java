@@ -0,0 +1,29 @@
+package zm.data;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public interface BookingBulkRepository {
+    public List<BookingRef> findChunk(BookingFilter filter, Collection<State> sources, String afterToken, int limit);
+    public List<Booking> findWithCollectionsByTokenIn(Collection<String> tokens);
+    public List<Booking> findExportChunk(LocalDate afterDate, String afterToken, int limit);
+    public Page<BookingProjection> findProjected(BookingFilter filter, Set<BookingField> fields, Pageable pageable);
+    public Set<String> insertChunk(List<Booking> bookings);
+    public List<String> assignCrews(Map<String, List<String>> tokensByCrew);
+    public void lockSlot(LocalDate date, LocalTime time, String municipality);
+    public List<String> transitionChunk(Collection<String> tokens, Collection<State> sources, State target);
+    public void prepareChangeSeqs();
+    public ChangeProbe probeChanges();
+    public boolean changesSettled(long inFlight);
+    public boolean seedChangeSequence();
+    public void announce(BookingChange change);
+    public int backfillVersions();
+    public List<String> widenStateChecks();
+}
@@ -0,0 +1,547 @@
+package zm.data;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class BookingBulkRepositoryImpl implements BookingBulkRepository {
+
+    private static final int COLLECTION_CHUNK_SIZE = 500;
+    // Journal states are stored by ordinal, notices carry the name
+    private static final String STATE_NAME = stateName("c.state");
+    // Both PostgreSQL and H2 accept the function form
+    private static final String NEXT_CHANGE_SEQ = "nextval('" + BookingChange.SEQUENCE + "')";
+    // Tables whose state column Hibernate guards with a range check, stored by ordinal
+    private static final List<String> STATE_TABLES = List.of("bookings", "booking_previous_states", "booking_changes");
+    // The upper bound of a state check, as PostgreSQL ("state <= 5") or H2 ("STATE" BETWEEN 0 AND 5) prints it
+    private static final Pattern STATE_UPPER_BOUND =
+            Pattern.compile("(?i)state\"?\\s*(?:<=\\s*|between\\s+\\d+\\s+and\\s+)(\\d+)");
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final ChangeOrigin changeOrigin;
+
+    private volatile String upsertSlot;
+    private volatile Boolean onPostgreSQL;
+
+    public BookingBulkRepositoryImpl(ChangeOrigin changeOrigin) {
+        this.changeOrigin = changeOrigin;
+    }
+
+    // Keyset pagination over the primary key, so only one chunk of references is ever held in memory
+    @Override
+    @Transactional(readOnly = true)
+    public List<BookingRef> findChunk(BookingFilter filter, Collection<State> sources, String afterToken, int limit) {
+        StringBuilder jpql = new StringBuilder("select new zm.data.BookingRef(b.token, b.municipality, b.date, b.approxTimeSlot) "
+                + "from Booking b where b.currentState.state in :sources");
+        appendFilter(jpql, filter);
+        if (afterToken != null) {
+            jpql.append(" and b.token > :afterToken");
+        }
+        jpql.append(" order by b.token");
+
+        TypedQuery<BookingRef> query = entityManager.createQuery(jpql.toString(), BookingRef.class)
+                .setParameter("sources", sources)
+                .setMaxResults(limit);
+        bindFilter(query, filter);
+        if (afterToken != null) {
+            query.setParameter("afterToken", afterToken);
+        }
+        return query.getResultList();
+    }
+
+    // One IN query for the bookings; @BatchSize turns each collection load into one IN query for the whole batch
+    @Override
+    @Transactional(readOnly = true)
+    public List<Booking> findWithCollectionsByTokenIn(Collection<String> tokens) {
+        List<Booking> bookings = entityManager.createQuery("select b from Booking b where b.token in :tokens", Booking.class)
+                .setParameter("tokens", tokens)
+                .getResultList();
+        for (Booking booking : bookings) {
+            Hibernate.initialize(booking.getItems());
+            Hibernate.initialize(booking.getPreviousStates());
+        }
+        return bookings;
+    }
+
+    // Keyset pagination in (date, token) order, so an export can cut date partitions as it streams
+    @Override
+    @Transactional(readOnly = true)
+    public List<Booking> findExportChunk(LocalDate afterDate, String afterToken, int limit) {
+        String jpql = afterDate == null
+                ? "select b from Booking b order by b.date, b.token"
+                : "select b from Booking b where b.date > :afterDate or (b.date = :afterDate and b.token > :afterToken) "
+                        + "order by b.date, b.token";
+        TypedQuery<Booking> query = entityManager.createQuery(jpql, Booking.class).setMaxResults(limit);
+        if (afterDate != null) {
+            query.setParameter("afterDate", afterDate).setParameter("afterToken", afterToken);
+        }
+        List<Booking> bookings = query.getResultList();
+        for (Booking booking : bookings) {
+            Hibernate.initialize(booking.getItems());
+            Hibernate.initialize(booking.getPreviousStates());
+        }
+        return bookings;
+    }
+
+    // Selects only the requested columns, then loads each requested collection with one IN query per chunk
+    @Override
+    @Transactional(readOnly = true)
+    public Page<BookingProjection> findProjected(BookingFilter filter, Set<BookingField> fields, Pageable pageable) {
+        StringBuilder select = new StringBuilder("select b.token as token");
+        if (fields.contains(BookingField.DATE)) {
+            select.append(", b.date as date");
+        }
+        if (fields.contains(BookingField.APPROX_TIME_SLOT)) {
+            select.append(", b.approxTimeSlot as approxTimeSlot");
+        }
+        if (fields.contains(BookingField.MUNICIPALITY)) {
+            select.append(", b.municipality as municipality");
+        }
+        if (fields.contains(BookingField.CURRENT_STATE)) {
+            select.append(", b.currentState.state as state, b.currentState.timestamp as stateTimestamp");
+        }
+        if (fields.contains(BookingField.VERSION)) {
+            select.append(", b.version as version");
+        }
+        StringBuilder where = new StringBuilder(" from Booking b where b.currentState.state in :states");
+        appendFilter(where, filter);
+        String jpql = select.append(where).toString();
+        jpql = pageable.getSort().isSorted() ? QueryUtils.applySorting(jpql, pageable.getSort(), "b") : jpql + " order by b.token";
+
+        // An empty state filter matches every state
+        Set<State> states = filter.states().isEmpty() ? EnumSet.allOf(State.class) : filter.states();
+        TypedQuery<Tuple> query = entityManager.createQuery(jpql, Tuple.class).setParameter("states", states);
+        bindFilter(query, filter);
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset()).setMaxResults(pageable.getPageSize());
+        }
+        List<Tuple> rows = query.getResultList();
+
+        Map<String, List<Item>> items = fields.contains(BookingField.ITEMS)
+                ? loadGrouped(rows, "select b.token, i from Booking b join b.items i where b.token in :tokens", Item.class)
+                : Map.of();
+        Map<String, List<RequestState>> history = fields.contains(BookingField.PREVIOUS_STATES)
+                ? loadGrouped(rows, "select b.token, s from Booking b join b.previousStates s where b.token in :tokens order by s.timestamp",
+                        RequestState.class)
+                : Map.of();
+
+        List<BookingProjection> projections = new ArrayList<>(rows.size());
+        for (Tuple row : rows) {
+            String token = row.get("token", String.class);
+            projections.add(new BookingProjection(
+                    fields.contains(BookingField.TOKEN) ? token : null,
+                    fields.contains(BookingField.DATE) ? row.get("date", LocalDate.class) : null,
+                    fields.contains(BookingField.APPROX_TIME_SLOT) ? row.get("approxTimeSlot", LocalTime.class) : null,
+                    fields.contains(BookingField.MUNICIPALITY) ? row.get("municipality", String.class) : null,
+                    fields.contains(BookingField.ITEMS) ? items.getOrDefault(token, List.of()) : null,
+                    fields.contains(BookingField.CURRENT_STATE)
+                            ? RequestState.restore(row.get("state", State.class), row.get("stateTimestamp", Timestamp.class)) : null,
+                    fields.contains(BookingField.PREVIOUS_STATES) ? history.getOrDefault(token, List.of()) : null,
+                    fields.contains(BookingField.VERSION) ? row.get("version", Long.class) : null));
+        }
+        return PageableExecutionUtils.getPage(projections, pageable, () -> {
+            TypedQuery<Long> count = entityManager.createQuery("select count(b)" + where, Long.class).setParameter("states", states);
+            bindFilter(count, filter);
+            return count.getSingleResult();
+        });
+    }
+
+    // Creates the slot's row if this is its first booking, then locks it until the caller's transaction ends. The
+    // upsert never fails on a concurrent insert, so it cannot abort the booking's transaction; writers to other slots
+    // lock other rows and never wait on each other.
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void lockSlot(LocalDate date, LocalTime time, String municipality) {
+        String key = BookingSlot.keyOf(date, time, municipality);
+        entityManager.createNativeQuery(upsertSlot())
+                .setParameter("key", key)
+                .setParameter("municipality", municipality)
+                .setParameter("date", date)
+                .setParameter("time", time)
+                .executeUpdate();
+        entityManager.find(BookingSlot.class, key, LockModeType.PESSIMISTIC_WRITE);
+    }
+
+    // Locks the rows still in a source state, archives their current state, journals the change and moves them
+    @Override
+    @Transactional
+    public List<String> transitionChunk(Collection<String> tokens, Collection<State> sources, State target) {
+        List<String> locked = lockTransitionable(tokens, sources);
+        transition(locked, target, null);
+        return locked;
+    }
+
+    // Every crew's bookings move to ASSIGNED in the one transaction, IN lists chunked to keep statements bounded.
+    // All rows are locked before the first chunk takes its change numbers.
+    @Override
+    @Transactional
+    public List<String> assignCrews(Map<String, List<String>> tokensByCrew) {
+        Map<String, List<List<String>>> lockedByCrew = new LinkedHashMap<>();
+        tokensByCrew.forEach((crew, tokens) -> {
+            for (int start = 0; start < tokens.size(); start += COLLECTION_CHUNK_SIZE) {
+                List<String> chunk = tokens.subList(start, Math.min(start + COLLECTION_CHUNK_SIZE, tokens.size()));
+                lockedByCrew.computeIfAbsent(crew, key -> new ArrayList<>()).add(lockTransitionable(chunk, EnumSet.of(State.RECEIVED)));
+            }
+        });
+        List<String> assigned = new ArrayList<>();
+        lockedByCrew.forEach((crew, chunks) -> chunks.forEach(locked -> {
+            transition(locked, State.ASSIGNED, crew);
+            assigned.addAll(locked);
+        }));
+        return assigned;
+    }
+
+    // Makes the transaction count as in flight before it takes change numbers, since ChangeHorizon only trusts a
+    // number once every writer open when it was issued has ended. Pending changes are flushed, and PostgreSQL is made
+    // to assign the transaction id it would otherwise take only at the first row written.
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void prepareChangeSeqs() {
+        entityManager.flush();
+        if (onPostgreSQL()) {
+            entityManager.createNativeQuery("select cast(pg_current_xact_id() as text)").getSingleResult();
+        }
+    }
+
+    // The sequence is read before the open transactions are listed, so any writer holding a number up to lastSeq has
+    // either ended or is among them
+    @Override
+    @Transactional(readOnly = true)
+    public ChangeProbe probeChanges() {
+        long lastSeq = lastChangeSeq();
+        if (onPostgreSQL()) {
+            return new ChangeProbe(lastSeq, number(
+                    "select coalesce(max(cast(cast(x as text) as bigint)), -1) from pg_snapshot_xip(pg_current_snapshot()) x"));
+        }
+        return new ChangeProbe(lastSeq, uncommittedSessions() > 0 ? 0 : -1);
+    }
+
+    // Whether every transaction a probe found in flight has since ended
+    @Override
+    @Transactional(readOnly = true)
+    public boolean changesSettled(long inFlight) {
+        if (inFlight < 0) {
+            return true;
+        }
+        if (onPostgreSQL()) {
+            return number("select cast(cast(pg_snapshot_xmin(pg_current_snapshot()) as text) as bigint)") > inFlight;
+        }
+        return uncommittedSessions() == 0;
+    }
+
+    // Journals from before the sequence were numbered by a clock row, so the sequence is moved past them
+    @Override
+    @Transactional
+    public boolean seedChangeSequence() {
+        long journaled = number("select greatest(coalesce(max(seq), 0), (select coalesce(max(change_seq), 0) from bookings)) "
+                + "from booking_changes");
+        if (journaled <= lastChangeSeq()) {
+            return false;
+        }
+        if (onPostgreSQL()) {
+            entityManager.createNativeQuery("select setval('" + BookingChange.SEQUENCE + "', " + journaled + ")").getSingleResult();
+        } else {
+            entityManager.createNativeQuery("alter sequence " + BookingChange.SEQUENCE + " restart with " + (journaled + 1)).executeUpdate();
+        }
+        return true;
+    }
+
+    private long lastChangeSeq() {
+        if (onPostgreSQL()) {
+            return number("select case when is_called then last_value else last_value - 1 end from " + BookingChange.SEQUENCE);
+        }
+        return number("select base_value - increment from information_schema.sequences "
+                + "where sequence_schema = schema() and sequence_name = '" + BookingChange.SEQUENCE.toUpperCase() + "'");
+    }
+
+    // H2 cannot name open transactions, only the sessions holding uncommitted changes
+    private long uncommittedSessions() {
+        return number("select count(*) from information_schema.sessions where contains_uncommitted and session_id <> session_id()");
+    }
+
+    private long number(String sql) {
+        return ((Number) entityManager.createNativeQuery(sql).getSingleResult()).longValue();
+    }
+
+    private List<String> lockTransitionable(Collection<String> tokens, Collection<State> sources) {
+        if (tokens.isEmpty()) {
+            return List.of();
+        }
+        return entityManager.createQuery(
+                        "select b.token from Booking b where b.token in :tokens and b.currentState.state in :sources",
+                        String.class)
+                .setParameter("tokens", tokens)
+                .setParameter("sources", sources)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+    }
+
+    // Archives the locked rows' current state, journals the change and moves them; crew is left unchanged when null
+    private void transition(List<String> locked, State target, String crew) {
+        if (locked.isEmpty()) {
+            return;
+        }
+
+        entityManager.createNativeQuery(
+                        "insert into booking_previous_states (booking_token, state, timestamp) "
+                                + "select token, state, timestamp from bookings where token in (:tokens)")
+                .setParameter("tokens", locked)
+                .executeUpdate();
+
+        // One insert-select journals the whole chunk, each row numbered by the sequence
+        prepareChangeSeqs();
+        entityManager.createNativeQuery(
+                        "insert into booking_changes (seq, token, state, changed_at, origin) "
+                                + "select " + NEXT_CHANGE_SEQ + ", token, :state, :changedAt, :origin "
+                                + "from bookings where token in (:tokens)")
+                .setParameter("state", target.ordinal())
+                .setParameter("changedAt", OffsetDateTime.now(ZoneOffset.UTC))
+                .setParameter("origin", changeOrigin.id())
+                .setParameter("tokens", locked)
+                .executeUpdate();
+
+        Query update = entityManager.createQuery(
+                        "update Booking b set b.currentState.state = :target, b.currentState.timestamp = :now, "
+                                + "b.version = coalesce(b.version, 0) + 1, "
+                                + "b.changeSeq = (select max(c.seq) from BookingChange c where c.token = b.token)"
+                                + (crew == null ? "" : ", b.crew = :crew")
+                                + " where b.token in :tokens")
+                .setParameter("target", target)
+                .setParameter("now", Timestamp.from(Instant.now()))
+                .setParameter("tokens", locked);
+        if (crew != null) {
+            update.setParameter("crew", crew);
+        }
+        update.executeUpdate();
+
+        announceJournaled(locked);
+    }
+
+    // Journals freshly inserted rows as they stand, the way transition journals a chunk, and announces them
+    private void journalInserted(List<String> tokens) {
+        prepareChangeSeqs();
+        entityManager.createNativeQuery(
+                        "insert into booking_changes (seq, token, state, changed_at, origin) "
+                                + "select " + NEXT_CHANGE_SEQ + ", token, state, :changedAt, :origin "
+                                + "from bookings where token in (:tokens)")
+                .setParameter("changedAt", OffsetDateTime.now(ZoneOffset.UTC))
+                .setParameter("origin", changeOrigin.id())
+                .setParameter("tokens", tokens)
+                .executeUpdate();
+        entityManager.createQuery(
+                        "update Booking b set b.changeSeq = (select max(c.seq) from BookingChange c where c.token = b.token) "
+                                + "where b.token in :tokens")
+                .setParameter("tokens", tokens)
+                .executeUpdate();
+        announceJournaled(tokens);
+    }
+
+    // Rows journaled in SQL are announced from the journal entries their change_seq points at
+    private void announceJournaled(List<String> tokens) {
+        if (onPostgreSQL()) {
+            entityManager.createNativeQuery(
+                            "select count(pg_notify(:channel, concat(c.seq, ':', c.token, ':', " + STATE_NAME + ", ':', c.origin))) "
+                                    + "from booking_changes c "
+                                    + "where c.seq in (select b.change_seq from bookings b where b.token in (:tokens))")
+                    .setParameter("channel", BookingChange.CHANNEL)
+                    .setParameter("tokens", tokens)
+                    .getSingleResult();
+        }
+    }
+
+    // Tells LISTENing nodes about a journaled change; PostgreSQL delivers it when, and only if, the transaction
+    // commits. Other databases have no NOTIFY and their nodes read the journal instead.
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void announce(BookingChange change) {
+        if (onPostgreSQL()) {
+            entityManager.createNativeQuery("select 1 from pg_notify(:channel, :payload)")
+                    .setParameter("channel", BookingChange.CHANNEL)
+                    .setParameter("payload", change.payload())
+                    .getSingleResult();
+        }
+    }
+
+    // Bookings stored before optimistic locking have no version, which Hibernate can neither compare nor increment
+    @Override
+    @Transactional
+    public int backfillVersions() {
+        return entityManager.createNativeQuery("update bookings set version = 0 where version is null").executeUpdate();
+    }
+
+    // Hibernate writes "check (state between 0 and n)" when it creates a table and the schema update never revisits it,
+    // so a table created before a state was added rejects that state. Checks stopping short of the last state are
+    // dropped and replaced with one covering every state; returns the tables changed.
+    @Override
+    @Transactional
+    @SuppressWarnings("unchecked")
+    public List<String> widenStateChecks() {
+        int last = State.values().length - 1;
+        List<String> widened = new ArrayList<>();
+        for (String table : STATE_TABLES) {
+            List<Object[]> checks = entityManager.createNativeQuery(onPostgreSQL()
+                            ? "select conname, pg_get_constraintdef(oid) from pg_constraint "
+                                    + "where conrelid = to_regclass(:table) and contype = 'c'"
+                            : "select tc.constraint_name, cc.check_clause from information_schema.table_constraints tc "
+                                    + "join information_schema.check_constraints cc on cc.constraint_schema = tc.constraint_schema "
+                                    + "and cc.constraint_name = tc.constraint_name "
+                                    + "where tc.table_schema = schema() and tc.table_name = upper(:table) and tc.constraint_type = 'CHECK'")
+                    .setParameter("table", table)
+                    .getResultList();
+            boolean stale = false;
+            for (Object[] check : checks) {
+                Matcher bound = STATE_UPPER_BOUND.matcher((String) check[1]);
+                if (bound.find() && Integer.parseInt(bound.group(1)) < last) {
+                    entityManager.createNativeQuery("alter table " + table + " drop constraint \"" + check[0] + "\"").executeUpdate();
+                    stale = true;
+                }
+            }
+            if (stale) {
+                entityManager.createNativeQuery("alter table " + table + " add constraint " + table + "_state_check "
+                        + "check (state between 0 and " + last + ")").executeUpdate();
+                widened.add(table);
+            }
+        }
+        return widened;
+    }
+
+    // Persists one chunk of imported bookings in its own transaction and journals them; the inserts go out in JDBC
+    // batches of hibernate.jdbc.batch_size, and clearing afterwards keeps the persistence context from growing across chunks
+    @Override
+    @Transactional
+    public Set<String> insertChunk(List<Booking> bookings) {
+        if (bookings.isEmpty()) {
+            return Set.of();
+        }
+
+        Set<String> stored = new HashSet<>(entityManager.createQuery(
+                        "select b.token from Booking b where b.token in :tokens", String.class)
+                .setParameter("tokens", bookings.stream().map(Booking::getToken).toList())
+                .getResultList());
+        List<String> inserted = new ArrayList<>();
+        for (Booking booking : bookings) {
+            if (!stored.contains(booking.getToken())) {
+                entityManager.persist(booking);
+                inserted.add(booking.getToken());
+            }
+        }
+        entityManager.flush();
+        // Cleared first, so the journal update below is not undone by stale entities
+        entityManager.clear();
+        if (!inserted.isEmpty()) {
+            journalInserted(inserted);
+        }
+        return stored;
+    }
+
+    // PostgreSQL skips an existing row with ON CONFLICT; H2, used in tests, does the same with MERGE ... KEY
+    private String upsertSlot() {
+        String statement = upsertSlot;
+        if (statement == null) {
+            statement = onPostgreSQL()
+                    ? "insert into booking_slots (slot_key, municipality, date, approx_time_slot) "
+                            + "values (:key, :municipality, :date, :time) on conflict (slot_key) do nothing"
+                    : "merge into booking_slots (slot_key, municipality, date, approx_time_slot) key (slot_key) "
+                            + "values (:key, :municipality, :date, :time)";
+            upsertSlot = statement;
+        }
+        return statement;
+    }
+
+    private static String stateName(String column) {
+        StringBuilder sql = new StringBuilder("case ").append(column);
+        for (State state : State.values()) {
+            sql.append(" when ").append(state.ordinal()).append(" then '").append(state.name()).append("'");
+        }
+        return sql.append(" end").toString();
+    }
+
+    // Read from the connection rather than the configured dialect: tests run on H2 while the main properties name
+    // PostgreSQL, and Hibernate then keeps the PostgreSQL dialect
+    private boolean onPostgreSQL() {
+        Boolean postgres = onPostgreSQL;
+        if (postgres == null) {
+            postgres = entityManager.unwrap(Session.class)
+                    .doReturningWork(connection -> "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName()));
+            onPostgreSQL = postgres;
+        }
+        return postgres;
+    }
+
+    private <T> Map<String, List<T>> loadGrouped(List<Tuple> rows, String jpql, Class<T> type) {
+        Map<String, List<T>> grouped = new HashMap<>();
+        for (int from = 0; from < rows.size(); from += COLLECTION_CHUNK_SIZE) {
+            List<String> tokens = rows.subList(from, Math.min(from + COLLECTION_CHUNK_SIZE, rows.size())).stream()
+                    .map(row -> row.get("token", String.class))
+                    .toList();
+            List<Object[]> pairs = entityManager.createQuery(jpql, Object[].class)
+                    .setParameter("tokens", tokens)
+                    .getResultList();
+            for (Object[] pair : pairs) {
+                grouped.computeIfAbsent((String) pair[0], token -> new ArrayList<>()).add(type.cast(pair[1]));
+            }
+        }
+        return grouped;
+    }
+
+    private static void appendFilter(StringBuilder jpql, BookingFilter filter) {
+        if (filter.municipality() != null) {
+            jpql.append(" and b.municipality = :municipality");
+        }
+        if (filter.from() != null) {
+            jpql.append(" and b.date >= :from");
+        }
+        if (filter.to() != null) {
+            jpql.append(" and b.date <= :to");
+        }
+        if (filter.approxTimeSlot() != null) {
+            jpql.append(" and b.approxTimeSlot = :slot");
+        }
+    }
+
+    private static void bindFilter(Query query, BookingFilter filter) {
+        if (filter.municipality() != null) {
+            query.setParameter("municipality", filter.municipality());
+        }
+        if (filter.from() != null) {
+            query.setParameter("from", filter.from());
+        }
+        if (filter.to() != null) {
+            query.setParameter("to", filter.to());
+        }
+        if (filter.approxTimeSlot() != null) {
+            query.setParameter("slot", filter.approxTimeSlot());
+        }
+    }
+}
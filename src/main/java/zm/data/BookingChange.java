@@ -0,0 +1,67 @@
+package zm.data;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "booking_changes", indexes = @Index(name = "idx_booking_changes_token", columnList = "token"))
+public class BookingChange {
+
+    // Channel other nodes hear about journaled changes on, one "seq:token:STATE:origin" payload per change
+    public static final String CHANNEL = "booking_changes";
+    public static final String SEQUENCE = "booking_change_seq";
+
+    // Taken from the sequence before the writer commits, so a lower number may still be in flight while a higher one
+    // is visible; readers stop at ChangeHorizon
+    @Id
+    @SequenceGenerator(name = SEQUENCE, sequenceName = SEQUENCE, allocationSize = 1)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = SEQUENCE)
+    private Long seq;
+
+    @Column(nullable = false)
+    private String token;
+
+    @Column(nullable = false)
+    private State state;
+
+    @Column(nullable = false)
+    private Instant changedAt;
+
+    // The ChangeOrigin of the node that made the change; null on entries journaled before origins were recorded
+    private String origin;
+
+    public BookingChange() {
+    }
+
+    public BookingChange(String token, State state, String origin) {
+        this.token = token;
+        this.state = state;
+        this.changedAt = Instant.now();
+        this.origin = origin;
+    }
+
+    public Long getSeq() {
+        return seq;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public Instant getChangedAt() {
+        return changedAt;
+    }
+
+    public String getOrigin() {
+        return origin;
+    }
+
+    public String payload() {
+        return seq + ":" + token + ":" + state.name() + ":" + origin;
+    }
+}
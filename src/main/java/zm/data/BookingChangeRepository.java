@@ -0,0 +1,17 @@
+package zm.data;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface BookingChangeRepository extends JpaRepository<BookingChange, Long> {
+    @Query("select coalesce(max(c.seq), 0) from BookingChange c")
+    public long findLastSeq();
+    public List<BookingChange> findBySeqGreaterThanAndSeqLessThanEqualOrderBySeqAsc(long after, long horizon, Pageable pageable);
+    public List<BookingChange> findBySeqIn(Collection<Long> seqs);
+}
@@ -0,0 +1,54 @@
+package zm.data;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+// Booking attributes a client can ask for by their JSON name; collection fields cost an extra query each
+public enum BookingField {
+    TOKEN("token", false),
+    DATE("date", false),
+    APPROX_TIME_SLOT("approxTimeSlot", false),
+    MUNICIPALITY("municipality", false),
+    ITEMS("items", true),
+    CURRENT_STATE("currentState", false),
+    PREVIOUS_STATES("previousStates", true),
+    VERSION("version", false);
+
+    private final String jsonName;
+    private final boolean collection;
+
+    BookingField(String jsonName, boolean collection) {
+        this.jsonName = jsonName;
+        this.collection = collection;
+    }
+
+    public String jsonName() {
+        return jsonName;
+    }
+
+    public boolean isCollection() {
+        return collection;
+    }
+
+    // Parses a comma-separated list such as "token,date,currentState"
+    public static Set<BookingField> parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            throw new IllegalArgumentException("At least one field is required");
+        }
+        Set<BookingField> parsed = EnumSet.noneOf(BookingField.class);
+        for (String name : fields.split(",")) {
+            parsed.add(fromJsonName(name.trim()));
+        }
+        return Collections.unmodifiableSet(parsed);
+    }
+
+    public static BookingField fromJsonName(String name) {
+        for (BookingField field : values()) {
+            if (field.jsonName.equals(name)) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("Unknown field: " + name);
+    }
+}
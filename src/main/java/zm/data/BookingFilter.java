@@ -0,0 +1,34 @@
+package zm.data;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+public record BookingFilter(String municipality, LocalDate from, LocalDate to, LocalTime approxTimeSlot, Set<State> states) {
+
+    public BookingFilter {
+        if (from != null && to != null && to.isBefore(from)) {
+            throw new IllegalArgumentException("Date range end must not be before its start");
+        }
+        states = states == null || states.isEmpty()
+                ? Collections.unmodifiableSet(EnumSet.noneOf(State.class))
+                : Collections.unmodifiableSet(EnumSet.copyOf(states));
+    }
+
+    public BookingFilter(String municipality, LocalDate from, LocalDate to, Set<State> states) {
+        this(municipality, from, to, null, states);
+    }
+
+    public static BookingFilter of(String municipality, LocalDate from, LocalDate to, State state) {
+        return new BookingFilter(municipality, from, to, state == null ? null : EnumSet.of(state));
+    }
+
+    // States a bulk transition to the target may start from, restricted to the filtered ones
+    public Set<State> sourceStatesFor(State target) {
+        Set<State> candidates = states.isEmpty() ? EnumSet.allOf(State.class) : EnumSet.copyOf(states);
+        candidates.removeIf(s -> !Booking.isTransitionAllowed(s, target));
+        return candidates;
+    }
+}
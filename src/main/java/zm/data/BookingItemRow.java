@@ -0,0 +1,6 @@
+package zm.data;
+
+import java.time.LocalDate;
+
+public record BookingItemRow(String token, String municipality, LocalDate date, String name, String description) {
+}
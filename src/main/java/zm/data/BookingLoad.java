@@ -0,0 +1,7 @@
+package zm.data;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+public record BookingLoad(String token, String municipality, LocalDate date, LocalTime approxTimeSlot, Integer items) {
+}
@@ -0,0 +1,24 @@
+package zm.data;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Set;
+
+// A booking reduced to the requested fields; anything not requested is null and was never read from the database
+public record BookingProjection(String token, LocalDate date, LocalTime approxTimeSlot, String municipality,
+                                List<Item> items, RequestState currentState, List<RequestState> previousStates, Long version) {
+
+    // Drops fields read only to merge shards, so the client gets exactly what it asked for
+    public BookingProjection only(Set<BookingField> fields) {
+        return new BookingProjection(
+                fields.contains(BookingField.TOKEN) ? token : null,
+                fields.contains(BookingField.DATE) ? date : null,
+                fields.contains(BookingField.APPROX_TIME_SLOT) ? approxTimeSlot : null,
+                fields.contains(BookingField.MUNICIPALITY) ? municipality : null,
+                fields.contains(BookingField.ITEMS) ? items : null,
+                fields.contains(BookingField.CURRENT_STATE) ? currentState : null,
+                fields.contains(BookingField.PREVIOUS_STATES) ? previousStates : null,
+                fields.contains(BookingField.VERSION) ? version : null);
+    }
+}
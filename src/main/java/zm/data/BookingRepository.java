@@ -1,18 +1,63 @@
 package zm.data;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface BookingRepository extends JpaRepository<Booking, String> {
+public interface BookingRepository extends JpaRepository<Booking, String>, JpaSpecificationExecutor<Booking>, BookingBulkRepository {
     public Optional<Booking> findByToken(String token);
     public List<Booking> findByCurrentState_State(State currentState);
     public List<Booking> findByMunicipality(String municipality);
     public List<Booking> findByDateAndApproxTimeSlotAndMunicipality(LocalDate date, LocalTime time, String municipality);
 
+    public List<Booking> findByChangeSeqGreaterThanAndChangeSeqLessThanEqualOrderByChangeSeqAsc(Long after, Long horizon, Pageable pageable);
+
+    @Query("select new zm.data.BookingRef(b.token, b.municipality, b.date, b.approxTimeSlot) from Booking b where b.token = :token")
+    public Optional<BookingRef> findRefByToken(@Param("token") String token);
+
+    @Query("select b.token from Booking b")
+    public Stream<String> streamAllTokens();
+
+    @Query("select distinct b.municipality from Booking b order by b.municipality")
+    public List<String> findDistinctMunicipalities();
+
+    // Ordered by token so each booking's items arrive together
+    @Query("select new zm.data.BookingItemRow(b.token, b.municipality, b.date, i.name, i.description) "
+            + "from Booking b join b.items i where b.currentState.state in :states order by b.token")
+    public Stream<BookingItemRow> streamItemsByStateIn(@Param("states") Collection<State> states);
+
+    // Item counts come from a correlated count, so the day's bookings load without their collections
+    @Query("select new zm.data.BookingLoad(b.token, b.municipality, b.date, b.approxTimeSlot, size(b.items)) "
+            + "from Booking b where b.date = :date and b.currentState.state = :state")
+    public List<BookingLoad> findLoadsByDateAndState(@Param("date") LocalDate date, @Param("state") State state);
+
+    // Counted across all states, as the capacity check in book() counts them
+    @Query("select new zm.data.SlotCount(b.date, b.approxTimeSlot, count(b)) from Booking b "
+            + "where b.municipality = :municipality and b.date between :from and :to group by b.date, b.approxTimeSlot")
+    public List<SlotCount> countSlots(@Param("municipality") String municipality, @Param("from") LocalDate from,
+                                      @Param("to") LocalDate to);
+
+    // One row per item, grouped by municipality and then in route order, so manifests can be cut as the rows stream
+    @Query("select new zm.data.ManifestRow(b.token, b.municipality, b.approxTimeSlot, b.currentState.state, i.name, i.description) "
+            + "from Booking b join b.items i where b.date = :date and b.currentState.state in :states "
+            + "order by b.municipality, b.approxTimeSlot, b.token")
+    public Stream<ManifestRow> streamManifestRows(@Param("date") LocalDate date, @Param("states") Collection<State> states);
+
+    @Query("select new zm.data.ManifestRow(b.token, b.municipality, b.approxTimeSlot, b.currentState.state, i.name, i.description) "
+            + "from Booking b join b.items i where b.date = :date and b.currentState.state in :states "
+            + "and b.municipality in :municipalities order by b.municipality, b.approxTimeSlot, b.token")
+    public Stream<ManifestRow> streamManifestRows(@Param("date") LocalDate date, @Param("states") Collection<State> states,
+                                                  @Param("municipalities") Collection<String> municipalities);
+
 }
@@ -0,0 +1,48 @@
+package zm.data;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+// One row per (municipality, date, slot) that has been booked; writers lock it to serialize their capacity checks
+@Entity
+@Table(name = "booking_slots")
+public class BookingSlot {
+
+    @Id
+    @Column(name = "slot_key")
+    private String key;
+
+    @Column(nullable = false)
+    private String municipality;
+
+    @Column(nullable = false)
+    private LocalDate date;
+
+    @Column(name = "approx_time_slot", nullable = false)
+    private LocalTime approxTimeSlot;
+
+    public BookingSlot() {
+    }
+
+    public static String keyOf(LocalDate date, LocalTime time, String municipality) {
+        return municipality + "/" + date + "/" + time;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getMunicipality() {
+        return municipality;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public LocalTime getApproxTimeSlot() {
+        return approxTimeSlot;
+    }
+}
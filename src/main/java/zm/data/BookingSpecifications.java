@@ -0,0 +1,89 @@
+package zm.data;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Comparator;
+import java.util.Set;
+import java.util.function.Function;
+
+// Composes a BookingFilter into one where clause; each criterion is skipped when its filter value is absent
+public final class BookingSpecifications {
+
+    // Newest collections first, with the token as a tiebreaker so pages never overlap
+    public static final Sort NEWEST_FIRST = Sort.by(Sort.Order.desc("date"), Sort.Order.desc("approxTimeSlot"), Sort.Order.asc("token"));
+
+    private BookingSpecifications() {
+    }
+
+    public static Specification<Booking> matching(BookingFilter filter) {
+        return Specification.where(inStates(filter.states()))
+                .and(inMunicipality(filter.municipality()))
+                .and(onOrAfter(filter.from()))
+                .and(onOrBefore(filter.to()))
+                .and(inSlot(filter.approxTimeSlot()));
+    }
+
+    // The in-memory equivalent of a sort, for merging pages read from several shards; unsorted means by token
+    public static Comparator<Booking> order(Sort sort) {
+        return order(sort, property -> switch (property) {
+            case "date" -> Booking::getDate;
+            case "approxTimeSlot" -> Booking::getApproxTimeSlot;
+            case "municipality" -> Booking::getMunicipality;
+            case "token" -> Booking::getToken;
+            default -> throw new IllegalArgumentException("Cannot sort across shards by " + property);
+        });
+    }
+
+    // As above; the projections must carry every sorted field
+    public static Comparator<BookingProjection> projectionOrder(Sort sort) {
+        return order(sort, property -> switch (property) {
+            case "date" -> BookingProjection::date;
+            case "approxTimeSlot" -> BookingProjection::approxTimeSlot;
+            case "municipality" -> BookingProjection::municipality;
+            case "token" -> BookingProjection::token;
+            default -> throw new IllegalArgumentException("Cannot sort across shards by " + property);
+        });
+    }
+
+    private static <T> Comparator<T> order(Sort sort, Function<String, Function<T, Comparable<?>>> keys) {
+        Comparator<T> order = null;
+        for (Sort.Order by : sort.isSorted() ? sort : Sort.by("token")) {
+            Function<T, Comparable<?>> key = keys.apply(by.getProperty());
+            Comparator<T> next = (a, b) -> compare(key.apply(a), key.apply(b));
+            next = by.isAscending() ? next : next.reversed();
+            order = order == null ? next : order.thenComparing(next);
+        }
+        return order;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compare(Comparable a, Comparable b) {
+        if (a == null || b == null) {
+            return a == null ? (b == null ? 0 : 1) : -1;
+        }
+        return a.compareTo(b);
+    }
+
+    static Specification<Booking> inStates(Set<State> states) {
+        return states.isEmpty() ? null : (root, query, cb) -> root.get("currentState").get("state").in(states);
+    }
+
+    static Specification<Booking> inMunicipality(String municipality) {
+        return municipality == null ? null : (root, query, cb) -> cb.equal(root.get("municipality"), municipality);
+    }
+
+    static Specification<Booking> onOrAfter(LocalDate from) {
+        return from == null ? null : (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("date"), from);
+    }
+
+    static Specification<Booking> onOrBefore(LocalDate to) {
+        return to == null ? null : (root, query, cb) -> cb.lessThanOrEqualTo(root.get("date"), to);
+    }
+
+    static Specification<Booking> inSlot(LocalTime slot) {
+        return slot == null ? null : (root, query, cb) -> cb.equal(root.get("approxTimeSlot"), slot);
+    }
+}
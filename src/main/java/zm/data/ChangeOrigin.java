@@ -0,0 +1,20 @@
+package zm.data;
+
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+// Names this node in the change journal, so its invalidation feed can tell the changes other nodes made from its own
+@Component
+public class ChangeOrigin {
+
+    private final String id = UUID.randomUUID().toString();
+
+    public String id() {
+        return id;
+    }
+
+    public boolean isLocal(String origin) {
+        return id.equals(origin);
+    }
+}
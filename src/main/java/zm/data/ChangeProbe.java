@@ -0,0 +1,6 @@
+package zm.data;
+
+// The last change number a shard's sequence had issued, and what was in flight at the time: the highest open
+// transaction id on PostgreSQL, 0 for "some session" on H2, or -1 when no writer was open
+public record ChangeProbe(long lastSeq, long inFlight) {
+}
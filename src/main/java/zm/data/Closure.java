@@ -0,0 +1,65 @@
+package zm.data;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+// An ad-hoc closure added by staff, e.g. a depot outage or a storm day; a null municipality closes every municipality
+@Entity
+@Table(name = "closures")
+public class Closure {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private String municipality;
+
+    @Column(nullable = false)
+    private LocalDate firstDay;
+
+    @Column(nullable = false)
+    private LocalDate lastDay;
+
+    @Column(nullable = false)
+    private String reason;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    public Closure() {
+    }
+
+    public Closure(String municipality, LocalDate firstDay, LocalDate lastDay, String reason) {
+        this.municipality = municipality;
+        this.firstDay = firstDay;
+        this.lastDay = lastDay;
+        this.reason = reason;
+        this.createdAt = Instant.now();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getMunicipality() {
+        return municipality;
+    }
+
+    public LocalDate getFirstDay() {
+        return firstDay;
+    }
+
+    public LocalDate getLastDay() {
+        return lastDay;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -0,0 +1,12 @@
+package zm.data;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface ClosureRepository extends JpaRepository<Closure, Long> {
+    public List<Closure> findByLastDayGreaterThanEqualOrderByFirstDay(LocalDate day);
+}
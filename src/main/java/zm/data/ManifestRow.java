@@ -0,0 +1,7 @@
+package zm.data;
+
+import java.time.LocalTime;
+
+public record ManifestRow(String token, String municipality, LocalTime approxTimeSlot, State state, String itemName,
+                          String itemDescription) {
+}
@@ -0,0 +1,297 @@
+package zm.data;
+
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Readable;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+// Non-blocking access to the tables Hibernate maps for Booking; the reactive profile's only data path
+@Repository
+@Profile("reactive")
+public class ReactiveBookingRepository {
+
+    private static final int HYDRATE_CHUNK_SIZE = 500;
+    private static final String BOOKING_COLUMNS =
+        "select token, date, approx_time_slot, municipality, state, timestamp, version, change_seq from bookings";
+
+    private final DatabaseClient client;
+    // Owned here rather than exposed as a bean, so it never competes with the JPA transaction manager
+    private final TransactionalOperator transactions;
+    private final String upsertSlot;
+    private final ChangeOrigin changeOrigin;
+
+    public ReactiveBookingRepository(ConnectionFactory connectionFactory, ChangeOrigin changeOrigin) {
+        this.client = DatabaseClient.create(connectionFactory);
+        this.transactions = TransactionalOperator.create(new R2dbcTransactionManager(connectionFactory));
+        this.upsertSlot = "PostgreSQL".equals(connectionFactory.getMetadata().getName())
+            ? "insert into booking_slots (slot_key, municipality, date, approx_time_slot) "
+                + "values (:key, :municipality, :date, :time) on conflict (slot_key) do nothing"
+            : "merge into booking_slots (slot_key, municipality, date, approx_time_slot) key (slot_key) "
+                + "values (:key, :municipality, :date, :time)";
+        this.changeOrigin = changeOrigin;
+    }
+
+    public Mono<Booking> findByToken(String token) {
+        return hydrate(client.sql(BOOKING_COLUMNS + " where token = :token")
+                .bind("token", token)
+                .map(ReactiveBookingRepository::toRow)
+                .all())
+            .next();
+    }
+
+    public Flux<Booking> findAll() {
+        return hydrate(client.sql(BOOKING_COLUMNS).map(ReactiveBookingRepository::toRow).all());
+    }
+
+    public Flux<Booking> findByState(State state) {
+        return hydrate(client.sql(BOOKING_COLUMNS + " where state = :state")
+            .bind("state", state.ordinal())
+            .map(ReactiveBookingRepository::toRow)
+            .all());
+    }
+
+    public Flux<Booking> findByMunicipality(String municipality) {
+        return hydrate(client.sql(BOOKING_COLUMNS + " where municipality = :municipality")
+            .bind("municipality", municipality)
+            .map(ReactiveBookingRepository::toRow)
+            .all());
+    }
+
+    // Same filters and ordering as the JPA search, paged with limit and offset
+    public Flux<Booking> search(BookingFilter filter, long offset, int limit) {
+        return hydrate(bindFilter(client.sql(BOOKING_COLUMNS + whereClause(filter)
+                    + " order by date desc, approx_time_slot desc, token limit :limit offset :offset"), filter)
+            .bind("limit", limit)
+            .bind("offset", offset)
+            .map(ReactiveBookingRepository::toRow)
+            .all());
+    }
+
+    public Mono<Long> count(BookingFilter filter) {
+        return bindFilter(client.sql("select count(*) from bookings" + whereClause(filter)), filter)
+            .map(row -> ((Number) row.get(0)).longValue())
+            .one();
+    }
+
+    public Mono<Long> countInSlot(LocalDate date, LocalTime time, String municipality) {
+        return client.sql("select count(*) from bookings where date = :date and approx_time_slot = :time and municipality = :municipality")
+            .bind("date", date)
+            .bind("time", time)
+            .bind("municipality", municipality)
+            .map(row -> ((Number) row.get(0)).longValue())
+            .one();
+    }
+
+    // Inserts the booking, its items and its journal entry in one transaction and stamps the change sequence. The
+    // number is taken after the rows are written, so the transaction already counts as in flight when it holds one.
+    public Mono<Booking> insert(Booking booking) {
+        return insertRows(booking).as(transactions::transactional);
+    }
+
+    // Inserts the booking only while its slot holds fewer than capacity bookings, completing empty otherwise. The
+    // slot's booking_slots row is locked before counting and held until the insert commits, the same lock the
+    // servlet stack takes, so concurrent bookings for one slot are counted one after another.
+    public Mono<Booking> insertIfRoom(Booking booking, int capacity) {
+        return lockSlot(booking.getDate(), booking.getApproxTimeSlot(), booking.getMunicipality())
+            .then(countInSlot(booking.getDate(), booking.getApproxTimeSlot(), booking.getMunicipality()))
+            .filter(existing -> existing < capacity)
+            .flatMap(existing -> insertRows(booking))
+            .as(transactions::transactional);
+    }
+
+    private Mono<Void> lockSlot(LocalDate date, LocalTime time, String municipality) {
+        String key = BookingSlot.keyOf(date, time, municipality);
+        return client.sql(upsertSlot)
+            .bind("key", key)
+            .bind("municipality", municipality)
+            .bind("date", date)
+            .bind("time", time)
+            .then()
+            .then(client.sql("select slot_key from booking_slots where slot_key = :key for update")
+                .bind("key", key)
+                .then());
+    }
+
+    private Mono<Booking> insertRows(Booking booking) {
+        RequestState state = booking.getCurrentState();
+        return client.sql("insert into bookings (token, date, approx_time_slot, municipality, state, timestamp, version) "
+                    + "values (:token, :date, :time, :municipality, :state, :timestamp, 0)")
+                .bind("token", booking.getToken())
+                .bind("date", booking.getDate())
+                .bind("time", booking.getApproxTimeSlot())
+                .bind("municipality", booking.getMunicipality())
+                .bind("state", state.getState().ordinal())
+                .bind("timestamp", state.getTimestamp().toLocalDateTime())
+                .then()
+                .then(Flux.fromIterable(booking.getItems())
+                    .concatMap(item -> client.sql("insert into booking_items (booking_token, name, description) values (:token, :name, :description)")
+                        .bind("token", booking.getToken())
+                        .bind("name", item.getName())
+                        .bind("description", item.getDescription())
+                        .then())
+                    .then())
+                .then(takeChangeSeq())
+                .flatMap(seq -> client.sql("update bookings set change_seq = :seq where token = :token")
+                    .bind("seq", seq)
+                    .bind("token", booking.getToken())
+                    .then()
+                    .then(journal(seq, booking.getToken(), state))
+                    .thenReturn(restamp(booking, 0L, seq)));
+    }
+
+    // Persists a transition made with Booking.changeState; completes empty if another writer got there first.
+    // The booking's row is updated before the change number is taken, the order every writer uses.
+    public Mono<Booking> saveTransition(Booking booking) {
+        RequestState current = booking.getCurrentState();
+        RequestState previous = booking.getPreviousStates().get(booking.getPreviousStates().size() - 1);
+        long expectedVersion = booking.getVersion() == null ? 0 : booking.getVersion();
+
+        Mono<Booking> update = client.sql("update bookings set state = :state, timestamp = :timestamp, version = :next "
+                    + "where token = :token and coalesce(version, 0) = :expected")
+                .bind("state", current.getState().ordinal())
+                .bind("timestamp", current.getTimestamp().toLocalDateTime())
+                .bind("next", expectedVersion + 1)
+                .bind("token", booking.getToken())
+                .bind("expected", expectedVersion)
+                .fetch()
+                .rowsUpdated()
+                .filter(rows -> rows == 1)
+                .flatMap(rows -> takeChangeSeq())
+                .flatMap(seq -> client.sql("update bookings set change_seq = :seq where token = :token")
+                    .bind("seq", seq)
+                    .bind("token", booking.getToken())
+                    .then()
+                    .then(client.sql("insert into booking_previous_states (booking_token, state, timestamp) values (:token, :state, :timestamp)")
+                        .bind("token", booking.getToken())
+                        .bind("state", previous.getState().ordinal())
+                        .bind("timestamp", previous.getTimestamp().toLocalDateTime())
+                        .then())
+                    .then(journal(seq, booking.getToken(), current))
+                    .thenReturn(restamp(booking, expectedVersion + 1, seq)));
+        return update.as(transactions::transactional);
+    }
+
+    private static String whereClause(BookingFilter filter) {
+        List<String> conditions = new ArrayList<>();
+        if (!filter.states().isEmpty()) {
+            conditions.add("state in (:states)");
+        }
+        if (filter.municipality() != null) {
+            conditions.add("municipality = :municipality");
+        }
+        if (filter.from() != null) {
+            conditions.add("date >= :from");
+        }
+        if (filter.to() != null) {
+            conditions.add("date <= :to");
+        }
+        if (filter.approxTimeSlot() != null) {
+            conditions.add("approx_time_slot = :slot");
+        }
+        return conditions.isEmpty() ? "" : " where " + String.join(" and ", conditions);
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bindFilter(DatabaseClient.GenericExecuteSpec spec, BookingFilter filter) {
+        if (!filter.states().isEmpty()) {
+            spec = spec.bind("states", filter.states().stream().map(State::ordinal).toList());
+        }
+        if (filter.municipality() != null) {
+            spec = spec.bind("municipality", filter.municipality());
+        }
+        if (filter.from() != null) {
+            spec = spec.bind("from", filter.from());
+        }
+        if (filter.to() != null) {
+            spec = spec.bind("to", filter.to());
+        }
+        if (filter.approxTimeSlot() != null) {
+            spec = spec.bind("slot", filter.approxTimeSlot());
+        }
+        return spec;
+    }
+
+    private Mono<Long> takeChangeSeq() {
+        return client.sql("select nextval('" + BookingChange.SEQUENCE + "')")
+            .map(row -> ((Number) row.get(0)).longValue())
+            .one();
+    }
+
+    private Mono<Void> journal(long seq, String token, RequestState state) {
+        return client.sql("insert into booking_changes (seq, token, state, changed_at, origin) "
+                + "values (:seq, :token, :state, :changedAt, :origin)")
+            .bind("seq", seq)
+            .bind("token", token)
+            .bind("state", state.getState().ordinal())
+            .bind("changedAt", state.getTimestamp().toInstant().atOffset(ZoneOffset.UTC))
+            .bind("origin", changeOrigin.id())
+            .then();
+    }
+
+    // Loads items and state history with one query each per chunk of bookings instead of two per booking
+    private Flux<Booking> hydrate(Flux<BookingRow> rows) {
+        return rows.buffer(HYDRATE_CHUNK_SIZE).concatMap(chunk -> {
+            List<String> tokens = chunk.stream().map(BookingRow::token).toList();
+            Mono<Map<String, List<Item>>> items = client.sql("select booking_token, name, description from booking_items where booking_token in (:tokens)")
+                .bind("tokens", tokens)
+                .map(row -> Map.entry(row.get("booking_token", String.class), toItem(row)))
+                .all()
+                .collect(Collectors.groupingBy(Map.Entry::getKey, Collectors.mapping(Map.Entry::getValue, Collectors.toList())));
+            Mono<Map<String, List<RequestState>>> history = client.sql("select booking_token, state, timestamp from booking_previous_states "
+                    + "where booking_token in (:tokens) order by timestamp")
+                .bind("tokens", tokens)
+                .map(row -> Map.entry(row.get("booking_token", String.class), toState(row)))
+                .all()
+                .collect(Collectors.groupingBy(Map.Entry::getKey, Collectors.mapping(Map.Entry::getValue, Collectors.toList())));
+
+            return Mono.zip(items, history).flatMapIterable(loaded -> chunk.stream()
+                .map(row -> Booking.restore(row.token(), row.date(), row.time(),
+                    new ArrayList<>(loaded.getT1().getOrDefault(row.token(), List.of())), row.municipality(), row.state(),
+                    loaded.getT2().getOrDefault(row.token(), List.of()), row.version(), row.changeSeq()))
+                .toList());
+        });
+    }
+
+    private static Booking restamp(Booking booking, long version, long changeSeq) {
+        return Booking.restore(booking.getToken(), booking.getDate(), booking.getApproxTimeSlot(), booking.getItems(),
+            booking.getMunicipality(), booking.getCurrentState(), booking.getPreviousStates(), version, changeSeq);
+    }
+
+    private static BookingRow toRow(Readable row) {
+        return new BookingRow(row.get("token", String.class), row.get("date", LocalDate.class),
+            row.get("approx_time_slot", LocalTime.class), row.get("municipality", String.class), toState(row),
+            row.get("version", Long.class), row.get("change_seq", Long.class));
+    }
+
+    // Stored items bypass the constructor checks, as Hibernate's loading does
+    private static Item toItem(Readable row) {
+        Item item = new Item();
+        item.setName(row.get("name", String.class));
+        item.setDescription(row.get("description", String.class));
+        return item;
+    }
+
+    private static RequestState toState(Readable row) {
+        // Ordinal columns come back as smallint or tinyint depending on the database
+        return RequestState.restore(State.values()[((Number) row.get("state")).intValue()],
+            Timestamp.valueOf(row.get("timestamp", LocalDateTime.class)));
+    }
+
+    private record BookingRow(String token, LocalDate date, LocalTime time, String municipality,
+                              RequestState state, Long version, Long changeSeq) {
+    }
+}
@@ -23,6 +23,13 @@ public class RequestState {
         this.timestamp = Timestamp.from(Instant.now());
     }
 
+    // Rebuilds a recorded state with its original timestamp
+    public static RequestState restore(State state, Timestamp timestamp) {
+        RequestState restored = new RequestState(state);
+        restored.timestamp = timestamp;
+        return restored;
+    }
+
     public State getState() {
         return state;
     }
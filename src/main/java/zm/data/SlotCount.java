@@ -0,0 +1,7 @@
+package zm.data;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+public record SlotCount(LocalDate date, LocalTime approxTimeSlot, Long bookings) {
+}
@@ -6,5 +6,11 @@ public enum State {
     IN_PROGRESS,
     FINISHED,
     CANCELLED,
-    REMOVED
+    REMOVED,
+    // Set by the expiry job on bookings whose date passed before they were collected
+    EXPIRED;
+
+    public boolean isTerminal() {
+        return this == FINISHED || this == CANCELLED || this == REMOVED || this == EXPIRED;
+    }
 }
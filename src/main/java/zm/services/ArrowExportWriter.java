@@ -0,0 +1,332 @@
+package zm.services;
+
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.DateDayVector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.TimeSecVector;
+import org.apache.arrow.vector.TimeStampMilliTZVector;
+import org.apache.arrow.vector.TinyIntVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.dictionary.Dictionary;
+import org.apache.arrow.vector.dictionary.DictionaryProvider;
+import org.apache.arrow.vector.ipc.ArrowFileWriter;
+import org.apache.arrow.vector.types.DateUnit;
+import org.apache.arrow.vector.types.TimeUnit;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.DictionaryEncoding;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.FieldType;
+import org.apache.arrow.vector.types.pojo.Schema;
+import zm.data.Booking;
+import zm.data.Item;
+import zm.data.RequestState;
+import zm.data.State;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Writes bookings, items and state transitions as Arrow IPC files partitioned by booking date, e.g.
+// bookings/date=2025-03-14/part-0.arrow. Bookings must arrive in date order; each chunk becomes one record batch.
+final class ArrowExportWriter implements AutoCloseable {
+
+    static final String BOOKINGS = "bookings";
+    static final String ITEMS = "items";
+    static final String TRANSITIONS = "transitions";
+    static final String PART_FILE = "part-0.arrow";
+
+    // Municipality and state repeat on every row, so rows carry small dictionary indexes instead of the strings
+    static final DictionaryEncoding MUNICIPALITY_ENCODING = new DictionaryEncoding(1L, false, new ArrowType.Int(32, true));
+    static final DictionaryEncoding STATE_ENCODING = new DictionaryEncoding(2L, false, new ArrowType.Int(8, true));
+
+    private static final ArrowType UTF8 = ArrowType.Utf8.INSTANCE;
+    private static final ArrowType DATE = new ArrowType.Date(DateUnit.DAY);
+    private static final ArrowType INSTANT = new ArrowType.Timestamp(TimeUnit.MILLISECOND, "UTC");
+
+    static final Schema BOOKINGS_SCHEMA = new Schema(List.of(
+        column("token", UTF8, false),
+        column("date", DATE, false),
+        column("approx_time_slot", new ArrowType.Time(TimeUnit.SECOND, 32), false),
+        encoded("municipality", MUNICIPALITY_ENCODING),
+        encoded("state", STATE_ENCODING),
+        column("state_timestamp", INSTANT, true),
+        column("version", new ArrowType.Int(64, true), true),
+        column("change_seq", new ArrowType.Int(64, true), true)));
+
+    static final Schema ITEMS_SCHEMA = new Schema(List.of(
+        column("booking_token", UTF8, false),
+        column("date", DATE, false),
+        encoded("municipality", MUNICIPALITY_ENCODING),
+        column("name", UTF8, true),
+        column("description", UTF8, true)));
+
+    // One row per state a booking has been in, the current one last
+    static final Schema TRANSITIONS_SCHEMA = new Schema(List.of(
+        column("booking_token", UTF8, false),
+        column("date", DATE, false),
+        encoded("municipality", MUNICIPALITY_ENCODING),
+        column("sequence", new ArrowType.Int(32, true), false),
+        encoded("state", STATE_ENCODING),
+        column("timestamp", INSTANT, true)));
+
+    private final Path directory;
+    private final BufferAllocator allocator = new RootAllocator();
+    private final DictionaryProvider.MapDictionaryProvider dictionaries;
+    private final Map<String, Integer> municipalityIds = new HashMap<>();
+    private final List<Path> files = new ArrayList<>();
+    private Partition partition;
+
+    ArrowExportWriter(Path directory, List<String> municipalities) {
+        this.directory = directory;
+        for (int i = 0; i < municipalities.size(); i++) {
+            municipalityIds.put(municipalities.get(i), i);
+        }
+        this.dictionaries = new DictionaryProvider.MapDictionaryProvider(
+            new Dictionary(dictionaryVector("municipality", municipalities), MUNICIPALITY_ENCODING),
+            new Dictionary(dictionaryVector("state", Arrays.stream(State.values()).map(State::name).toList()), STATE_ENCODING));
+    }
+
+    void write(List<Booking> chunk) throws IOException {
+        int start = 0;
+        while (start < chunk.size()) {
+            LocalDate date = chunk.get(start).getDate();
+            int end = start;
+            while (end < chunk.size() && chunk.get(end).getDate().equals(date)) {
+                end++;
+            }
+            if (partition == null || !partition.date.equals(date)) {
+                if (partition != null) {
+                    partition.close();
+                }
+                partition = new Partition(date);
+            }
+            partition.write(chunk.subList(start, end));
+            start = end;
+        }
+    }
+
+    // Written files, relative to the export directory
+    List<String> files() {
+        return files.stream().map(file -> directory.relativize(file).toString().replace('\\', '/')).toList();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (partition != null) {
+                partition.close();
+                partition = null;
+            }
+        } finally {
+            for (Long id : dictionaries.getDictionaryIds()) {
+                dictionaries.lookup(id).getVector().close();
+            }
+            allocator.close();
+        }
+    }
+
+    private int municipalityId(String municipality) {
+        Integer id = municipalityIds.get(municipality);
+        if (id == null) {
+            throw new IllegalStateException("Municipality missing from the export dictionary: " + municipality);
+        }
+        return id;
+    }
+
+    private VarCharVector dictionaryVector(String name, List<String> values) {
+        VarCharVector vector = new VarCharVector(name, allocator);
+        vector.allocateNew(values.size());
+        for (int i = 0; i < values.size(); i++) {
+            vector.setSafe(i, values.get(i).getBytes(StandardCharsets.UTF_8));
+        }
+        vector.setValueCount(values.size());
+        return vector;
+    }
+
+    private static Field column(String name, ArrowType type, boolean nullable) {
+        return new Field(name, new FieldType(nullable, type, null), null);
+    }
+
+    private static Field encoded(String name, DictionaryEncoding encoding) {
+        return new Field(name, new FieldType(false, encoding.getIndexType(), encoding), null);
+    }
+
+    private static void setUtf8(VarCharVector vector, int index, String value) {
+        if (value == null) {
+            vector.setNull(index);
+        } else {
+            vector.setSafe(index, value.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void setInstant(TimeStampMilliTZVector vector, int index, RequestState state) {
+        if (state.getTimestamp() == null) {
+            vector.setNull(index);
+        } else {
+            vector.setSafe(index, state.getTimestamp().getTime());
+        }
+    }
+
+    private static void setLong(BigIntVector vector, int index, Long value) {
+        if (value == null) {
+            vector.setNull(index);
+        } else {
+            vector.setSafe(index, value);
+        }
+    }
+
+    private final class Partition implements AutoCloseable {
+        private final LocalDate date;
+        private final Table bookings;
+        private final Table items;
+        private final Table transitions;
+
+        private Partition(LocalDate date) throws IOException {
+            this.date = date;
+            String key = "date=" + date;
+            this.bookings = new Table(directory.resolve(BOOKINGS).resolve(key).resolve(PART_FILE), BOOKINGS_SCHEMA);
+            this.items = new Table(directory.resolve(ITEMS).resolve(key).resolve(PART_FILE), ITEMS_SCHEMA);
+            this.transitions = new Table(directory.resolve(TRANSITIONS).resolve(key).resolve(PART_FILE), TRANSITIONS_SCHEMA);
+        }
+
+        private void write(List<Booking> sameDay) throws IOException {
+            writeBookings(sameDay);
+            writeItems(sameDay);
+            writeTransitions(sameDay);
+        }
+
+        private void writeBookings(List<Booking> sameDay) throws IOException {
+            VectorSchemaRoot root = bookings.root;
+            root.allocateNew();
+            VarCharVector token = (VarCharVector) root.getVector("token");
+            DateDayVector day = (DateDayVector) root.getVector("date");
+            TimeSecVector slot = (TimeSecVector) root.getVector("approx_time_slot");
+            IntVector municipality = (IntVector) root.getVector("municipality");
+            TinyIntVector state = (TinyIntVector) root.getVector("state");
+            TimeStampMilliTZVector stateTimestamp = (TimeStampMilliTZVector) root.getVector("state_timestamp");
+            BigIntVector version = (BigIntVector) root.getVector("version");
+            BigIntVector changeSeq = (BigIntVector) root.getVector("change_seq");
+
+            for (int row = 0; row < sameDay.size(); row++) {
+                Booking booking = sameDay.get(row);
+                token.setSafe(row, booking.getToken().getBytes(StandardCharsets.UTF_8));
+                day.setSafe(row, (int) date.toEpochDay());
+                slot.setSafe(row, booking.getApproxTimeSlot().toSecondOfDay());
+                municipality.setSafe(row, municipalityId(booking.getMunicipality()));
+                state.setSafe(row, booking.getCurrentState().getState().ordinal());
+                setInstant(stateTimestamp, row, booking.getCurrentState());
+                setLong(version, row, booking.getVersion());
+                setLong(changeSeq, row, booking.getChangeSeq());
+            }
+            bookings.write(sameDay.size());
+        }
+
+        private void writeItems(List<Booking> sameDay) throws IOException {
+            VectorSchemaRoot root = items.root;
+            root.allocateNew();
+            VarCharVector token = (VarCharVector) root.getVector("booking_token");
+            DateDayVector day = (DateDayVector) root.getVector("date");
+            IntVector municipality = (IntVector) root.getVector("municipality");
+            VarCharVector name = (VarCharVector) root.getVector("name");
+            VarCharVector description = (VarCharVector) root.getVector("description");
+
+            int row = 0;
+            for (Booking booking : sameDay) {
+                byte[] bookingToken = booking.getToken().getBytes(StandardCharsets.UTF_8);
+                int municipalityId = municipalityId(booking.getMunicipality());
+                for (Item item : booking.getItems()) {
+                    token.setSafe(row, bookingToken);
+                    day.setSafe(row, (int) date.toEpochDay());
+                    municipality.setSafe(row, municipalityId);
+                    setUtf8(name, row, item.getName());
+                    setUtf8(description, row, item.getDescription());
+                    row++;
+                }
+            }
+            items.write(row);
+        }
+
+        private void writeTransitions(List<Booking> sameDay) throws IOException {
+            VectorSchemaRoot root = transitions.root;
+            root.allocateNew();
+            VarCharVector token = (VarCharVector) root.getVector("booking_token");
+            DateDayVector day = (DateDayVector) root.getVector("date");
+            IntVector municipality = (IntVector) root.getVector("municipality");
+            IntVector sequence = (IntVector) root.getVector("sequence");
+            TinyIntVector state = (TinyIntVector) root.getVector("state");
+            TimeStampMilliTZVector timestamp = (TimeStampMilliTZVector) root.getVector("timestamp");
+
+            int row = 0;
+            for (Booking booking : sameDay) {
+                byte[] bookingToken = booking.getToken().getBytes(StandardCharsets.UTF_8);
+                int municipalityId = municipalityId(booking.getMunicipality());
+                List<RequestState> history = new ArrayList<>(booking.getPreviousStates());
+                history.add(booking.getCurrentState());
+                for (int i = 0; i < history.size(); i++) {
+                    token.setSafe(row, bookingToken);
+                    day.setSafe(row, (int) date.toEpochDay());
+                    municipality.setSafe(row, municipalityId);
+                    sequence.setSafe(row, i);
+                    state.setSafe(row, history.get(i).getState().ordinal());
+                    setInstant(timestamp, row, history.get(i));
+                    row++;
+                }
+            }
+            transitions.write(row);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                bookings.close();
+            } finally {
+                try {
+                    items.close();
+                } finally {
+                    transitions.close();
+                }
+            }
+        }
+    }
+
+    private final class Table implements AutoCloseable {
+        private final VectorSchemaRoot root;
+        private final ArrowFileWriter writer;
+
+        private Table(Path file, Schema schema) throws IOException {
+            Files.createDirectories(file.getParent());
+            this.root = VectorSchemaRoot.create(schema, allocator);
+            this.writer = new ArrowFileWriter(root, dictionaries,
+                FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE));
+            writer.start();
+            files.add(file);
+        }
+
+        private void write(int rows) throws IOException {
+            root.setRowCount(rows);
+            writer.writeBatch();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                writer.end();
+            } finally {
+                writer.close();
+                root.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package zm.services;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Outcome of one assignment run; with applied false it is only a plan and nothing was written
+public record AssignmentResult(LocalDate date, boolean applied, long assigned, long unassigned, boolean timedOut,
+                               List<CrewLoad> crews, List<String> unassignedTokens, long elapsedMillis) {
+
+    public record CrewLoad(String crew, String municipality, int bookings, int items, int capacity) {
+    }
+}
@@ -0,0 +1,119 @@
+package zm.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import zm.data.Booking;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+@Component
+public class BookingCache implements MeterBinder {
+
+    private static final int GENERATION_STRIPES = 1024;
+
+    private final Cache<String, Booking> cache;
+    // Bumped on every invalidation of a token hashing to the stripe, so a read that started before it cannot cache
+    // what it loaded. Striped rather than per token to stay bounded; a collision only costs a skipped put.
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    public BookingCache(@Value("${booking.cache.max-size:10000}") long maximumSize,
+                        @Value("${booking.cache.active-ttl:30s}") Duration activeTtl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new TerminalStateExpiry(activeTtl.toNanos()))
+                .recordStats()
+                .build();
+    }
+
+    public Booking getIfPresent(String token) {
+        return cache.getIfPresent(token);
+    }
+
+    public void put(Booking booking) {
+        cache.put(booking.getToken(), booking);
+    }
+
+    // Taken before a booking is read from the database, and handed back to putIfCurrent with what was read
+    public long stamp(String token) {
+        return generations.get(stripe(token));
+    }
+
+    // Caches a booking read from the database unless its token was invalidated since the stamp was taken, or a newer
+    // copy is already cached. The check runs under the entry's lock, so an invalidation cannot slip in between.
+    public void putIfCurrent(Booking booking, long stamp) {
+        String token = booking.getToken();
+        cache.asMap().compute(token, (key, cached) -> {
+            if (generations.get(stripe(key)) != stamp) {
+                return cached;
+            }
+            return cached != null && isNewer(cached, booking) ? cached : booking;
+        });
+    }
+
+    public void invalidate(String token) {
+        generations.incrementAndGet(stripe(token));
+        cache.invalidate(token);
+    }
+
+    public void invalidateAll(Collection<String> tokens) {
+        tokens.forEach(token -> generations.incrementAndGet(stripe(token)));
+        cache.invalidateAll(tokens);
+    }
+
+    public void invalidateAll() {
+        for (int stripe = 0; stripe < GENERATION_STRIPES; stripe++) {
+            generations.incrementAndGet(stripe);
+        }
+        cache.invalidateAll();
+    }
+
+    private static int stripe(String token) {
+        return token.hashCode() & (GENERATION_STRIPES - 1);
+    }
+
+    private static boolean isNewer(Booking cached, Booking loaded) {
+        return cached.getVersion() != null && loaded.getVersion() != null && cached.getVersion() > loaded.getVersion();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "bookings");
+    }
+
+    // Bookings in a terminal state never change again, so only active ones age out
+    private static final class TerminalStateExpiry implements Expiry<String, Booking> {
+        private final long activeTtlNanos;
+
+        private TerminalStateExpiry(long activeTtlNanos) {
+            this.activeTtlNanos = activeTtlNanos;
+        }
+
+        @Override
+        public long expireAfterCreate(String token, Booking booking, long currentTime) {
+            return booking.getCurrentState().getState().isTerminal() ? Long.MAX_VALUE : activeTtlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(String token, Booking booking, long currentTime, long currentDuration) {
+            return expireAfterCreate(token, booking, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String token, Booking booking, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package zm.services;
+
+import zm.data.Booking;
+import zm.data.BookingRef;
+import zm.data.RequestState;
+import zm.data.State;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+// previousState is the state a change left, or null for new bookings, for bulk changes out of several states and for
+// changes made on other nodes. remote marks a change another node made and journaled, heard through the invalidation
+// bus; it is published only to this node's listeners.
+public record BookingEvent(Type type, String token, String municipality, LocalDate date, LocalTime approxTimeSlot,
+                           State state, State previousState, boolean remote) {
+
+    public BookingEvent(Type type, String token, String municipality, LocalDate date, LocalTime approxTimeSlot,
+                        State state, State previousState) {
+        this(type, token, municipality, date, approxTimeSlot, state, previousState, false);
+    }
+
+    public enum Type {
+        CREATED,
+        STATE_CHANGED
+    }
+
+    public static BookingEvent created(Booking booking) {
+        return of(Type.CREATED, booking, null);
+    }
+
+    public static BookingEvent stateChanged(Booking booking) {
+        List<RequestState> previous = booking.getPreviousStates();
+        return of(Type.STATE_CHANGED, booking, previous.isEmpty() ? null : previous.get(previous.size() - 1).getState());
+    }
+
+    public static BookingEvent stateChanged(BookingRef ref, State previousState, State state) {
+        return new BookingEvent(Type.STATE_CHANGED, ref.token(), ref.municipality(), ref.date(), ref.approxTimeSlot(),
+                state, previousState);
+    }
+
+    // Bookings are only ever journaled in RECEIVED when they are created
+    public static BookingEvent remote(BookingRef ref, State state) {
+        return new BookingEvent(state == State.RECEIVED ? Type.CREATED : Type.STATE_CHANGED, ref.token(),
+                ref.municipality(), ref.date(), ref.approxTimeSlot(), state, null, true);
+    }
+
+    // Whether someone following the bookings in a state needs this event: the booking entered or left that state,
+    // or it changed from a state that is not known
+    public boolean concerns(State followed) {
+        return state == followed || previousState == followed || (type == Type.STATE_CHANGED && previousState == null);
+    }
+
+    private static BookingEvent of(Type type, Booking booking, State previousState) {
+        return new BookingEvent(type, booking.getToken(), booking.getMunicipality(), booking.getDate(),
+                booking.getApproxTimeSlot(), booking.getCurrentState().getState(), previousState);
+    }
+}
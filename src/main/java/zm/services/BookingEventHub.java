@@ -0,0 +1,216 @@
+package zm.services;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+@Component
+public class BookingEventHub {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookingEventHub.class);
+
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private final int bufferSize;
+    private final long sendTimeoutNanos;
+    private final Executor executor;
+
+    // With virtual threads each drain gets its own thread, so a slow SSE client never holds up the others
+    @Autowired
+    public BookingEventHub(@Value("${booking.events.buffer-size:256}") int bufferSize,
+                           @Value("${booking.events.send-timeout:PT30S}") Duration sendTimeout,
+                           @Value("${booking.events.dispatch-threads:4}") int dispatchThreads,
+                           @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this(bufferSize, sendTimeout, virtualThreads
+            ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("booking-events-", 0).factory())
+            : Executors.newFixedThreadPool(dispatchThreads));
+    }
+
+    BookingEventHub(int bufferSize, Duration sendTimeout, Executor executor) {
+        this.bufferSize = bufferSize;
+        this.sendTimeoutNanos = sendTimeout.toNanos();
+        this.executor = executor;
+    }
+
+    // The sink and onDrop run on a dispatch thread, never the publisher's; a subscriber that falls bufferSize
+    // events behind is dropped
+    public Subscription subscribe(Predicate<BookingEvent> filter, Consumer<BookingEvent> sink, Runnable onDrop) {
+        return subscribe(filter, sink, null, onDrop);
+    }
+
+    // As above, with a keep-alive queued behind the subscriber's events on every heartbeat
+    public Subscription subscribe(Predicate<BookingEvent> filter, Consumer<BookingEvent> sink, Runnable heartbeat, Runnable onDrop) {
+        Subscription subscription = new Subscription(filter, sink, heartbeat, onDrop);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    @EventListener
+    public void onBookingEvent(BookingEvent event) {
+        for (Subscription subscription : subscriptions) {
+            if (subscription.filter.test(event)) {
+                subscription.offer(event);
+            }
+        }
+    }
+
+    // Queues each subscriber's keep-alive, and gives up on any send blocked past booking.events.send-timeout: the
+    // subscriber is dropped and its dispatch thread interrupted, so a stalled client cannot hold the thread for good
+    @Scheduled(fixedRateString = "${booking.events.heartbeat-interval:PT20S}")
+    public void heartbeat() {
+        long now = System.nanoTime();
+        for (Subscription subscription : subscriptions) {
+            subscription.abandonIfStuck(now);
+            if (subscription.heartbeat != null) {
+                subscription.enqueue(subscription.heartbeat);
+            }
+        }
+    }
+
+    public int bufferSize() {
+        return bufferSize;
+    }
+
+    public int subscriberCount() {
+        return subscriptions.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscriptions.forEach(Subscription::cancel);
+        if (executor instanceof ExecutorService service) {
+            service.shutdownNow();
+        }
+    }
+
+    public final class Subscription {
+        private final Predicate<BookingEvent> filter;
+        private final Consumer<BookingEvent> sink;
+        private final Runnable heartbeat;
+        private final Runnable onDrop;
+        private final Queue<Runnable> buffer = new ArrayBlockingQueue<>(bufferSize);
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean active = new AtomicBoolean(true);
+        // Set once the subscriber no longer needs telling it was dropped: it has been told, or it cancelled itself
+        private final AtomicBoolean settled = new AtomicBoolean();
+        private volatile Thread sender;
+        private volatile long sendStarted;
+
+        private Subscription(Predicate<BookingEvent> filter, Consumer<BookingEvent> sink, Runnable heartbeat, Runnable onDrop) {
+            this.filter = filter;
+            this.sink = sink;
+            this.heartbeat = heartbeat;
+            this.onDrop = onDrop;
+        }
+
+        public void cancel() {
+            settled.set(true);
+            deactivate();
+        }
+
+        public boolean isActive() {
+            return active.get();
+        }
+
+        private boolean deactivate() {
+            if (!active.compareAndSet(true, false)) {
+                return false;
+            }
+            subscriptions.remove(this);
+            buffer.clear();
+            return true;
+        }
+
+        private void offer(BookingEvent event) {
+            enqueue(() -> sink.accept(event));
+        }
+
+        private void enqueue(Runnable delivery) {
+            if (!active.get()) {
+                return;
+            }
+            if (!buffer.offer(delivery)) {
+                logger.warn("Dropping slow event subscriber after {} buffered events", bufferSize);
+                drop();
+                return;
+            }
+            scheduleDrain();
+        }
+
+        private void abandonIfStuck(long now) {
+            Thread stuck = sender;
+            if (stuck != null && now - sendStarted > sendTimeoutNanos) {
+                logger.warn("Dropping event subscriber whose send has been blocked for over {} ms", sendTimeoutNanos / 1_000_000);
+                drop();
+                stuck.interrupt();
+            }
+        }
+
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                executor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                Runnable delivery;
+                while (active.get() && (delivery = buffer.poll()) != null) {
+                    sendStarted = System.nanoTime();
+                    sender = Thread.currentThread();
+                    try {
+                        delivery.run();
+                    } finally {
+                        sender = null;
+                    }
+                }
+            } catch (RuntimeException e) {
+                logger.debug("Event subscriber failed, dropping it", e);
+                deactivate();
+            } finally {
+                // An interrupt aimed at an abandoned send must not carry over to the thread's next task
+                Thread.interrupted();
+                // Told here, under the draining flag, so onDrop never races a send on the same connection
+                if (!active.get() && settled.compareAndSet(false, true)) {
+                    notifyDropped();
+                }
+                draining.set(false);
+            }
+            // An event offered, or a drop made, after the last check but before the flag was cleared still needs a drain
+            if (active.get() ? !buffer.isEmpty() : !settled.get()) {
+                scheduleDrain();
+            }
+        }
+
+        private void notifyDropped() {
+            try {
+                onDrop.run();
+            } catch (RuntimeException e) {
+                logger.debug("Event subscriber failed while being dropped", e);
+            }
+        }
+
+        // A drain in progress tells the subscriber once it gets out of its send; otherwise one is started to do it
+        private void drop() {
+            if (deactivate()) {
+                scheduleDrain();
+            }
+        }
+    }
+}
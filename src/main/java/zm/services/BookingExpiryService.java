@@ -0,0 +1,87 @@
+package zm.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import zm.data.BookingFilter;
+import zm.data.State;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Moves bookings whose date has passed while still RECEIVED or ASSIGNED to EXPIRED, so they drop out of the
+// live listings. Runs off-peak through the chunked bulk transition, which archives each booking's previous state
+// and journals the change; the pause between chunks keeps it from crowding out other writers.
+@Service
+public class BookingExpiryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookingExpiryService.class);
+    static final Set<State> EXPIRING_STATES = Collections.unmodifiableSet(EnumSet.of(State.RECEIVED, State.ASSIGNED));
+
+    private final BookingService bookingService;
+    private final Duration pause;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile ExpiryRun lastRun;
+
+    public BookingExpiryService(BookingService bookingService,
+                                @Value("${booking.expiry.pause:PT0.2S}") Duration pause) {
+        this.bookingService = bookingService;
+        this.pause = pause;
+    }
+
+    @Scheduled(cron = "${booking.expiry.cron:-}")
+    public void scheduledExpiry() {
+        try {
+            expire();
+        } catch (RuntimeException e) {
+            logger.error("Scheduled expiry failed", e);
+        }
+    }
+
+    // Expires everything dated before today; one run at a time per node
+    public ExpiryRun expire() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("Expiry is already running");
+        }
+        try {
+            LocalDate cutoff = LocalDate.now();
+            Instant startedAt = Instant.now();
+            long started = System.nanoTime();
+            BookingFilter filter = new BookingFilter(null, null, cutoff.minusDays(1), EXPIRING_STATES);
+            BulkOperationResult result = bookingService.bulkChangeState(filter, State.EXPIRED, null, this::throttle);
+
+            ExpiryRun run = new ExpiryRun(cutoff, startedAt, Instant.now(), result.matched(), result.updated(),
+                result.chunks(), (System.nanoTime() - started) / 1_000_000);
+            lastRun = run;
+            logger.info("Expiry before {}: {} of {} matched bookings expired in {} chunks, {} ms",
+                cutoff, run.expired(), run.matched(), run.chunks(), run.elapsedMillis());
+            return run;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    public Optional<ExpiryRun> lastRun() {
+        return Optional.ofNullable(lastRun);
+    }
+
+    private void throttle(BulkOperationResult progress) {
+        if (pause.isZero() || pause.isNegative()) {
+            return;
+        }
+        try {
+            Thread.sleep(pause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Expiry interrupted after " + progress.updated() + " bookings");
+        }
+    }
+}
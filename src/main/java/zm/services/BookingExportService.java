@@ -0,0 +1,186 @@
+package zm.services;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import zm.data.Booking;
+import zm.data.BookingRepository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Columnar exports for analytics, written on a dedicated thread so request threads never wait on them.
+// Bookings are read in keyset chunks, so a booking changed mid-export may appear in either its old or new state.
+@Service
+public class BookingExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookingExportService.class);
+
+    private final BookingRepository bookingRepository;
+    private final BookingShards bookingShards;
+    private final MunicipalityProvider municipalityProvider;
+    private final Path directory;
+    private final int chunkSize;
+    private final int retain;
+    private final Duration maxAge;
+    private final Map<String, ExportJob> jobs = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "booking-export");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public BookingExportService(BookingRepository bookingRepository, BookingShards bookingShards, MunicipalityProvider municipalityProvider,
+                                @Value("${booking.export.directory}") Path directory,
+                                @Value("${booking.export.chunk-size:1000}") int chunkSize,
+                                @Value("${booking.export.retain:10}") int retain,
+                                @Value("${booking.export.max-age:P7D}") Duration maxAge) {
+        this.bookingRepository = bookingRepository;
+        this.bookingShards = bookingShards;
+        this.municipalityProvider = municipalityProvider;
+        this.directory = directory;
+        this.chunkSize = chunkSize;
+        this.retain = Math.max(1, retain);
+        this.maxAge = maxAge;
+    }
+
+    // Queues an export and returns immediately; exports run one at a time in request order
+    public ExportJob start() {
+        ExportJob job = ExportJob.queued(UUID.randomUUID().toString());
+        jobs.put(job.id(), job);
+        executor.execute(() -> run(job.id()));
+        logger.info("Export {} queued", job.id());
+        return job;
+    }
+
+    @Scheduled(cron = "${booking.export.cron:-}")
+    public void scheduledExport() {
+        start();
+    }
+
+    public Optional<ExportJob> find(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    // A file of a completed export; empty if the job or file is unknown, and never a path outside the job's directory
+    public Optional<Path> file(String id, String file) {
+        ExportJob job = jobs.get(id);
+        if (job == null || job.status() != ExportJob.Status.COMPLETED || !job.files().contains(file)) {
+            return Optional.empty();
+        }
+        Path jobDirectory = directory.resolve(id).normalize();
+        Path resolved = jobDirectory.resolve(file).normalize();
+        return resolved.startsWith(jobDirectory) && Files.isRegularFile(resolved) ? Optional.of(resolved) : Optional.empty();
+    }
+
+    void run(String id) {
+        jobs.computeIfPresent(id, (key, job) -> job.running());
+        logger.info("Export {} started", id);
+        try {
+            long exported = 0;
+            List<String> files;
+            try (ArrowExportWriter writer = new ArrowExportWriter(directory.resolve(id), municipalities())) {
+                LocalDate afterDate = null;
+                String afterToken = null;
+                List<Booking> chunk;
+                do {
+                    chunk = nextChunk(afterDate, afterToken);
+                    writer.write(chunk);
+                    exported += chunk.size();
+                    if (!chunk.isEmpty()) {
+                        Booking last = chunk.get(chunk.size() - 1);
+                        afterDate = last.getDate();
+                        afterToken = last.getToken();
+                    }
+                } while (chunk.size() == chunkSize);
+                files = writer.files();
+            }
+
+            long total = exported;
+            jobs.computeIfPresent(id, (key, job) -> job.completed(total, files));
+            logger.info("Export {} completed: {} bookings in {} files", id, total, files.size());
+        } catch (IOException | RuntimeException e) {
+            logger.error("Export {} failed", id, e);
+            jobs.computeIfPresent(id, (key, job) -> job.failed(e.getMessage()));
+        }
+        evict(Instant.now());
+    }
+
+    @Scheduled(fixedDelayString = "${booking.export.sweep-interval:PT1H}",
+        initialDelayString = "${booking.export.sweep-interval:PT1H}")
+    public void sweep() {
+        evict(Instant.now());
+    }
+
+    // Finished jobs beyond the newest `retain`, or finished longer than maxAge ago, are forgotten and their files
+    // deleted. Queued and running jobs are never touched.
+    void evict(Instant now) {
+        Instant cutoff = now.minus(maxAge);
+        List<ExportJob> finished = jobs.values().stream()
+            .filter(job -> job.finishedAt() != null)
+            .sorted(Comparator.comparing(ExportJob::finishedAt).reversed())
+            .toList();
+        for (int i = 0; i < finished.size(); i++) {
+            ExportJob job = finished.get(i);
+            if ((i >= retain || job.finishedAt().isBefore(cutoff)) && jobs.remove(job.id(), job)) {
+                delete(directory.resolve(job.id()));
+                logger.info("Export {} evicted", job.id());
+            }
+        }
+    }
+
+    private static void delete(Path jobDirectory) {
+        if (!Files.exists(jobDirectory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(jobDirectory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        } catch (IOException e) {
+            logger.warn("Could not delete export directory {}", jobDirectory, e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // Every shard is asked for its next chunk and only the first chunkSize in (date, token) order are kept, so the
+    // keyset cursor stays exact across shards at the cost of reading up to a chunk per shard each round
+    private List<Booking> nextChunk(LocalDate afterDate, String afterToken) {
+        if (!bookingShards.isSharded()) {
+            return bookingRepository.findExportChunk(afterDate, afterToken, chunkSize);
+        }
+        return bookingShards.gather(shard -> bookingRepository.findExportChunk(afterDate, afterToken, chunkSize)).stream()
+            .flatMap(List::stream)
+            .sorted(Comparator.comparing(Booking::getDate).thenComparing(Booking::getToken))
+            .limit(chunkSize)
+            .toList();
+    }
+
+    // Every municipality a booking may carry, fixed before the first batch because Arrow files hold one dictionary
+    private List<String> municipalities() {
+        TreeSet<String> municipalities = new TreeSet<>(municipalityProvider.getMunicipalities());
+        bookingShards.gather(shard -> bookingRepository.findDistinctMunicipalities()).forEach(municipalities::addAll);
+        return List.copyOf(municipalities);
+    }
+}
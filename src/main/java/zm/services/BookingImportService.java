@@ -0,0 +1,363 @@
+package zm.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import zm.data.Booking;
+import zm.data.BookingRepository;
+import zm.data.Item;
+import zm.data.RequestState;
+import zm.data.State;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+
+// Loads historical bookings for a newly onboarded municipality. The upload is read as a stream one chunk of rows
+// at a time; each chunk is parsed and validated in parallel on a fork/join pool, then written in its own
+// transaction with batched inserts. Rows are restored as-is, so they bypass the journal and the change feed.
+@Service
+public class BookingImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookingImportService.class);
+    static final int MAX_REPORTED_REJECTS = 100;
+    static final List<String> REQUIRED_CSV_COLUMNS = List.of("date", "approx_time_slot", "municipality", "state", "items");
+
+    public enum Format {
+        CSV,
+        NDJSON
+    }
+
+    private final BookingRepository bookingRepository;
+    private final BookingShards bookingShards;
+    private final MunicipalityProvider municipalityProvider;
+    private final BookingTokenIndex tokenIndex;
+    private final BookingItemIndex itemIndex;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+    private final ForkJoinPool validationPool;
+
+    public BookingImportService(BookingRepository bookingRepository, BookingShards bookingShards, MunicipalityProvider municipalityProvider,
+                                BookingTokenIndex tokenIndex, BookingItemIndex itemIndex, ObjectMapper objectMapper,
+                                @Value("${booking.import.chunk-size:1000}") int chunkSize,
+                                @Value("${booking.import.parallelism:0}") int parallelism) {
+        this.bookingRepository = bookingRepository;
+        this.bookingShards = bookingShards;
+        this.municipalityProvider = municipalityProvider;
+        this.tokenIndex = tokenIndex;
+        this.itemIndex = itemIndex;
+        this.objectMapper = objectMapper;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.validationPool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    // CSV needs a header row naming its columns; blank lines are skipped and do not count as rows
+    public ImportReport importBookings(InputStream input, Format format) throws IOException {
+        if (input == null || format == null) {
+            throw new IllegalArgumentException("Upload and format are required");
+        }
+        long started = System.nanoTime();
+        // One lookup set for the whole upload instead of a copy of the provider's list per row
+        Set<String> municipalities = Set.copyOf(municipalityProvider.getMunicipalities());
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        long lineNumber = 0;
+        RowParser parser;
+        if (format == Format.NDJSON) {
+            parser = this::parseJson;
+        } else {
+            String header;
+            do {
+                header = reader.readLine();
+                lineNumber++;
+            } while (header != null && header.isBlank());
+            if (header == null) {
+                throw new IllegalArgumentException("CSV header row is missing");
+            }
+            parser = csvParser(header);
+        }
+
+        Tally tally = new Tally();
+        List<Line> chunk = new ArrayList<>(chunkSize);
+        String text;
+        while ((text = reader.readLine()) != null) {
+            lineNumber++;
+            if (text.isBlank()) {
+                continue;
+            }
+            chunk.add(new Line(lineNumber, text));
+            if (chunk.size() == chunkSize) {
+                importChunk(chunk, parser, municipalities, tally);
+                chunk = new ArrayList<>(chunkSize);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            importChunk(chunk, parser, municipalities, tally);
+        }
+
+        // Imported tokens and items must become visible to the token filter and the item search
+        if (tally.imported > 0) {
+            tokenIndex.rebuild();
+            itemIndex.rebuild();
+        }
+
+        long elapsedMillis = Math.max(1, (System.nanoTime() - started) / 1_000_000);
+        double perSecond = tally.imported * 1000.0 / elapsedMillis;
+        logger.info("Import finished: {} of {} rows imported in {} ms ({} bookings/s)",
+            tally.imported, tally.rows, elapsedMillis, Math.round(perSecond));
+        return new ImportReport(tally.rows, tally.imported, tally.rejected, List.copyOf(tally.rejects), elapsedMillis, perSecond);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        validationPool.shutdownNow();
+    }
+
+    private void importChunk(List<Line> chunk, RowParser parser, Set<String> municipalities, Tally tally) {
+        List<Booking> bookings = new ArrayList<>();
+        Map<String, Long> lines = new HashMap<>();
+        for (Outcome outcome : validate(chunk, parser, municipalities)) {
+            if (outcome.booking() == null) {
+                tally.reject(outcome.line(), outcome.error());
+            } else if (lines.putIfAbsent(outcome.booking().getToken(), outcome.line()) != null) {
+                tally.reject(outcome.line(), "Duplicate token in upload");
+            } else {
+                bookings.add(outcome.booking());
+            }
+        }
+
+        Set<String> stored = insert(bookings);
+        for (String token : stored) {
+            tally.reject(lines.get(token), "Token already stored");
+        }
+        tally.rows += chunk.size();
+        tally.imported += bookings.size() - stored.size();
+        logger.info("Import: {} rows read, {} imported, {} rejected", tally.rows, tally.imported, tally.rejected);
+    }
+
+    // Each shard's rows go in their own batch; the tokens returned are the ones some shard already held
+    private Set<String> insert(List<Booking> bookings) {
+        if (!bookingShards.isSharded()) {
+            return bookingRepository.insertChunk(bookings);
+        }
+        Map<Integer, List<Booking>> byShard = new TreeMap<>();
+        for (Booking booking : bookings) {
+            byShard.computeIfAbsent(bookingShards.shardOf(booking.getMunicipality()), shard -> new ArrayList<>()).add(booking);
+        }
+        Set<String> stored = new HashSet<>();
+        byShard.forEach((shard, group) -> stored.addAll(bookingShards.on(shard, () -> bookingRepository.insertChunk(group))));
+        return stored;
+    }
+
+    private List<Outcome> validate(List<Line> chunk, RowParser parser, Set<String> municipalities) {
+        return validationPool.submit(() -> chunk.parallelStream()
+                .map(line -> {
+                    try {
+                        return Outcome.accepted(line.number(), toBooking(parser.parse(line.text()), municipalities, bookingShards));
+                    } catch (IllegalArgumentException | DateTimeException e) {
+                        return Outcome.rejected(line.number(), e.getMessage());
+                    }
+                })
+                .toList())
+            .join();
+    }
+
+    private static Booking toBooking(ImportRow row, Set<String> municipalities, BookingShards bookingShards) {
+        LocalDate date = row.date() == null ? null : LocalDate.parse(row.date());
+        LocalTime time = row.approxTimeSlot() == null ? null : LocalTime.parse(row.approxTimeSlot());
+        List<Item> items = row.items().stream().map(item -> new Item(item.name(), item.description())).toList();
+        BookingRules.validateImported(date, time, items, row.municipality());
+        if (!municipalities.contains(row.municipality())) {
+            throw new IllegalArgumentException("Invalid municipality");
+        }
+        if (row.state() == null) {
+            throw new IllegalArgumentException("State cannot be null");
+        }
+        State state;
+        try {
+            state = State.valueOf(row.state().trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid state: " + row.state());
+        }
+
+        String token = row.token() == null ? bookingShards.newToken(row.municipality()) : row.token().trim().toLowerCase();
+        if (!BookingTokenIndex.isWellFormed(token)) {
+            throw new IllegalArgumentException("Invalid token: " + row.token());
+        }
+        // A token says which shard holds its booking, so a supplied one must name the municipality's shard
+        if (bookingShards.shardOfToken(token) != bookingShards.shardOf(row.municipality())) {
+            throw new IllegalArgumentException("Token does not belong to the municipality's shard: " + row.token());
+        }
+        // Without a recorded timestamp, the state is taken to date from the booked slot
+        Instant changedAt = row.stateTimestamp() == null
+            ? date.atTime(time).atZone(ZoneId.systemDefault()).toInstant()
+            : Instant.parse(row.stateTimestamp());
+        return Booking.restore(token, date, time, new ArrayList<>(items), row.municipality(),
+            RequestState.restore(state, Timestamp.from(changedAt)), List.of(), null, null);
+    }
+
+    private ImportRow parseJson(String text) {
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(text);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Malformed JSON");
+        }
+        if (!node.isObject()) {
+            throw new IllegalArgumentException("Each line must be a JSON object");
+        }
+        List<ImportRow.ItemFields> items = new ArrayList<>();
+        for (JsonNode item : node.path("items")) {
+            items.add(new ImportRow.ItemFields(textOf(item, "name"), item.path("description").asText("")));
+        }
+        return new ImportRow(textOf(node, "token"), textOf(node, "date"), textOf(node, "approxTimeSlot"),
+            textOf(node, "municipality"), textOf(node, "state"), textOf(node, "stateTimestamp"), items);
+    }
+
+    private static RowParser csvParser(String header) {
+        // Spreadsheet exports often start with a byte order mark
+        List<String> names = splitCsv(header.replace("\uFEFF", "")).stream().map(name -> name.trim().toLowerCase()).toList();
+        for (String required : REQUIRED_CSV_COLUMNS) {
+            if (!names.contains(required)) {
+                throw new IllegalArgumentException("CSV header is missing column: " + required);
+            }
+        }
+        int token = names.indexOf("token");
+        int date = names.indexOf("date");
+        int slot = names.indexOf("approx_time_slot");
+        int municipality = names.indexOf("municipality");
+        int state = names.indexOf("state");
+        int stateTimestamp = names.indexOf("state_timestamp");
+        int items = names.indexOf("items");
+
+        return text -> {
+            List<String> values = splitCsv(text);
+            if (values.size() != names.size()) {
+                throw new IllegalArgumentException("Expected " + names.size() + " columns but found " + values.size());
+            }
+            return new ImportRow(column(values, token), column(values, date), column(values, slot),
+                column(values, municipality), column(values, state), column(values, stateTimestamp),
+                csvItems(column(values, items)));
+        };
+    }
+
+    // Items are "name: description" pairs separated by '|', e.g. "Fridge: two doors|Sofa"
+    static List<ImportRow.ItemFields> csvItems(String value) {
+        List<ImportRow.ItemFields> items = new ArrayList<>();
+        if (value == null) {
+            return items;
+        }
+        for (String entry : value.split("\\|")) {
+            int colon = entry.indexOf(':');
+            String name = colon < 0 ? entry : entry.substring(0, colon);
+            String description = colon < 0 ? "" : entry.substring(colon + 1);
+            items.add(new ImportRow.ItemFields(name.trim(), description.trim()));
+        }
+        return items;
+    }
+
+    // RFC 4180 fields on a single line: quoted fields may hold commas and doubled quotes, but not line breaks
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static String column(List<String> values, int index) {
+        if (index < 0 || values.get(index).isBlank()) {
+            return null;
+        }
+        return values.get(index).trim();
+    }
+
+    private static String textOf(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value == null || value.isNull() || value.asText().isBlank() ? null : value.asText().trim();
+    }
+
+    @FunctionalInterface
+    private interface RowParser {
+        ImportRow parse(String text);
+    }
+
+    record ImportRow(String token, String date, String approxTimeSlot, String municipality, String state,
+                     String stateTimestamp, List<ItemFields> items) {
+
+        record ItemFields(String name, String description) {
+        }
+    }
+
+    private static final class Tally {
+        private long rows;
+        private long imported;
+        private long rejected;
+        private final List<ImportReport.Reject> rejects = new ArrayList<>();
+
+        private void reject(long line, String reason) {
+            rejected++;
+            if (rejects.size() < MAX_REPORTED_REJECTS) {
+                rejects.add(new ImportReport.Reject(line, reason));
+            }
+        }
+    }
+
+    private record Line(long number, String text) {
+    }
+
+    private record Outcome(long line, Booking booking, String error) {
+
+        static Outcome accepted(long line, Booking booking) {
+            return new Outcome(line, booking, null);
+        }
+
+        static Outcome rejected(long line, String error) {
+            return new Outcome(line, null, error);
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package zm.services;
+
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import zm.data.BookingChange;
+import zm.data.BookingChangeRepository;
+import zm.data.BookingRepository;
+import zm.data.ChangeOrigin;
+import zm.data.State;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+// Keeps this node's booking caches coherent with writes made on other nodes. Every journaled change is announced as
+// "seq:token:STATE:origin"; on PostgreSQL through NOTIFY in the writing transaction, heard here on one LISTENing
+// connection held per shard. Other databases have no NOTIFY, so their journal is polled instead. A sequence number
+// still missing after the grace period is looked up in the journal; a node too far behind to replay drops its caches.
+// Changes from other nodes are also published here as remote BookingEvents, so long-polls, event streams, manifests
+// and slot counts on this node follow them too.
+@Component
+public class BookingInvalidationBus {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookingInvalidationBus.class);
+
+    private final DataSource dataSource;
+    private final BookingRepository bookingRepo;
+    private final BookingChangeRepository changeRepo;
+    private final ChangeHorizon changeHorizon;
+    private final BookingShards bookingShards;
+    private final BookingCache bookingCache;
+    private final BookingTokenIndex tokenIndex;
+    private final BookingItemIndex itemIndex;
+    private final ChangeOrigin changeOrigin;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean enabled;
+    private final Duration pollInterval;
+    private final Duration gapGrace;
+    private final int maxCatchUp;
+    private final List<Thread> feeds = new ArrayList<>();
+    private volatile boolean running;
+
+    public BookingInvalidationBus(DataSource dataSource, BookingRepository bookingRepo, BookingChangeRepository changeRepo,
+                                  ChangeHorizon changeHorizon, BookingShards bookingShards,
+                                  BookingCache bookingCache, BookingTokenIndex tokenIndex, BookingItemIndex itemIndex,
+                                  ChangeOrigin changeOrigin, ApplicationEventPublisher eventPublisher,
+                                  @Value("${booking.invalidation.enabled:true}") boolean enabled,
+                                  @Value("${booking.invalidation.poll-interval:PT1S}") Duration pollInterval,
+                                  @Value("${booking.invalidation.gap-grace:PT5S}") Duration gapGrace,
+                                  @Value("${booking.invalidation.max-catch-up:10000}") int maxCatchUp) {
+        this.dataSource = dataSource;
+        this.bookingRepo = bookingRepo;
+        this.changeRepo = changeRepo;
+        this.changeHorizon = changeHorizon;
+        this.bookingShards = bookingShards;
+        this.bookingCache = bookingCache;
+        this.tokenIndex = tokenIndex;
+        this.itemIndex = itemIndex;
+        this.changeOrigin = changeOrigin;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.pollInterval = pollInterval;
+        this.gapGrace = gapGrace;
+        this.maxCatchUp = Math.max(1, maxCatchUp);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!enabled || running) {
+            return;
+        }
+        running = true;
+        for (int shard = 0; shard < bookingShards.count(); shard++) {
+            Feed feed = new Feed(shard);
+            feeds.add(Thread.ofPlatform().daemon().name("booking-invalidation-" + shard).start(feed::run));
+        }
+    }
+
+    @PreDestroy
+    public synchronized void stop() throws InterruptedException {
+        running = false;
+        for (Thread feed : feeds) {
+            feed.interrupt();
+            feed.join(pollInterval.multipliedBy(2).toMillis());
+        }
+        feeds.clear();
+    }
+
+    // Another node changed the booking: whatever this node holds for it is stale. This node's own changes reached its
+    // listeners when they committed, so only the others' are published; a booking gone from the shard has no event.
+    void apply(int shard, String token, State state, String origin) {
+        bookingCache.invalidate(token);
+        tokenIndex.register(token);
+        if (state.isTerminal()) {
+            itemIndex.remove(token);
+        }
+        if (!changeOrigin.isLocal(origin)) {
+            bookingShards.read(shard, () -> bookingRepo.findRefByToken(token))
+                .ifPresent(ref -> eventPublisher.publishEvent(BookingEvent.remote(ref, state)));
+        }
+    }
+
+    // "seq:token:STATE:origin", or "seq:token:STATE" from nodes that predate origins; neither part holds colons
+    static BookingChangeNotice parse(String payload) {
+        String[] parts = payload.split(":");
+        if (parts.length != 3 && parts.length != 4) {
+            throw new IllegalArgumentException("Malformed change notice: " + payload);
+        }
+        return new BookingChangeNotice(Long.parseLong(parts[0]), parts[1], State.valueOf(parts[2]),
+            parts.length == 4 ? parts[3] : null);
+    }
+
+    record BookingChangeNotice(long seq, String token, State state, String origin) {
+    }
+
+    // Follows one shard's journal on a thread of its own
+    private final class Feed {
+
+        private final int shard;
+        private final SequenceGaps gaps = new SequenceGaps(maxCatchUp);
+        private boolean connected;
+        private Connection connection;
+        private PGConnection notifications;
+
+        private Feed(int shard) {
+            this.shard = shard;
+        }
+
+        private void run() {
+            while (running) {
+                try {
+                    if (!connected) {
+                        connect();
+                    }
+                    receive();
+                    resolveOverdue();
+                } catch (SQLException | RuntimeException e) {
+                    if (running) {
+                        logger.warn("Invalidation feed of shard {} failed, reconnecting: {}", shard, e.getMessage());
+                    }
+                    disconnect();
+                    pause();
+                }
+            }
+            disconnect();
+        }
+
+        // Listening starts before the journal is read, so a change committed in between is not missed
+        private void connect() throws SQLException {
+            connection = bookingShards.on(shard, this::listen);
+            notifications = connection == null ? null : connection.unwrap(PGConnection.class);
+            long last = bookingShards.read(shard, changeRepo::findLastSeq);
+            if (!gaps.started()) {
+                gaps.reset(last);
+            } else if (last - gaps.last() > maxCatchUp) {
+                resync(last);
+            } else {
+                replay();
+            }
+            connected = true;
+            logger.info("Following booking changes of shard {} by {}", shard, notifications != null ? "LISTEN" : "polling");
+        }
+
+        // A connection held for LISTEN on PostgreSQL, or null where the journal has to be polled
+        private Connection listen() {
+            try {
+                Connection opened = dataSource.getConnection();
+                try {
+                    if (!"PostgreSQL".equals(opened.getMetaData().getDatabaseProductName())) {
+                        opened.close();
+                        return null;
+                    }
+                    opened.setAutoCommit(true);
+                    try (Statement statement = opened.createStatement()) {
+                        statement.execute("LISTEN " + BookingChange.CHANNEL);
+                    }
+                    return opened;
+                } catch (SQLException e) {
+                    opened.close();
+                    throw e;
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException("Cannot listen for booking changes on shard " + shard, e);
+            }
+        }
+
+        private void receive() throws SQLException {
+            if (notifications == null) {
+                if (!replay()) {
+                    pause();
+                }
+                return;
+            }
+            PGNotification[] received = notifications.getNotifications((int) pollInterval.toMillis());
+            if (received == null) {
+                return;
+            }
+            for (PGNotification notification : received) {
+                BookingChangeNotice notice;
+                try {
+                    notice = parse(notification.getParameter());
+                } catch (IllegalArgumentException e) {
+                    logger.warn("Ignoring change notice on shard {}: {}", shard, e.getMessage());
+                    continue;
+                }
+                accept(notice.seq(), notice.token(), notice.state(), notice.origin());
+            }
+        }
+
+        // Reads the journal past the last number heard, up to the change horizon so that a slow writer's lower number
+        // is not left behind as a hole; returns whether a full page came back
+        private boolean replay() {
+            List<BookingChange> changes = bookingShards.read(shard, () -> changeRepo.findBySeqGreaterThanAndSeqLessThanEqualOrderBySeqAsc(
+                gaps.last(), changeHorizon.advance(shard), PageRequest.of(0, maxCatchUp)));
+            for (BookingChange change : changes) {
+                accept(change.getSeq(), change.getToken(), change.getState(), change.getOrigin());
+            }
+            return changes.size() == maxCatchUp;
+        }
+
+        private void accept(long seq, String token, State state, String origin) {
+            apply(shard, token, state, origin);
+            if (!gaps.accept(seq, System.nanoTime())) {
+                resync(bookingShards.read(shard, changeRepo::findLastSeq));
+            }
+        }
+
+        // A hole that outlived the grace period is a lost notice, still in the journal, or a number nothing used
+        private void resolveOverdue() {
+            List<Long> overdue = gaps.overdue(System.nanoTime() - gapGrace.toNanos());
+            if (overdue.isEmpty()) {
+                return;
+            }
+            List<BookingChange> lost = bookingShards.read(shard, () -> changeRepo.findBySeqIn(overdue));
+            for (BookingChange change : lost) {
+                apply(shard, change.getToken(), change.getState(), change.getOrigin());
+            }
+            gaps.close(overdue);
+            if (!lost.isEmpty()) {
+                logger.info("Recovered {} missed booking changes on shard {}", lost.size(), shard);
+            }
+        }
+
+        // Too much was missed to replay, so nothing this node derived from the shard can be trusted
+        private void resync(long last) {
+            logger.warn("Invalidation feed of shard {} fell behind, dropping local booking caches", shard);
+            gaps.reset(last);
+            bookingCache.invalidateAll();
+            tokenIndex.rebuild();
+            itemIndex.rebuild();
+        }
+
+        private void disconnect() {
+            connected = false;
+            notifications = null;
+            if (connection != null) {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    logger.debug("Closing the listening connection of shard {} failed", shard, e);
+                }
+                connection = null;
+            }
+        }
+
+        private void pause() {
+            try {
+                Thread.sleep(pollInterval);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package zm.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import zm.data.Booking;
+import zm.data.BookingItemRow;
+import zm.data.BookingRepository;
+import zm.data.Item;
+import zm.data.State;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+// Item text search over active bookings; a booking is archived out of the index once it reaches a terminal state
+@Component
+public class BookingItemIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookingItemIndex.class);
+
+    private final BookingRepository bookingRepository;
+    private final BookingShards bookingShards;
+    private final boolean enabled;
+    private final Queue<Consumer<ItemInvertedIndex>> appliedDuringRebuild = new ConcurrentLinkedQueue<>();
+    private volatile ItemInvertedIndex index;
+    private volatile boolean rebuilding;
+
+    public BookingItemIndex(BookingRepository bookingRepository, BookingShards bookingShards,
+                            @Value("${booking.item-index.enabled:true}") boolean enabled) {
+        this.bookingRepository = bookingRepository;
+        this.bookingShards = bookingShards;
+        this.enabled = enabled;
+    }
+
+    public Page<String> search(String query, String municipality, LocalDate from, LocalDate to, Pageable pageable) {
+        ItemInvertedIndex current = index;
+        if (current == null) {
+            throw new IllegalStateException(enabled ? "Item search index is still building" : "Item search is disabled");
+        }
+        return current.search(query, municipality, from, to, pageable);
+    }
+
+    public void add(Booking booking) {
+        List<String> texts = new ArrayList<>();
+        for (Item item : booking.getItems()) {
+            texts.add(item.getName());
+            texts.add(item.getDescription());
+        }
+        String token = booking.getToken();
+        apply(current -> current.put(token, booking.getMunicipality(), booking.getDate(), texts));
+    }
+
+    public void remove(String token) {
+        apply(current -> current.remove(token));
+    }
+
+    @EventListener
+    public void onBookingEvent(BookingEvent event) {
+        if (event.type() == BookingEvent.Type.STATE_CHANGED && event.state().isTerminal()) {
+            remove(event.token());
+        }
+    }
+
+    // Rebuilt from the table so bookings archived by other nodes or by direct updates eventually drop out
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${booking.item-index.rebuild-interval:PT6H}",
+               initialDelayString = "${booking.item-index.rebuild-interval:PT6H}")
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+
+        appliedDuringRebuild.clear();
+        rebuilding = true;
+        try {
+            ItemInvertedIndex next = new ItemInvertedIndex();
+            List<State> active = Arrays.stream(State.values()).filter(state -> !state.isTerminal()).toList();
+            bookingShards.gather(shard -> {
+                try (Stream<BookingItemRow> rows = bookingRepository.streamItemsByStateIn(active)) {
+                    loadInto(next, rows);
+                }
+                return null;
+            });
+            drainInto(next);
+            index = next;
+            drainInto(next);
+            logger.info("Item search index rebuilt with {} bookings", next.size());
+        } finally {
+            rebuilding = false;
+        }
+    }
+
+    private void apply(Consumer<ItemInvertedIndex> change) {
+        if (!enabled) {
+            return;
+        }
+        ItemInvertedIndex current = index;
+        if (current != null) {
+            change.accept(current);
+        }
+        if (rebuilding) {
+            appliedDuringRebuild.add(change);
+        }
+        ItemInvertedIndex latest = index;
+        if (latest != null && latest != current) {
+            change.accept(latest);
+        }
+    }
+
+    private void drainInto(ItemInvertedIndex target) {
+        Consumer<ItemInvertedIndex> change;
+        while ((change = appliedDuringRebuild.poll()) != null) {
+            change.accept(target);
+        }
+    }
+
+    // Rows arrive grouped by token, so one booking is flushed whenever the token changes
+    private static void loadInto(ItemInvertedIndex target, Stream<BookingItemRow> rows) {
+        BookingItemRow head = null;
+        List<String> texts = new ArrayList<>();
+        for (BookingItemRow row : (Iterable<BookingItemRow>) rows::iterator) {
+            if (head != null && !head.token().equals(row.token())) {
+                target.put(head.token(), head.municipality(), head.date(), texts);
+                texts = new ArrayList<>();
+                head = null;
+            }
+            if (head == null) {
+                head = row;
+            }
+            texts.add(row.name());
+            texts.add(row.description());
+        }
+        if (head != null) {
+            target.put(head.token(), head.municipality(), head.date(), texts);
+        }
+    }
+}
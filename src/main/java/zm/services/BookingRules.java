@@ -0,0 +1,91 @@
+package zm.services;
+
+import zm.data.Item;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+// Booking request rules shared by the servlet and reactive services
+public final class BookingRules {
+
+    public static final int MAX_ITEMS = 10;
+    public static final int SLOT_CAPACITY = 50;
+    // The slots the citizen form offers; suggestions after a capacity rejection are drawn from these
+    public static final List<LocalTime> STANDARD_SLOTS = List.of(
+        LocalTime.of(8, 0), LocalTime.of(10, 0), LocalTime.of(12, 0), LocalTime.of(14, 0), LocalTime.of(16, 0));
+
+    private BookingRules() {
+    }
+
+    public static void validateRequest(LocalDate date, LocalTime time, List<Item> items, String municipality) {
+        if (date == null) {
+            throw new IllegalArgumentException("Date cannot be null");
+        }
+        if (date.isBefore(LocalDate.now())) {
+            throw new IllegalArgumentException("Date must be in the future");
+        }
+        if (time == null) {
+            throw new IllegalArgumentException("Time slot cannot be null");
+        }
+        if (municipality == null) {
+            throw new IllegalArgumentException("Municipality cannot be null");
+        }
+        if (date.getDayOfWeek().getValue() >= 6) {
+            throw new IllegalArgumentException("Bookings cannot be made on weekends");
+        }
+        if (time.getHour() < 8 || time.getHour() >= 18) {
+            throw new IllegalArgumentException("Invalid time slot - must be between 8:00 and 18:00");
+        }
+        if (items != null && items.size() > MAX_ITEMS) {
+            throw new IllegalArgumentException("Too many items");
+        }
+    }
+
+    // Imported history skips the future-date and weekend checks; upcoming bookings go through book() and its capacity check
+    public static void validateImported(LocalDate date, LocalTime time, List<Item> items, String municipality) {
+        if (date == null) {
+            throw new IllegalArgumentException("Date cannot be null");
+        }
+        if (!date.isBefore(LocalDate.now())) {
+            throw new IllegalArgumentException("Imported bookings must be in the past");
+        }
+        if (time == null) {
+            throw new IllegalArgumentException("Time slot cannot be null");
+        }
+        if (municipality == null) {
+            throw new IllegalArgumentException("Municipality cannot be null");
+        }
+        if (time.getHour() < 8 || time.getHour() >= 18) {
+            throw new IllegalArgumentException("Invalid time slot - must be between 8:00 and 18:00");
+        }
+        if (items == null || items.isEmpty()) {
+            throw new IllegalArgumentException("At least one item is required");
+        }
+        if (items.size() > MAX_ITEMS) {
+            throw new IllegalArgumentException("Too many items");
+        }
+    }
+
+    public static void validateMunicipality(String municipality, MunicipalityProvider municipalityProvider) {
+        if (!municipalityProvider.isValid(municipality)) {
+            throw new IllegalArgumentException("Invalid municipality");
+        }
+    }
+
+    public static void validateOpen(LocalDate date, String municipality, ClosureCalendar closureCalendar) {
+        if (closureCalendar.isClosed(municipality, date)) {
+            throw new IllegalArgumentException("Bookings cannot be made on holidays or closure days");
+        }
+    }
+
+    public static boolean hasCapacity(long bookingsInSlot) {
+        return bookingsInSlot < SLOT_CAPACITY;
+    }
+
+    public static void checkCapacity(long bookingsInSlot) {
+        if (!hasCapacity(bookingsInSlot)) {
+            throw new CapacityExceededException();
+        }
+    }
+}
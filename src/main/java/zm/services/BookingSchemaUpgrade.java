@@ -0,0 +1,63 @@
+package zm.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import zm.data.BookingRepository;
+
+import java.util.List;
+
+// Brings rows written by older releases up to date on every shard. Gives version 0 to bookings stored before they were
+// versioned, so cancelling or moving one does not fail on its missing version; the schema update only adds the column,
+// leaving old rows null. Widens the state checks of tables created before the newest state, which the schema update
+// leaves in place. Moves the change sequence past the numbers the journal already holds, which a newly created
+// sequence starts below. Runs once the shard schemas are in place and before the web and gRPC servers, whose
+// lifecycle phases come later, take traffic.
+@Component
+public class BookingSchemaUpgrade implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookingSchemaUpgrade.class);
+
+    private final BookingRepository bookingRepository;
+    private final BookingShards bookingShards;
+    private volatile boolean running;
+
+    public BookingSchemaUpgrade(BookingRepository bookingRepository, BookingShards bookingShards) {
+        this.bookingRepository = bookingRepository;
+        this.bookingShards = bookingShards;
+    }
+
+    @Override
+    public void start() {
+        for (int shard = 0; shard < bookingShards.count(); shard++) {
+            int backfilled = bookingShards.on(shard, bookingRepository::backfillVersions);
+            if (backfilled > 0) {
+                logger.info("Gave {} unversioned bookings on shard {} version 0", backfilled, shard);
+            }
+            List<String> widened = bookingShards.on(shard, bookingRepository::widenStateChecks);
+            if (!widened.isEmpty()) {
+                logger.info("Widened the state checks of {} on shard {} to every state", widened, shard);
+            }
+            if (bookingShards.on(shard, bookingRepository::seedChangeSequence)) {
+                logger.info("Moved the change sequence on shard {} past the journal", shard);
+            }
+        }
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+}
@@ -1,21 +1,40 @@
 package zm.services;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import zm.data.Booking;
+import zm.data.BookingField;
+import zm.data.BookingFilter;
+import zm.data.BookingProjection;
 import zm.data.Item;
 import zm.data.State;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 @Service
 public interface BookingService {
     public String book(LocalDate date, LocalTime time, List<Item> items, String municipality);
+    public List<SlotSuggestion> suggestSlots(String municipality, LocalDate date, LocalTime time);
     public boolean cancel(String token);
     public Booking check(String token);
+    public void lookup(Collection<String> tokens, BiConsumer<String, Booking> sink);
     public List<Booking> getAllBookings();
     public boolean changeState(String token, State newstate);
     public List<Booking> getBookingsByState(State state);
     public List<Booking> getBookingsByMunicipality(String municipality);
+    public Page<Booking> searchBookings(BookingFilter filter, Pageable pageable);
+    public Page<Booking> searchItems(String query, String municipality, LocalDate from, LocalDate to, Pageable pageable);
+    public Page<BookingProjection> getBookings(BookingFilter filter, Set<BookingField> fields, Pageable pageable);
+    public ChangeFeedPage getChangesSince(ChangeCursor after, int limit);
+    public CompletableFuture<State> awaitStateChange(String token, State since, Duration timeout);
+    public BulkOperationResult bulkChangeState(BookingFilter filter, State target, String resumeAfter, Consumer<BulkOperationResult> progress);
 }
@@ -1,76 +1,150 @@
 package zm.services;
 
+import org.hibernate.Hibernate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import zm.data.Booking;
+import zm.data.BookingChange;
+import zm.data.BookingChangeRepository;
+import zm.data.BookingField;
+import zm.data.BookingFilter;
+import zm.data.BookingProjection;
+import zm.data.BookingRef;
 import zm.data.BookingRepository;
+import zm.data.BookingSpecifications;
+import zm.data.ChangeOrigin;
 import zm.data.Item;
 import zm.data.State;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
 
 @Service
 public class BookingServiceImpl implements BookingService {
 
+    private static final Logger logger = LoggerFactory.getLogger(BookingServiceImpl.class);
+    static final int BULK_CHUNK_SIZE = 500;
+    static final int MAX_CHANGE_FEED_LIMIT = 1000;
+    static final int LOOKUP_CHUNK_SIZE = 500;
+
     private final BookingRepository collectionRepo;
+    private final BookingChangeRepository changeRepo;
     private final List<String> municipalityBlacklist = new ArrayList<>();
     private final MunicipalityProvider municipalityProvider;
+    private final BookingCache bookingCache;
+    private final BookingTokenIndex tokenIndex;
+    private final BookingItemIndex itemIndex;
+    private final BookingStateNotifier stateNotifier;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SlotOccupancy slotOccupancy;
+    private final ClosureCalendar closureCalendar;
+    private final SlotAdmission slotAdmission;
+    private final BookingShards bookingShards;
+    private final ChangeHorizon changeHorizon;
+    private final ChangeOrigin changeOrigin;
 
-    public BookingServiceImpl(BookingRepository collectionRepo, MunicipalityProvider municipalityProvider) {
+    public BookingServiceImpl(BookingRepository collectionRepo, BookingChangeRepository changeRepo,
+                              MunicipalityProvider municipalityProvider,
+                              BookingCache bookingCache, BookingTokenIndex tokenIndex, BookingItemIndex itemIndex,
+                              BookingStateNotifier stateNotifier, ApplicationEventPublisher eventPublisher,
+                              SlotOccupancy slotOccupancy, ClosureCalendar closureCalendar, SlotAdmission slotAdmission,
+                              BookingShards bookingShards, ChangeHorizon changeHorizon, ChangeOrigin changeOrigin) {
         this.collectionRepo = collectionRepo;
+        this.changeRepo = changeRepo;
         this.municipalityProvider = municipalityProvider;
+        this.bookingCache = bookingCache;
+        this.tokenIndex = tokenIndex;
+        this.itemIndex = itemIndex;
+        this.stateNotifier = stateNotifier;
+        this.eventPublisher = eventPublisher;
+        this.slotOccupancy = slotOccupancy;
+        this.closureCalendar = closureCalendar;
+        this.slotAdmission = slotAdmission;
+        this.bookingShards = bookingShards;
+        this.changeHorizon = changeHorizon;
+        this.changeOrigin = changeOrigin;
     }
 
+    @Transactional
     public String book(LocalDate date, LocalTime time, List<Item> items, String municipality) {
-        if (date == null) {
-            throw new IllegalArgumentException("Date cannot be null");
-        }
-        if (date.isBefore(LocalDate.now())) {
-            throw new IllegalArgumentException("Date must be in the future");
-        }
-        if (time == null) {
-            throw new IllegalArgumentException("Time slot cannot be null");
-        }
-        if (municipality == null) {
-            throw new IllegalArgumentException("Municipality cannot be null");
-        }
-        if (date.getDayOfWeek().getValue() >= 6) {
-            throw new IllegalArgumentException("Bookings cannot be made on weekends");
-        }
-        if (time.getHour() < 8 || time.getHour() >= 18) {
-            throw new IllegalArgumentException("Invalid time slot - must be between 8:00 and 18:00");
-        }
-        if (items != null && items.size() > 10) {
-            throw new IllegalArgumentException("Too many items");
-        }
+        BookingRules.validateRequest(date, time, items, municipality);
         if (municipalityBlacklist.contains(municipality)) {
             throw new IllegalArgumentException("Municipality is blacklisted");
         }
-        if (!this.municipalityProvider.isValid(municipality)) {
-            throw new IllegalArgumentException("Invalid municipality");
-        }
+        BookingRules.validateMunicipality(municipality, municipalityProvider);
+        BookingRules.validateOpen(date, municipality, closureCalendar);
 
-        List<Booking> existingBookings = collectionRepo.findByDateAndApproxTimeSlotAndMunicipality(date, time, municipality);
-        if (existingBookings.size() >= 50) {
-            throw new IllegalStateException("Capacity exceeded");
-        }
+        // Every statement of the transaction goes to the municipality's shard
+        return bookingShards.on(bookingShards.shardOf(municipality), () -> {
+            slotAdmission.acquire(date, time, municipality);
+            List<Booking> existingBookings = collectionRepo.findByDateAndApproxTimeSlotAndMunicipality(date, time, municipality);
+            BookingRules.checkCapacity(existingBookings.size());
+
+            Booking b = new Booking(date, time, items, municipality);
+            bookingShards.place(b);
+            collectionRepo.save(b);
+            recordChange(b);
+            afterCommit(() -> {
+                tokenIndex.register(b.getToken());
+                itemIndex.add(b);
+                eventPublisher.publishEvent(BookingEvent.created(b));
+            });
+            return b.getToken();
+        });
+    }
 
-        Booking b = new Booking(date, time, items, municipality);
-        collectionRepo.save(b);
-        return b.getToken();
+    // Not transactional: called once a full-slot booking has rolled back and released its slot lock
+    public List<SlotSuggestion> suggestSlots(String municipality, LocalDate date, LocalTime time) {
+        return slotOccupancy.suggest(municipality, date, time);
     }
 
+    @Transactional
     public boolean cancel(String token) {
+        if (!tokenIndex.mightExist(token)) {
+            return false;
+        }
+        return bookingShards.on(bookingShards.shardOfToken(token), () -> cancelOnShard(token));
+    }
+
+    private boolean cancelOnShard(String token) {
         Optional<Booking> optb = collectionRepo.findByToken(token);
         if (optb.isPresent()) {
             Booking b = optb.get();
             if (b.getCurrentState().getState() == State.CANCELLED)
                 return false;
             if (b.changeState(State.CANCELLED)) {
+                recordChange(b);
                 collectionRepo.save(b);
+                afterCommit(() -> {
+                    bookingCache.invalidate(token);
+                    eventPublisher.publishEvent(BookingEvent.stateChanged(b));
+                });
                 return true;
             }
             return false;
@@ -78,14 +152,27 @@ public class BookingServiceImpl implements BookingService {
         return false;
     }
 
+    @Transactional
     public boolean remove(String token) {
+        if (!tokenIndex.mightExist(token)) {
+            return false;
+        }
+        return bookingShards.on(bookingShards.shardOfToken(token), () -> removeOnShard(token));
+    }
+
+    private boolean removeOnShard(String token) {
         Optional<Booking> optb = collectionRepo.findByToken(token);
         if (optb.isPresent()) {
             Booking b = optb.get();
             if (b.getCurrentState().getState() == State.REMOVED)
                 return false;
             if (b.changeState(State.REMOVED)) {
+                recordChange(b);
                 collectionRepo.save(b);
+                afterCommit(() -> {
+                    bookingCache.invalidate(token);
+                    eventPublisher.publishEvent(BookingEvent.stateChanged(b));
+                });
                 return true;
             }
             return false;
@@ -93,21 +180,83 @@ public class BookingServiceImpl implements BookingService {
         return false;
     }
 
+    @Transactional(readOnly = true)
     public Booking check(String token) {
-        Optional<Booking> optb = collectionRepo.findByToken(token);
+        if (!tokenIndex.mightExist(token)) {
+            return null;
+        }
+        Booking cached = bookingCache.getIfPresent(token);
+        if (cached != null) {
+            return cached;
+        }
+
+        long stamp = bookingCache.stamp(token);
+        Optional<Booking> optb = bookingShards.on(bookingShards.shardOfToken(token), () -> collectionRepo.findByToken(token));
+        optb.ifPresent(b -> {
+            // The snapshot outlives the session, so load its collections before caching it
+            Hibernate.initialize(b.getItems());
+            Hibernate.initialize(b.getPreviousStates());
+            bookingCache.putIfCurrent(b, stamp);
+        });
         return optb.orElse(null);
     }
 
+    // Resolves each distinct token once, in request order per chunk of LOOKUP_CHUNK_SIZE; unknown tokens map to null.
+    // Within a chunk, Bloom-filter rejections and cache hits are emitted before the database is queried for the rest.
+    public void lookup(Collection<String> tokens, BiConsumer<String, Booking> sink) {
+        List<String> distinct = tokens.stream().distinct().toList();
+        for (int start = 0; start < distinct.size(); start += LOOKUP_CHUNK_SIZE) {
+            List<String> misses = new ArrayList<>();
+            Map<String, Long> stamps = new HashMap<>();
+            for (String token : distinct.subList(start, Math.min(start + LOOKUP_CHUNK_SIZE, distinct.size()))) {
+                if (!tokenIndex.mightExist(token)) {
+                    sink.accept(token, null);
+                    continue;
+                }
+                Booking cached = bookingCache.getIfPresent(token);
+                if (cached != null) {
+                    sink.accept(token, cached);
+                } else {
+                    misses.add(token);
+                    stamps.put(token, bookingCache.stamp(token));
+                }
+            }
+            if (misses.isEmpty()) {
+                continue;
+            }
+
+            Map<String, Booking> found = new HashMap<>();
+            for (Booking b : findWithCollections(misses)) {
+                bookingCache.putIfCurrent(b, stamps.get(b.getToken()));
+                found.put(b.getToken(), b);
+            }
+            misses.forEach(token -> sink.accept(token, found.get(token)));
+        }
+    }
+
     public List<Booking> getAllBookings() {
-        return collectionRepo.findAll();
+        return gatherBookings(shard -> collectionRepo.findAll());
     }
 
+    @Transactional
     public boolean changeState(String token, State newstate) {
+        if (!tokenIndex.mightExist(token)) {
+            return false;
+        }
+        return bookingShards.on(bookingShards.shardOfToken(token), () -> changeStateOnShard(token, newstate));
+    }
+
+    private boolean changeStateOnShard(String token, State newstate) {
         Optional<Booking> optb = collectionRepo.findByToken(token);
         if (optb.isPresent()) {
             Booking b = optb.get();
             if (b.changeState(newstate)) {
+                recordChange(b);
                 collectionRepo.save(b);
+                afterCommit(() -> {
+                    bookingCache.invalidate(token);
+                    eventPublisher.publishEvent(BookingEvent.stateChanged(b));
+                });
                 return true;
             }
             return false;
@@ -115,11 +264,259 @@ public class BookingServiceImpl implements BookingService {
         return false;
     }
 
+    // Completes with the current state if it already differs from since, with the next state otherwise,
+    // or with null once the timeout expires; returns null for unknown tokens
+    public CompletableFuture<State> awaitStateChange(String token, State since, Duration timeout) {
+        if (!tokenIndex.mightExist(token)) {
+            return null;
+        }
+
+        // Registering before reading the state means a transition in between cannot be missed
+        CompletableFuture<State> waiter = stateNotifier.register(token);
+        State current = currentState(token);
+        if (current == null) {
+            waiter.cancel(false);
+            return null;
+        }
+        if (current.isTerminal() || (since != null && current != since)) {
+            waiter.complete(current);
+            return waiter;
+        }
+        return waiter.completeOnTimeout(null, timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private State currentState(String token) {
+        Booking cached = bookingCache.getIfPresent(token);
+        if (cached != null) {
+            return cached.getCurrentState().getState();
+        }
+        return bookingShards.read(bookingShards.shardOfToken(token), () -> collectionRepo.findByToken(token)
+            .map(b -> b.getCurrentState().getState())
+            .orElse(null));
+    }
+
+    // Each shard numbers its own journal, so the cursor keeps a position per shard. A shard is only read up to its
+    // change horizon, below which no number is still in flight. A page takes the lowest numbers first, which is always
+    // a prefix of every shard's changes, and moves each shard's position past what it took.
+    public ChangeFeedPage getChangesSince(ChangeCursor after, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_CHANGE_FEED_LIMIT));
+        long[] positions = after.positions(bookingShards.count());
+        List<List<Booking>> pages = bookingShards.gather(shard -> loaded(
+            collectionRepo.findByChangeSeqGreaterThanAndChangeSeqLessThanEqualOrderByChangeSeqAsc(
+                positions[shard], changeHorizon.advance(shard), PageRequest.of(0, pageSize))));
+        int[] taken = new int[pages.size()];
+        List<Booking> changed = new ArrayList<>();
+        while (changed.size() < pageSize) {
+            int lowest = -1;
+            for (int shard = 0; shard < pages.size(); shard++) {
+                if (taken[shard] < pages.get(shard).size() && (lowest < 0
+                        || pages.get(shard).get(taken[shard]).getChangeSeq() < pages.get(lowest).get(taken[lowest]).getChangeSeq())) {
+                    lowest = shard;
+                }
+            }
+            if (lowest < 0) {
+                break;
+            }
+            Booking b = pages.get(lowest).get(taken[lowest]++);
+            positions[lowest] = b.getChangeSeq();
+            changed.add(b);
+        }
+        return new ChangeFeedPage(changed, ChangeCursor.of(positions), changed.size() == pageSize);
+    }
+
     public List<Booking> getBookingsByState(State state) {
-        return collectionRepo.findByCurrentState_State(state);
+        return gatherBookings(shard -> collectionRepo.findByCurrentState_State(state));
     }
 
     public List<Booking> getBookingsByMunicipality(String municipality) {
-        return collectionRepo.findByMunicipality(municipality);
+        return bookingShards.read(bookingShards.shardOf(municipality), () -> loaded(collectionRepo.findByMunicipality(municipality)));
+    }
+
+    // All filters are applied in one query; the page's collections are then batch-loaded by @BatchSize
+    public Page<Booking> searchBookings(BookingFilter filter, Pageable pageable) {
+        if (filter == null || pageable == null) {
+            throw new IllegalArgumentException("Filter and page are required");
+        }
+        if (filter.municipality() != null || !bookingShards.isSharded()) {
+            int shard = filter.municipality() == null ? 0 : bookingShards.shardOf(filter.municipality());
+            return bookingShards.read(shard, () -> {
+                Page<Booking> page = collectionRepo.findAll(BookingSpecifications.matching(filter), pageable);
+                loaded(page.getContent());
+                return page;
+            });
+        }
+        List<Page<Booking>> pages = bookingShards.gather(shard -> {
+            Page<Booking> page = collectionRepo.findAll(BookingSpecifications.matching(filter), leadingRows(pageable));
+            loaded(page.getContent());
+            return page;
+        });
+        return merge(pages, BookingSpecifications.order(pageable.getSort()), pageable);
+    }
+
+    // The index yields one page of tokens in collection-date order; only that page is loaded from the database
+    public Page<Booking> searchItems(String query, String municipality, LocalDate from, LocalDate to, Pageable pageable) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Search text is required");
+        }
+        if (from != null && to != null && to.isBefore(from)) {
+            throw new IllegalArgumentException("Date range end must not be before its start");
+        }
+        Page<String> tokens = itemIndex.search(query, municipality, from, to, pageable);
+        if (tokens.isEmpty()) {
+            return new PageImpl<>(List.of(), pageable, tokens.getTotalElements());
+        }
+        Map<String, Booking> loaded = new HashMap<>();
+        for (Booking booking : findWithCollections(tokens.getContent())) {
+            loaded.put(booking.getToken(), booking);
+        }
+        // A booking deleted since it was indexed is left out of the page rather than failing the search
+        List<Booking> bookings = tokens.getContent().stream().map(loaded::get).filter(Objects::nonNull).toList();
+        return new PageImpl<>(bookings, pageable, tokens.getTotalElements());
+    }
+
+    // Sparse reads skip the cache: it holds whole bookings, and these queries never load the unrequested parts
+    public Page<BookingProjection> getBookings(BookingFilter filter, Set<BookingField> fields, Pageable pageable) {
+        if (filter == null || fields == null || fields.isEmpty() || pageable == null) {
+            throw new IllegalArgumentException("Filter, page and at least one field are required");
+        }
+        if (filter.municipality() != null || !bookingShards.isSharded()) {
+            int shard = filter.municipality() == null ? 0 : bookingShards.shardOf(filter.municipality());
+            return bookingShards.read(shard, () -> collectionRepo.findProjected(filter, fields, pageable));
+        }
+        // The shards are also asked for the sorted fields, which the merge compares and then drops
+        Set<BookingField> read = EnumSet.copyOf(fields);
+        read.add(BookingField.TOKEN);
+        pageable.getSort().forEach(order -> read.add(BookingField.fromJsonName(order.getProperty())));
+        List<Page<BookingProjection>> pages = bookingShards.gather(shard -> collectionRepo.findProjected(filter, read, leadingRows(pageable)));
+        return merge(pages, BookingSpecifications.projectionOrder(pageable.getSort()), pageable).map(p -> p.only(fields));
+    }
+
+    public BulkOperationResult bulkChangeState(BookingFilter filter, State target, String resumeAfter, Consumer<BulkOperationResult> progress) {
+        if (filter == null || target == null) {
+            throw new IllegalArgumentException("Filter and target state are required");
+        }
+        Set<State> sources = filter.sourceStatesFor(target);
+        if (sources.isEmpty()) {
+            throw new IllegalArgumentException("No filtered state can transition to " + target);
+        }
+        // Events name the state a booking left when the filter allows only one
+        State previous = sources.size() == 1 ? sources.iterator().next() : null;
+
+        String cursor = resumeAfter;
+        long matched = 0;
+        long updated = 0;
+        int chunks = 0;
+        // Shards are worked through in order and a cursor token names its shard, so a resumed run skips finished shards
+        int firstShard = resumeAfter == null ? 0 : bookingShards.shardOfToken(resumeAfter);
+        for (int shard = firstShard; shard < bookingShards.count(); shard++) {
+            if (filter.municipality() != null && bookingShards.shardOf(filter.municipality()) != shard) {
+                continue;
+            }
+            int current = shard;
+            String after = shard == firstShard ? resumeAfter : null;
+            List<BookingRef> refs;
+            do {
+                String chunkAfter = after;
+                refs = bookingShards.on(current, () -> collectionRepo.findChunk(filter, sources, chunkAfter, BULK_CHUNK_SIZE));
+                if (refs.isEmpty()) {
+                    break;
+                }
+                List<String> tokens = refs.stream().map(BookingRef::token).toList();
+                Set<String> transitioned = Set.copyOf(bookingShards.on(current, () -> collectionRepo.transitionChunk(tokens, sources, target)));
+                bookingCache.invalidateAll(transitioned);
+                refs.stream()
+                    .filter(ref -> transitioned.contains(ref.token()))
+                    .forEach(ref -> eventPublisher.publishEvent(BookingEvent.stateChanged(ref, previous, target)));
+                updated += transitioned.size();
+                matched += refs.size();
+                chunks++;
+                after = tokens.get(tokens.size() - 1);
+                cursor = after;
+
+                BulkOperationResult partial = new BulkOperationResult(target, matched, updated, chunks, cursor, false);
+                logger.info("Bulk transition to {}: chunk {} done, {} of {} matched bookings updated", target, chunks, updated, matched);
+                if (progress != null) {
+                    progress.accept(partial);
+                }
+            } while (refs.size() == BULK_CHUNK_SIZE);
+        }
+
+        return new BulkOperationResult(target, matched, updated, chunks, cursor, true);
+    }
+
+    // Each shard is asked only for its own tokens
+    private List<Booking> findWithCollections(Collection<String> tokens) {
+        Map<Integer, List<String>> byShard = new TreeMap<>();
+        for (String token : tokens) {
+            byShard.computeIfAbsent(bookingShards.shardOfToken(token), shard -> new ArrayList<>()).add(token);
+        }
+        List<Booking> found = new ArrayList<>();
+        byShard.forEach((shard, shardTokens) ->
+            found.addAll(bookingShards.read(shard, () -> collectionRepo.findWithCollectionsByTokenIn(shardTokens))));
+        return found;
+    }
+
+    // Concatenates every shard's result; on a single shard this is just the query
+    private List<Booking> gatherBookings(IntFunction<List<Booking>> query) {
+        if (!bookingShards.isSharded()) {
+            return query.apply(0);
+        }
+        return bookingShards.gather(shard -> loaded(query.apply(shard))).stream().flatMap(List::stream).toList();
+    }
+
+    // Bookings read from a shard are detached once its transaction ends, so their collections are loaded inside it
+    private List<Booking> loaded(List<Booking> bookings) {
+        if (bookingShards.isSharded()) {
+            for (Booking b : bookings) {
+                Hibernate.initialize(b.getItems());
+                Hibernate.initialize(b.getPreviousStates());
+            }
+        }
+        return bookings;
+    }
+
+    // Every row that can land on the requested page may come from any one shard
+    private static Pageable leadingRows(Pageable pageable) {
+        return pageable.isPaged() ? PageRequest.of(0, (int) pageable.getOffset() + pageable.getPageSize(), pageable.getSort()) : pageable;
+    }
+
+    // A booking lives on exactly one shard, so the totals add up
+    private static <T> Page<T> merge(List<Page<T>> pages, Comparator<? super T> order, Pageable pageable) {
+        List<T> merged = new ArrayList<>();
+        long total = 0;
+        for (Page<T> page : pages) {
+            merged.addAll(page.getContent());
+            total += page.getTotalElements();
+        }
+        merged.sort(order);
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(merged, pageable, total);
+        }
+        int from = (int) Math.min(pageable.getOffset(), merged.size());
+        int to = Math.min(from + pageable.getPageSize(), merged.size());
+        return new PageImpl<>(new ArrayList<>(merged.subList(from, to)), pageable, total);
+    }
+
+    // Journals the booking's current state, stamps it with the number the journal entry drew from the sequence and
+    // announces the change to the other nodes as part of the same transaction
+    private void recordChange(Booking b) {
+        collectionRepo.prepareChangeSeqs();
+        BookingChange change = changeRepo.save(new BookingChange(b.getToken(), b.getCurrentState().getState(), changeOrigin.id()));
+        b.setChangeSeq(change.getSeq());
+        collectionRepo.announce(change);
+    }
+
+    // Caches and listeners must not observe a write that could still roll back
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
     }
 }
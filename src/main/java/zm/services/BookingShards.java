@@ -0,0 +1,158 @@
+package zm.services;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import zm.data.Booking;
+import zm.data.ShardRoutingDataSource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+// Which shard holds a municipality's bookings, and how work reaches it. Municipalities pinned in
+// booking.sharding.municipalities live on their shard; any other is placed by a stable hash of its name, so pin the
+// existing ones before raising the shard count. With one shard every call runs inline, as it did before sharding.
+@Component
+public class BookingShards {
+
+    static final int MAX_SHARDS = 256;
+
+    private final int count;
+    private final Map<String, Integer> pinned;
+    private final TransactionTemplate readOnly;
+    private final ExecutorService executor;
+
+    public BookingShards(@Value("${booking.sharding.count:1}") int count,
+                         @Value("${booking.sharding.municipalities:}") String pinned,
+                         PlatformTransactionManager transactionManager) {
+        if (count < 1 || count > MAX_SHARDS) {
+            throw new IllegalArgumentException("Shard count must be between 1 and " + MAX_SHARDS);
+        }
+        this.count = count;
+        this.pinned = parsePinned(pinned, count);
+        if (count > 1) {
+            // A new transaction, so a read never joins a caller's transaction already bound to another shard
+            this.readOnly = new TransactionTemplate(transactionManager);
+            this.readOnly.setReadOnly(true);
+            this.readOnly.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+            this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("booking-shards-", 0).factory());
+        } else {
+            this.readOnly = null;
+            this.executor = null;
+        }
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public boolean isSharded() {
+        return count > 1;
+    }
+
+    public int shardOf(String municipality) {
+        Integer shard = pinned.get(municipality);
+        return shard != null ? shard : Math.floorMod(municipality.hashCode(), count);
+    }
+
+    // A token naming a shard this deployment does not have was never issued by it; it is looked for on shard 0
+    public int shardOfToken(String token) {
+        int shard = Booking.shardOf(token);
+        return shard < count ? shard : 0;
+    }
+
+    // Gives a new booking a token naming its municipality's shard
+    public void place(Booking booking) {
+        if (count > 1) {
+            booking.placeOnShard(shardOf(booking.getMunicipality()));
+        }
+    }
+
+    public String newToken(String municipality) {
+        return count > 1 ? Booking.newToken(shardOf(municipality)) : Booking.newToken();
+    }
+
+    // Runs work on one shard inside the caller's transaction, which must not have touched another shard yet
+    public <T> T on(int shard, Supplier<T> work) {
+        return count > 1 ? ShardRoutingDataSource.on(shard, work) : work.get();
+    }
+
+    // Runs work on one shard in a read-only transaction of its own. Entities it returns are detached, so it must
+    // load whatever the caller will read from them.
+    public <T> T read(int shard, Supplier<T> work) {
+        return count > 1 ? ShardRoutingDataSource.on(shard, () -> readOnly.execute(status -> work.get())) : work.get();
+    }
+
+    // Runs work on every shard at once, as read does, and returns the results in shard order; any failure fails the call
+    public <T> List<T> gather(IntFunction<T> work) {
+        if (count == 1) {
+            return Collections.singletonList(work.apply(0));
+        }
+        List<Future<T>> futures = new ArrayList<>(count);
+        for (int shard = 0; shard < count; shard++) {
+            int target = shard;
+            futures.add(executor.submit(() -> read(target, () -> work.apply(target))));
+        }
+        List<T> results = new ArrayList<>(count);
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reading the shards", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Reading a shard failed", e.getCause());
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+        return results;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    // "Lisboa=1;Porto=2"
+    static Map<String, Integer> parsePinned(String spec, int count) {
+        Map<String, Integer> pinned = new HashMap<>();
+        if (spec == null) {
+            return pinned;
+        }
+        for (String entry : spec.split(";")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            int separator = entry.indexOf('=');
+            int shard;
+            try {
+                shard = separator > 0 ? Integer.parseInt(entry.substring(separator + 1).trim()) : -1;
+            } catch (NumberFormatException e) {
+                shard = -1;
+            }
+            if (shard < 0 || shard >= count) {
+                throw new IllegalArgumentException("Invalid shard placement: " + entry.trim());
+            }
+            pinned.put(entry.substring(0, separator).trim(), shard);
+        }
+        return Map.copyOf(pinned);
+    }
+}
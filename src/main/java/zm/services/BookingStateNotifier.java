@@ -0,0 +1,50 @@
+package zm.services;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import zm.data.State;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+@Component
+public class BookingStateNotifier {
+
+    private final ConcurrentMap<String, Set<CompletableFuture<State>>> waiters = new ConcurrentHashMap<>();
+
+    // Completes with the new state on the next transition of the token; the caller owns the timeout
+    public CompletableFuture<State> register(String token) {
+        CompletableFuture<State> waiter = new CompletableFuture<>();
+        waiters.compute(token, (key, parked) -> {
+            Set<CompletableFuture<State>> set = parked == null ? ConcurrentHashMap.newKeySet() : parked;
+            set.add(waiter);
+            return set;
+        });
+        waiter.whenComplete((state, error) -> unregister(token, waiter));
+        return waiter;
+    }
+
+    @EventListener
+    public void onBookingEvent(BookingEvent event) {
+        if (event.type() != BookingEvent.Type.STATE_CHANGED) {
+            return;
+        }
+        Set<CompletableFuture<State>> parked = waiters.remove(event.token());
+        if (parked != null) {
+            parked.forEach(waiter -> waiter.complete(event.state()));
+        }
+    }
+
+    public int parkedTokens() {
+        return waiters.size();
+    }
+
+    private void unregister(String token, CompletableFuture<State> waiter) {
+        waiters.computeIfPresent(token, (key, parked) -> {
+            parked.remove(waiter);
+            return parked.isEmpty() ? null : parked;
+        });
+    }
+}
@@ -0,0 +1,143 @@
+package zm.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import zm.data.Booking;
+import zm.data.BookingRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Stream;
+
+@Component
+public class BookingTokenIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookingTokenIndex.class);
+    private static final long MIN_EXPECTED_INSERTIONS = 100_000;
+
+    private final BookingRepository bookingRepository;
+    private final BookingShards bookingShards;
+    private final boolean enabled;
+    private final double falsePositiveRate;
+    private final Duration recentWindow;
+    private final Queue<String> registeredDuringRebuild = new ConcurrentLinkedQueue<>();
+    private volatile TokenBloomFilter filter;
+    private volatile boolean rebuilding;
+
+    // The filter only learns of tokens other nodes issue through the invalidation bus, so without the bus it would
+    // turn their bookings away as unknown; it follows the bus by default and refuses to run without it. Even with the
+    // bus a token reaches other nodes a little after it is issued, so tokens issued within the recent window are
+    // never turned away on the filter's word.
+    public BookingTokenIndex(BookingRepository bookingRepository, BookingShards bookingShards,
+                             @Value("${booking.token-filter.enabled:${booking.invalidation.enabled:true}}") boolean enabled,
+                             @Value("${booking.invalidation.enabled:true}") boolean invalidationEnabled,
+                             @Value("${booking.token-filter.false-positive-rate:0.01}") double falsePositiveRate,
+                             @Value("${booking.token-filter.recent-window:PT5M}") Duration recentWindow) {
+        if (enabled && !invalidationEnabled) {
+            throw new IllegalStateException("booking.token-filter.enabled requires booking.invalidation.enabled");
+        }
+        this.bookingRepository = bookingRepository;
+        this.bookingShards = bookingShards;
+        this.enabled = enabled;
+        this.falsePositiveRate = falsePositiveRate;
+        this.recentWindow = recentWindow;
+    }
+
+    // False only when the token was certainly never issued; fails open until the first build completes
+    public boolean mightExist(String token) {
+        if (!enabled) {
+            return true;
+        }
+        if (!isWellFormed(token)) {
+            return false;
+        }
+        TokenBloomFilter current = filter;
+        return current == null || current.mightContain(token) || isRecent(token);
+    }
+
+    // Issued too lately for this node to be sure it has heard of it, or stamped ahead of this node's clock
+    private boolean isRecent(String token) {
+        return Booking.issuedAt(token)
+            .map(issued -> issued.isAfter(Instant.now().minus(recentWindow)))
+            .orElse(false);
+    }
+
+    public void register(String token) {
+        TokenBloomFilter current = filter;
+        if (current != null) {
+            current.put(token);
+        }
+        if (rebuilding) {
+            registeredDuringRebuild.add(token);
+        }
+        TokenBloomFilter latest = filter;
+        if (latest != null && latest != current) {
+            latest.put(token);
+        }
+    }
+
+    // Rebuilt from the table so archived and deleted bookings eventually drop out
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${booking.token-filter.rebuild-interval:PT1H}",
+               initialDelayString = "${booking.token-filter.rebuild-interval:PT1H}")
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+
+        registeredDuringRebuild.clear();
+        rebuilding = true;
+        try {
+            long stored = bookingShards.gather(shard -> bookingRepository.count()).stream().mapToLong(Long::longValue).sum();
+            long expected = Math.max(MIN_EXPECTED_INSERTIONS, stored * 2);
+            TokenBloomFilter next = new TokenBloomFilter(expected, falsePositiveRate);
+            bookingShards.gather(shard -> {
+                try (Stream<String> tokens = bookingRepository.streamAllTokens()) {
+                    tokens.forEach(next::put);
+                }
+                return null;
+            });
+            drainInto(next);
+            filter = next;
+            drainInto(next);
+            logger.info("Token filter rebuilt: {} bits, {} hash functions, sized for {} tokens",
+                    next.bitSize(), next.hashFunctions(), expected);
+        } finally {
+            rebuilding = false;
+        }
+    }
+
+    private void drainInto(TokenBloomFilter target) {
+        String token;
+        while ((token = registeredDuringRebuild.poll()) != null) {
+            target.put(token);
+        }
+    }
+
+    // Tokens are canonical UUID strings: 8-4-4-4-12 hex digits
+    static boolean isWellFormed(String token) {
+        if (token == null || token.length() != 36) {
+            return false;
+        }
+        for (int i = 0; i < 36; i++) {
+            char c = token.charAt(i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') {
+                    return false;
+                }
+            } else if (Character.digit(c, 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
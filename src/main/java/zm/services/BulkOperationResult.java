@@ -0,0 +1,6 @@
+package zm.services;
+
+import zm.data.State;
+
+public record BulkOperationResult(State target, long matched, long updated, int chunks, String lastToken, boolean completed) {
+}
@@ -0,0 +1,23 @@
+package zm.services;
+
+import java.util.List;
+
+// Still an IllegalStateException, so callers that only know about capacity rejections keep mapping it to 409
+public class CapacityExceededException extends IllegalStateException {
+
+    private final List<SlotSuggestion> suggestions;
+
+    // Thrown inside the booking transaction; the caller suggests other slots once it has rolled back
+    public CapacityExceededException() {
+        this(List.of());
+    }
+
+    public CapacityExceededException(List<SlotSuggestion> suggestions) {
+        super("Capacity exceeded");
+        this.suggestions = suggestions == null ? List.of() : List.copyOf(suggestions);
+    }
+
+    public List<SlotSuggestion> getSuggestions() {
+        return suggestions;
+    }
+}
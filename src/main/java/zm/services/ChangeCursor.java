@@ -0,0 +1,99 @@
+package zm.services;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.StringJoiner;
+
+// How far a reader of the change feed got on each shard. Every shard numbers its own journal, so no single number
+// can stand for a merged feed: the cursor is written "shard:seq" per shard, e.g. "0:123,1:456", shards left out
+// starting from 0. Without sharding it stays the bare sequence number it always was.
+public final class ChangeCursor {
+
+    private final long[] positions;
+    private final boolean bare;
+
+    private ChangeCursor(long[] positions, boolean bare) {
+        this.positions = positions;
+        this.bare = bare;
+    }
+
+    // One position per shard, in shard order
+    public static ChangeCursor of(long... positions) {
+        return new ChangeCursor(positions.clone(), positions.length == 1);
+    }
+
+    public static ChangeCursor parse(String text) {
+        if (text == null || text.isBlank()) {
+            throw new IllegalArgumentException("Cursor must not be empty");
+        }
+        if (text.indexOf(':') < 0) {
+            return new ChangeCursor(new long[] {position(text.trim())}, true);
+        }
+        long[] positions = new long[0];
+        BitSet seen = new BitSet();
+        for (String pair : text.split(",")) {
+            int colon = pair.indexOf(':');
+            if (colon < 0) {
+                throw new IllegalArgumentException("Cursor entries must be shard:seq, not '" + pair.trim() + "'");
+            }
+            long named = position(pair.substring(0, colon).trim());
+            if (named >= BookingShards.MAX_SHARDS) {
+                throw new IllegalArgumentException("Cursor names shard " + named + ", beyond the last possible one");
+            }
+            int shard = (int) named;
+            if (seen.get(shard)) {
+                throw new IllegalArgumentException("Cursor names shard " + shard + " twice");
+            }
+            seen.set(shard);
+            positions = Arrays.copyOf(positions, Math.max(positions.length, shard + 1));
+            positions[shard] = position(pair.substring(colon + 1).trim());
+        }
+        return new ChangeCursor(positions, false);
+    }
+
+    // The position on each of the given number of shards
+    long[] positions(int shards) {
+        if (positions.length > shards) {
+            throw new IllegalArgumentException("Cursor names shard " + (positions.length - 1) + " but there are only " + shards);
+        }
+        if (bare && shards > 1 && positions[0] != 0) {
+            throw new IllegalArgumentException("Bookings are sharded, so the cursor needs a position per shard, as in 0:123,1:456");
+        }
+        return Arrays.copyOf(positions, shards);
+    }
+
+    private static long position(String text) {
+        long position;
+        try {
+            position = Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Cursor positions must be numbers, not '" + text + "'");
+        }
+        if (position < 0) {
+            throw new IllegalArgumentException("Cursor must not be negative");
+        }
+        return position;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof ChangeCursor cursor && bare == cursor.bare && Arrays.equals(positions, cursor.positions);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(positions);
+    }
+
+    @Override
+    public String toString() {
+        if (bare) {
+            return Long.toString(positions[0]);
+        }
+        StringJoiner text = new StringJoiner(",");
+        for (int shard = 0; shard < positions.length; shard++) {
+            text.add(shard + ":" + positions[shard]);
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,8 @@
+package zm.services;
+
+import zm.data.Booking;
+
+import java.util.List;
+
+public record ChangeFeedPage(List<Booking> bookings, ChangeCursor next, boolean hasMore) {
+}
@@ -0,0 +1,52 @@
+package zm.services;
+
+import org.springframework.stereotype.Component;
+import zm.data.BookingRepository;
+import zm.data.ChangeProbe;
+
+// How far each shard's change journal may be read. Change numbers come from a database sequence and are taken before
+// the writer commits, so a lower number can still be in flight while a higher one is already visible. A number is
+// only trusted once every transaction that was open when it was issued has ended; readers stop there, so a cursor
+// never moves past a change that could still commit beneath it.
+@Component
+public class ChangeHorizon {
+
+    private final BookingRepository bookingRepository;
+    private final Shard[] shards;
+
+    public ChangeHorizon(BookingRepository bookingRepository, BookingShards bookingShards) {
+        this.bookingRepository = bookingRepository;
+        this.shards = new Shard[bookingShards.count()];
+        for (int shard = 0; shard < shards.length; shard++) {
+            shards[shard] = new Shard();
+        }
+    }
+
+    // The highest change number on the shard that can be read without skipping one still in flight. Must run routed
+    // to the shard, as inside BookingShards.read.
+    public long advance(int shard) {
+        return shards[shard].advance();
+    }
+
+    private final class Shard {
+
+        private long settled;
+        // The oldest probe still waiting for its writers; kept rather than replaced, so the horizon moves under load
+        private ChangeProbe pending;
+
+        synchronized long advance() {
+            if (pending != null && bookingRepository.changesSettled(pending.inFlight())) {
+                settled = Math.max(settled, pending.lastSeq());
+                pending = null;
+            }
+            ChangeProbe probe = bookingRepository.probeChanges();
+            if (probe.inFlight() < 0) {
+                settled = Math.max(settled, probe.lastSeq());
+                pending = null;
+            } else if (pending == null) {
+                pending = probe;
+            }
+            return settled;
+        }
+    }
+}
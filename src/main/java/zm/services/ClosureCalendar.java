@@ -0,0 +1,267 @@
+package zm.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import zm.data.Closure;
+import zm.data.ClosureRepository;
+
+import java.time.LocalDate;
+import java.time.MonthDay;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Days with no collections: national and municipal holidays from configuration plus ad-hoc closures added by staff.
+// Everything is compiled into one bitset per municipality, indexed by epoch day from the start of the window, so a
+// lookup is a single bit test. A reload compiles a fresh snapshot and swaps it in whole; readers never see a partial one.
+@Component
+public class ClosureCalendar {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClosureCalendar.class);
+
+    private final ClosureRepository closureRepository;
+    private final MunicipalityProvider municipalityProvider;
+    private final List<Rule> nationalRules;
+    private final Map<String, List<Rule>> municipalRules;
+    private final int yearsAhead;
+    private volatile Snapshot snapshot;
+
+    // national: comma-separated MM-dd (every year), yyyy-MM-dd, yyyy-MM-dd..yyyy-MM-dd or easter+N / easter-N;
+    // municipal: the same entries per municipality, e.g. "Porto=06-24;Lisboa=06-13"
+    public ClosureCalendar(ClosureRepository closureRepository, MunicipalityProvider municipalityProvider,
+                           @Value("${booking.closures.national:}") String national,
+                           @Value("${booking.closures.municipal:}") String municipal,
+                           @Value("${booking.closures.years-ahead:3}") int yearsAhead) {
+        this.closureRepository = closureRepository;
+        this.municipalityProvider = municipalityProvider;
+        this.nationalRules = parseRules(national);
+        this.municipalRules = parseMunicipal(municipal);
+        this.yearsAhead = Math.max(1, yearsAhead);
+        this.snapshot = compile(List.of());
+    }
+
+    // Dates outside the compiled window (last year to years-ahead) are treated as open
+    public boolean isClosed(String municipality, LocalDate date) {
+        return date != null && snapshot.isClosed(municipality, date);
+    }
+
+    // Bit i is set when from + i days is closed
+    public BitSet closedDays(String municipality, LocalDate from, int days) {
+        return snapshot.closedDays(municipality, from, days);
+    }
+
+    public List<Closure> getClosures() {
+        return closureRepository.findByLastDayGreaterThanEqualOrderByFirstDay(LocalDate.now());
+    }
+
+    // Bookings already made for the closed days are left as they are
+    public Closure addClosure(String municipality, LocalDate firstDay, LocalDate lastDay, String reason) {
+        if (firstDay == null || reason == null || reason.isBlank()) {
+            throw new IllegalArgumentException("First day and reason are required");
+        }
+        LocalDate last = lastDay == null ? firstDay : lastDay;
+        if (last.isBefore(firstDay)) {
+            throw new IllegalArgumentException("Last day must not be before the first day");
+        }
+        if (municipality != null) {
+            BookingRules.validateMunicipality(municipality, municipalityProvider);
+        }
+        Closure saved = closureRepository.save(new Closure(municipality, firstDay, last, reason.trim()));
+        reload();
+        logger.info("Closure {} added for {} from {} to {}", saved.getId(), municipality == null ? "all municipalities" : municipality,
+            firstDay, last);
+        return saved;
+    }
+
+    public boolean removeClosure(long id) {
+        if (!closureRepository.existsById(id)) {
+            return false;
+        }
+        closureRepository.deleteById(id);
+        reload();
+        logger.info("Closure {} removed", id);
+        return true;
+    }
+
+    // Picks up closures added on other nodes and moves the window forward as the years turn
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${booking.closures.reload-interval:PT5M}",
+               initialDelayString = "${booking.closures.reload-interval:PT5M}")
+    @Transactional(readOnly = true)
+    public void reload() {
+        List<Closure> closures = closureRepository.findByLastDayGreaterThanEqualOrderByFirstDay(LocalDate.now().minusYears(1));
+        snapshot = compile(closures);
+        logger.debug("Closure calendar compiled with {} ad-hoc closures", closures.size());
+    }
+
+    private Snapshot compile(List<Closure> closures) {
+        int year = LocalDate.now().getYear();
+        LocalDate first = LocalDate.of(year - 1, 1, 1);
+        LocalDate last = LocalDate.of(year + yearsAhead, 12, 31);
+        int days = (int) (last.toEpochDay() - first.toEpochDay()) + 1;
+
+        BitSet national = new BitSet(days);
+        nationalRules.forEach(rule -> rule.mark(national, first, last));
+        Map<String, List<Rule>> municipal = new HashMap<>();
+        municipalRules.forEach((municipality, rules) -> municipal.put(municipality, new ArrayList<>(rules)));
+        for (Closure closure : closures) {
+            Rule rule = Rule.range(closure.getFirstDay(), closure.getLastDay());
+            if (closure.getMunicipality() == null) {
+                rule.mark(national, first, last);
+            } else {
+                municipal.computeIfAbsent(closure.getMunicipality(), m -> new ArrayList<>()).add(rule);
+            }
+        }
+
+        // Each municipal set already includes the national days, so a lookup never has to consult two sets
+        Map<String, BitSet> compiled = new HashMap<>();
+        municipal.forEach((municipality, rules) -> {
+            BitSet bits = (BitSet) national.clone();
+            rules.forEach(rule -> rule.mark(bits, first, last));
+            compiled.put(municipality, bits);
+        });
+        return new Snapshot(first.toEpochDay(), days, national, Map.copyOf(compiled));
+    }
+
+    static List<Rule> parseRules(String spec) {
+        List<Rule> rules = new ArrayList<>();
+        if (spec == null) {
+            return rules;
+        }
+        for (String entry : spec.split(",")) {
+            String trimmed = entry.trim();
+            if (!trimmed.isEmpty()) {
+                rules.add(Rule.parse(trimmed));
+            }
+        }
+        return rules;
+    }
+
+    static Map<String, List<Rule>> parseMunicipal(String spec) {
+        Map<String, List<Rule>> rules = new HashMap<>();
+        if (spec == null) {
+            return rules;
+        }
+        for (String entry : spec.split(";")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            int separator = entry.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Invalid municipal closure entry: " + entry.trim());
+            }
+            rules.computeIfAbsent(entry.substring(0, separator).trim(), m -> new ArrayList<>())
+                .addAll(parseRules(entry.substring(separator + 1)));
+        }
+        return rules;
+    }
+
+    // Anonymous Gregorian computus
+    static LocalDate easterSunday(int year) {
+        int a = year % 19;
+        int b = year / 100;
+        int c = year % 100;
+        int d = b / 4;
+        int e = b % 4;
+        int f = (b + 8) / 25;
+        int g = (b - f + 1) / 3;
+        int h = (19 * a + b - d - g + 15) % 30;
+        int i = c / 4;
+        int k = c % 4;
+        int l = (32 + 2 * e + 2 * i - h - k) % 7;
+        int m = (a + 11 * h + 22 * l) / 451;
+        int month = (h + l - 7 * m + 114) / 31;
+        int day = (h + l - 7 * m + 114) % 31 + 1;
+        return LocalDate.of(year, month, day);
+    }
+
+    // One configured entry: a day every year, a day relative to Easter, or a fixed range of dates
+    record Rule(MonthDay monthDay, Integer easterOffset, LocalDate first, LocalDate last) {
+
+        static Rule range(LocalDate first, LocalDate last) {
+            return new Rule(null, null, first, last);
+        }
+
+        static Rule parse(String entry) {
+            try {
+                if (entry.startsWith("easter")) {
+                    String offset = entry.substring("easter".length());
+                    return new Rule(null, offset.isEmpty() ? 0 : Integer.parseInt(offset.startsWith("+") ? offset.substring(1) : offset),
+                        null, null);
+                }
+                int range = entry.indexOf("..");
+                if (range > 0) {
+                    return range(LocalDate.parse(entry.substring(0, range)), LocalDate.parse(entry.substring(range + 2)));
+                }
+                if (entry.length() == 5) {
+                    return new Rule(MonthDay.parse("--" + entry), null, null, null);
+                }
+                LocalDate day = LocalDate.parse(entry);
+                return range(day, day);
+            } catch (DateTimeParseException | NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid closure entry: " + entry, e);
+            }
+        }
+
+        void mark(BitSet bits, LocalDate windowFirst, LocalDate windowLast) {
+            if (monthDay != null || easterOffset != null) {
+                for (int year = windowFirst.getYear(); year <= windowLast.getYear(); year++) {
+                    if (monthDay != null && !monthDay.isValidYear(year)) {
+                        continue;
+                    }
+                    LocalDate day = monthDay != null ? monthDay.atYear(year) : easterSunday(year).plusDays(easterOffset);
+                    markRange(bits, windowFirst, windowLast, day, day);
+                }
+            } else {
+                markRange(bits, windowFirst, windowLast, first, last);
+            }
+        }
+
+        private static void markRange(BitSet bits, LocalDate windowFirst, LocalDate windowLast, LocalDate from, LocalDate to) {
+            LocalDate start = from.isBefore(windowFirst) ? windowFirst : from;
+            LocalDate end = to.isAfter(windowLast) ? windowLast : to;
+            if (!end.isBefore(start)) {
+                bits.set((int) (start.toEpochDay() - windowFirst.toEpochDay()), (int) (end.toEpochDay() - windowFirst.toEpochDay()) + 1);
+            }
+        }
+    }
+
+    private record Snapshot(long firstEpochDay, int days, BitSet national, Map<String, BitSet> municipal) {
+
+        boolean isClosed(String municipality, LocalDate date) {
+            long index = date.toEpochDay() - firstEpochDay;
+            return index >= 0 && index < days && bits(municipality).get((int) index);
+        }
+
+        BitSet closedDays(String municipality, LocalDate from, int count) {
+            long start = from.toEpochDay() - firstEpochDay;
+            long end = Math.min(start + count, days);
+            if (count <= 0 || end <= 0 || start >= days) {
+                return new BitSet();
+            }
+            if (start >= 0) {
+                return bits(municipality).get((int) start, (int) end);
+            }
+            // The range starts before the window: shift the window's bits up to their offset from the start
+            BitSet shifted = new BitSet(count);
+            BitSet bits = bits(municipality);
+            for (int i = bits.nextSetBit(0); i >= 0 && i < end; i = bits.nextSetBit(i + 1)) {
+                shifted.set((int) (i - start));
+            }
+            return shifted;
+        }
+
+        private BitSet bits(String municipality) {
+            return municipality == null ? national : municipal.getOrDefault(municipality, national);
+        }
+    }
+}
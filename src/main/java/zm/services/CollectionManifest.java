@@ -0,0 +1,49 @@
+package zm.services;
+
+import zm.data.ManifestRow;
+import zm.data.State;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// One municipality's collection round for a date: its stops in slot order and how many of each item to expect
+public record CollectionManifest(LocalDate date, String municipality, int bookings, int items, List<ItemTotal> itemTotals,
+                                 List<Stop> stops) {
+
+    public record Stop(String token, LocalTime approxTimeSlot, State state, List<StopItem> items) {
+    }
+
+    public record StopItem(String name, String description) {
+    }
+
+    public record ItemTotal(String name, int count) {
+    }
+
+    // Rows must all belong to one municipality, in slot and token order; item names are totalled case-insensitively
+    static CollectionManifest of(LocalDate date, List<ManifestRow> rows) {
+        List<Stop> stops = new ArrayList<>();
+        Map<String, Integer> totals = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        ManifestRow head = null;
+        List<StopItem> items = new ArrayList<>();
+        for (ManifestRow row : rows) {
+            if (head != null && !head.token().equals(row.token())) {
+                stops.add(new Stop(head.token(), head.approxTimeSlot(), head.state(), List.copyOf(items)));
+                items = new ArrayList<>();
+            }
+            head = row;
+            items.add(new StopItem(row.itemName(), row.itemDescription()));
+            totals.merge(row.itemName(), 1, Integer::sum);
+        }
+        if (head != null) {
+            stops.add(new Stop(head.token(), head.approxTimeSlot(), head.state(), List.copyOf(items)));
+        }
+
+        List<ItemTotal> itemTotals = totals.entrySet().stream().map(e -> new ItemTotal(e.getKey(), e.getValue())).toList();
+        String municipality = head == null ? null : head.municipality();
+        return new CollectionManifest(date, municipality, stops.size(), rows.size(), itemTotals, List.copyOf(stops));
+    }
+}
@@ -0,0 +1,193 @@
+package zm.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import zm.data.BookingLoad;
+import zm.data.BookingRef;
+import zm.data.BookingRepository;
+import zm.data.State;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+
+// Assigns a day's RECEIVED bookings to the rostered crews of their municipality. Each municipality is packed
+// independently and in parallel with worst-fit decreasing: the largest bookings first, each onto the crew with the
+// most room left, which keeps the crews' loads even. Bookings no crew has room for stay RECEIVED.
+@Service
+public class CrewAssignmentService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CrewAssignmentService.class);
+    static final int MAX_REPORTED_UNASSIGNED = 1000;
+
+    private final BookingRepository bookingRepository;
+    private final BookingShards bookingShards;
+    private final BookingCache bookingCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Duration timeBudget;
+
+    public CrewAssignmentService(BookingRepository bookingRepository, BookingShards bookingShards, BookingCache bookingCache,
+                                 ApplicationEventPublisher eventPublisher,
+                                 @Value("${booking.assignment.time-budget:PT5S}") Duration timeBudget) {
+        this.bookingRepository = bookingRepository;
+        this.bookingShards = bookingShards;
+        this.bookingCache = bookingCache;
+        this.eventPublisher = eventPublisher;
+        this.timeBudget = timeBudget;
+    }
+
+    // With dryRun the plan is returned without writing; otherwise every planned assignment is applied in one transaction
+    public AssignmentResult assign(LocalDate date, List<CrewShift> roster, boolean dryRun) {
+        if (date == null) {
+            throw new IllegalArgumentException("Date is required");
+        }
+        validateRoster(roster);
+        long started = System.nanoTime();
+        long deadline = started + timeBudget.toNanos();
+
+        Map<String, List<BookingLoad>> loadsByMunicipality = new TreeMap<>();
+        for (List<BookingLoad> loads : bookingShards.gather(shard -> bookingRepository.findLoadsByDateAndState(date, State.RECEIVED))) {
+            for (BookingLoad load : loads) {
+                loadsByMunicipality.computeIfAbsent(load.municipality(), m -> new ArrayList<>()).add(load);
+            }
+        }
+        Map<String, List<CrewShift>> crewsByMunicipality = new HashMap<>();
+        for (CrewShift shift : roster) {
+            crewsByMunicipality.computeIfAbsent(shift.municipality(), m -> new ArrayList<>()).add(shift);
+        }
+
+        List<Plan> plans = loadsByMunicipality.entrySet().parallelStream()
+            .map(e -> plan(e.getValue(), crewsByMunicipality.getOrDefault(e.getKey(), List.of()), deadline))
+            .toList();
+
+        Map<String, List<String>> tokensByCrew = new LinkedHashMap<>();
+        Map<String, BookingLoad> planned = new HashMap<>();
+        List<String> unassigned = new ArrayList<>();
+        boolean timedOut = false;
+        for (Plan plan : plans) {
+            plan.assignments().forEach((crew, loads) -> {
+                tokensByCrew.put(crew, loads.stream().map(BookingLoad::token).toList());
+                loads.forEach(load -> planned.put(load.token(), load));
+            });
+            plan.unassigned().forEach(load -> unassigned.add(load.token()));
+            timedOut |= plan.timedOut();
+        }
+
+        long assigned = planned.size();
+        if (!dryRun && !tokensByCrew.isEmpty()) {
+            // Bookings cancelled or assigned by hand since they were read are skipped by the transition. A crew works
+            // in one municipality, so its bookings share a shard and each shard's crews are applied in one transaction.
+            Map<Integer, Map<String, List<String>>> crewsByShard = new TreeMap<>();
+            tokensByCrew.forEach((crew, tokens) -> crewsByShard
+                .computeIfAbsent(bookingShards.shardOfToken(tokens.get(0)), shard -> new LinkedHashMap<>())
+                .put(crew, tokens));
+            Set<String> transitioned = new HashSet<>();
+            crewsByShard.forEach((shard, crews) -> transitioned.addAll(bookingShards.on(shard, () -> bookingRepository.assignCrews(crews))));
+            bookingCache.invalidateAll(transitioned);
+            for (String token : transitioned) {
+                BookingLoad load = planned.get(token);
+                eventPublisher.publishEvent(BookingEvent.stateChanged(
+                    new BookingRef(token, load.municipality(), load.date(), load.approxTimeSlot()), State.RECEIVED, State.ASSIGNED));
+            }
+            assigned = transitioned.size();
+        }
+
+        long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+        logger.info("Crew assignment for {}: {} assigned, {} left unassigned in {} ms{}", date, assigned, unassigned.size(),
+            elapsedMillis, timedOut ? " (time budget exhausted)" : "");
+        return new AssignmentResult(date, !dryRun, assigned, unassigned.size(), timedOut, crewLoads(roster, plans),
+            List.copyOf(unassigned.subList(0, Math.min(unassigned.size(), MAX_REPORTED_UNASSIGNED))), elapsedMillis);
+    }
+
+    // Worst-fit decreasing over one municipality's bookings; stops placing once the deadline passes
+    static Plan plan(List<BookingLoad> loads, List<CrewShift> crews, long deadline) {
+        List<BookingLoad> ordered = new ArrayList<>(loads);
+        ordered.sort(Comparator.comparing(BookingLoad::items).reversed()
+            .thenComparing(BookingLoad::approxTimeSlot)
+            .thenComparing(BookingLoad::token));
+
+        PriorityQueue<Bin> bins = new PriorityQueue<>(Comparator.comparingInt(Bin::remaining).reversed()
+            .thenComparing(bin -> bin.shift.crew()));
+        crews.forEach(shift -> bins.add(new Bin(shift)));
+
+        Map<String, List<BookingLoad>> assignments = new LinkedHashMap<>();
+        List<BookingLoad> unassigned = new ArrayList<>();
+        boolean timedOut = false;
+        for (BookingLoad load : ordered) {
+            if (timedOut || System.nanoTime() - deadline > 0) {
+                timedOut = true;
+                unassigned.add(load);
+                continue;
+            }
+            Bin roomiest = bins.peek();
+            if (roomiest == null || roomiest.remaining() < load.items()) {
+                unassigned.add(load);
+                continue;
+            }
+            bins.poll();
+            roomiest.used += load.items();
+            bins.add(roomiest);
+            assignments.computeIfAbsent(roomiest.shift.crew(), crew -> new ArrayList<>()).add(load);
+        }
+        return new Plan(assignments, unassigned, timedOut);
+    }
+
+    private static List<AssignmentResult.CrewLoad> crewLoads(List<CrewShift> roster, List<Plan> plans) {
+        Map<String, List<BookingLoad>> byCrew = new HashMap<>();
+        plans.forEach(plan -> byCrew.putAll(plan.assignments()));
+        return roster.stream().map(shift -> {
+            List<BookingLoad> loads = byCrew.getOrDefault(shift.crew(), List.of());
+            int items = loads.stream().mapToInt(BookingLoad::items).sum();
+            return new AssignmentResult.CrewLoad(shift.crew(), shift.municipality(), loads.size(), items, shift.capacity());
+        }).toList();
+    }
+
+    private static void validateRoster(List<CrewShift> roster) {
+        if (roster == null || roster.isEmpty()) {
+            throw new IllegalArgumentException("At least one crew is required");
+        }
+        Set<String> seen = new HashSet<>();
+        for (CrewShift shift : roster) {
+            if (shift == null || shift.crew() == null || shift.crew().isBlank()) {
+                throw new IllegalArgumentException("Every crew needs an id");
+            }
+            if (shift.municipality() == null || shift.municipality().isBlank()) {
+                throw new IllegalArgumentException("Crew " + shift.crew() + " has no municipality");
+            }
+            if (shift.capacity() <= 0) {
+                throw new IllegalArgumentException("Crew " + shift.crew() + " needs a positive capacity");
+            }
+            if (!seen.add(shift.crew())) {
+                throw new IllegalArgumentException("Duplicate crew: " + shift.crew());
+            }
+        }
+    }
+
+    record Plan(Map<String, List<BookingLoad>> assignments, List<BookingLoad> unassigned, boolean timedOut) {
+    }
+
+    private static final class Bin {
+        private final CrewShift shift;
+        private int used;
+
+        private Bin(CrewShift shift) {
+            this.shift = shift;
+        }
+
+        private int remaining() {
+            return shift.capacity() - used;
+        }
+    }
+}
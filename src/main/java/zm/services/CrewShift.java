@@ -0,0 +1,5 @@
+package zm.services;
+
+// One crew's shift on the roster: the municipality it serves and how many items its truck can take
+public record CrewShift(String crew, String municipality, int capacity) {
+}
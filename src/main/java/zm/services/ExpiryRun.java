@@ -0,0 +1,9 @@
+package zm.services;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+// One pass of the expiry job: bookings dated before the cutoff that were still open, and how many of them expired
+public record ExpiryRun(LocalDate cutoff, Instant startedAt, Instant finishedAt, long matched, long expired, int chunks,
+                        long elapsedMillis) {
+}
@@ -0,0 +1,31 @@
+package zm.services;
+
+import java.time.Instant;
+import java.util.List;
+
+public record ExportJob(String id, Status status, Instant requestedAt, Instant finishedAt, long bookings,
+                        List<String> files, String error) {
+
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    static ExportJob queued(String id) {
+        return new ExportJob(id, Status.QUEUED, Instant.now(), null, 0, List.of(), null);
+    }
+
+    ExportJob running() {
+        return new ExportJob(id, Status.RUNNING, requestedAt, null, 0, List.of(), null);
+    }
+
+    ExportJob completed(long bookings, List<String> files) {
+        return new ExportJob(id, Status.COMPLETED, requestedAt, Instant.now(), bookings, List.copyOf(files), null);
+    }
+
+    ExportJob failed(String error) {
+        return new ExportJob(id, Status.FAILED, requestedAt, Instant.now(), bookings, files, error);
+    }
+}
@@ -0,0 +1,10 @@
+package zm.services;
+
+import java.util.List;
+
+// Outcome of one import; rejects lists the first MAX_REPORTED_REJECTS rejected rows by their line in the upload
+public record ImportReport(long rows, long imported, long rejected, List<Reject> rejects, long elapsedMillis, double bookingsPerSecond) {
+
+    public record Reject(long line, String reason) {
+    }
+}
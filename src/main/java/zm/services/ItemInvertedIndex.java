@@ -0,0 +1,283 @@
+package zm.services;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.text.Normalizer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+// Term -> booking tokens over item names and descriptions. Writers are serialised; searches read without locking.
+// Each term's postings are kept in (date, token) order, the order results are returned in, so a search walks them
+// from the first date asked for and stops as soon as the page is full.
+public final class ItemInvertedIndex {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final int MIN_TERM_LENGTH = 2;
+
+    private final ConcurrentSkipListMap<String, Postings> postings = new ConcurrentSkipListMap<>();
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    private record Entry(String token, String municipality, LocalDate date, Set<String> terms) {
+        Key key() {
+            return new Key(date, token);
+        }
+    }
+
+    private record Key(LocalDate date, String token) implements Comparable<Key> {
+        private static final Comparator<Key> ORDER = Comparator.comparing(Key::date).thenComparing(Key::token);
+
+        @Override
+        public int compareTo(Key other) {
+            return ORDER.compare(this, other);
+        }
+    }
+
+    // ConcurrentSkipListSet.size() walks the whole set, so writers keep the count
+    private static final class Postings {
+        private final NavigableSet<Key> keys = new ConcurrentSkipListSet<>();
+        private volatile int size;
+    }
+
+    // Replaces whatever was indexed for the token
+    public void put(String token, String municipality, LocalDate date, Collection<String> texts) {
+        Set<String> terms = new HashSet<>();
+        for (String text : texts) {
+            terms.addAll(tokenize(text));
+        }
+        Key key = new Key(date, token);
+
+        writeLock.lock();
+        try {
+            for (String term : terms) {
+                Postings posting = postings.computeIfAbsent(term, ignored -> new Postings());
+                if (posting.keys.add(key)) {
+                    posting.size++;
+                }
+            }
+            Entry previous = entries.put(token, new Entry(token, municipality, date, terms));
+            if (previous != null) {
+                // A new date moves the token in every posting, so the old key goes from all of them
+                boolean moved = !previous.key().equals(key);
+                previous.terms().stream()
+                        .filter(term -> moved || !terms.contains(term))
+                        .forEach(term -> unlink(term, previous.key()));
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public void remove(String token) {
+        writeLock.lock();
+        try {
+            Entry removed = entries.remove(token);
+            if (removed != null) {
+                removed.terms().forEach(term -> unlink(term, removed.key()));
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // Every query term must match; the last one also matches as a prefix, so partially typed words find results.
+    // Results are ordered by collection date, soonest first. The search stops one match past the page, so the
+    // total is exact on the last page and otherwise only says that another page follows.
+    public Page<String> search(String query, String municipality, LocalDate from, LocalDate to, Pageable pageable) {
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty()) {
+            throw new IllegalArgumentException("Search text must contain at least one word");
+        }
+
+        // One group per query term: its single posting, or every posting the last term is a prefix of
+        List<List<Postings>> required = new ArrayList<>(terms.size());
+        for (String term : terms.subList(0, terms.size() - 1)) {
+            Postings posting = postings.get(term);
+            if (posting == null) {
+                return Page.empty(pageable);
+            }
+            required.add(List.of(posting));
+        }
+        String prefix = terms.get(terms.size() - 1);
+        List<Postings> prefixed = List.copyOf(postings.subMap(prefix, true, prefix + Character.MAX_VALUE, true).values());
+        if (prefixed.isEmpty()) {
+            return Page.empty(pageable);
+        }
+        required.add(prefixed);
+        required.sort(Comparator.comparingInt(ItemInvertedIndex::size));
+
+        long skip = pageable.isPaged() ? pageable.getOffset() : 0;
+        int wanted = pageable.isPaged() ? pageable.getPageSize() : Integer.MAX_VALUE;
+        List<String> page = new ArrayList<>();
+        boolean more = false;
+        Iterator<Key> candidates = merged(required.get(0), from, to);
+        while (candidates.hasNext()) {
+            Key key = candidates.next();
+            if (!containedInAll(key, required)) {
+                continue;
+            }
+            Entry entry = entries.get(key.token());
+            // A key left behind by a concurrent move of the booking to another date is skipped
+            if (entry == null || !entry.key().equals(key) || (municipality != null && !municipality.equals(entry.municipality()))) {
+                continue;
+            }
+            if (skip > 0) {
+                skip--;
+                continue;
+            }
+            if (page.size() == wanted) {
+                more = true;
+                break;
+            }
+            page.add(key.token());
+        }
+
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(page);
+        }
+        long seen = pageable.getOffset() - skip + page.size();
+        return new PageImpl<>(page, pageable, more ? seen + 1 : seen);
+    }
+
+    // Accent-folded, lower-cased words with a trailing plural "s" dropped, e.g. "Frigoríficos" -> "frigorifico"
+    static List<String> tokenize(String text) {
+        if (text == null) {
+            return List.of();
+        }
+        String folded = COMBINING_MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        List<String> terms = new ArrayList<>();
+        for (String word : SEPARATORS.split(folded)) {
+            if (word.length() >= MIN_TERM_LENGTH) {
+                terms.add(stem(word));
+            }
+        }
+        return terms;
+    }
+
+    private static String stem(String word) {
+        return word.length() > 3 && word.endsWith("s") && !word.endsWith("ss") ? word.substring(0, word.length() - 1) : word;
+    }
+
+    private static int size(List<Postings> group) {
+        int size = 0;
+        for (Postings posting : group) {
+            size += posting.size;
+        }
+        return size;
+    }
+
+    // The group's keys within the dates, in order and each once, however many of its postings hold them
+    private static Iterator<Key> merged(List<Postings> group, LocalDate from, LocalDate to) {
+        PriorityQueue<PeekingKeys> heads = new PriorityQueue<>(Comparator.comparing(PeekingKeys::peek));
+        for (Postings posting : group) {
+            NavigableSet<Key> keys = posting.keys;
+            if (from != null) {
+                keys = keys.tailSet(new Key(from, ""), true);
+            }
+            if (to != null) {
+                keys = keys.headSet(new Key(to.plusDays(1), ""), false);
+            }
+            PeekingKeys head = new PeekingKeys(keys.iterator());
+            if (head.peek() != null) {
+                heads.add(head);
+            }
+        }
+        return new Iterator<>() {
+            private Key last;
+
+            @Override
+            public boolean hasNext() {
+                while (!heads.isEmpty() && heads.peek().peek().equals(last)) {
+                    advance(heads.poll());
+                }
+                return !heads.isEmpty();
+            }
+
+            @Override
+            public Key next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                PeekingKeys head = heads.poll();
+                last = head.peek();
+                advance(head);
+                return last;
+            }
+
+            private void advance(PeekingKeys head) {
+                head.advance();
+                if (head.peek() != null) {
+                    heads.add(head);
+                }
+            }
+        };
+    }
+
+    private static final class PeekingKeys {
+        private final Iterator<Key> keys;
+        private Key next;
+
+        private PeekingKeys(Iterator<Key> keys) {
+            this.keys = keys;
+            advance();
+        }
+
+        private Key peek() {
+            return next;
+        }
+
+        private void advance() {
+            next = keys.hasNext() ? keys.next() : null;
+        }
+    }
+
+    private static boolean containedInAll(Key key, List<List<Postings>> groups) {
+        for (int i = 1; i < groups.size(); i++) {
+            boolean found = false;
+            for (Postings posting : groups.get(i)) {
+                if (posting.keys.contains(key)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void unlink(String term, Key key) {
+        Postings posting = postings.get(term);
+        if (posting != null && posting.keys.remove(key)) {
+            posting.size--;
+            if (posting.size == 0) {
+                postings.remove(term);
+            }
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package zm.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import zm.data.BookingRepository;
+import zm.data.ManifestRow;
+import zm.data.State;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+// Daily collection manifests, cached per (date, municipality). A booking event marks only its own municipality's
+// manifest stale, and the next request rebuilds just the stale ones; the TTL bounds staleness from other nodes.
+@Service
+public class ManifestService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ManifestService.class);
+    static final Set<State> MANIFEST_STATES = Collections.unmodifiableSet(EnumSet.of(State.RECEIVED, State.ASSIGNED));
+
+    private final BookingRepository bookingRepository;
+    private final BookingShards bookingShards;
+    private final Cache<LocalDate, Day> days;
+
+    public ManifestService(BookingRepository bookingRepository, BookingShards bookingShards,
+                           @Value("${booking.manifest.cached-days:14}") long cachedDays,
+                           @Value("${booking.manifest.ttl:PT10M}") Duration ttl) {
+        this.bookingRepository = bookingRepository;
+        this.bookingShards = bookingShards;
+        this.days = Caffeine.newBuilder()
+                .maximumSize(cachedDays)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    // The date's manifests in municipality order; municipalities with nothing to collect are left out
+    @Transactional(readOnly = true)
+    public List<CollectionManifest> getManifests(LocalDate date) {
+        if (date == null) {
+            throw new IllegalArgumentException("Date is required");
+        }
+        Day day = days.get(date, d -> new Day());
+        Refresh refresh = day.refresh();
+        if (refresh != null) {
+            day.apply(refresh, build(date, refresh.municipalities()));
+        }
+        return day.manifests();
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<CollectionManifest> getManifest(LocalDate date, String municipality) {
+        return getManifests(date).stream().filter(m -> m.municipality().equals(municipality)).findFirst();
+    }
+
+    @EventListener
+    public void onBookingEvent(BookingEvent event) {
+        Day day = days.getIfPresent(event.date());
+        if (day != null) {
+            day.invalidate(event.municipality());
+        }
+    }
+
+    // A municipality's bookings are all on one shard, so each shard's manifests are complete on their own
+    private Map<String, CollectionManifest> build(LocalDate date, Set<String> municipalities) {
+        Map<String, CollectionManifest> built = new HashMap<>();
+        bookingShards.gather(shard -> buildShard(date, municipalities)).forEach(built::putAll);
+        logger.info("Built {} manifests for {}", built.size(), date);
+        return built;
+    }
+
+    // One streaming query for all requested municipalities; each municipality's manifest is forked off to the
+    // fork/join pool as soon as its last row has streamed past, so aggregation overlaps with reading
+    private Map<String, CollectionManifest> buildShard(LocalDate date, Set<String> municipalities) {
+        Map<String, ForkJoinTask<CollectionManifest>> tasks = new HashMap<>();
+        try (Stream<ManifestRow> rows = municipalities == null
+                ? bookingRepository.streamManifestRows(date, MANIFEST_STATES)
+                : bookingRepository.streamManifestRows(date, MANIFEST_STATES, municipalities)) {
+            List<ManifestRow> group = new ArrayList<>();
+            for (ManifestRow row : (Iterable<ManifestRow>) rows::iterator) {
+                if (!group.isEmpty() && !group.get(0).municipality().equals(row.municipality())) {
+                    fork(tasks, date, group);
+                    group = new ArrayList<>();
+                }
+                group.add(row);
+            }
+            if (!group.isEmpty()) {
+                fork(tasks, date, group);
+            }
+        }
+
+        Map<String, CollectionManifest> built = new HashMap<>();
+        tasks.forEach((municipality, task) -> built.put(municipality, task.join()));
+        return built;
+    }
+
+    private static void fork(Map<String, ForkJoinTask<CollectionManifest>> tasks, LocalDate date, List<ManifestRow> rows) {
+        tasks.put(rows.get(0).municipality(), ForkJoinPool.commonPool().submit(() -> CollectionManifest.of(date, rows)));
+    }
+
+    // municipalities is null when every municipality needs building
+    private record Refresh(long generation, Set<String> municipalities) {
+    }
+
+    // Each invalidation is numbered, so a rebuild can tell which invalidations its query may have missed:
+    // those stay stale, and a result never replaces one built from a later snapshot
+    private static final class Day {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<String, Long> stale = new HashMap<>();
+        private final Map<String, Long> builtAt = new HashMap<>();
+        private Map<String, CollectionManifest> manifests = new TreeMap<>();
+        private boolean built;
+        private long generation;
+
+        void invalidate(String municipality) {
+            lock.lock();
+            try {
+                stale.put(municipality, ++generation);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Null when the cached manifests are current
+        Refresh refresh() {
+            lock.lock();
+            try {
+                if (!built) {
+                    return new Refresh(generation, null);
+                }
+                return stale.isEmpty() ? null : new Refresh(generation, Set.copyOf(stale.keySet()));
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void apply(Refresh refresh, Map<String, CollectionManifest> rebuilt) {
+            lock.lock();
+            try {
+                Set<String> covered = refresh.municipalities();
+                if (covered == null) {
+                    covered = new HashSet<>(manifests.keySet());
+                    covered.addAll(rebuilt.keySet());
+                    built = true;
+                }
+                Map<String, CollectionManifest> next = new TreeMap<>(manifests);
+                for (String municipality : covered) {
+                    if (builtAt.getOrDefault(municipality, -1L) > refresh.generation()) {
+                        continue;
+                    }
+                    builtAt.put(municipality, refresh.generation());
+                    CollectionManifest manifest = rebuilt.get(municipality);
+                    if (manifest == null) {
+                        next.remove(municipality);
+                    } else {
+                        next.put(municipality, manifest);
+                    }
+                }
+                stale.values().removeIf(invalidatedAt -> invalidatedAt <= refresh.generation());
+                manifests = next;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        List<CollectionManifest> manifests() {
+            lock.lock();
+            try {
+                return List.copyOf(manifests.values());
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
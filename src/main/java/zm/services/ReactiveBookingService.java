@@ -0,0 +1,30 @@
+package zm.services;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import zm.data.Booking;
+import zm.data.BookingFilter;
+import zm.data.Item;
+import zm.data.State;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Optional;
+
+// Non-blocking counterpart of BookingService, served by the reactive profile
+public interface ReactiveBookingService {
+    public Mono<String> book(LocalDate date, LocalTime time, List<Item> items, String municipality);
+    public Mono<Boolean> cancel(String token);
+    public Mono<Booking> check(String token);
+    public Flux<Booking> getAllBookings();
+    public Mono<Boolean> changeState(String token, State newstate);
+    public Flux<Booking> getBookingsByState(State state);
+    public Flux<Booking> getBookingsByMunicipality(String municipality);
+    public Mono<Page<Booking>> searchBookings(BookingFilter filter, Pageable pageable);
+    // Empty for unknown tokens; an empty Optional when the timeout expires first
+    public Mono<Optional<State>> awaitStateChange(String token, State since, Duration timeout);
+}
@@ -0,0 +1,160 @@
+package zm.services;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import zm.data.Booking;
+import zm.data.BookingFilter;
+import zm.data.Item;
+import zm.data.ReactiveBookingRepository;
+import zm.data.State;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+@Service
+@Profile("reactive")
+public class ReactiveBookingServiceImpl implements ReactiveBookingService {
+
+    private final ReactiveBookingRepository bookingRepo;
+    private final MunicipalityProvider municipalityProvider;
+    private final BookingCache bookingCache;
+    private final BookingTokenIndex tokenIndex;
+    private final BookingItemIndex itemIndex;
+    private final BookingStateNotifier stateNotifier;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SlotOccupancy slotOccupancy;
+    private final ClosureCalendar closureCalendar;
+
+    public ReactiveBookingServiceImpl(ReactiveBookingRepository bookingRepo, MunicipalityProvider municipalityProvider,
+                                      BookingCache bookingCache, BookingTokenIndex tokenIndex, BookingItemIndex itemIndex,
+                                      BookingStateNotifier stateNotifier, ApplicationEventPublisher eventPublisher,
+                                      SlotOccupancy slotOccupancy, ClosureCalendar closureCalendar) {
+        this.bookingRepo = bookingRepo;
+        this.municipalityProvider = municipalityProvider;
+        this.bookingCache = bookingCache;
+        this.tokenIndex = tokenIndex;
+        this.itemIndex = itemIndex;
+        this.stateNotifier = stateNotifier;
+        this.eventPublisher = eventPublisher;
+        this.slotOccupancy = slotOccupancy;
+        this.closureCalendar = closureCalendar;
+    }
+
+    public Mono<String> book(LocalDate date, LocalTime time, List<Item> items, String municipality) {
+        return Mono.defer(() -> {
+            BookingRules.validateRequest(date, time, items, municipality);
+            BookingRules.validateMunicipality(municipality, municipalityProvider);
+            BookingRules.validateOpen(date, municipality, closureCalendar);
+            return bookingRepo.insertIfRoom(new Booking(date, time, items, municipality), BookingRules.SLOT_CAPACITY);
+        }).switchIfEmpty(Mono.defer(() ->
+            // Suggested once the slot lock is released; a cold occupancy load goes through JPA, so it stays off the event loop
+            Mono.fromCallable(() -> slotOccupancy.suggest(municipality, date, time))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(suggestions -> Mono.<Booking>error(new CapacityExceededException(suggestions)))
+        )).map(saved -> {
+            tokenIndex.register(saved.getToken());
+            itemIndex.add(saved);
+            eventPublisher.publishEvent(BookingEvent.created(saved));
+            return saved.getToken();
+        });
+    }
+
+    public Mono<Boolean> cancel(String token) {
+        return transition(token, State.CANCELLED);
+    }
+
+    public Mono<Boolean> changeState(String token, State newstate) {
+        return transition(token, newstate);
+    }
+
+    public Mono<Booking> check(String token) {
+        if (!tokenIndex.mightExist(token)) {
+            return Mono.empty();
+        }
+        Booking cached = bookingCache.getIfPresent(token);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        return Mono.defer(() -> {
+            long stamp = bookingCache.stamp(token);
+            return bookingRepo.findByToken(token).doOnNext(b -> bookingCache.putIfCurrent(b, stamp));
+        });
+    }
+
+    public Flux<Booking> getAllBookings() {
+        return bookingRepo.findAll();
+    }
+
+    public Flux<Booking> getBookingsByState(State state) {
+        return bookingRepo.findByState(state);
+    }
+
+    public Flux<Booking> getBookingsByMunicipality(String municipality) {
+        return bookingRepo.findByMunicipality(municipality);
+    }
+
+    // Results are always newest first; the page request only supplies offset and size
+    public Mono<Page<Booking>> searchBookings(BookingFilter filter, Pageable pageable) {
+        return bookingRepo.search(filter, pageable.getOffset(), pageable.getPageSize())
+            .collectList()
+            .zipWith(bookingRepo.count(filter), (bookings, total) -> new PageImpl<>(bookings, pageable, total));
+    }
+
+    public Mono<Optional<State>> awaitStateChange(String token, State since, Duration timeout) {
+        if (!tokenIndex.mightExist(token)) {
+            return Mono.empty();
+        }
+
+        return Mono.defer(() -> {
+            // Registering before reading the state means a transition in between cannot be missed
+            CompletableFuture<State> waiter = stateNotifier.register(token);
+            return currentState(token)
+                .flatMap(current -> {
+                    if (current.isTerminal() || (since != null && current != since)) {
+                        waiter.complete(current);
+                        return Mono.just(Optional.of(current));
+                    }
+                    // Cancelling the subscription cancels the waiter, which unregisters it
+                    return Mono.fromFuture(waiter)
+                        .map(Optional::of)
+                        .timeout(timeout, Mono.just(Optional.empty()));
+                })
+                .switchIfEmpty(Mono.fromRunnable(() -> waiter.cancel(false)));
+        });
+    }
+
+    private Mono<State> currentState(String token) {
+        Booking cached = bookingCache.getIfPresent(token);
+        if (cached != null) {
+            return Mono.just(cached.getCurrentState().getState());
+        }
+        return bookingRepo.findByToken(token).map(b -> b.getCurrentState().getState());
+    }
+
+    // Applies the transition through Booking.changeState, so both stacks share one set of transition rules
+    private Mono<Boolean> transition(String token, State target) {
+        if (!tokenIndex.mightExist(token)) {
+            return Mono.just(false);
+        }
+        return bookingRepo.findByToken(token)
+            .filter(b -> b.changeState(target))
+            .flatMap(bookingRepo::saveTransition)
+            .map(saved -> {
+                bookingCache.invalidate(token);
+                eventPublisher.publishEvent(BookingEvent.stateChanged(saved));
+                return true;
+            })
+            .defaultIfEmpty(false);
+    }
+}
@@ -0,0 +1,67 @@
+package zm.services;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// The journal sequence numbers one node has not heard about yet. Numbers are taken before commit, so a hole is usually
+// a writer still in flight or a rolled-back number, and only sometimes a lost notice. It is given a grace period before
+// the journal is asked, and closed whether or not the journal holds it. Not thread-safe: each feed owns one.
+final class SequenceGaps {
+
+    private final int maxOpen;
+    // Missing sequence number -> System.nanoTime() when it was first missed
+    private final TreeMap<Long, Long> open = new TreeMap<>();
+    private long last = -1;
+
+    SequenceGaps(int maxOpen) {
+        this.maxOpen = maxOpen;
+    }
+
+    boolean started() {
+        return last >= 0;
+    }
+
+    // Everything up to last is taken as heard
+    void reset(long last) {
+        open.clear();
+        this.last = last;
+    }
+
+    long last() {
+        return last;
+    }
+
+    // Returns false when more numbers would be missing than may be looked up, in which case the caller resyncs
+    boolean accept(long seq, long now) {
+        if (seq <= last) {
+            open.remove(seq);
+            return true;
+        }
+        if (seq - last - 1 + open.size() > maxOpen) {
+            return false;
+        }
+        for (long missing = last + 1; missing < seq; missing++) {
+            open.put(missing, now);
+        }
+        last = seq;
+        return true;
+    }
+
+    // The holes first missed at or before the given time
+    List<Long> overdue(long missedBefore) {
+        return open.entrySet().stream()
+            .filter(entry -> entry.getValue() <= missedBefore)
+            .map(Map.Entry::getKey)
+            .toList();
+    }
+
+    void close(Collection<Long> seqs) {
+        seqs.forEach(open::remove);
+    }
+
+    int openCount() {
+        return open.size();
+    }
+}
@@ -0,0 +1,31 @@
+package zm.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import zm.data.BookingRepository;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+// Makes book()'s count-then-insert atomic across application nodes: each booking locks its slot's row before
+// counting, so writers to the same (date, slot, municipality) queue up while every other slot proceeds in parallel.
+// Disabling it falls back to the unguarded check, which can overbook a slot under concurrent writers.
+@Component
+public class SlotAdmission {
+
+    private final BookingRepository bookingRepository;
+    private final boolean enabled;
+
+    public SlotAdmission(BookingRepository bookingRepository,
+                         @Value("${booking.capacity.slot-lock.enabled:true}") boolean enabled) {
+        this.bookingRepository = bookingRepository;
+        this.enabled = enabled;
+    }
+
+    // Must be called inside the booking's transaction; the lock is released when it commits or rolls back
+    public void acquire(LocalDate date, LocalTime time, String municipality) {
+        if (enabled) {
+            bookingRepository.lockSlot(date, time, municipality);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package zm.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import zm.data.BookingRepository;
+import zm.data.SlotCount;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Occupancy of each municipality's standard slots over the next horizon-days days: one count per slot and a bitmap
+// of closed slots (weekends and full slots, plus the closure calendar's days), so alternatives to a full slot are
+// found with a few bit scans instead of a query per candidate. A municipality loads with one grouped query on first
+// use and then follows this node's bookings through events; the TTL picks up bookings made on other nodes.
+@Component
+public class SlotOccupancy {
+
+    private static final Logger logger = LoggerFactory.getLogger(SlotOccupancy.class);
+    static final int SLOTS = BookingRules.STANDARD_SLOTS.size();
+
+    private final BookingRepository bookingRepository;
+    private final ClosureCalendar closureCalendar;
+    private final BookingShards bookingShards;
+    private final int horizonDays;
+    private final long ttlNanos;
+    private final int limit;
+    private final ConcurrentMap<String, Occupancy> municipalities = new ConcurrentHashMap<>();
+
+    public SlotOccupancy(BookingRepository bookingRepository, ClosureCalendar closureCalendar, BookingShards bookingShards,
+                         @Value("${booking.occupancy.horizon-days:60}") int horizonDays,
+                         @Value("${booking.occupancy.ttl:PT5M}") Duration ttl,
+                         @Value("${booking.occupancy.suggestions:5}") int suggestions) {
+        this.bookingRepository = bookingRepository;
+        this.closureCalendar = closureCalendar;
+        this.bookingShards = bookingShards;
+        this.horizonDays = Math.max(1, horizonDays);
+        this.ttlNanos = ttl.toNanos();
+        this.limit = Math.max(0, suggestions);
+    }
+
+    // The open slots nearest to the requested one, nearest first and the earlier one on a tie
+    public List<SlotSuggestion> suggest(String municipality, LocalDate date, LocalTime time) {
+        return suggest(municipality, date, time, LocalDateTime.now());
+    }
+
+    List<SlotSuggestion> suggest(String municipality, LocalDate date, LocalTime time, LocalDateTime now) {
+        if (limit == 0 || municipality == null || date == null || time == null) {
+            return List.of();
+        }
+        LocalDate today = now.toLocalDate();
+        Occupancy occupancy = municipalities.computeIfAbsent(municipality, m -> new Occupancy());
+        BitSet closed;
+        occupancy.lock.lock();
+        try {
+            occupancy.refresh(municipality, today);
+            closed = (BitSet) occupancy.closed.clone();
+        } finally {
+            occupancy.lock.unlock();
+        }
+
+        // Read from the calendar on each call, so a reloaded calendar applies without waiting for the TTL
+        BitSet closedDays = closureCalendar.closedDays(municipality, today, horizonDays);
+        for (int day = closedDays.nextSetBit(0); day >= 0; day = closedDays.nextSetBit(day + 1)) {
+            closed.set(day * SLOTS, (day + 1) * SLOTS);
+        }
+
+        // Slots already under way today are no use to the citizen
+        for (int slot = 0; slot < SLOTS && !BookingRules.STANDARD_SLOTS.get(slot).isAfter(now.toLocalTime()); slot++) {
+            closed.set(slot);
+        }
+
+        int size = horizonDays * SLOTS;
+        int slot = Collections.binarySearch(BookingRules.STANDARD_SLOTS, time);
+        long day = ChronoUnit.DAYS.between(today, date);
+        int origin = (int) Math.max(0, Math.min(size, day * SLOTS + (slot >= 0 ? slot : -slot - 1)));
+        if (slot >= 0 && origin < size) {
+            closed.set(origin);
+        }
+
+        List<SlotSuggestion> suggestions = new ArrayList<>(limit);
+        int after = closed.nextClearBit(origin);
+        int before = origin > 0 ? closed.previousClearBit(origin - 1) : -1;
+        while (suggestions.size() < limit && (after < size || before >= 0)) {
+            if (before >= 0 && (after >= size || origin - before <= after - origin)) {
+                suggestions.add(toSuggestion(today, before));
+                before = before > 0 ? closed.previousClearBit(before - 1) : -1;
+            } else {
+                suggestions.add(toSuggestion(today, after));
+                after = closed.nextClearBit(after + 1);
+            }
+        }
+        return suggestions;
+    }
+
+    // Counts include every state, as the capacity check does, so only new bookings move them
+    @EventListener
+    public void onBookingEvent(BookingEvent event) {
+        if (event.type() != BookingEvent.Type.CREATED) {
+            return;
+        }
+        Occupancy occupancy = municipalities.get(event.municipality());
+        if (occupancy == null) {
+            return;
+        }
+        occupancy.lock.lock();
+        try {
+            occupancy.record(event.date(), event.approxTimeSlot());
+        } finally {
+            occupancy.lock.unlock();
+        }
+    }
+
+    private int index(LocalDate firstDay, LocalDate date, LocalTime time) {
+        int slot = BookingRules.STANDARD_SLOTS.indexOf(time);
+        long day = ChronoUnit.DAYS.between(firstDay, date);
+        if (slot < 0 || day < 0 || day >= horizonDays) {
+            return -1;
+        }
+        return (int) day * SLOTS + slot;
+    }
+
+    private static SlotSuggestion toSuggestion(LocalDate firstDay, int index) {
+        return new SlotSuggestion(firstDay.plusDays(index / SLOTS), BookingRules.STANDARD_SLOTS.get(index % SLOTS));
+    }
+
+    // Guarded by its lock; suggestions work on a copy of the bitmap
+    private final class Occupancy {
+        private final ReentrantLock lock = new ReentrantLock();
+        private LocalDate firstDay;
+        private long loadedAt;
+        private int[] counts;
+        private BitSet closed;
+
+        // Reloads when the day rolls over or the TTL runs out. A booking committed while the query runs may be
+        // counted twice, which only makes suggestions more conservative until the next reload.
+        void refresh(String municipality, LocalDate today) {
+            if (today.equals(firstDay) && System.nanoTime() - loadedAt < ttlNanos) {
+                return;
+            }
+            int[] loaded = new int[horizonDays * SLOTS];
+            // Suggestions are made after the full-slot booking has rolled back, so this reads in a transaction of its own
+            List<SlotCount> slotCounts = bookingShards.on(bookingShards.shardOf(municipality),
+                () -> bookingRepository.countSlots(municipality, today, today.plusDays(horizonDays - 1)));
+            for (SlotCount count : slotCounts) {
+                int i = index(today, count.date(), count.approxTimeSlot());
+                if (i >= 0) {
+                    loaded[i] = count.bookings().intValue();
+                }
+            }
+            BitSet full = new BitSet(loaded.length);
+            for (int day = 0; day < horizonDays; day++) {
+                DayOfWeek dayOfWeek = today.plusDays(day).getDayOfWeek();
+                if (dayOfWeek == DayOfWeek.SATURDAY || dayOfWeek == DayOfWeek.SUNDAY) {
+                    full.set(day * SLOTS, (day + 1) * SLOTS);
+                }
+            }
+            for (int i = 0; i < loaded.length; i++) {
+                if (!BookingRules.hasCapacity(loaded[i])) {
+                    full.set(i);
+                }
+            }
+            firstDay = today;
+            loadedAt = System.nanoTime();
+            counts = loaded;
+            closed = full;
+            logger.debug("Loaded slot occupancy for {} from {}", municipality, today);
+        }
+
+        void record(LocalDate date, LocalTime time) {
+            if (firstDay == null) {
+                return;
+            }
+            int i = index(firstDay, date, time);
+            if (i >= 0 && !BookingRules.hasCapacity(++counts[i])) {
+                closed.set(i);
+            }
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package zm.services;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+public record SlotSuggestion(LocalDate date, LocalTime approxTimeSlot) {
+}
@@ -4,8 +4,14 @@
 
 const API_BASE = 'http://localhost:8080/api';
 
+const PAGE_SIZE = 50;
 let currentBookings = [];
+let currentPage = 0;
+let totalBookings = 0;
 let currentToken = null;
+let stateWatch = null;
+
+const TERMINAL_STATES = ['FINISHED', 'CANCELLED', 'REMOVED', 'EXPIRED'];
 
 document.addEventListener('DOMContentLoaded', () => {
     initializeApp();
@@ -31,9 +37,10 @@ function initializeApp() {
     loadMunicipalities();
     setMinDate();
     
-    // Auto-load bookings if on staff page
+    // Auto-load bookings if on staff page, then keep them current from the event stream
     if (document.getElementById('staff-view')) {
         loadBookings();
+        subscribeToBookingEvents();
     }
 }
 
@@ -201,6 +208,14 @@ async function handleBookingSubmit(e) {
             const itemsContainer = document.getElementById('items-container');
             itemsContainer.innerHTML = '';
             addItemEntry();
+        } else if (response.status === 409 && response.headers.get('Content-Type')?.includes('application/json')) {
+            const rejection = await response.json();
+            const alternatives = (rejection.suggestions || [])
+                .map(s => `${s.date} ${s.approxTimeSlot.substring(0, 5)}`)
+                .join(', ');
+            showToast(alternatives
+                ? `This slot is full. Available slots nearby: ${alternatives}`
+                : 'This slot is full. Please choose another date or time.', 'error');
         } else {
             const error = await response.text();
             showToast(`Booking failed: ${error}`, 'error');
@@ -252,6 +267,7 @@ async function handleCheckSubmit(e) {
             const booking = await response.json();
             displayBookingDetails(booking);
             currentToken = token;
+            watchBookingState(token, booking.currentState.state);
         } else {
             showToast('Booking not found', 'error');
             clearBookingDetails();
@@ -302,7 +318,35 @@ function displayBookingDetails(booking) {
     document.getElementById('booking-details').classList.remove('hidden');
 }
 
+// Long-polls the server, which answers as soon as the booking leaves the given state
+async function watchBookingState(token, state) {
+    const watch = {};
+    stateWatch = watch;
+    let since = state;
+    
+    while (stateWatch === watch && !TERMINAL_STATES.includes(since)) {
+        try {
+            const response = await fetch(`${API_BASE}/bookings/${token}/await?since=${since}&timeout=30`);
+            if (stateWatch !== watch) {
+                return;
+            }
+            
+            if (response.status === 200) {
+                const booking = await response.json();
+                displayBookingDetails(booking);
+                since = booking.currentState.state;
+            } else if (response.status !== 304) {
+                return;
+            }
+        } catch (error) {
+            console.error('Error waiting for booking updates:', error);
+            return;
+        }
+    }
+}
+
 function clearBookingDetails() {
+    stateWatch = null;
     document.getElementById('booking-details').classList.add('hidden');
     document.getElementById('check-form').reset();
     currentToken = null;
@@ -335,35 +379,31 @@ async function cancelBooking() {
     }
 }
 
-async function loadBookings() {
+async function loadBookings(page = 0) {
     const filterMunicipality = document.getElementById('filter-municipality').value;
     const filterState = document.getElementById('filter-state').value;
     
-    let url = `${API_BASE}/staff/bookings`;
-    
+    // Filtering, ordering and paging happen on the server, so only the visible page is transferred
+    const params = new URLSearchParams({ page, size: PAGE_SIZE });
     if (filterMunicipality) {
-        url = `${API_BASE}/municipalities/${filterMunicipality}`;
+        params.set('municipality', filterMunicipality);
+    }
+    if (filterState) {
+        params.set('state', filterState);
     }
     
     try {
-        const response = await fetch(url);
+        const response = await fetch(`${API_BASE}/staff/bookings?${params}`);
         
         if (response.ok) {
-            let bookings = await response.json();
-            
-            if (filterState) {
-                bookings = bookings.filter(b => b.currentState.state === filterState);
-            }
-            
-            bookings.sort((b, a) => {
-                const dateCompare = new Date(a.date) - new Date(b.date);
-                if (dateCompare !== 0) return dateCompare;
-                return a.approxTimeSlot.localeCompare(b.approxTimeSlot);
-            });
+            const result = await response.json();
             
-            currentBookings = bookings;
-            displayBookings(bookings);
-            updateStatistics(bookings);
+            currentPage = result.page;
+            totalBookings = result.totalElements;
+            currentBookings = result.bookings;
+            displayBookings(currentBookings);
+            updateStatistics(currentBookings);
+            updatePagination(result);
         } else {
             showToast('Failed to load bookings', 'error');
         }
@@ -373,6 +413,83 @@ async function loadBookings() {
     }
 }
 
+// Crews' sheet for today, limited to the selected municipality if any
+function downloadTodaysManifest() {
+    const filterMunicipality = document.getElementById('filter-municipality').value;
+    const today = new Date();
+    const date = `${today.getFullYear()}-${String(today.getMonth() + 1).padStart(2, '0')}-${String(today.getDate()).padStart(2, '0')}`;
+    const params = new URLSearchParams({ format: 'csv' });
+    if (filterMunicipality) {
+        params.set('municipality', filterMunicipality);
+    }
+    window.location.href = `${API_BASE}/staff/manifests/${date}?${params}`;
+}
+
+function updatePagination(result) {
+    const pageInfo = document.getElementById('page-info');
+    if (!pageInfo) {
+        return;
+    }
+    pageInfo.textContent = `Page ${result.totalPages === 0 ? 0 : result.page + 1} of ${result.totalPages}`;
+    document.getElementById('prev-page').disabled = result.page === 0;
+    document.getElementById('next-page').disabled = result.page + 1 >= result.totalPages;
+}
+
+function subscribeToBookingEvents() {
+    if (!window.EventSource) {
+        return;
+    }
+    
+    const source = new EventSource(`${API_BASE}/staff/events`);
+    let connected = false;
+    // Deltas may have been missed while disconnected, so every reconnect reloads the list
+    source.addEventListener('open', () => {
+        if (connected) {
+            loadBookings(currentPage);
+        }
+        connected = true;
+    });
+    source.addEventListener('CREATED', event => applyBookingDelta(JSON.parse(event.data)));
+    source.addEventListener('STATE_CHANGED', event => applyBookingDelta(JSON.parse(event.data)));
+}
+
+async function applyBookingDelta(delta) {
+    const filterMunicipality = document.getElementById('filter-municipality').value;
+    const filterState = document.getElementById('filter-state').value;
+    const matches = (!filterMunicipality || delta.municipality === filterMunicipality)
+        && (!filterState || delta.state === filterState);
+    const index = currentBookings.findIndex(b => b.token === delta.token);
+    
+    if (index >= 0 && !matches) {
+        currentBookings.splice(index, 1);
+        totalBookings--;
+    } else if (index >= 0) {
+        currentBookings[index].currentState = { ...currentBookings[index].currentState, state: delta.state };
+    } else if (matches) {
+        try {
+            const response = await fetch(`${API_BASE}/bookings/${delta.token}`);
+            if (!response.ok || currentBookings.some(b => b.token === delta.token)) {
+                return;
+            }
+            currentBookings.push(await response.json());
+            totalBookings++;
+            currentBookings.sort((b, a) => {
+                const dateCompare = new Date(a.date) - new Date(b.date);
+                if (dateCompare !== 0) return dateCompare;
+                return a.approxTimeSlot.localeCompare(b.approxTimeSlot);
+            });
+        } catch (error) {
+            console.error('Error loading booking from event:', error);
+            return;
+        }
+    } else {
+        return;
+    }
+    
+    displayBookings(currentBookings);
+    updateStatistics(currentBookings);
+}
+
 function displayBookings(bookings) {
     const tbody = document.getElementById('bookings-tbody');
     tbody.innerHTML = '';
@@ -408,7 +525,7 @@ function displayBookings(bookings) {
 }
 
 function updateStatistics(bookings) {
-    document.getElementById('total-bookings').textContent = bookings.length;
+    document.getElementById('total-bookings').textContent = totalBookings;
     
     const receivedCount = bookings.filter(b => b.currentState.state === 'RECEIVED').length;
     const inProgressCount = bookings.filter(b => b.currentState.state === 'IN_PROGRESS').length;
@@ -462,7 +579,7 @@ async function updateBookingState() {
         if (response.ok) {
             showToast('Booking state updated successfully', 'success');
             closeStateModal();
-            loadBookings();
+            loadBookings(currentPage);
         } else {
             showToast('Failed to update booking state', 'error');
         }
@@ -0,0 +1,59 @@
+package zm.boundary;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import zm.config.JacksonConfig;
+import zm.services.AssignmentResult;
+import zm.services.CrewAssignmentService;
+import zm.services.CrewShift;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(AssignmentController.class)
+@Import(JacksonConfig.class)
+class AssignmentControllerIT {
+
+    private static final LocalDate DATE = LocalDate.of(2030, 3, 11);
+    private static final String BODY = "{\"date\":\"2030-03-11\",\"dryRun\":true,"
+        + "\"crews\":[{\"crew\":\"A1\",\"municipality\":\"Aveiro\",\"capacity\":40}]}";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private CrewAssignmentService assignmentService;
+
+    @Test
+    void testAssignReturnsPlan() throws Exception {
+        when(assignmentService.assign(DATE, List.of(new CrewShift("A1", "Aveiro", 40)), true)).thenReturn(
+            new AssignmentResult(DATE, false, 3, 0, false, List.of(new AssignmentResult.CrewLoad("A1", "Aveiro", 3, 12, 40)),
+                List.of(), 4));
+
+        mockMvc.perform(post("/api/staff/assignments").contentType(MediaType.APPLICATION_JSON).content(BODY))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.applied").value(false))
+            .andExpect(jsonPath("$.assigned").value(3))
+            .andExpect(jsonPath("$.crews[0].items").value(12));
+    }
+
+    @Test
+    void testInvalidRosterIsBadRequest() throws Exception {
+        when(assignmentService.assign(any(), anyList(), anyBoolean()))
+            .thenThrow(new IllegalArgumentException("Duplicate crew: A1"));
+
+        mockMvc.perform(post("/api/staff/assignments").contentType(MediaType.APPLICATION_JSON).content(BODY))
+            .andExpect(status().isBadRequest())
+            .andExpect(content().string("Duplicate crew: A1"));
+    }
+}
@@ -6,26 +6,48 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import zm.config.JacksonConfig;
 import zm.data.Booking;
+import zm.data.BookingField;
+import zm.data.BookingFilter;
+import zm.data.BookingProjection;
+import zm.data.BookingSpecifications;
 import zm.data.Item;
 import zm.data.State;
 import zm.services.BookingService;
+import zm.services.BulkOperationResult;
+import zm.services.CapacityExceededException;
+import zm.services.ChangeCursor;
+import zm.services.ChangeFeedPage;
 import zm.services.MunicipalityProvider;
+import zm.services.SlotSuggestion;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
 
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasSize;
 
 @WebMvcTest(BookingController.class)
+@Import(JacksonConfig.class)
 class BookingControllerIT {
 
     @Autowired
@@ -194,6 +216,24 @@ class BookingControllerIT {
         verify(bookingService).check("TOKEN456");
     }
 
+    @Test
+    void testCheckBookingSerializesResponseView() throws Exception {
+        sampleBooking.changeState(State.ASSIGNED);
+        when(bookingService.check("TOKEN456")).thenReturn(sampleBooking);
+
+        mockMvc.perform(get("/api/bookings/TOKEN456"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.token").value(sampleBooking.getToken()))
+            .andExpect(jsonPath("$.date").value(sampleBooking.getDate().toString()))
+            .andExpect(jsonPath("$.approxTimeSlot").value("10:00:00"))
+            .andExpect(jsonPath("$.items[0].name").value("Mattress"))
+            .andExpect(jsonPath("$.currentState.state").value("ASSIGNED"))
+            .andExpect(jsonPath("$.currentState.timestamp").value(
+                sampleBooking.getCurrentState().getTimestamp().toInstant().toString()))
+            .andExpect(jsonPath("$.previousStates[0].state").value("RECEIVED"))
+            .andExpect(jsonPath("$.changeSeq").doesNotExist());
+    }
+
     @Test
     void testCheckBookingNotFound() throws Exception {
         when(bookingService.check("NOTFOUND")).thenReturn(null);
@@ -204,6 +244,191 @@ class BookingControllerIT {
         verify(bookingService).check("NOTFOUND");
     }
 
+    @Test
+    void testCheckBookingSendsEtagAndRevalidation() throws Exception {
+        when(bookingService.check("TOKEN456")).thenReturn(sampleBooking);
+
+        mockMvc.perform(get("/api/bookings/TOKEN456"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("ETag", "\"0-RECEIVED\""))
+            .andExpect(header().string("Cache-Control", "no-cache"));
+    }
+
+    @Test
+    void testCheckBookingNotModified() throws Exception {
+        when(bookingService.check("TOKEN456")).thenReturn(sampleBooking);
+
+        mockMvc.perform(get("/api/bookings/TOKEN456").header("If-None-Match", "\"0-RECEIVED\""))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string("ETag", "\"0-RECEIVED\""))
+            .andExpect(content().string(""));
+    }
+
+    @Test
+    void testCheckBookingModifiedSinceEtag() throws Exception {
+        sampleBooking.changeState(State.ASSIGNED);
+        when(bookingService.check("TOKEN456")).thenReturn(sampleBooking);
+
+        mockMvc.perform(get("/api/bookings/TOKEN456").header("If-None-Match", "\"0-RECEIVED\""))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.currentState.state").value("ASSIGNED"));
+    }
+
+    @Test
+    void testCheckTerminalBookingIsImmutable() throws Exception {
+        sampleBooking.changeState(State.CANCELLED);
+        when(bookingService.check("TOKEN456")).thenReturn(sampleBooking);
+
+        mockMvc.perform(get("/api/bookings/TOKEN456"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("Cache-Control", containsString("immutable")))
+            .andExpect(header().string("Cache-Control", containsString("max-age=31536000")));
+    }
+
+    @Test
+    void testAwaitStateChangeReturnsUpdatedBooking() throws Exception {
+        sampleBooking.changeState(State.ASSIGNED);
+        when(bookingService.awaitStateChange(eq("TOKEN456"), eq(State.RECEIVED), any()))
+            .thenReturn(CompletableFuture.completedFuture(State.ASSIGNED));
+        when(bookingService.check("TOKEN456")).thenReturn(sampleBooking);
+
+        MvcResult result = mockMvc.perform(get("/api/bookings/TOKEN456/await").param("since", "received"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.currentState.state").value("ASSIGNED"));
+    }
+
+    @Test
+    void testAwaitStateChangeReadsTheBookingOffThePublishingThread() throws Exception {
+        CompletableFuture<State> change = new CompletableFuture<>();
+        when(bookingService.awaitStateChange(eq("TOKEN456"), eq(State.RECEIVED), any())).thenReturn(change);
+        AtomicReference<Thread> reader = new AtomicReference<>();
+        when(bookingService.check("TOKEN456")).thenAnswer(call -> {
+            reader.set(Thread.currentThread());
+            return sampleBooking;
+        });
+
+        MvcResult result = mockMvc.perform(get("/api/bookings/TOKEN456/await").param("since", "RECEIVED"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        change.complete(State.ASSIGNED);
+
+        mockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk());
+        assertNotSame(Thread.currentThread(), reader.get());
+    }
+
+    @Test
+    void testAwaitStateChangeTimesOutWithNotModified() throws Exception {
+        when(bookingService.awaitStateChange(eq("TOKEN456"), eq(State.RECEIVED), any()))
+            .thenReturn(CompletableFuture.completedFuture(null));
+
+        MvcResult result = mockMvc.perform(get("/api/bookings/TOKEN456/await").param("since", "RECEIVED"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isNotModified());
+        verify(bookingService, never()).check(anyString());
+    }
+
+    @Test
+    void testAwaitStateChangeUnknownBooking() throws Exception {
+        when(bookingService.awaitStateChange(eq("NOTFOUND"), isNull(), any())).thenReturn(null);
+
+        MvcResult result = mockMvc.perform(get("/api/bookings/NOTFOUND/await"))
+            .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testAwaitStateChangeWithInvalidState() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/bookings/TOKEN456/await").param("since", "SLEEPING"))
+            .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isBadRequest());
+        verify(bookingService, never()).awaitStateChange(anyString(), any(), any());
+    }
+
+    @Test
+    void testLookupStreamsTokenMap() throws Exception {
+        doAnswer(invocation -> {
+            java.util.function.BiConsumer<String, Booking> sink = invocation.getArgument(1);
+            sink.accept(sampleBooking.getToken(), sampleBooking);
+            sink.accept("missing", null);
+            return null;
+        }).when(bookingService).lookup(eq(List.of(sampleBooking.getToken(), "missing")), any());
+
+        MvcResult result = mockMvc.perform(post("/api/bookings/lookup")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(
+                    new BookingController.LookupRequest(List.of(sampleBooking.getToken(), "missing")))))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$['" + sampleBooking.getToken() + "'].municipality").value("Aveiro"))
+            .andExpect(content().string(containsString("\"missing\":null")));
+    }
+
+    @Test
+    void testLookupWithoutTokens() throws Exception {
+        mockMvc.perform(post("/api/bookings/lookup")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"tokens\":[]}"))
+            .andExpect(status().isBadRequest());
+
+        verify(bookingService, never()).lookup(any(), any());
+    }
+
+    @Test
+    void testLookupWithTooManyTokens() throws Exception {
+        List<String> tokens = java.util.Collections.nCopies(BookingController.MAX_LOOKUP_TOKENS + 1, "token");
+
+        mockMvc.perform(post("/api/bookings/lookup")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new BookingController.LookupRequest(tokens))))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testGetChanges() throws Exception {
+        when(bookingService.getChangesSince(ChangeCursor.of(10), 50))
+            .thenReturn(new ChangeFeedPage(List.of(sampleBooking), ChangeCursor.of(11), false));
+
+        mockMvc.perform(get("/api/staff/bookings/changes").param("after", "10").param("limit", "50"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.bookings", hasSize(1)))
+            .andExpect(jsonPath("$.next").value("11"))
+            .andExpect(jsonPath("$.hasMore").value(false));
+    }
+
+    @Test
+    void testGetChangesPassesShardedCursorsThrough() throws Exception {
+        when(bookingService.getChangesSince(ChangeCursor.of(10, 4), 100))
+            .thenReturn(new ChangeFeedPage(List.of(sampleBooking), ChangeCursor.of(12, 4), true));
+
+        mockMvc.perform(get("/api/staff/bookings/changes").param("after", "0:10,1:4"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.next").value("0:12,1:4"))
+            .andExpect(jsonPath("$.hasMore").value(true));
+    }
+
+    @Test
+    void testGetChangesWithNegativeCursor() throws Exception {
+        mockMvc.perform(get("/api/staff/bookings/changes").param("after", "-1"))
+            .andExpect(status().isBadRequest());
+
+        verify(bookingService, never()).getChangesSince(any(), anyInt());
+    }
+
     @Test
     void testGetAllBookings() throws Exception {
         List<Booking> bookings = List.of(sampleBooking);
@@ -285,6 +510,107 @@ class BookingControllerIT {
         verify(bookingService).getBookingsByMunicipality("Aveiro");
     }
 
+    @Test
+    void testSearchBookingsComposesFiltersIntoOnePage() throws Exception {
+        when(bookingService.searchBookings(any(BookingFilter.class), any(Pageable.class)))
+            .thenReturn(new PageImpl<>(List.of(sampleBooking), PageRequest.of(1, 10), 11));
+
+        mockMvc.perform(get("/api/staff/bookings")
+                .param("state", "received,ASSIGNED")
+                .param("municipality", "Aveiro")
+                .param("from", "2030-01-01")
+                .param("to", "2030-01-31")
+                .param("slot", "10:00")
+                .param("page", "1")
+                .param("size", "10"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.bookings", hasSize(1)))
+            .andExpect(jsonPath("$.bookings[0].municipality").value("Aveiro"))
+            .andExpect(jsonPath("$.page").value(1))
+            .andExpect(jsonPath("$.totalElements").value(11))
+            .andExpect(jsonPath("$.totalPages").value(2));
+
+        BookingFilter expected = new BookingFilter("Aveiro", LocalDate.of(2030, 1, 1), LocalDate.of(2030, 1, 31),
+            LocalTime.of(10, 0), Set.of(State.RECEIVED, State.ASSIGNED));
+        verify(bookingService).searchBookings(expected, PageRequest.of(1, 10, BookingSpecifications.NEWEST_FIRST));
+        verify(bookingService, never()).getAllBookings();
+    }
+
+    @Test
+    void testSearchBookingsWithInvalidFilter() throws Exception {
+        mockMvc.perform(get("/api/staff/bookings").param("state", "LOST"))
+            .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/staff/bookings").param("from", "2030-02-01").param("to", "2030-01-01"))
+            .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/staff/bookings").param("size", "0"))
+            .andExpect(status().isBadRequest());
+
+        verify(bookingService, never()).searchBookings(any(), any());
+    }
+
+    @Test
+    void testSearchItemsReturnsPage() throws Exception {
+        when(bookingService.searchItems(eq("frigorifico"), eq("Porto"), eq(LocalDate.of(2030, 3, 11)), eq(LocalDate.of(2030, 3, 17)),
+                any(Pageable.class)))
+            .thenReturn(new PageImpl<>(List.of(sampleBooking), PageRequest.of(0, 50), 1));
+
+        mockMvc.perform(get("/api/staff/bookings/items")
+                .param("q", "frigorifico")
+                .param("municipality", "Porto")
+                .param("from", "2030-03-11")
+                .param("to", "2030-03-17"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.bookings", hasSize(1)))
+            .andExpect(jsonPath("$.totalElements").value(1));
+    }
+
+    @Test
+    void testSearchItemsWhileIndexIsBuilding() throws Exception {
+        when(bookingService.searchItems(anyString(), any(), any(), any(), any(Pageable.class)))
+            .thenThrow(new IllegalStateException("Item search index is still building"));
+
+        mockMvc.perform(get("/api/staff/bookings/items").param("q", "sofa"))
+            .andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    void testGetBookingsByStateWithSparseFields() throws Exception {
+        BookingProjection projection = new BookingProjection("TOKEN123", null, null, "Aveiro", null, null, null, null);
+        when(bookingService.getBookings(BookingFilter.of(null, null, null, State.ASSIGNED),
+            Set.of(BookingField.TOKEN, BookingField.MUNICIPALITY), Pageable.unpaged())).thenReturn(new PageImpl<>(List.of(projection)));
+
+        mockMvc.perform(get("/api/bookings/state/ASSIGNED").param("fields", "token,municipality"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].token").value("TOKEN123"))
+            .andExpect(jsonPath("$[0].municipality").value("Aveiro"))
+            .andExpect(jsonPath("$[0].items").doesNotExist())
+            .andExpect(jsonPath("$[0].previousStates").doesNotExist());
+
+        verify(bookingService, never()).getBookingsByState(any());
+    }
+
+    @Test
+    void testGetBookingsByMunicipalityWithSparseFields() throws Exception {
+        when(bookingService.getBookings(any(BookingFilter.class), anySet(), any(Pageable.class))).thenReturn(Page.empty());
+
+        mockMvc.perform(get("/api/municipalities/Aveiro").param("fields", "token"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(0)));
+
+        verify(bookingService).getBookings(BookingFilter.of("Aveiro", null, null, null), Set.of(BookingField.TOKEN), Pageable.unpaged());
+        verify(bookingService, never()).getBookingsByMunicipality(anyString());
+    }
+
+    @Test
+    void testGetAllBookingsWithUnknownField() throws Exception {
+        mockMvc.perform(get("/api/staff/bookings").param("fields", "token,secret"))
+            .andExpect(status().isBadRequest())
+            .andExpect(content().string("Unknown field: secret"));
+
+        verify(bookingService, never()).getBookings(any(), any(), any());
+        verify(bookingService, never()).getAllBookings();
+    }
+
     @Test
     void testGetBookingsByMunicipalityEmpty() throws Exception {
         when(bookingService.getBookingsByMunicipality("Porto")).thenReturn(List.of());
@@ -333,6 +659,28 @@ class BookingControllerIT {
             .andExpect(status().isConflict());
     }
 
+    @Test
+    void testBookCapacityExceededSuggestsNearestSlots() throws Exception {
+        LocalDate date = LocalDate.now().plusDays(5);
+        BookingRequest request = new BookingRequest(date, LocalTime.of(10, 0), items, "Aveiro");
+
+        when(bookingService.book(any(LocalDate.class), any(LocalTime.class), anyList(), anyString()))
+            .thenThrow(new CapacityExceededException());
+        when(bookingService.suggestSlots("Aveiro", date, LocalTime.of(10, 0))).thenReturn(List.of(
+            new SlotSuggestion(date, LocalTime.of(8, 0)),
+            new SlotSuggestion(date, LocalTime.of(12, 0))));
+
+        mockMvc.perform(post("/api/bookings")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+            .andExpect(status().isConflict())
+            .andExpect(jsonPath("$.message").value("Capacity exceeded"))
+            .andExpect(jsonPath("$.suggestions.length()").value(2))
+            .andExpect(jsonPath("$.suggestions[0].date").value(date.toString()))
+            .andExpect(jsonPath("$.suggestions[0].approxTimeSlot").value("08:00:00"))
+            .andExpect(jsonPath("$.suggestions[1].approxTimeSlot").value("12:00:00"));
+    }
+
     @Test
     void testGetBookingWithInvalidToken() throws Exception {
         mockMvc.perform(get("/api/bookings/"))
@@ -600,6 +948,41 @@ class BookingControllerIT {
             .andExpect(status().isInternalServerError());
     }
 
+    @Test
+    void testBulkChangeState() throws Exception {
+        when(bookingService.bulkChangeState(any(BookingFilter.class), eq(State.IN_PROGRESS), isNull(), any()))
+            .thenReturn(new BulkOperationResult(State.IN_PROGRESS, 12, 12, 1, "last-token", true));
+
+        mockMvc.perform(post("/api/staff/bookings/bulk-state")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"municipality\":\"Aveiro\",\"state\":\"ASSIGNED\",\"target\":\"IN_PROGRESS\"}"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.updated").value(12))
+            .andExpect(jsonPath("$.lastToken").value("last-token"))
+            .andExpect(jsonPath("$.completed").value(true));
+    }
+
+    @Test
+    void testBulkChangeStateWithoutTarget() throws Exception {
+        mockMvc.perform(post("/api/staff/bookings/bulk-state")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"municipality\":\"Aveiro\"}"))
+            .andExpect(status().isBadRequest());
+
+        verify(bookingService, never()).bulkChangeState(any(), any(), any(), any());
+    }
+
+    @Test
+    void testBulkChangeStateWithImpossibleTransition() throws Exception {
+        when(bookingService.bulkChangeState(any(BookingFilter.class), eq(State.RECEIVED), isNull(), any()))
+            .thenThrow(new IllegalArgumentException("No filtered state can transition to RECEIVED"));
+
+        mockMvc.perform(post("/api/staff/bookings/bulk-state")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"target\":\"RECEIVED\"}"))
+            .andExpect(status().isBadRequest());
+    }
+
     static class StateUpdateRequest {
         public State state;
 
@@ -0,0 +1,89 @@
+package zm.boundary;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import zm.boundary.ClosureController.ClosureRequest;
+import zm.config.JacksonConfig;
+import zm.data.Closure;
+import zm.services.ClosureCalendar;
+
+import java.time.LocalDate;
+import java.util.BitSet;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(ClosureController.class)
+@Import(JacksonConfig.class)
+class ClosureControllerIT {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @MockBean
+    private ClosureCalendar closureCalendar;
+
+    @Test
+    void testClosedDaysAreListedAsDates() throws Exception {
+        LocalDate from = LocalDate.of(2030, 12, 20);
+        BitSet closed = new BitSet();
+        closed.set(5);
+        when(closureCalendar.closedDays("Porto", from, 10)).thenReturn(closed);
+
+        mockMvc.perform(get("/api/closures/Porto").param("from", "2030-12-20").param("to", "2030-12-29"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(1))
+            .andExpect(jsonPath("$[0]").value("2030-12-25"));
+    }
+
+    @Test
+    void testClosedDaysRejectsOversizedRange() throws Exception {
+        mockMvc.perform(get("/api/closures/Porto").param("from", "2030-01-01").param("to", "2032-01-01"))
+            .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(closureCalendar);
+    }
+
+    @Test
+    void testAddClosure() throws Exception {
+        LocalDate day = LocalDate.of(2030, 3, 11);
+        when(closureCalendar.addClosure("Faro", day, null, "Storm")).thenReturn(new Closure("Faro", day, day, "Storm"));
+
+        mockMvc.perform(post("/api/staff/closures")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new ClosureRequest("Faro", day, null, "Storm"))))
+            .andExpect(status().isCreated())
+            .andExpect(jsonPath("$.firstDay").value("2030-03-11"))
+            .andExpect(jsonPath("$.reason").value("Storm"));
+    }
+
+    @Test
+    void testAddInvalidClosureIsBadRequest() throws Exception {
+        when(closureCalendar.addClosure(any(), any(), any(), any()))
+            .thenThrow(new IllegalArgumentException("First day and reason are required"));
+
+        mockMvc.perform(post("/api/staff/closures")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{}"))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testRemoveUnknownClosureIsNotFound() throws Exception {
+        when(closureCalendar.removeClosure(42L)).thenReturn(false);
+
+        mockMvc.perform(delete("/api/staff/closures/42"))
+            .andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,71 @@
+package zm.boundary;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+import zm.config.JacksonConfig;
+import zm.services.BookingExpiryService;
+import zm.services.ExpiryRun;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Optional;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(ExpiryController.class)
+@Import(JacksonConfig.class)
+class ExpiryControllerIT {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private BookingExpiryService expiryService;
+
+    @Test
+    void testExpireReportsProcessedRows() throws Exception {
+        when(expiryService.expire()).thenReturn(run());
+
+        mockMvc.perform(post("/api/staff/expiry"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.cutoff").value("2030-03-11"))
+            .andExpect(jsonPath("$.matched").value(120))
+            .andExpect(jsonPath("$.expired").value(118));
+    }
+
+    @Test
+    void testExpireWhileRunningIsConflict() throws Exception {
+        when(expiryService.expire()).thenThrow(new IllegalStateException("Expiry is already running"));
+
+        mockMvc.perform(post("/api/staff/expiry"))
+            .andExpect(status().isConflict());
+    }
+
+    @Test
+    void testLastRunBeforeAnyRunIsNotFound() throws Exception {
+        when(expiryService.lastRun()).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/staff/expiry"))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testLastRun() throws Exception {
+        when(expiryService.lastRun()).thenReturn(Optional.of(run()));
+
+        mockMvc.perform(get("/api/staff/expiry"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.chunks").value(1));
+    }
+
+    private static ExpiryRun run() {
+        Instant now = Instant.now();
+        return new ExpiryRun(LocalDate.of(2030, 3, 11), now, now, 120, 118, 1, 40);
+    }
+}
@@ -0,0 +1,90 @@
+package zm.boundary;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+import zm.config.JacksonConfig;
+import zm.services.BookingExportService;
+import zm.services.ExportJob;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(ExportController.class)
+@Import(JacksonConfig.class)
+class ExportControllerIT {
+
+    private static final String FILE = "bookings/date=2030-03-11/part-0.arrow";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private BookingExportService exportService;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testStartReturnsAcceptedWithLocation() throws Exception {
+        when(exportService.start()).thenReturn(job("abc", ExportJob.Status.QUEUED, List.of()));
+
+        mockMvc.perform(post("/api/staff/exports"))
+            .andExpect(status().isAccepted())
+            .andExpect(header().string("Location", "/api/staff/exports/abc"))
+            .andExpect(jsonPath("$.status").value("QUEUED"));
+    }
+
+    @Test
+    void testStatusOfCompletedExportListsFiles() throws Exception {
+        when(exportService.find("abc")).thenReturn(Optional.of(job("abc", ExportJob.Status.COMPLETED, List.of(FILE))));
+
+        mockMvc.perform(get("/api/staff/exports/abc"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.files[0]").value(FILE));
+    }
+
+    @Test
+    void testStatusOfUnknownExportIsNotFound() throws Exception {
+        when(exportService.find("missing")).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/staff/exports/missing"))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testFileIsServedAsArrowAttachment() throws Exception {
+        Path file = Files.write(directory.resolve("part-0.arrow"), new byte[] {1, 2, 3});
+        when(exportService.file("abc", FILE)).thenReturn(Optional.of(file));
+
+        mockMvc.perform(get("/api/staff/exports/abc/files").param("path", FILE))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(ExportController.ARROW_FILE))
+            .andExpect(header().string("Content-Disposition", containsString("attachment")))
+            .andExpect(content().bytes(new byte[] {1, 2, 3}));
+    }
+
+    @Test
+    void testUnlistedFileIsNotFound() throws Exception {
+        when(exportService.file("abc", "../secrets")).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/staff/exports/abc/files").param("path", "../secrets"))
+            .andExpect(status().isNotFound());
+    }
+
+    private static ExportJob job(String id, ExportJob.Status status, List<String> files) {
+        return new ExportJob(id, status, Instant.now(), null, files.size(), files, null);
+    }
+}
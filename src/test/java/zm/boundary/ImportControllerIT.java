@@ -0,0 +1,90 @@
+package zm.boundary;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import zm.config.JacksonConfig;
+import zm.services.BookingImportService;
+import zm.services.ImportReport;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(ImportController.class)
+@Import(JacksonConfig.class)
+class ImportControllerIT {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private BookingImportService importService;
+
+    @Test
+    void testCsvUploadReturnsReport() throws Exception {
+        when(importService.importBookings(any(), eq(BookingImportService.Format.CSV)))
+            .thenReturn(new ImportReport(2, 1, 1, List.of(new ImportReport.Reject(3, "Invalid municipality")), 10, 100.0));
+
+        mockMvc.perform(post("/api/staff/imports")
+                .contentType("text/csv; charset=UTF-8")
+                .content("date,approx_time_slot,municipality,state,items\n"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.imported").value(1))
+            .andExpect(jsonPath("$.rejects[0].line").value(3))
+            .andExpect(jsonPath("$.rejects[0].reason").value("Invalid municipality"));
+    }
+
+    @Test
+    void testNdjsonUploadUsesNdjsonFormat() throws Exception {
+        when(importService.importBookings(any(), eq(BookingImportService.Format.NDJSON)))
+            .thenReturn(new ImportReport(0, 0, 0, List.of(), 1, 0.0));
+
+        mockMvc.perform(post("/api/staff/imports")
+                .contentType("application/x-ndjson")
+                .content("{}\n"))
+            .andExpect(status().isOk());
+
+        verify(importService).importBookings(any(), eq(BookingImportService.Format.NDJSON));
+    }
+
+    @Test
+    void testBadHeaderIsBadRequest() throws Exception {
+        when(importService.importBookings(any(), any()))
+            .thenThrow(new IllegalArgumentException("CSV header is missing column: date"));
+
+        mockMvc.perform(post("/api/staff/imports")
+                .contentType("text/csv")
+                .content("municipality\n"))
+            .andExpect(status().isBadRequest())
+            .andExpect(content().string("CSV header is missing column: date"));
+    }
+
+    @Test
+    void testUnreadableUploadIsServerError() throws Exception {
+        when(importService.importBookings(any(), any())).thenThrow(new IOException("connection reset"));
+
+        mockMvc.perform(post("/api/staff/imports")
+                .contentType("text/csv")
+                .content("date\n"))
+            .andExpect(status().isInternalServerError());
+    }
+
+    @Test
+    void testOtherContentTypesAreUnsupported() throws Exception {
+        mockMvc.perform(post("/api/staff/imports")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[]"))
+            .andExpect(status().isUnsupportedMediaType());
+
+        verifyNoInteractions(importService);
+    }
+}
@@ -0,0 +1,72 @@
+package zm.boundary;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.web.servlet.MockMvc;
+import zm.config.JacksonConfig;
+import zm.data.State;
+import zm.services.CollectionManifest;
+import zm.services.ManifestService;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(ManifestController.class)
+@Import(JacksonConfig.class)
+class ManifestControllerIT {
+
+    private static final LocalDate DATE = LocalDate.of(2030, 3, 11);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private ManifestService manifestService;
+
+    @Test
+    void testManifestsAsJson() throws Exception {
+        when(manifestService.getManifests(DATE)).thenReturn(List.of(manifest()));
+
+        mockMvc.perform(get("/api/staff/manifests/2030-03-11"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].municipality").value("Aveiro"))
+            .andExpect(jsonPath("$[0].itemTotals[0].name").value("Sofa"))
+            .andExpect(jsonPath("$[0].stops[0].approxTimeSlot").value("09:00:00"));
+    }
+
+    @Test
+    void testManifestsAsCsv() throws Exception {
+        when(manifestService.getManifest(DATE, "Aveiro")).thenReturn(Optional.of(manifest()));
+
+        mockMvc.perform(get("/api/staff/manifests/2030-03-11").param("municipality", "Aveiro").header("Accept", "text/csv"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith("text/csv"))
+            .andExpect(header().string("Content-Disposition", containsString("manifest-2030-03-11.csv")))
+            .andExpect(content().string(ManifestController.CSV_HEADER + "\n"
+                + "Aveiro,09:00,t1,ASSIGNED,Sofa,\"Leather, brown\"\n"));
+    }
+
+    @Test
+    void testInvalidDateIsBadRequest() throws Exception {
+        mockMvc.perform(get("/api/staff/manifests/tomorrow"))
+            .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(manifestService);
+    }
+
+    private static CollectionManifest manifest() {
+        return new CollectionManifest(DATE, "Aveiro", 1, 1, List.of(new CollectionManifest.ItemTotal("Sofa", 1)),
+            List.of(new CollectionManifest.Stop("t1", LocalTime.of(9, 0), State.ASSIGNED,
+                List.of(new CollectionManifest.StopItem("Sofa", "Leather, brown")))));
+    }
+}
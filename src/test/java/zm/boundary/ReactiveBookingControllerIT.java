@@ -0,0 +1,177 @@
+package zm.boundary;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import zm.data.Booking;
+import zm.data.Item;
+import zm.data.State;
+import zm.services.CapacityExceededException;
+import zm.services.MunicipalityProvider;
+import zm.services.ReactiveBookingService;
+import zm.services.SlotSuggestion;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@WebFluxTest(ReactiveBookingController.class)
+@ActiveProfiles("reactive")
+class ReactiveBookingControllerIT {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private MunicipalityProvider municipalityProvider;
+
+    @MockBean
+    private ReactiveBookingService bookingService;
+
+    private List<Item> items;
+    private Booking sampleBooking;
+
+    @BeforeEach
+    void setUp() {
+        items = Arrays.asList(
+            new Item("Mattress", "Old king-size mattress"),
+            new Item("Sofa", "Leather sofa")
+        );
+        sampleBooking = new Booking(LocalDate.now().plusDays(5), LocalTime.of(10, 0), items, "Aveiro");
+    }
+
+    @Test
+    void testCreateBookingSuccess() {
+        when(bookingService.book(any(), any(), any(), eq("Aveiro"))).thenReturn(Mono.just("test-token-123"));
+
+        webTestClient.post().uri("/api/bookings")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(new BookingController.BookingRequest(LocalDate.now().plusDays(5), LocalTime.of(10, 0), items, "Aveiro"))
+            .exchange()
+            .expectStatus().isCreated()
+            .expectBody()
+            .jsonPath("$.token").isEqualTo("test-token-123");
+    }
+
+    @Test
+    void testCreateBookingCapacityExceeded() {
+        when(bookingService.book(any(), any(), any(), eq("Aveiro")))
+            .thenReturn(Mono.error(new IllegalStateException("Capacity exceeded")));
+
+        webTestClient.post().uri("/api/bookings")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(new BookingController.BookingRequest(LocalDate.now().plusDays(5), LocalTime.of(10, 0), items, "Aveiro"))
+            .exchange()
+            .expectStatus().isEqualTo(409);
+    }
+
+    @Test
+    void testCreateBookingCapacityExceededSuggestsNearestSlots() {
+        LocalDate date = LocalDate.now().plusDays(5);
+        when(bookingService.book(any(), any(), any(), eq("Aveiro")))
+            .thenReturn(Mono.error(new CapacityExceededException(List.of(new SlotSuggestion(date, LocalTime.of(12, 0))))));
+
+        webTestClient.post().uri("/api/bookings")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(new BookingController.BookingRequest(date, LocalTime.of(10, 0), items, "Aveiro"))
+            .exchange()
+            .expectStatus().isEqualTo(409)
+            .expectBody()
+            .jsonPath("$.message").isEqualTo("Capacity exceeded")
+            .jsonPath("$.suggestions[0].date").isEqualTo(date.toString())
+            .jsonPath("$.suggestions[0].approxTimeSlot").isEqualTo("12:00:00");
+    }
+
+    @Test
+    void testCheckBookingReturnsETag() {
+        when(bookingService.check(sampleBooking.getToken())).thenReturn(Mono.just(sampleBooking));
+
+        webTestClient.get().uri("/api/bookings/{token}", sampleBooking.getToken())
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().valueEquals(HttpHeaders.ETAG, BookingController.etagOf(sampleBooking))
+            .expectBody()
+            .jsonPath("$.municipality").isEqualTo("Aveiro");
+    }
+
+    @Test
+    void testCheckBookingNotModified() {
+        when(bookingService.check(sampleBooking.getToken())).thenReturn(Mono.just(sampleBooking));
+
+        webTestClient.get().uri("/api/bookings/{token}", sampleBooking.getToken())
+            .header(HttpHeaders.IF_NONE_MATCH, BookingController.etagOf(sampleBooking))
+            .exchange()
+            .expectStatus().isNotModified();
+    }
+
+    @Test
+    void testCheckBookingNotFound() {
+        when(bookingService.check("missing")).thenReturn(Mono.empty());
+
+        webTestClient.get().uri("/api/bookings/missing")
+            .exchange()
+            .expectStatus().isNotFound();
+    }
+
+    @Test
+    void testAwaitStateChangeTimesOut() {
+        when(bookingService.awaitStateChange(eq(sampleBooking.getToken()), eq(State.RECEIVED), any(Duration.class)))
+            .thenReturn(Mono.just(Optional.empty()));
+
+        webTestClient.get().uri("/api/bookings/{token}/await?since=RECEIVED&timeout=1", sampleBooking.getToken())
+            .exchange()
+            .expectStatus().isNotModified();
+    }
+
+    @Test
+    void testModifyStateInvalidTransition() {
+        when(bookingService.changeState(sampleBooking.getToken(), State.RECEIVED)).thenReturn(Mono.just(false));
+
+        webTestClient.patch().uri("/api/bookings/{token}/state", sampleBooking.getToken())
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue("{\"state\":\"RECEIVED\"}")
+            .exchange()
+            .expectStatus().isNotFound();
+    }
+
+    @Test
+    void testCancelBooking() {
+        when(bookingService.cancel(sampleBooking.getToken())).thenReturn(Mono.just(true));
+
+        webTestClient.delete().uri("/api/bookings/{token}", sampleBooking.getToken())
+            .exchange()
+            .expectStatus().isNoContent();
+    }
+
+    @Test
+    void testGetBookingsByMunicipality() {
+        when(bookingService.getBookingsByMunicipality("Aveiro")).thenReturn(Flux.just(sampleBooking));
+
+        webTestClient.get().uri("/api/municipalities/Aveiro")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.length()").isEqualTo(1);
+    }
+
+    @Test
+    void testGetBookingsByInvalidState() {
+        webTestClient.get().uri("/api/bookings/state/UNKNOWN")
+            .exchange()
+            .expectStatus().isBadRequest();
+    }
+}
@@ -0,0 +1,236 @@
+package zm.boundary.grpc;
+
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import zm.data.Booking;
+import zm.data.Item;
+import zm.data.State;
+import zm.services.BookingEvent;
+import zm.services.BookingEventHub;
+import zm.services.BookingService;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class BookingGrpcServiceTest {
+
+    private BookingService bookingService;
+    private BookingEventHub eventHub;
+    private Server server;
+    private ManagedChannel channel;
+    private BookingApiGrpc.BookingApiBlockingStub blockingStub;
+    private List<Item> items;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        bookingService = mock(BookingService.class);
+        eventHub = new BookingEventHub(8, Duration.ofSeconds(30), 1, false);
+        String name = InProcessServerBuilder.generateName();
+        server = InProcessServerBuilder.forName(name).directExecutor()
+            .addService(new BookingGrpcService(bookingService, eventHub))
+            .build()
+            .start();
+        channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+        blockingStub = BookingApiGrpc.newBlockingStub(channel);
+
+        items = new ArrayList<>();
+        items.add(new Item("Mattress", "Old mattress"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        channel.shutdownNow();
+        server.shutdownNow();
+        eventHub.shutdown();
+    }
+
+    @Test
+    void testBook() {
+        LocalDate date = LocalDate.now().plusDays(7);
+        when(bookingService.book(eq(date), eq(LocalTime.of(10, 0)), anyList(), eq("Aveiro"))).thenReturn("token-1");
+
+        BookingProto.BookReply reply = blockingStub.book(BookingProto.BookRequest.newBuilder()
+            .setDate(date.toString())
+            .setApproxTimeSlot("10:00:00")
+            .addItems(BookingProto.Item.newBuilder().setName("Sofa").setDescription("Leather sofa"))
+            .setMunicipality("Aveiro")
+            .build());
+
+        assertEquals("token-1", reply.getToken());
+    }
+
+    @Test
+    void testBookRejectedByServiceIsInvalidArgument() {
+        when(bookingService.book(any(), any(), anyList(), eq("Aveiro")))
+            .thenThrow(new IllegalArgumentException("Bookings cannot be made on weekends"));
+
+        StatusRuntimeException error = assertThrows(StatusRuntimeException.class, () -> blockingStub.book(
+            BookingProto.BookRequest.newBuilder()
+                .setDate(LocalDate.now().plusDays(7).toString())
+                .setApproxTimeSlot("10:00:00")
+                .addItems(BookingProto.Item.newBuilder().setName("Sofa"))
+                .setMunicipality("Aveiro")
+                .build()));
+
+        assertEquals(Status.Code.INVALID_ARGUMENT, error.getStatus().getCode());
+        assertEquals("Bookings cannot be made on weekends", error.getStatus().getDescription());
+    }
+
+    @Test
+    void testCheckMapsBooking() {
+        Booking booking = new Booking(LocalDate.now().plusDays(7), LocalTime.of(10, 0), items, "Aveiro");
+        booking.changeState(State.ASSIGNED);
+        when(bookingService.check(booking.getToken())).thenReturn(booking);
+
+        BookingProto.Booking reply = blockingStub.check(BookingProto.TokenRequest.newBuilder().setToken(booking.getToken()).build());
+
+        assertEquals(booking.getToken(), reply.getToken());
+        assertEquals("10:00:00", reply.getApproxTimeSlot());
+        assertEquals(BookingProto.State.ASSIGNED, reply.getCurrentState().getState());
+        assertEquals(BookingProto.State.RECEIVED, reply.getPreviousStates(0).getState());
+        assertEquals("Mattress", reply.getItems(0).getName());
+    }
+
+    @Test
+    void testCheckUnknownTokenIsNotFound() {
+        StatusRuntimeException error = assertThrows(StatusRuntimeException.class,
+            () -> blockingStub.check(BookingProto.TokenRequest.newBuilder().setToken("missing").build()));
+
+        assertEquals(Status.Code.NOT_FOUND, error.getStatus().getCode());
+    }
+
+    @Test
+    void testChangeStateRequiresState() {
+        StatusRuntimeException error = assertThrows(StatusRuntimeException.class,
+            () -> blockingStub.changeState(BookingProto.ChangeStateRequest.newBuilder().setToken("token-1").build()));
+
+        assertEquals(Status.Code.INVALID_ARGUMENT, error.getStatus().getCode());
+        verifyNoInteractions(bookingService);
+    }
+
+    @Test
+    void testListByStateStreamsEveryBooking() {
+        when(bookingService.getBookingsByState(State.RECEIVED)).thenReturn(List.of(
+            new Booking(LocalDate.now().plusDays(7), LocalTime.of(10, 0), items, "Aveiro"),
+            new Booking(LocalDate.now().plusDays(7), LocalTime.of(11, 0), items, "Lisboa")));
+
+        Iterator<BookingProto.Booking> replies = blockingStub.listByState(
+            BookingProto.ListByStateRequest.newBuilder().setState(BookingProto.State.RECEIVED).build());
+
+        List<String> municipalities = new ArrayList<>();
+        replies.forEachRemaining(reply -> municipalities.add(reply.getMunicipality()));
+        assertEquals(List.of("Aveiro", "Lisboa"), municipalities);
+    }
+
+    @Test
+    void testWatchStateChangesStreamsOnlyWatchedTokens() throws InterruptedException {
+        BlockingQueue<BookingProto.StateChange> received = new LinkedBlockingQueue<>();
+        StreamObserver<BookingProto.WatchRequest> requests = BookingApiGrpc.newStub(channel).watchStateChanges(new StreamObserver<>() {
+            @Override
+            public void onNext(BookingProto.StateChange change) {
+                received.add(change);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+            }
+
+            @Override
+            public void onCompleted() {
+            }
+        });
+
+        requests.onNext(BookingProto.WatchRequest.newBuilder().setWatchToken("watched").build());
+        BookingEvent watched = event("watched", State.ASSIGNED);
+        await().atMost(5, TimeUnit.SECONDS).until(() -> {
+            eventHub.onBookingEvent(watched);
+            return received.poll(100, TimeUnit.MILLISECONDS) != null;
+        });
+
+        eventHub.onBookingEvent(event("other", State.ASSIGNED));
+        eventHub.onBookingEvent(event("watched", State.IN_PROGRESS));
+
+        // Earlier probe events may still be in flight; everything up to the last one must be for the watched token
+        BookingProto.StateChange change;
+        do {
+            change = received.poll(5, TimeUnit.SECONDS);
+            assertNotNull(change);
+            assertEquals("watched", change.getToken());
+        } while (change.getState() != BookingProto.State.IN_PROGRESS);
+
+        requests.onCompleted();
+        await().atMost(5, TimeUnit.SECONDS).until(() -> eventHub.subscriberCount() == 0);
+    }
+
+    @Test
+    void testWatcherThatStopsReadingIsCutOff() {
+        BlockingQueue<BookingProto.StateChange> received = new LinkedBlockingQueue<>();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        StreamObserver<BookingProto.WatchRequest> requests = BookingApiGrpc.newStub(channel).watchStateChanges(
+            new ClientResponseObserver<BookingProto.WatchRequest, BookingProto.StateChange>() {
+                @Override
+                public void beforeStart(ClientCallStreamObserver<BookingProto.WatchRequest> requestStream) {
+                    // Reads the first change and then nothing more
+                    requestStream.disableAutoRequestWithInitial(1);
+                }
+
+                @Override
+                public void onNext(BookingProto.StateChange change) {
+                    received.add(change);
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    failure.set(t);
+                }
+
+                @Override
+                public void onCompleted() {
+                }
+            });
+
+        requests.onNext(BookingProto.WatchRequest.newBuilder().setWatchMunicipality("Aveiro").build());
+        await().atMost(5, TimeUnit.SECONDS).until(() -> {
+            eventHub.onBookingEvent(event("probe", State.ASSIGNED));
+            return !received.isEmpty();
+        });
+
+        await().atMost(5, TimeUnit.SECONDS).until(() -> {
+            eventHub.onBookingEvent(event("unread", State.ASSIGNED));
+            return failure.get() != null;
+        });
+
+        assertEquals(Status.Code.RESOURCE_EXHAUSTED, Status.fromThrowable(failure.get()).getCode());
+        assertEquals(1, received.size());
+        await().atMost(5, TimeUnit.SECONDS).until(() -> eventHub.subscriberCount() == 0);
+    }
+
+    private static BookingEvent event(String token, State state) {
+        return new BookingEvent(BookingEvent.Type.STATE_CHANGED, token, "Aveiro",
+            LocalDate.now().plusDays(2), LocalTime.of(9, 0), state, null);
+    }
+}
@@ -5,17 +5,29 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.TestPropertySource;
 
 
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 @DataJpaTest
+@Import(ChangeOrigin.class)
+// The embedded H2 database needs its own dialect, not the PostgreSQL one named in the main properties
+@TestPropertySource(properties = "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect")
 class BookingRepositoryTest {
 
     @Autowired
@@ -235,4 +247,319 @@ class BookingRepositoryTest {
         assertTrue(found.isPresent());
         assertEquals(3, found.get().getItems().size());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testTransitionChunkArchivesPreviousState() {
+        Booking booking1 = new Booking(LocalDate.now().plusDays(5), LocalTime.of(10, 0), sampleItems, "Viseu");
+        Booking booking2 = new Booking(LocalDate.now().plusDays(5), LocalTime.of(11, 0), sampleItems, "Viseu");
+        booking2.changeState(State.CANCELLED);
+        entityManager.persist(booking1);
+        entityManager.persist(booking2);
+        entityManager.flush();
+
+        BookingFilter filter = BookingFilter.of("Viseu", null, null, null);
+        Set<State> sources = filter.sourceStatesFor(State.ASSIGNED);
+        List<BookingRef> refs = bookingRepository.findChunk(filter, sources, null, 10);
+        List<String> tokens = refs.stream().map(BookingRef::token).toList();
+        List<String> updated = bookingRepository.transitionChunk(tokens, sources, State.ASSIGNED);
+        entityManager.clear();
+
+        assertEquals(List.of(booking1.getToken()), tokens);
+        assertEquals("Viseu", refs.get(0).municipality());
+        assertEquals(List.of(booking1.getToken()), updated);
+        Booking found = entityManager.find(Booking.class, booking1.getToken());
+        assertEquals(State.ASSIGNED, found.getCurrentState().getState());
+        assertEquals(1, found.getPreviousStates().size());
+        assertEquals(State.RECEIVED, found.getPreviousStates().get(0).getState());
+    }
+
+    @Test
+    void testFindTokenChunkPagesByToken() {
+        for (int i = 0; i < 5; i++) {
+            entityManager.persist(new Booking(LocalDate.now().plusDays(5), LocalTime.of(10, 0), sampleItems, "Guarda"));
+        }
+        entityManager.flush();
+
+        BookingFilter filter = BookingFilter.of("Guarda", null, null, State.RECEIVED);
+        Set<State> sources = filter.sourceStatesFor(State.CANCELLED);
+        List<BookingRef> first = bookingRepository.findChunk(filter, sources, null, 3);
+        List<BookingRef> rest = bookingRepository.findChunk(filter, sources, first.get(2).token(), 3);
+
+        assertEquals(3, first.size());
+        assertEquals(2, rest.size());
+        assertTrue(first.get(2).token().compareTo(rest.get(0).token()) < 0);
+    }
+
+    @Test
+    void testFindByChangeSeqReturnsOnlyLaterChangesUpToTheHorizonInOrder() {
+        Booking older = new Booking(LocalDate.now().plusDays(5), LocalTime.of(10, 0), sampleItems, "Leiria");
+        Booking newer = new Booking(LocalDate.now().plusDays(5), LocalTime.of(11, 0), sampleItems, "Leiria");
+        Booking newest = new Booking(LocalDate.now().plusDays(5), LocalTime.of(12, 0), sampleItems, "Leiria");
+        Booking beyond = new Booking(LocalDate.now().plusDays(5), LocalTime.of(14, 0), sampleItems, "Leiria");
+        older.setChangeSeq(1_000_001L);
+        newer.setChangeSeq(1_000_003L);
+        newest.setChangeSeq(1_000_002L);
+        beyond.setChangeSeq(1_000_004L);
+        entityManager.persist(older);
+        entityManager.persist(newer);
+        entityManager.persist(newest);
+        entityManager.persist(beyond);
+        entityManager.flush();
+
+        List<Booking> changes = bookingRepository.findByChangeSeqGreaterThanAndChangeSeqLessThanEqualOrderByChangeSeqAsc(
+            1_000_001L, 1_000_003L, PageRequest.of(0, 10));
+
+        assertEquals(List.of(newest.getToken(), newer.getToken()), changes.stream().map(Booking::getToken).toList());
+    }
+
+    @Test
+    void testTransitionChunkStampsChangeSequence() {
+        Booking booking = new Booking(LocalDate.now().plusDays(5), LocalTime.of(10, 0), sampleItems, "Faro");
+        entityManager.persistAndFlush(booking);
+
+        List<String> updated = bookingRepository.transitionChunk(List.of(booking.getToken()), Set.of(State.RECEIVED), State.CANCELLED);
+        entityManager.clear();
+
+        assertEquals(1, updated.size());
+        Booking found = entityManager.find(Booking.class, booking.getToken());
+        assertNotNull(found.getChangeSeq());
+        assertEquals(1, found.getVersion());
+    }
+
+    @Test
+    void testFindWithCollectionsByTokenInLoadsCollections() {
+        Booking first = new Booking(LocalDate.now().plusDays(5), LocalTime.of(10, 0), sampleItems, "Braga");
+        Booking second = new Booking(LocalDate.now().plusDays(5), LocalTime.of(11, 0), sampleItems, "Braga");
+        second.changeState(State.ASSIGNED);
+        entityManager.persist(first);
+        entityManager.persist(second);
+        entityManager.flush();
+        entityManager.clear();
+
+        List<Booking> found = bookingRepository.findWithCollectionsByTokenIn(List.of(first.getToken(), second.getToken(), "missing"));
+        entityManager.clear();
+
+        assertEquals(2, found.size());
+        for (Booking booking : found) {
+            assertTrue(org.hibernate.Hibernate.isInitialized(booking.getItems()));
+            assertTrue(org.hibernate.Hibernate.isInitialized(booking.getPreviousStates()));
+            assertEquals(sampleItems.size(), booking.getItems().size());
+        }
+    }
+
+    @Test
+    void testFindProjectedSelectsOnlyRequestedFields() {
+        Booking booking = new Booking(LocalDate.now().plusDays(5), LocalTime.of(10, 0), sampleItems, "Beja");
+        booking.changeState(State.ASSIGNED);
+        entityManager.persist(booking);
+        entityManager.persist(new Booking(LocalDate.now().plusDays(5), LocalTime.of(11, 0), sampleItems, "Evora"));
+        entityManager.flush();
+        entityManager.clear();
+
+        List<BookingProjection> found = bookingRepository.findProjected(BookingFilter.of("Beja", null, null, State.ASSIGNED),
+            Set.of(BookingField.TOKEN, BookingField.CURRENT_STATE), Pageable.unpaged()).getContent();
+
+        assertEquals(1, found.size());
+        BookingProjection projection = found.get(0);
+        assertEquals(booking.getToken(), projection.token());
+        assertEquals(State.ASSIGNED, projection.currentState().getState());
+        assertNull(projection.municipality());
+        assertNull(projection.items());
+        assertNull(projection.previousStates());
+    }
+
+    @Test
+    void testFindProjectedLoadsRequestedCollections() {
+        Booking booking = new Booking(LocalDate.now().plusDays(5), LocalTime.of(10, 0), sampleItems, "Tomar");
+        booking.changeState(State.ASSIGNED);
+        entityManager.persist(booking);
+        entityManager.flush();
+        entityManager.clear();
+
+        List<BookingProjection> found = bookingRepository.findProjected(BookingFilter.of("Tomar", null, null, null),
+            Set.of(BookingField.ITEMS, BookingField.PREVIOUS_STATES), Pageable.unpaged()).getContent();
+
+        assertEquals(1, found.size());
+        assertNull(found.get(0).token());
+        assertEquals(sampleItems.size(), found.get(0).items().size());
+        assertEquals(State.RECEIVED, found.get(0).previousStates().get(0).getState());
+    }
+
+    @Test
+    void testSearchComposesFiltersAndPages() {
+        LocalDate day = LocalDate.now().plusDays(5);
+        for (int hour = 8; hour < 13; hour++) {
+            entityManager.persist(new Booking(day, LocalTime.of(hour, 0), sampleItems, "Lagos"));
+        }
+        Booking assigned = new Booking(day, LocalTime.of(10, 0), sampleItems, "Lagos");
+        assigned.changeState(State.ASSIGNED);
+        entityManager.persist(assigned);
+        entityManager.persist(new Booking(day.plusDays(10), LocalTime.of(10, 0), sampleItems, "Lagos"));
+        entityManager.persist(new Booking(day, LocalTime.of(10, 0), sampleItems, "Sines"));
+        entityManager.flush();
+
+        BookingFilter filter = new BookingFilter("Lagos", day, day.plusDays(1), null, Set.of(State.RECEIVED));
+        Page<Booking> first = bookingRepository.findAll(BookingSpecifications.matching(filter),
+            PageRequest.of(0, 2, BookingSpecifications.NEWEST_FIRST));
+
+        assertEquals(5, first.getTotalElements());
+        assertEquals(3, first.getTotalPages());
+        assertEquals(LocalTime.of(12, 0), first.getContent().get(0).getApproxTimeSlot());
+        assertEquals(LocalTime.of(11, 0), first.getContent().get(1).getApproxTimeSlot());
+
+        BookingFilter inSlot = new BookingFilter("Lagos", null, null, LocalTime.of(10, 0), null);
+        Page<Booking> slot = bookingRepository.findAll(BookingSpecifications.matching(inSlot), PageRequest.of(0, 10));
+
+        assertEquals(3, slot.getTotalElements());
+    }
+
+    @Test
+    void testExportChunksWalkDateThenTokenOrder() {
+        LocalDate day = LocalDate.now().plusDays(5);
+        entityManager.persist(new Booking(day.plusDays(1), LocalTime.of(9, 0), sampleItems, "Aveiro"));
+        entityManager.persist(new Booking(day, LocalTime.of(10, 0), sampleItems, "Aveiro"));
+        entityManager.persist(new Booking(day, LocalTime.of(11, 0), sampleItems, "Porto"));
+        entityManager.flush();
+        entityManager.clear();
+
+        List<Booking> first = bookingRepository.findExportChunk(null, null, 2);
+        Booking last = first.get(first.size() - 1);
+        List<Booking> rest = bookingRepository.findExportChunk(last.getDate(), last.getToken(), 2);
+
+        assertEquals(2, first.size());
+        assertEquals(day, first.get(0).getDate());
+        assertEquals(day, last.getDate());
+        assertTrue(first.get(0).getToken().compareTo(last.getToken()) < 0);
+        assertEquals(1, rest.size());
+        assertEquals(day.plusDays(1), rest.get(0).getDate());
+        assertEquals(sampleItems.size(), rest.get(0).getItems().size());
+    }
+
+    @Test
+    void testInsertChunkSkipsTokensAlreadyStored() {
+        Booking existing = new Booking(LocalDate.now().plusDays(5), LocalTime.of(10, 0), sampleItems, "Aveiro");
+        entityManager.persistAndFlush(existing);
+        entityManager.clear();
+
+        LocalDate lastYear = LocalDate.now().minusYears(1);
+        Booking restored = Booking.restore(existing.getToken(), lastYear, LocalTime.of(9, 0), new ArrayList<>(sampleItems),
+            "Aveiro", new RequestState(State.FINISHED), List.of(), null, null);
+        Booking imported = Booking.restore(UUID.randomUUID().toString(), lastYear, LocalTime.of(9, 0),
+            new ArrayList<>(sampleItems), "Aveiro", new RequestState(State.FINISHED), List.of(), null, null);
+
+        Set<String> skipped = bookingRepository.insertChunk(List.of(restored, imported));
+
+        assertEquals(Set.of(existing.getToken()), skipped);
+        assertEquals(State.FINISHED, bookingRepository.findByToken(imported.getToken()).orElseThrow().getCurrentState().getState());
+        assertEquals(State.RECEIVED, bookingRepository.findByToken(existing.getToken()).orElseThrow().getCurrentState().getState());
+    }
+
+    @Test
+    void testInsertChunkJournalsImportedBookings() {
+        LocalDate lastYear = LocalDate.now().minusYears(1);
+        Booking imported = Booking.restore(UUID.randomUUID().toString(), lastYear, LocalTime.of(9, 0),
+            new ArrayList<>(sampleItems), "Aveiro", new RequestState(State.FINISHED), List.of(), null, null);
+
+        bookingRepository.insertChunk(List.of(imported));
+
+        Booking found = bookingRepository.findByToken(imported.getToken()).orElseThrow();
+        assertNotNull(found.getChangeSeq());
+        BookingChange change = entityManager.find(BookingChange.class, found.getChangeSeq());
+        assertEquals(imported.getToken(), change.getToken());
+        assertEquals(State.FINISHED, change.getState());
+    }
+
+    @Test
+    void testManifestRowsAreGroupedByMunicipalityInSlotOrder() {
+        LocalDate day = LocalDate.now().plusDays(5);
+        Booking late = new Booking(day, LocalTime.of(15, 0), sampleItems, "Porto");
+        Booking early = new Booking(day, LocalTime.of(9, 0), sampleItems, "Porto");
+        Booking aveiro = new Booking(day, LocalTime.of(12, 0), sampleItems, "Aveiro");
+        Booking cancelled = new Booking(day, LocalTime.of(10, 0), sampleItems, "Porto");
+        cancelled.changeState(State.CANCELLED);
+        entityManager.persist(late);
+        entityManager.persist(early);
+        entityManager.persist(aveiro);
+        entityManager.persist(cancelled);
+        entityManager.persist(new Booking(day.plusDays(1), LocalTime.of(9, 0), sampleItems, "Porto"));
+        entityManager.flush();
+
+        List<ManifestRow> rows;
+        try (Stream<ManifestRow> stream = bookingRepository.streamManifestRows(day, Set.of(State.RECEIVED, State.ASSIGNED))) {
+            rows = stream.toList();
+        }
+
+        assertEquals(3 * sampleItems.size(), rows.size());
+        assertEquals(aveiro.getToken(), rows.get(0).token());
+        assertEquals(early.getToken(), rows.get(sampleItems.size()).token());
+        assertEquals(late.getToken(), rows.get(rows.size() - 1).token());
+
+        try (Stream<ManifestRow> stream = bookingRepository.streamManifestRows(day, Set.of(State.RECEIVED), Set.of("Aveiro"))) {
+            assertEquals(sampleItems.size(), stream.count());
+        }
+    }
+
+    @Test
+    void testAssignCrewsRecordsCrewAndSkipsBookingsNoLongerReceived() {
+        LocalDate day = LocalDate.now().plusDays(5);
+        Booking first = new Booking(day, LocalTime.of(9, 0), sampleItems, "Tavira");
+        Booking second = new Booking(day, LocalTime.of(10, 0), sampleItems, "Tavira");
+        Booking cancelled = new Booking(day, LocalTime.of(11, 0), sampleItems, "Tavira");
+        cancelled.changeState(State.CANCELLED);
+        entityManager.persist(first);
+        entityManager.persist(second);
+        entityManager.persist(cancelled);
+        entityManager.flush();
+
+        List<BookingLoad> loads = bookingRepository.findLoadsByDateAndState(day, State.RECEIVED);
+        List<String> assigned = bookingRepository.assignCrews(Map.of(
+            "T1", List.of(first.getToken(), cancelled.getToken()),
+            "T2", List.of(second.getToken())));
+        entityManager.clear();
+
+        assertEquals(2, loads.size());
+        assertEquals(sampleItems.size(), loads.get(0).items());
+        assertEquals(Set.of(first.getToken(), second.getToken()), Set.copyOf(assigned));
+        Booking found = entityManager.find(Booking.class, first.getToken());
+        assertEquals(State.ASSIGNED, found.getCurrentState().getState());
+        assertEquals("T1", found.getCrew());
+        assertNotNull(found.getChangeSeq());
+        assertEquals("T2", entityManager.find(Booking.class, second.getToken()).getCrew());
+        assertNull(entityManager.find(Booking.class, cancelled.getToken()).getCrew());
+    }
+
+    @Test
+    void testCountSlotsGroupsByDateAndSlotAcrossStates() {
+        LocalDate day = LocalDate.now().plusDays(5);
+        Booking cancelled = new Booking(day, LocalTime.of(10, 0), sampleItems, "Lagos");
+        cancelled.changeState(State.CANCELLED);
+        entityManager.persist(new Booking(day, LocalTime.of(10, 0), sampleItems, "Lagos"));
+        entityManager.persist(cancelled);
+        entityManager.persist(new Booking(day.plusDays(1), LocalTime.of(8, 0), sampleItems, "Lagos"));
+        entityManager.persist(new Booking(day.plusDays(3), LocalTime.of(8, 0), sampleItems, "Lagos"));
+        entityManager.persist(new Booking(day, LocalTime.of(10, 0), sampleItems, "Faro"));
+        entityManager.flush();
+
+        List<SlotCount> counts = bookingRepository.countSlots("Lagos", day, day.plusDays(2));
+
+        assertEquals(Set.of(new SlotCount(day, LocalTime.of(10, 0), 2L), new SlotCount(day.plusDays(1), LocalTime.of(8, 0), 1L)),
+            Set.copyOf(counts));
+    }
+
+    @Test
+    void testLockSlotCreatesTheSlotRowOnce() {
+        LocalDate day = LocalDate.now().plusDays(5);
+
+        bookingRepository.lockSlot(day, LocalTime.of(10, 0), "Lagos");
+        bookingRepository.lockSlot(day, LocalTime.of(10, 0), "Lagos");
+        bookingRepository.lockSlot(day, LocalTime.of(12, 0), "Lagos");
+        entityManager.clear();
+
+        BookingSlot slot = entityManager.find(BookingSlot.class, BookingSlot.keyOf(day, LocalTime.of(10, 0), "Lagos"));
+        assertEquals("Lagos", slot.getMunicipality());
+        assertEquals(day, slot.getDate());
+        assertEquals(2L, entityManager.getEntityManager()
+            .createQuery("select count(s) from BookingSlot s where s.municipality = 'Lagos'", Long.class)
+            .getSingleResult());
+    }
+}
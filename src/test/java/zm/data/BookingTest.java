@@ -3,10 +3,12 @@ package zm.data;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -126,6 +128,37 @@ class BookingTest {
         assertNotEquals(booking.getToken(), booking2.getToken());
     }
 
+    @Test
+    void testShardTaggedTokensRoundTrip() {
+        booking.placeOnShard(0x2a);
+
+        assertEquals(0x2a, Booking.shardOf(booking.getToken()));
+        assertEquals(booking.getToken(), UUID.fromString(booking.getToken()).toString());
+        assertEquals(8, UUID.fromString(booking.getToken()).version());
+    }
+
+    @Test
+    void testTokensCarryTheirIssueTime() {
+        Instant before = Instant.now().minusMillis(1);
+        String unsharded = Booking.newToken();
+        String sharded = Booking.newToken(0x2a);
+        Instant after = Instant.now().plusMillis(1);
+
+        assertEquals(7, UUID.fromString(unsharded).version());
+        assertTrue(Booking.issuedAt(unsharded).orElseThrow().isAfter(before));
+        assertTrue(Booking.issuedAt(unsharded).orElseThrow().isBefore(after));
+        assertTrue(Booking.issuedAt(sharded).orElseThrow().isAfter(before));
+        assertTrue(Booking.issuedAt(sharded).orElseThrow().isBefore(after));
+        assertTrue(Booking.issuedAt(UUID.randomUUID().toString()).isEmpty());
+    }
+
+    @Test
+    void testRandomTokensBelongToShardZero() {
+        assertEquals(0, Booking.shardOf(booking.getToken()));
+        assertEquals(0, Booking.shardOf("not-a-token"));
+        assertThrows(IllegalArgumentException.class, () -> Booking.newToken(256));
+    }
+
     @Test
     void testBookingWithPastDate() {
         LocalDate pastDate = LocalDate.now().minusDays(1);
@@ -166,4 +199,13 @@ class BookingTest {
         assertFalse(result);
         assertEquals(State.REMOVED, booking.getCurrentState().getState());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testExpiredIsTerminal() {
+        booking.changeState(State.ASSIGNED);
+
+        assertTrue(booking.changeState(State.EXPIRED));
+        assertFalse(booking.changeState(State.IN_PROGRESS));
+        assertEquals(State.EXPIRED, booking.getCurrentState().getState());
+    }
+}
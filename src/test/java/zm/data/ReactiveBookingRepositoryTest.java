@@ -0,0 +1,183 @@
+package zm.data;
+
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs against an in-memory H2 database in PostgreSQL mode, with the tables Hibernate generates for Booking
+class ReactiveBookingRepositoryTest {
+
+    private ConnectionFactory connectionFactory;
+    private ReactiveBookingRepository bookingRepository;
+    private LocalDate monday;
+    private List<Item> items;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        connectionFactory = ConnectionFactories.get(
+            "r2dbc:h2:mem:///" + UUID.randomUUID() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000");
+        DatabaseClient client = DatabaseClient.create(connectionFactory);
+        try (InputStream schema = getClass().getResourceAsStream("/reactive-schema.sql")) {
+            Flux.fromArray(new String(schema.readAllBytes(), StandardCharsets.UTF_8).split(";"))
+                .map(String::trim)
+                .filter(statement -> !statement.isEmpty())
+                .concatMap(statement -> client.sql(statement).then())
+                .blockLast();
+        }
+
+        bookingRepository = new ReactiveBookingRepository(connectionFactory, new ChangeOrigin());
+        monday = LocalDate.now().with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+        items = Arrays.asList(new Item("Mattress", "Old mattress"), new Item("Sofa", "Leather sofa"));
+    }
+
+    @Test
+    void testInsertAndFindByToken() {
+        Booking booking = new Booking(monday, LocalTime.of(10, 0), items, "Aveiro");
+
+        StepVerifier.create(bookingRepository.insert(booking).then(bookingRepository.findByToken(booking.getToken())))
+            .assertNext(found -> {
+                assertEquals("Aveiro", found.getMunicipality());
+                assertEquals(monday, found.getDate());
+                assertEquals(State.RECEIVED, found.getCurrentState().getState());
+                assertEquals(items, found.getItems());
+                assertEquals(0L, found.getVersion());
+                assertNotNull(found.getChangeSeq());
+            })
+            .verifyComplete();
+    }
+
+    @Test
+    void testFindByTokenWithUnknownToken() {
+        StepVerifier.create(bookingRepository.findByToken(UUID.randomUUID().toString()))
+            .verifyComplete();
+    }
+
+    @Test
+    void testSaveTransitionRecordsHistoryAndBumpsVersion() {
+        Booking booking = new Booking(monday, LocalTime.of(10, 0), items, "Aveiro");
+
+        StepVerifier.create(bookingRepository.insert(booking)
+                .then(bookingRepository.findByToken(booking.getToken()))
+                .flatMap(stored -> {
+                    assertTrue(stored.changeState(State.ASSIGNED));
+                    return bookingRepository.saveTransition(stored);
+                })
+                .then(bookingRepository.findByToken(booking.getToken())))
+            .assertNext(found -> {
+                assertEquals(State.ASSIGNED, found.getCurrentState().getState());
+                assertEquals(1, found.getPreviousStates().size());
+                assertEquals(State.RECEIVED, found.getPreviousStates().get(0).getState());
+                assertEquals(1L, found.getVersion());
+                assertTrue(found.getChangeSeq() > 1);
+            })
+            .verifyComplete();
+    }
+
+    @Test
+    void testSaveTransitionWithStaleVersionIsRejected() {
+        Booking booking = new Booking(monday, LocalTime.of(10, 0), items, "Aveiro");
+        bookingRepository.insert(booking).block();
+        Booking first = bookingRepository.findByToken(booking.getToken()).block();
+        Booking second = bookingRepository.findByToken(booking.getToken()).block();
+
+        first.changeState(State.ASSIGNED);
+        second.changeState(State.CANCELLED);
+
+        StepVerifier.create(bookingRepository.saveTransition(first)).expectNextCount(1).verifyComplete();
+        StepVerifier.create(bookingRepository.saveTransition(second)).verifyComplete();
+        StepVerifier.create(bookingRepository.findByToken(booking.getToken()).map(b -> b.getCurrentState().getState()))
+            .expectNext(State.ASSIGNED)
+            .verifyComplete();
+    }
+
+    @Test
+    void testCountInSlotAndFindByState() {
+        Booking first = new Booking(monday, LocalTime.of(10, 0), items, "Aveiro");
+        Booking second = new Booking(monday, LocalTime.of(10, 0), items, "Aveiro");
+        Booking other = new Booking(monday, LocalTime.of(14, 0), items, "Lisboa");
+
+        StepVerifier.create(bookingRepository.insert(first)
+                .then(bookingRepository.insert(second))
+                .then(bookingRepository.insert(other))
+                .then(bookingRepository.countInSlot(monday, LocalTime.of(10, 0), "Aveiro")))
+            .expectNext(2L)
+            .verifyComplete();
+
+        StepVerifier.create(bookingRepository.findByState(State.RECEIVED))
+            .expectNextCount(3)
+            .verifyComplete();
+        StepVerifier.create(bookingRepository.findByMunicipality("Lisboa").map(Booking::getToken))
+            .expectNext(other.getToken())
+            .verifyComplete();
+    }
+
+    // A booking waits for the slot row another transaction has locked, so it cannot count past that one's insert
+    @Test
+    void testInsertIfRoomWaitsForTheSlotLock() throws Exception {
+        bookingRepository.insertIfRoom(new Booking(monday, LocalTime.of(10, 0), items, "Aveiro"), 2).block();
+        Connection holder = Mono.from(connectionFactory.create()).block();
+        Mono.from(holder.beginTransaction()).block();
+        Flux.from(holder.createStatement("select slot_key from booking_slots for update").execute())
+            .flatMap(result -> result.map((row, metadata) -> row.get(0)))
+            .blockLast();
+
+        CompletableFuture<Booking> waiting = bookingRepository
+            .insertIfRoom(new Booking(monday, LocalTime.of(10, 0), items, "Aveiro"), 2)
+            .subscribeOn(Schedulers.boundedElastic())
+            .toFuture();
+        Thread.sleep(500);
+        assertFalse(waiting.isDone());
+
+        Mono.from(holder.commitTransaction()).then(Mono.from(holder.close())).block();
+        assertNotNull(waiting.get(5, TimeUnit.SECONDS));
+        StepVerifier.create(bookingRepository.insertIfRoom(new Booking(monday, LocalTime.of(10, 0), items, "Aveiro"), 2))
+            .verifyComplete();
+        StepVerifier.create(bookingRepository.countInSlot(monday, LocalTime.of(10, 0), "Aveiro"))
+            .expectNext(2L)
+            .verifyComplete();
+    }
+
+    @Test
+    void testSearchFiltersAndPagesNewestFirst() {
+        Booking early = new Booking(monday, LocalTime.of(9, 0), items, "Aveiro");
+        Booking late = new Booking(monday, LocalTime.of(15, 0), items, "Aveiro");
+        Booking other = new Booking(monday, LocalTime.of(12, 0), items, "Lisboa");
+        BookingFilter filter = new BookingFilter("Aveiro", monday, monday, null, Set.of(State.RECEIVED));
+
+        StepVerifier.create(bookingRepository.insert(early)
+                .then(bookingRepository.insert(late))
+                .then(bookingRepository.insert(other))
+                .thenMany(bookingRepository.search(filter, 0, 1).map(Booking::getToken)))
+            .expectNext(late.getToken())
+            .verifyComplete();
+        StepVerifier.create(bookingRepository.search(filter, 1, 1).map(Booking::getToken))
+            .expectNext(early.getToken())
+            .verifyComplete();
+        StepVerifier.create(bookingRepository.count(filter))
+            .expectNext(2L)
+            .verifyComplete();
+    }
+}
@@ -0,0 +1,140 @@
+package zm.data;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.context.TestPropertySource;
+import zm.config.ShardingConfig;
+import zm.services.BookingService;
+import zm.services.ChangeCursor;
+import zm.services.ChangeFeedPage;
+import zm.services.MunicipalityProvider;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@TestPropertySource(locations = "classpath:application-test.properties", properties = {
+    "spring.datasource.url=jdbc:h2:mem:sharding-0;DB_CLOSE_DELAY=-1",
+    "booking.sharding.count=3",
+    "booking.sharding.municipalities=Aveiro=0;Porto=1;Lisboa=2",
+    "booking.sharding.shards.1.url=jdbc:h2:mem:sharding-1;DB_CLOSE_DELAY=-1",
+    "booking.sharding.shards.1.username=sa",
+    "booking.sharding.shards.1.driver-class-name=org.h2.Driver",
+    "booking.sharding.shards.2.url=jdbc:h2:mem:sharding-2;DB_CLOSE_DELAY=-1",
+    "booking.sharding.shards.2.username=sa",
+    "booking.sharding.shards.2.driver-class-name=org.h2.Driver",
+    "spring.jpa.open-in-view=false"
+})
+class ShardingIT {
+
+    private static final List<String> MUNICIPALITIES = List.of("Aveiro", "Porto", "Lisboa");
+
+    @Autowired
+    private BookingService bookingService;
+
+    @MockBean
+    private MunicipalityProvider municipalityProvider;
+
+    private LocalDate monday;
+
+    @BeforeEach
+    void setUp() {
+        when(municipalityProvider.isValid(anyString())).thenAnswer(call -> MUNICIPALITIES.contains(call.<String>getArgument(0)));
+        when(municipalityProvider.getMunicipalities()).thenReturn(MUNICIPALITIES);
+        monday = LocalDate.now().with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+    }
+
+    @Test
+    void testBookingsAreStoredOnTheirMunicipalitysShard() {
+        for (int expected = 0; expected < MUNICIPALITIES.size(); expected++) {
+            String token = bookingService.book(monday, LocalTime.of(10, 0), items(), MUNICIPALITIES.get(expected));
+            for (int shard = 0; shard < MUNICIPALITIES.size(); shard++) {
+                assertEquals(shard == expected ? 1 : 0, shard(shard).queryForObject(
+                    "SELECT COUNT(*) FROM bookings WHERE token = ?", Integer.class, token));
+            }
+        }
+    }
+
+    @Test
+    void testTokensFindTheirBookingOnAnyShard() {
+        String token = bookingService.book(monday, LocalTime.of(10, 0), items(), "Lisboa");
+
+        assertEquals("Lisboa", bookingService.check(token).getMunicipality());
+        assertTrue(bookingService.changeState(token, State.ASSIGNED));
+        assertEquals(State.ASSIGNED, bookingService.check(token).getCurrentState().getState());
+    }
+
+    @Test
+    void testReadsMergeEveryShard() {
+        // A week of its own, so bookings made by the other tests stay out of the filter
+        LocalDate week = monday.plusWeeks(2);
+        String aveiro = bookingService.book(week, LocalTime.of(10, 0), items(), "Aveiro");
+        String porto = bookingService.book(week.plusDays(1), LocalTime.of(9, 0), items(), "Porto");
+        String lisboa = bookingService.book(week.plusDays(2), LocalTime.of(11, 0), items(), "Lisboa");
+
+        assertTrue(bookingService.getAllBookings().stream().map(Booking::getToken).toList()
+            .containsAll(List.of(aveiro, porto, lisboa)));
+
+        BookingFilter filter = BookingFilter.of(null, week, week.plusDays(4), null);
+        Page<Booking> first = bookingService.searchBookings(filter, PageRequest.of(0, 2, BookingSpecifications.NEWEST_FIRST));
+        Page<Booking> second = bookingService.searchBookings(filter, PageRequest.of(1, 2, BookingSpecifications.NEWEST_FIRST));
+        assertEquals(3, first.getTotalElements());
+        assertEquals(List.of(lisboa, porto), first.getContent().stream().map(Booking::getToken).toList());
+        assertEquals(List.of(aveiro), second.getContent().stream().map(Booking::getToken).toList());
+    }
+
+    // Every shard numbers its changes from the same start, so a one-at-a-time reader only sees them all if the
+    // cursor keeps its place on each shard
+    @Test
+    void testChangeFeedPagesThroughEveryShard() {
+        List<String> booked = new ArrayList<>();
+        for (String municipality : MUNICIPALITIES) {
+            booked.add(bookingService.book(monday.plusWeeks(3), LocalTime.of(10, 0), items(), municipality));
+        }
+
+        List<String> seen = new ArrayList<>();
+        ChangeCursor cursor = ChangeCursor.parse("0");
+        ChangeFeedPage page;
+        do {
+            page = bookingService.getChangesSince(cursor, 1);
+            page.bookings().forEach(b -> seen.add(b.getToken()));
+            cursor = page.next();
+        } while (page.hasMore());
+
+        assertTrue(seen.containsAll(booked));
+        assertTrue(bookingService.getChangesSince(cursor, 100).bookings().isEmpty());
+    }
+
+    @Test
+    void testReactiveProfileRefusesToStartSharded() {
+        MockEnvironment reactive = new MockEnvironment();
+        reactive.setActiveProfiles("reactive");
+
+        assertThrows(IllegalStateException.class, () -> new ShardingConfig(reactive));
+        assertDoesNotThrow(() -> new ShardingConfig(new MockEnvironment()));
+    }
+
+    private static JdbcTemplate shard(int shard) {
+        return new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:sharding-" + shard + ";DB_CLOSE_DELAY=-1", "sa", ""));
+    }
+
+    private static List<Item> items() {
+        return new ArrayList<>(List.of(new Item("Sofa", "Old sofa")));
+    }
+}
@@ -13,7 +13,10 @@ import zm.SpringbootApplication;
 @TestPropertySource(properties = {
     "server.port=8080",
     "spring.datasource.url=jdbc:h2:mem:testdb",
-    "spring.jpa.hibernate.ddl-auto=create-drop"
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "booking.grpc.port=0",
+    "booking.closures.national=",
+    "booking.closures.municipal="
 })
 public class CucumberSpringConfiguration {
 }
\ No newline at end of file
@@ -0,0 +1,78 @@
+import http from 'k6/http';
+import { check } from 'k6';
+import { Rate } from 'k6/metrics';
+
+// Open-model workload: requests arrive at a fixed rate whatever the server's latency,
+// so a saturated request thread pool shows up as queueing in p99 instead of as a lower request rate.
+// Run through run-benchmark.sh to compare the platform-thread and virtual-thread modes.
+
+const failureRate = new Rate('failed_requests');
+
+const RATE = parseInt(__ENV.RATE || '400');
+
+export const options = {
+  scenarios: {
+    mixed: {
+      executor: 'ramping-arrival-rate',
+      startRate: 50,
+      timeUnit: '1s',
+      preAllocatedVUs: 200,
+      maxVUs: 2000,
+      stages: [
+        { duration: '20s', target: RATE },  // Ramp up to the target arrival rate
+        { duration: '60s', target: RATE },  // Hold it
+        { duration: '10s', target: 0 },     // Ramp down
+      ],
+    },
+  },
+  summaryTrendStats: ['avg', 'med', 'p(95)', 'p(99)', 'max'],
+  thresholds: {
+    failed_requests: ['rate<0.05'],
+  },
+};
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080/api';
+const municipalities = ['Lisboa', 'Porto', 'Coimbra', 'Braga', 'Faro'];
+
+function getRandomTimeSlot() {
+  const hours = [9, 10, 11, 12, 14, 15, 16, 17];
+  const hour = hours[Math.floor(Math.random() * hours.length)];
+  return `${hour.toString().padStart(2, '0')}:00:00`;
+}
+
+export default function () {
+  const municipality = municipalities[Math.floor(Math.random() * municipalities.length)];
+  const roll = Math.random();
+
+  if (roll < 0.2) {
+    // 20%: create a booking, then read it back
+    const futureDate = new Date(Date.now() + 86400000 * (Math.floor(Math.random() * 30) + 1));
+    const payload = JSON.stringify({
+      date: futureDate.toISOString().split('T')[0],
+      approxTimeSlot: getRandomTimeSlot(),
+      items: [{ name: 'Sofa', description: 'Used 3-seater sofa' }],
+      municipality: municipality,
+    });
+    let res = http.post(`${BASE_URL}/bookings`, payload, {
+      headers: { 'Content-Type': 'application/json' },
+      tags: { name: 'create' },
+    });
+    if (!check(res, { 'create booking status 201': (r) => r.status === 201 })) {
+      failureRate.add(1);
+      return;
+    }
+    failureRate.add(0);
+
+    const token = JSON.parse(res.body).token;
+    res = http.get(`${BASE_URL}/bookings/${token}`, { tags: { name: 'check' } });
+    failureRate.add(!check(res, { 'check booking status 200': (r) => r.status === 200 }));
+  } else if (roll < 0.7) {
+    // 50%: municipality listing, the heaviest read
+    const res = http.get(`${BASE_URL}/municipalities/${municipality}`, { tags: { name: 'by-municipality' } });
+    failureRate.add(!check(res, { 'get bookings by municipality status 200': (r) => r.status === 200 }));
+  } else {
+    // 30%: state listing
+    const res = http.get(`${BASE_URL}/bookings/state/RECEIVED`, { tags: { name: 'by-state' } });
+    failureRate.add(!check(res, { 'get bookings by state status 200': (r) => r.status === 200 }));
+  }
+}
@@ -0,0 +1,71 @@
+#!/usr/bin/env bash
+# Runs the same k6 scenarios against the application in several execution modes and prints
+# throughput and p99 latency side by side. Modes: platform (servlet on platform threads),
+# virtual (servlet on virtual threads) and reactive (WebFlux + R2DBC).
+#
+# Usage: [MODES="platform virtual reactive"] src/test/java/zm/performance/run-benchmark.sh [k6 script ...]
+# Defaults to benchmark-test.js and spike-test.js. Needs java 21, k6, jq, curl and the
+# PostgreSQL database from application.properties. The schema is recreated before every run.
+set -euo pipefail
+
+ROOT="$(cd "$(dirname "$0")/../../../../.." && pwd)"
+PERF_DIR="$ROOT/src/test/java/zm/performance"
+RESULTS="$ROOT/target/benchmark"
+SCRIPTS=("$@")
+read -r -a MODES <<< "${MODES:-platform virtual reactive}"
+[ ${#SCRIPTS[@]} -eq 0 ] && SCRIPTS=(benchmark-test.js spike-test.js)
+
+mkdir -p "$RESULTS"
+mvn -B -q -f "$ROOT/pom.xml" package -DskipTests
+JAR="$(ls "$ROOT"/target/*.jar | grep -v original | head -n 1)"
+
+start_app() {
+    local mode="$1" log="$2"
+    local jvm_args=() app_args=(--spring.jpa.hibernate.ddl-auto=create --spring.jpa.show-sql=false)
+    if [ "$mode" = virtual ]; then
+        # Report every pinned carrier thread so regressions in our own locking show up in the log
+        jvm_args+=(-Djdk.tracePinnedThreads=short)
+        app_args+=(--spring.profiles.active=virtual)
+    elif [ "$mode" = reactive ]; then
+        app_args+=(--spring.profiles.active=reactive)
+    fi
+    java "${jvm_args[@]}" -jar "$JAR" "${app_args[@]}" > "$log" 2>&1 &
+    APP_PID=$!
+    for _ in $(seq 1 60); do
+        curl -sf http://localhost:8080/actuator/health > /dev/null && return 0
+        sleep 1
+    done
+    echo "Application did not start in $mode mode, see $log" >&2
+    kill "$APP_PID"
+    exit 1
+}
+
+stop_app() {
+    kill "$APP_PID"
+    wait "$APP_PID" 2> /dev/null || true
+}
+
+for script in "${SCRIPTS[@]}"; do
+    name="${script%.js}"
+    for mode in "${MODES[@]}"; do
+        log="$RESULTS/$name-$mode.log"
+        start_app "$mode" "$log"
+        k6 run --quiet --summary-trend-stats "avg,med,p(95),p(99),max" \
+            --summary-export "$RESULTS/$name-$mode.json" "$PERF_DIR/$script" || true
+        stop_app
+    done
+done
+
+printf '\n%-22s %-9s %12s %12s %12s %8s\n' scenario mode "req/s" "p99 (ms)" "failed" pinned
+for script in "${SCRIPTS[@]}"; do
+    name="${script%.js}"
+    for mode in "${MODES[@]}"; do
+        summary="$RESULTS/$name-$mode.json"
+        pinned=$(grep -c '<== monitors' "$RESULTS/$name-$mode.log" || true)
+        printf '%-22s %-9s %12.1f %12.1f %12.4f %8s\n' "$name" "$mode" \
+            "$(jq '.metrics.http_reqs.rate' "$summary")" \
+            "$(jq '.metrics.http_req_duration["p(99)"]' "$summary")" \
+            "$(jq '.metrics.http_req_failed.value // 0' "$summary")" \
+            "$([ "$mode" = virtual ] && echo "$pinned" || echo -)"
+    done
+done
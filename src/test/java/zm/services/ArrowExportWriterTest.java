@@ -0,0 +1,111 @@
+package zm.services;
+
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.ValueVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.dictionary.Dictionary;
+import org.apache.arrow.vector.dictionary.DictionaryEncoder;
+import org.apache.arrow.vector.ipc.ArrowFileReader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import zm.data.Booking;
+import zm.data.Item;
+import zm.data.RequestState;
+import zm.data.State;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArrowExportWriterTest {
+
+    private final LocalDate monday = LocalDate.of(2030, 3, 11);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testPartitionsByDateAndListsFiles() throws IOException {
+        try (ArrowExportWriter writer = new ArrowExportWriter(directory, List.of("Aveiro", "Porto"))) {
+            writer.write(List.of(booking(monday, "Porto", State.RECEIVED), booking(monday, "Aveiro", State.ASSIGNED)));
+            writer.write(List.of(booking(monday, "Porto", State.RECEIVED), booking(monday.plusDays(1), "Porto", State.RECEIVED)));
+
+            assertEquals(List.of(
+                "bookings/date=2030-03-11/part-0.arrow", "items/date=2030-03-11/part-0.arrow", "transitions/date=2030-03-11/part-0.arrow",
+                "bookings/date=2030-03-12/part-0.arrow", "items/date=2030-03-12/part-0.arrow", "transitions/date=2030-03-12/part-0.arrow"),
+                writer.files());
+        }
+
+        assertEquals(List.of("Porto", "Aveiro", "Porto"),
+            decoded(directory.resolve("bookings/date=2030-03-11/part-0.arrow"), "municipality"));
+        assertEquals(6, rowCount(directory.resolve("items/date=2030-03-11/part-0.arrow")));
+    }
+
+    @Test
+    void testTransitionsListHistoryThenCurrentState() throws IOException {
+        try (ArrowExportWriter writer = new ArrowExportWriter(directory, List.of("Porto"))) {
+            writer.write(List.of(booking(monday, "Porto", State.ASSIGNED)));
+        }
+
+        assertEquals(List.of("RECEIVED", "ASSIGNED"),
+            decoded(directory.resolve("transitions/date=2030-03-11/part-0.arrow"), "state"));
+    }
+
+    @Test
+    void testUnknownMunicipalityFailsTheExport() {
+        assertThrows(IllegalStateException.class, () -> {
+            try (ArrowExportWriter writer = new ArrowExportWriter(directory, List.of("Porto"))) {
+                writer.write(List.of(booking(monday, "Faro", State.RECEIVED)));
+            }
+        });
+    }
+
+    private static Booking booking(LocalDate date, String municipality, State state) {
+        List<RequestState> history = new ArrayList<>();
+        if (state != State.RECEIVED) {
+            history.add(RequestState.restore(State.RECEIVED, Timestamp.valueOf(date.minusDays(2).atStartOfDay())));
+        }
+        return Booking.restore(UUID.randomUUID().toString(), date, LocalTime.of(10, 0),
+            List.of(new Item("Fridge", "Old fridge"), new Item("Sofa", "")), municipality,
+            RequestState.restore(state, Timestamp.valueOf(date.minusDays(1).atStartOfDay())), history, 1L, 5L);
+    }
+
+    private static int rowCount(Path file) throws IOException {
+        try (BufferAllocator allocator = new RootAllocator();
+             ArrowFileReader reader = new ArrowFileReader(FileChannel.open(file), allocator)) {
+            int rows = 0;
+            while (reader.loadNextBatch()) {
+                rows += reader.getVectorSchemaRoot().getRowCount();
+            }
+            return rows;
+        }
+    }
+
+    private static List<String> decoded(Path file, String column) throws IOException {
+        List<String> values = new ArrayList<>();
+        try (BufferAllocator allocator = new RootAllocator();
+             ArrowFileReader reader = new ArrowFileReader(FileChannel.open(file), allocator)) {
+            VectorSchemaRoot root = reader.getVectorSchemaRoot();
+            while (reader.loadNextBatch()) {
+                FieldVector encoded = root.getVector(column);
+                Dictionary dictionary = reader.getDictionaryVectors().get(encoded.getField().getDictionary().getId());
+                try (ValueVector decoded = DictionaryEncoder.decode(encoded, dictionary)) {
+                    for (int i = 0; i < decoded.getValueCount(); i++) {
+                        values.add(decoded.getObject(i).toString());
+                    }
+                }
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,96 @@
+package zm.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import zm.data.Booking;
+import zm.data.Item;
+import zm.data.State;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookingCacheTest {
+
+    private BookingCache cache;
+    private Booking booking;
+
+    @BeforeEach
+    void setUp() {
+        cache = new BookingCache(10, Duration.ofSeconds(30));
+        List<Item> items = new ArrayList<>();
+        items.add(new Item("Mattress", "Old mattress"));
+        booking = new Booking(LocalDate.now().plusDays(5), LocalTime.of(10, 0), items, "Aveiro");
+    }
+
+    @Test
+    void testPutAndGet() {
+        cache.put(booking);
+
+        assertSame(booking, cache.getIfPresent(booking.getToken()));
+        assertEquals(1, cache.stats().hitCount());
+    }
+
+    @Test
+    void testMissIsCounted() {
+        assertNull(cache.getIfPresent("unknown"));
+        assertEquals(1, cache.stats().missCount());
+    }
+
+    @Test
+    void testInvalidate() {
+        cache.put(booking);
+        cache.invalidate(booking.getToken());
+
+        assertNull(cache.getIfPresent(booking.getToken()));
+    }
+
+    @Test
+    void testReadStartedBeforeAnInvalidationIsNotCached() {
+        long stamp = cache.stamp(booking.getToken());
+        cache.invalidate(booking.getToken());
+
+        cache.putIfCurrent(booking, stamp);
+
+        assertNull(cache.getIfPresent(booking.getToken()));
+    }
+
+    @Test
+    void testReadWithCurrentStampIsCached() {
+        long stamp = cache.stamp(booking.getToken());
+
+        cache.putIfCurrent(booking, stamp);
+
+        assertSame(booking, cache.getIfPresent(booking.getToken()));
+    }
+
+    @Test
+    void testInvalidateAll() {
+        Booking other = new Booking(LocalDate.now().plusDays(6), LocalTime.of(11, 0), booking.getItems(), "Aveiro");
+        other.changeState(State.CANCELLED);
+        cache.put(booking);
+        cache.put(other);
+
+        cache.invalidateAll(List.of(booking.getToken(), other.getToken()));
+
+        assertNull(cache.getIfPresent(booking.getToken()));
+        assertNull(cache.getIfPresent(other.getToken()));
+    }
+
+    @Test
+    void testActiveBookingsExpire() {
+        BookingCache shortLived = new BookingCache(10, Duration.ZERO);
+        Booking finished = new Booking(LocalDate.now().plusDays(6), LocalTime.of(11, 0), booking.getItems(), "Aveiro");
+        finished.changeState(State.CANCELLED);
+
+        shortLived.put(booking);
+        shortLived.put(finished);
+
+        assertNull(shortLived.getIfPresent(booking.getToken()));
+        assertSame(finished, shortLived.getIfPresent(finished.getToken()));
+    }
+}
@@ -0,0 +1,159 @@
+package zm.services;
+
+import org.junit.jupiter.api.Test;
+import zm.data.State;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookingEventHubTest {
+
+    private static final Duration SEND_TIMEOUT = Duration.ofSeconds(30);
+
+    @Test
+    void testDeliversMatchingEventsInOrder() {
+        BookingEventHub hub = new BookingEventHub(8, SEND_TIMEOUT, Runnable::run);
+        List<BookingEvent> received = new ArrayList<>();
+        hub.subscribe(event -> "Aveiro".equals(event.municipality()), received::add, () -> {});
+
+        hub.onBookingEvent(event("t1", "Aveiro", State.RECEIVED));
+        hub.onBookingEvent(event("t2", "Lisboa", State.RECEIVED));
+        hub.onBookingEvent(event("t1", "Aveiro", State.ASSIGNED));
+
+        assertEquals(2, received.size());
+        assertEquals(State.RECEIVED, received.get(0).state());
+        assertEquals(State.ASSIGNED, received.get(1).state());
+    }
+
+    @Test
+    void testSlowSubscriberIsDropped() {
+        List<Runnable> pendingDrains = new ArrayList<>();
+        BookingEventHub hub = new BookingEventHub(2, SEND_TIMEOUT, pendingDrains::add);
+        AtomicInteger drops = new AtomicInteger();
+        BookingEventHub.Subscription subscription = hub.subscribe(event -> true, event -> {}, drops::incrementAndGet);
+
+        hub.onBookingEvent(event("t1", "Aveiro", State.RECEIVED));
+        hub.onBookingEvent(event("t2", "Aveiro", State.RECEIVED));
+        hub.onBookingEvent(event("t3", "Aveiro", State.RECEIVED));
+        hub.onBookingEvent(event("t4", "Aveiro", State.RECEIVED));
+
+        assertFalse(subscription.isActive());
+        assertEquals(0, hub.subscriberCount());
+        // The subscriber hears of it on a dispatch thread, not the publisher's
+        assertEquals(0, drops.get());
+        pendingDrains.forEach(Runnable::run);
+        assertEquals(1, drops.get());
+    }
+
+    @Test
+    void testHeartbeatsQueueBehindEvents() {
+        List<Runnable> pendingDrains = new ArrayList<>();
+        BookingEventHub hub = new BookingEventHub(8, SEND_TIMEOUT, pendingDrains::add);
+        List<String> sent = new ArrayList<>();
+        hub.subscribe(event -> true, event -> sent.add(event.token()), () -> sent.add("heartbeat"), () -> {});
+
+        hub.onBookingEvent(event("t1", "Aveiro", State.RECEIVED));
+        hub.heartbeat();
+
+        assertTrue(sent.isEmpty());
+        pendingDrains.forEach(Runnable::run);
+        assertEquals(List.of("t1", "heartbeat"), sent);
+    }
+
+    @Test
+    void testBlockedSendIsAbandoned() throws InterruptedException {
+        BookingEventHub hub = new BookingEventHub(8, Duration.ofMillis(50), 1, true);
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch neverReleased = new CountDownLatch(1);
+        AtomicInteger drops = new AtomicInteger();
+        BookingEventHub.Subscription subscription = hub.subscribe(event -> true, event -> {
+            sending.countDown();
+            try {
+                neverReleased.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException("send interrupted", e);
+            }
+        }, drops::incrementAndGet);
+
+        hub.onBookingEvent(event("t1", "Aveiro", State.RECEIVED));
+        assertTrue(sending.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        hub.heartbeat();
+
+        assertFalse(subscription.isActive());
+        await().atMost(Duration.ofSeconds(5)).until(() -> drops.get() == 1);
+        hub.shutdown();
+    }
+
+    @Test
+    void testStateFollowersHearOfBookingsLeavingTheState() {
+        BookingEventHub hub = new BookingEventHub(8, SEND_TIMEOUT, Runnable::run);
+        List<BookingEvent> received = new ArrayList<>();
+        hub.subscribe(event -> event.concerns(State.RECEIVED), received::add, () -> {});
+
+        hub.onBookingEvent(new BookingEvent(BookingEvent.Type.STATE_CHANGED, "t1", "Aveiro",
+            LocalDate.now().plusDays(2), LocalTime.of(9, 0), State.ASSIGNED, State.RECEIVED));
+        hub.onBookingEvent(new BookingEvent(BookingEvent.Type.STATE_CHANGED, "t2", "Aveiro",
+            LocalDate.now().plusDays(2), LocalTime.of(9, 0), State.FINISHED, State.ASSIGNED));
+
+        assertEquals(List.of("t1"), received.stream().map(BookingEvent::token).toList());
+    }
+
+    @Test
+    void testFailingSinkIsDropped() {
+        BookingEventHub hub = new BookingEventHub(8, SEND_TIMEOUT, Runnable::run);
+        AtomicInteger drops = new AtomicInteger();
+        BookingEventHub.Subscription subscription = hub.subscribe(event -> true,
+            event -> { throw new IllegalStateException("connection closed"); }, drops::incrementAndGet);
+
+        hub.onBookingEvent(event("t1", "Aveiro", State.RECEIVED));
+
+        assertFalse(subscription.isActive());
+        assertEquals(1, drops.get());
+    }
+
+    @Test
+    void testCancelledSubscriberReceivesNothing() {
+        BookingEventHub hub = new BookingEventHub(8, SEND_TIMEOUT, Runnable::run);
+        List<BookingEvent> received = new ArrayList<>();
+        BookingEventHub.Subscription subscription = hub.subscribe(event -> true, received::add, () -> {});
+
+        subscription.cancel();
+        hub.onBookingEvent(event("t1", "Aveiro", State.RECEIVED));
+
+        assertTrue(received.isEmpty());
+        assertEquals(0, hub.subscriberCount());
+    }
+
+    @Test
+    void testVirtualModeDispatchesOnVirtualThreads() throws InterruptedException {
+        BookingEventHub hub = new BookingEventHub(8, SEND_TIMEOUT, 1, true);
+        CountDownLatch delivered = new CountDownLatch(1);
+        AtomicBoolean virtual = new AtomicBoolean();
+        hub.subscribe(event -> true, event -> {
+            virtual.set(Thread.currentThread().isVirtual());
+            delivered.countDown();
+        }, () -> {});
+
+        hub.onBookingEvent(event("t1", "Aveiro", State.RECEIVED));
+
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        assertTrue(virtual.get());
+        hub.shutdown();
+    }
+
+    private static BookingEvent event(String token, String municipality, State state) {
+        return new BookingEvent(BookingEvent.Type.STATE_CHANGED, token, municipality,
+            LocalDate.now().plusDays(2), LocalTime.of(9, 0), state, null);
+    }
+}
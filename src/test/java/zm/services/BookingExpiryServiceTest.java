@@ -0,0 +1,94 @@
+package zm.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import zm.data.BookingFilter;
+import zm.data.State;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BookingExpiryServiceTest {
+
+    @Mock
+    private BookingService bookingService;
+
+    @Test
+    void testExpiresOpenBookingsDatedBeforeToday() {
+        BookingExpiryService expiryService = new BookingExpiryService(bookingService, Duration.ZERO);
+        when(bookingService.bulkChangeState(any(), eq(State.EXPIRED), isNull(), any()))
+            .thenReturn(new BulkOperationResult(State.EXPIRED, 1200, 1180, 3, "t", true));
+
+        ExpiryRun run = expiryService.expire();
+
+        ArgumentCaptor<BookingFilter> filter = ArgumentCaptor.forClass(BookingFilter.class);
+        verify(bookingService).bulkChangeState(filter.capture(), eq(State.EXPIRED), isNull(), any());
+        assertEquals(LocalDate.now().minusDays(1), filter.getValue().to());
+        assertNull(filter.getValue().from());
+        assertEquals(EnumSet.of(State.RECEIVED, State.ASSIGNED), filter.getValue().states());
+        assertEquals(1200, run.matched());
+        assertEquals(1180, run.expired());
+        assertEquals(3, run.chunks());
+        assertEquals(run, expiryService.lastRun().orElseThrow());
+    }
+
+    @Test
+    void testPausesBetweenChunks() {
+        BookingExpiryService expiryService = new BookingExpiryService(bookingService, Duration.ofMillis(50));
+        when(bookingService.bulkChangeState(any(), eq(State.EXPIRED), isNull(), any())).thenAnswer(invocation -> {
+            Consumer<BulkOperationResult> progress = invocation.getArgument(3);
+            progress.accept(new BulkOperationResult(State.EXPIRED, 500, 500, 1, "a", false));
+            progress.accept(new BulkOperationResult(State.EXPIRED, 1000, 1000, 2, "b", false));
+            return new BulkOperationResult(State.EXPIRED, 1000, 1000, 2, "b", true);
+        });
+
+        ExpiryRun run = expiryService.expire();
+
+        assertTrue(run.elapsedMillis() >= 100);
+    }
+
+    @Test
+    void testRejectsOverlappingRuns() throws Exception {
+        BookingExpiryService expiryService = new BookingExpiryService(bookingService, Duration.ZERO);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(bookingService.bulkChangeState(any(), eq(State.EXPIRED), isNull(), any())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return new BulkOperationResult(State.EXPIRED, 0, 0, 0, null, true);
+        });
+
+        Thread first = new Thread(expiryService::expire);
+        first.start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        try {
+            assertThrows(IllegalStateException.class, expiryService::expire);
+        } finally {
+            release.countDown();
+            first.join();
+        }
+        verify(bookingService, times(1)).bulkChangeState(any(), any(), any(), any());
+    }
+
+    @Test
+    void testScheduledRunSurvivesFailures() {
+        BookingExpiryService expiryService = new BookingExpiryService(bookingService, Duration.ZERO);
+        when(bookingService.bulkChangeState(any(), eq(State.EXPIRED), isNull(), any()))
+            .thenThrow(new RuntimeException("database unavailable"));
+
+        assertDoesNotThrow(expiryService::scheduledExpiry);
+        assertTrue(expiryService.lastRun().isEmpty());
+    }
+}
@@ -0,0 +1,90 @@
+package zm.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import zm.data.Booking;
+import zm.data.BookingRepository;
+import zm.data.Item;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BookingExportServiceTest {
+
+    @Mock
+    private BookingRepository bookingRepository;
+
+    @Mock
+    private MunicipalityProvider municipalityProvider;
+
+    @TempDir
+    Path directory;
+
+    private BookingExportService exportService;
+
+    @BeforeEach
+    void setUp() {
+        Booking booking = new Booking(LocalDate.of(2030, 3, 11), LocalTime.of(10, 0),
+            new ArrayList<>(List.of(new Item("Sofa", "Old sofa"))), "Aveiro");
+        when(municipalityProvider.getMunicipalities()).thenReturn(List.of("Aveiro"));
+        when(bookingRepository.findDistinctMunicipalities()).thenReturn(List.of("Aveiro"));
+        when(bookingRepository.findExportChunk(isNull(), isNull(), eq(1000))).thenReturn(List.of(booking));
+        exportService = new BookingExportService(bookingRepository, new BookingShards(1, "", null), municipalityProvider,
+            directory, 1000, 2, Duration.ofDays(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        exportService.shutdown();
+    }
+
+    @Test
+    void testOnlyTheNewestFinishedExportsAreKept() {
+        ExportJob first = export();
+        assertTrue(Files.isDirectory(directory.resolve(first.id())));
+        ExportJob second = export();
+        ExportJob third = export();
+
+        // The third job evicts the first once it has finished
+        await().atMost(Duration.ofSeconds(5))
+            .until(() -> exportService.find(first.id()).isEmpty() && !Files.exists(directory.resolve(first.id())));
+        assertTrue(exportService.find(second.id()).isPresent());
+        assertTrue(exportService.find(third.id()).isPresent());
+    }
+
+    @Test
+    void testExportsPastTheirMaxAgeAreEvicted() {
+        ExportJob job = export();
+
+        exportService.evict(Instant.now().plus(Duration.ofHours(1)));
+        assertTrue(exportService.find(job.id()).isPresent());
+
+        exportService.evict(Instant.now().plus(Duration.ofDays(2)));
+        assertTrue(exportService.find(job.id()).isEmpty());
+        assertFalse(Files.exists(directory.resolve(job.id())));
+    }
+
+    private ExportJob export() {
+        String id = exportService.start().id();
+        await().atMost(Duration.ofSeconds(5))
+            .until(() -> exportService.find(id).map(job -> job.status() == ExportJob.Status.COMPLETED).orElse(false));
+        return exportService.find(id).orElseThrow();
+    }
+}
@@ -0,0 +1,154 @@
+package zm.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import zm.data.Booking;
+import zm.data.BookingRepository;
+import zm.data.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BookingImportServiceTest {
+
+    private static final String TOKEN = "0b7e8f0c-3f2a-4e59-9a61-2d4c1e9f7a10";
+
+    @Mock
+    private BookingRepository bookingRepository;
+
+    @Mock
+    private MunicipalityProvider municipalityProvider;
+
+    @Mock
+    private BookingTokenIndex tokenIndex;
+
+    @Mock
+    private BookingItemIndex itemIndex;
+
+    private BookingImportService importService;
+    private final LocalDate lastMonth = LocalDate.now().minusMonths(1);
+
+    @BeforeEach
+    void setUp() {
+        importService = new BookingImportService(bookingRepository, new BookingShards(1, "", null), municipalityProvider, tokenIndex, itemIndex,
+            new ObjectMapper(), 2, 2);
+        lenient().when(municipalityProvider.getMunicipalities()).thenReturn(List.of("Aveiro", "Porto"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        importService.shutdown();
+    }
+
+    @Test
+    void testCsvImportWritesValidRowsInChunksAndReportsRejects() throws IOException {
+        when(bookingRepository.insertChunk(anyList())).thenReturn(Set.of());
+        String csv = String.join("\n",
+            "date,approx_time_slot,municipality,state,items",
+            lastMonth + ",10:00,Aveiro,FINISHED,\"Fridge: two doors, white|Sofa\"",
+            lastMonth + ",11:00,Lisboa,FINISHED,Sofa",
+            "",
+            lastMonth + ",12:00,Porto,cancelled,Mattress",
+            LocalDate.now().plusDays(3) + ",10:00,Porto,RECEIVED,Mattress");
+
+        ImportReport report = importService.importBookings(stream(csv), BookingImportService.Format.CSV);
+
+        assertEquals(4, report.rows());
+        assertEquals(2, report.imported());
+        assertEquals(2, report.rejected());
+        assertEquals(List.of(new ImportReport.Reject(3, "Invalid municipality"),
+                new ImportReport.Reject(6, "Imported bookings must be in the past")), report.rejects());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Booking>> chunks = ArgumentCaptor.forClass(List.class);
+        verify(bookingRepository, times(2)).insertChunk(chunks.capture());
+        Booking first = chunks.getAllValues().get(0).get(0);
+        assertEquals(State.FINISHED, first.getCurrentState().getState());
+        assertEquals("two doors, white", first.getItems().get(0).getDescription());
+        assertEquals(State.CANCELLED, chunks.getAllValues().get(1).get(0).getCurrentState().getState());
+        verify(tokenIndex).rebuild();
+        verify(itemIndex).rebuild();
+    }
+
+    @Test
+    void testNdjsonImportKeepsSuppliedTokensAndRejectsStoredOnes() throws IOException {
+        when(bookingRepository.insertChunk(anyList())).thenReturn(Set.of(TOKEN));
+        String ndjson = String.join("\n",
+            "{\"token\":\"" + TOKEN + "\",\"date\":\"" + lastMonth + "\",\"approxTimeSlot\":\"09:00\","
+                + "\"municipality\":\"Porto\",\"state\":\"FINISHED\",\"stateTimestamp\":\"2024-01-02T10:00:00Z\","
+                + "\"items\":[{\"name\":\"Sofa\"}]}",
+            "{not json");
+
+        ImportReport report = importService.importBookings(stream(ndjson), BookingImportService.Format.NDJSON);
+
+        assertEquals(0, report.imported());
+        assertEquals(List.of(new ImportReport.Reject(2, "Malformed JSON"),
+                new ImportReport.Reject(1, "Token already stored")), report.rejects());
+        verify(tokenIndex, never()).rebuild();
+    }
+
+    @Test
+    void testDuplicateTokensWithinAChunkAreRejected() throws IOException {
+        when(bookingRepository.insertChunk(anyList())).thenReturn(Set.of());
+        String csv = String.join("\n",
+            "token,date,approx_time_slot,municipality,state,items",
+            TOKEN + "," + lastMonth + ",10:00,Porto,FINISHED,Sofa",
+            TOKEN + "," + lastMonth + ",11:00,Porto,FINISHED,Sofa");
+
+        ImportReport report = importService.importBookings(stream(csv), BookingImportService.Format.CSV);
+
+        assertEquals(1, report.imported());
+        assertEquals(List.of(new ImportReport.Reject(3, "Duplicate token in upload")), report.rejects());
+    }
+
+    @Test
+    void testCsvHeaderMustNameRequiredColumns() {
+        String csv = "date,municipality,state,items\n" + lastMonth + ",Porto,FINISHED,Sofa";
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+            () -> importService.importBookings(stream(csv), BookingImportService.Format.CSV));
+        assertEquals("CSV header is missing column: approx_time_slot", e.getMessage());
+        verify(bookingRepository, never()).insertChunk(anyList());
+    }
+
+    @Test
+    void testSplitCsvHandlesQuotesAndEmptyFields() {
+        assertEquals(List.of("a", "b, \"c\"", "", "d"), BookingImportService.splitCsv("a,\"b, \"\"c\"\"\",,d"));
+        assertThrows(IllegalArgumentException.class, () -> BookingImportService.splitCsv("a,\"b"));
+    }
+
+    @Test
+    void testRowWithoutTimestampDatesStateFromSlot() throws IOException {
+        when(bookingRepository.insertChunk(anyList())).thenReturn(Set.of());
+        String csv = "date,approx_time_slot,municipality,state,items\n" + lastMonth + ",10:00,Porto,FINISHED,Sofa";
+
+        importService.importBookings(stream(csv), BookingImportService.Format.CSV);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Booking>> chunk = ArgumentCaptor.forClass(List.class);
+        verify(bookingRepository).insertChunk(chunk.capture());
+        assertEquals(lastMonth.atTime(LocalTime.of(10, 0)),
+            chunk.getValue().get(0).getCurrentState().getTimestamp().toLocalDateTime());
+    }
+
+    private static InputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
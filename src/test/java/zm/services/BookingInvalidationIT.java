@@ -0,0 +1,109 @@
+package zm.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+import zm.SpringbootApplication;
+import zm.data.Booking;
+import zm.data.Item;
+import zm.data.State;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+
+// Two application contexts over one database stand in for two nodes; on H2 the feed polls the journal
+class BookingInvalidationIT {
+
+    private final List<ConfigurableApplicationContext> nodes = new ArrayList<>();
+    private LocalDate monday;
+
+    @BeforeEach
+    void startNodes() {
+        monday = LocalDate.now().with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+        String url = "jdbc:h2:mem:invalidation-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+        MunicipalityProvider aveiroOnly = new MunicipalityProvider() {
+            @Override
+            public List<String> getMunicipalities() {
+                return List.of("Aveiro");
+            }
+
+            @Override
+            public boolean isValid(String municipality) {
+                return "Aveiro".equals(municipality);
+            }
+        };
+        for (int i = 0; i < 2; i++) {
+            nodes.add(new SpringApplicationBuilder(SpringbootApplication.class)
+                .web(WebApplicationType.NONE)
+                .initializers(context -> ((GenericApplicationContext) context).registerBean("aveiroOnly",
+                    MunicipalityProvider.class, () -> aveiroOnly, definition -> definition.setPrimary(true)))
+                // Command-line arguments, so they win over application.properties
+                .run("--spring.datasource.url=" + url,
+                    "--spring.datasource.driver-class-name=org.h2.Driver",
+                    "--spring.datasource.username=sa",
+                    "--spring.datasource.password=",
+                    "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                    "--spring.jpa.hibernate.ddl-auto=update",
+                    "--spring.jpa.show-sql=false",
+                    "--booking.grpc.enabled=false",
+                    "--booking.closures.national=",
+                    "--booking.closures.municipal=",
+                    "--booking.invalidation.enabled=true",
+                    "--booking.invalidation.poll-interval=PT0.1S",
+                    "--booking.invalidation.gap-grace=PT0.5S"));
+        }
+    }
+
+    @AfterEach
+    void stopNodes() {
+        nodes.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    void testOtherNodesSeeNewBookingsAndDropStaleCopies() {
+        BookingService writer = nodes.get(0).getBean(BookingService.class);
+        BookingService reader = nodes.get(1).getBean(BookingService.class);
+
+        // The reader's token filter was built before the booking existed
+        String token = writer.book(monday, LocalTime.of(10, 0), List.of(new Item("Sofa", "Old sofa")), "Aveiro");
+        await().atMost(Duration.ofSeconds(10)).until(() -> reader.check(token) != null);
+        assertEquals(State.RECEIVED, reader.check(token).getCurrentState().getState());
+
+        // Well inside the cache's 30 second lifetime, so only the invalidation can refresh the reader's copy
+        assertTrue(writer.changeState(token, State.ASSIGNED));
+        await().atMost(Duration.ofSeconds(10)).until(() -> {
+            Booking seen = reader.check(token);
+            return seen.getCurrentState().getState() == State.ASSIGNED;
+        });
+    }
+
+    // A long-poll parked on one node wakes when another node changes the booking, not at its timeout
+    @Test
+    void testLongPollOnOneNodeWakesOnAnotherNodesChange() throws Exception {
+        BookingService writer = nodes.get(0).getBean(BookingService.class);
+        BookingService reader = nodes.get(1).getBean(BookingService.class);
+        String token = writer.book(monday, LocalTime.of(10, 0), List.of(new Item("Sofa", "Old sofa")), "Aveiro");
+        await().atMost(Duration.ofSeconds(10)).until(() -> reader.check(token) != null);
+
+        CompletableFuture<State> waiting = reader.awaitStateChange(token, State.RECEIVED, Duration.ofSeconds(30));
+        assertFalse(waiting.isDone());
+
+        assertTrue(writer.changeState(token, State.ASSIGNED));
+        assertEquals(State.ASSIGNED, waiting.get(10, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,96 @@
+package zm.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import zm.data.Item;
+import zm.data.State;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@TestPropertySource(locations = "classpath:application-test.properties",
+    properties = "spring.datasource.url=jdbc:h2:mem:schema-upgrade;DB_CLOSE_DELAY=-1")
+class BookingSchemaUpgradeIT {
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private BookingSchemaUpgrade upgrade;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    private MunicipalityProvider municipalityProvider;
+
+    // A booking from before the version column, as the schema update leaves it, can be cancelled after a restart
+    @Test
+    void testUnversionedBookingCanBeCancelledAfterBackfill() {
+        when(municipalityProvider.isValid("Aveiro")).thenReturn(true);
+        LocalDate monday = LocalDate.now().with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+        String token = bookingService.book(monday, LocalTime.of(10, 0), new ArrayList<>(List.of(new Item("Sofa", "Old sofa"))), "Aveiro");
+        jdbcTemplate.execute("alter table bookings alter column version set null");
+        jdbcTemplate.update("update bookings set version = null where token = ?", token);
+
+        upgrade.start();
+
+        assertEquals(0L, jdbcTemplate.queryForObject("select version from bookings where token = ?", Long.class, token));
+        assertTrue(bookingService.cancel(token));
+        assertEquals(State.CANCELLED, bookingService.check(token).getCurrentState().getState());
+    }
+
+    // A journal carried over from the change-clock table is numbered past what the new sequence would hand out next
+    @Test
+    void testChangeSequenceIsMovedPastTheJournal() {
+        when(municipalityProvider.isValid("Aveiro")).thenReturn(true);
+        LocalDate monday = LocalDate.now().with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+        String token = bookingService.book(monday, LocalTime.of(11, 0), new ArrayList<>(List.of(new Item("Sofa", "Old sofa"))), "Aveiro");
+        jdbcTemplate.update("update booking_changes set seq = 5000 where token = ?", token);
+
+        upgrade.start();
+
+        String next = bookingService.book(monday, LocalTime.of(11, 0), new ArrayList<>(List.of(new Item("Bed", "Old bed"))), "Aveiro");
+        assertEquals(5001L, jdbcTemplate.queryForObject("select change_seq from bookings where token = ?", Long.class, next));
+    }
+
+    // Tables created before EXPIRED existed keep a check that stops at REMOVED until the upgrade widens it
+    @Test
+    void testStateChecksFromBeforeExpiredAreWidened() {
+        when(municipalityProvider.isValid("Aveiro")).thenReturn(true);
+        LocalDate monday = LocalDate.now().with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+        String token = bookingService.book(monday, LocalTime.of(12, 0), new ArrayList<>(List.of(new Item("Sofa", "Old sofa"))), "Aveiro");
+        for (String table : List.of("bookings", "booking_previous_states", "booking_changes")) {
+            for (String check : jdbcTemplate.queryForList("select tc.constraint_name from information_schema.table_constraints tc "
+                    + "join information_schema.check_constraints cc on cc.constraint_schema = tc.constraint_schema "
+                    + "and cc.constraint_name = tc.constraint_name "
+                    + "where tc.table_name = upper(?) and cc.check_clause like '%STATE%'", String.class, table)) {
+                jdbcTemplate.execute("alter table " + table + " drop constraint \"" + check + "\"");
+            }
+            jdbcTemplate.execute("alter table " + table + " add constraint " + table + "_state_check check (state between 0 and 5)");
+        }
+        int expired = State.EXPIRED.ordinal();
+        assertThrows(DataIntegrityViolationException.class,
+            () -> jdbcTemplate.update("update bookings set state = ? where token = ?", expired, token));
+
+        upgrade.start();
+
+        assertEquals(1, jdbcTemplate.update("update bookings set state = ? where token = ?", expired, token));
+        assertEquals(1, jdbcTemplate.update("update booking_changes set state = ? where token = ?", expired, token));
+        assertEquals(1, jdbcTemplate.update("insert into booking_previous_states (booking_token, state, timestamp) values (?, ?, now())",
+            token, expired));
+    }
+}
@@ -3,20 +3,39 @@ package zm.services;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
 import zm.data.Booking;
+import zm.data.BookingChange;
+import zm.data.BookingChangeRepository;
+import zm.data.BookingField;
+import zm.data.BookingFilter;
+import zm.data.BookingProjection;
+import zm.data.BookingRef;
+import zm.data.ChangeOrigin;
 import zm.data.Item;
 import zm.data.State;
 import zm.data.BookingRepository;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -28,9 +47,45 @@ class BookingServiceImplTest {
     @Mock
     private BookingRepository bookingRepository;
 
+    @Mock
+    private BookingChangeRepository changeRepository;
+
     @Mock
     private MunicipalityProvider municipalityProvider;
 
+    @Mock
+    private BookingTokenIndex tokenIndex;
+
+    @Mock
+    private BookingItemIndex itemIndex;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private SlotOccupancy slotOccupancy;
+
+    @Mock
+    private ClosureCalendar closureCalendar;
+
+    @Mock
+    private SlotAdmission slotAdmission;
+
+    @Mock
+    private ChangeHorizon changeHorizon;
+
+    @Mock
+    private ChangeOrigin changeOrigin;
+
+    @Spy
+    private BookingStateNotifier stateNotifier = new BookingStateNotifier();
+
+    @Spy
+    private BookingCache bookingCache = new BookingCache(100, Duration.ofSeconds(30));
+
+    @Spy
+    private BookingShards bookingShards = new BookingShards(1, "", null);
+
     @InjectMocks
     private BookingServiceImpl bookingService;
 
@@ -46,6 +101,9 @@ class BookingServiceImplTest {
         
         futureDate = LocalDate.now().plusDays(7);
         timeSlot = LocalTime.of(10, 0);
+
+        lenient().when(tokenIndex.mightExist(anyString())).thenReturn(true);
+        lenient().when(changeRepository.save(any(BookingChange.class))).thenAnswer(invocation -> invocation.getArgument(0));
     }
 
     @Test
@@ -118,19 +176,55 @@ class BookingServiceImplTest {
         verify(bookingRepository, never()).save(any(Booking.class));
     }
 
+    @Test
+    void testBookLocksTheSlotBeforeCounting() {
+        when(municipalityProvider.isValid("Aveiro")).thenReturn(true);
+        when(bookingRepository.save(any(Booking.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        bookingService.book(futureDate, timeSlot, items, "Aveiro");
+
+        InOrder inOrder = inOrder(slotAdmission, bookingRepository);
+        inOrder.verify(slotAdmission).acquire(futureDate, timeSlot, "Aveiro");
+        inOrder.verify(bookingRepository).findByDateAndApproxTimeSlotAndMunicipality(futureDate, timeSlot, "Aveiro");
+        inOrder.verify(bookingRepository).save(any(Booking.class));
+    }
+
+    @Test
+    void testBookOnClosureDayIsRejected() {
+        when(municipalityProvider.isValid("Aveiro")).thenReturn(true);
+        when(closureCalendar.isClosed("Aveiro", futureDate)).thenReturn(true);
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () ->
+            bookingService.book(futureDate, timeSlot, items, "Aveiro"));
+
+        assertEquals("Bookings cannot be made on holidays or closure days", e.getMessage());
+        verify(bookingRepository, never()).save(any(Booking.class));
+    }
+
     @Test
     void testBookWhenCapacityExceeded() {
         when(municipalityProvider.isValid("Aveiro")).thenReturn(true);
         when(bookingRepository.findByDateAndApproxTimeSlotAndMunicipality(futureDate, timeSlot, "Aveiro"))
             .thenReturn(createManyBookings(50));
         
-        assertThrows(IllegalStateException.class, () -> {
+        CapacityExceededException e = assertThrows(CapacityExceededException.class, () -> {
             bookingService.book(futureDate, timeSlot, items, "Aveiro");
         });
         
+        assertEquals("Capacity exceeded", e.getMessage());
+        // Suggestions wait until the transaction has rolled back
+        verifyNoInteractions(slotOccupancy);
         verify(bookingRepository, never()).save(any(Booking.class));
     }
 
+    @Test
+    void testSuggestSlotsAsksTheOccupancyMap() {
+        List<SlotSuggestion> suggestions = List.of(new SlotSuggestion(futureDate, LocalTime.of(12, 0)));
+        when(slotOccupancy.suggest("Aveiro", futureDate, timeSlot)).thenReturn(suggestions);
+
+        assertEquals(suggestions, bookingService.suggestSlots("Aveiro", futureDate, timeSlot));
+    }
+
     @Test
     void testCancelWithValidToken() {
         Booking booking = createMockBooking(State.RECEIVED);
@@ -203,6 +297,265 @@ class BookingServiceImplTest {
         verify(bookingRepository).findByToken("nonexistent");
     }
 
+    @Test
+    void testCheckServesRepeatedLookupsFromCache() {
+        Booking booking = createMockBooking(State.ASSIGNED);
+        String actualToken = booking.getToken();
+        when(bookingRepository.findByToken(actualToken)).thenReturn(Optional.of(booking));
+
+        Booking first = bookingService.check(actualToken);
+        Booking second = bookingService.check(actualToken);
+
+        assertSame(first, second);
+        verify(bookingRepository, times(1)).findByToken(actualToken);
+        assertEquals(1, bookingCache.stats().hitCount());
+        assertEquals(1, bookingCache.stats().missCount());
+    }
+
+    @Test
+    void testCheckDoesNotCacheMissingBookings() {
+        when(bookingRepository.findByToken("nonexistent")).thenReturn(Optional.empty());
+
+        bookingService.check("nonexistent");
+        bookingService.check("nonexistent");
+
+        verify(bookingRepository, times(2)).findByToken("nonexistent");
+    }
+
+    @Test
+    void testChangeStateInvalidatesCachedBooking() {
+        Booking booking = createMockBooking(State.ASSIGNED);
+        String actualToken = booking.getToken();
+        when(bookingRepository.findByToken(actualToken)).thenReturn(Optional.of(booking));
+        when(bookingRepository.save(any(Booking.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        bookingService.check(actualToken);
+        bookingService.changeState(actualToken, State.IN_PROGRESS);
+        bookingService.check(actualToken);
+
+        verify(bookingCache).invalidate(actualToken);
+        verify(bookingRepository, times(3)).findByToken(actualToken);
+    }
+
+    @Test
+    void testCancelInvalidatesCachedBooking() {
+        Booking booking = createMockBooking(State.RECEIVED);
+        String actualToken = booking.getToken();
+        when(bookingRepository.findByToken(actualToken)).thenReturn(Optional.of(booking));
+        when(bookingRepository.save(any(Booking.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        bookingService.check(actualToken);
+        bookingService.cancel(actualToken);
+
+        assertNull(bookingCache.getIfPresent(actualToken));
+    }
+
+    @Test
+    void testCheckRejectsUnknownTokenWithoutQuery() {
+        when(tokenIndex.mightExist("unknown")).thenReturn(false);
+
+        assertNull(bookingService.check("unknown"));
+
+        verify(bookingRepository, never()).findByToken(anyString());
+    }
+
+    @Test
+    void testCancelRejectsUnknownTokenWithoutQuery() {
+        when(tokenIndex.mightExist("unknown")).thenReturn(false);
+
+        assertFalse(bookingService.cancel("unknown"));
+
+        verify(bookingRepository, never()).findByToken(anyString());
+    }
+
+    @Test
+    void testChangeStateRejectsUnknownTokenWithoutQuery() {
+        when(tokenIndex.mightExist("unknown")).thenReturn(false);
+
+        assertFalse(bookingService.changeState("unknown", State.ASSIGNED));
+
+        verify(bookingRepository, never()).findByToken(anyString());
+    }
+
+    @Test
+    void testBookRegistersIssuedToken() {
+        when(municipalityProvider.isValid("Aveiro")).thenReturn(true);
+        when(bookingRepository.save(any(Booking.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        String token = bookingService.book(futureDate, timeSlot, items, "Aveiro");
+
+        verify(tokenIndex).register(token);
+        verify(eventPublisher).publishEvent(argThat((Object e) -> e instanceof BookingEvent be
+            && be.type() == BookingEvent.Type.CREATED && be.token().equals(token)));
+    }
+
+    @Test
+    void testChangeStatePublishesEvent() {
+        Booking booking = createMockBooking(State.RECEIVED);
+        String actualToken = booking.getToken();
+        when(bookingRepository.findByToken(actualToken)).thenReturn(Optional.of(booking));
+        when(bookingRepository.save(any(Booking.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        bookingService.changeState(actualToken, State.ASSIGNED);
+
+        verify(eventPublisher).publishEvent(BookingEvent.stateChanged(booking));
+    }
+
+    @Test
+    void testAwaitStateChangeCompletesImmediatelyWhenStateDiffers() {
+        Booking booking = createMockBooking(State.ASSIGNED);
+        String actualToken = booking.getToken();
+        when(bookingRepository.findByToken(actualToken)).thenReturn(Optional.of(booking));
+
+        CompletableFuture<State> change = bookingService.awaitStateChange(actualToken, State.RECEIVED, Duration.ofSeconds(5));
+
+        assertEquals(State.ASSIGNED, change.getNow(null));
+        assertEquals(0, stateNotifier.parkedTokens());
+    }
+
+    @Test
+    void testAwaitStateChangeParksUntilTransition() {
+        Booking booking = createMockBooking(State.RECEIVED);
+        String actualToken = booking.getToken();
+        when(bookingRepository.findByToken(actualToken)).thenReturn(Optional.of(booking));
+
+        CompletableFuture<State> change = bookingService.awaitStateChange(actualToken, State.RECEIVED, Duration.ofSeconds(5));
+        assertFalse(change.isDone());
+
+        booking.changeState(State.ASSIGNED);
+        stateNotifier.onBookingEvent(BookingEvent.stateChanged(booking));
+
+        assertEquals(State.ASSIGNED, change.getNow(null));
+        assertEquals(0, stateNotifier.parkedTokens());
+    }
+
+    @Test
+    void testAwaitStateChangeTimesOutWithNull() {
+        Booking booking = createMockBooking(State.RECEIVED);
+        String actualToken = booking.getToken();
+        when(bookingRepository.findByToken(actualToken)).thenReturn(Optional.of(booking));
+
+        CompletableFuture<State> change = bookingService.awaitStateChange(actualToken, State.RECEIVED, Duration.ofMillis(10));
+
+        assertNull(change.join());
+    }
+
+    @Test
+    void testAwaitStateChangeWithUnknownToken() {
+        when(bookingRepository.findByToken("missing")).thenReturn(Optional.empty());
+
+        assertNull(bookingService.awaitStateChange("missing", State.RECEIVED, Duration.ofSeconds(5)));
+        assertEquals(0, stateNotifier.parkedTokens());
+    }
+
+    @Test
+    void testChangeStateJournalsTransition() {
+        Booking booking = createMockBooking(State.RECEIVED);
+        String actualToken = booking.getToken();
+        when(bookingRepository.findByToken(actualToken)).thenReturn(Optional.of(booking));
+        when(bookingRepository.save(any(Booking.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        bookingService.changeState(actualToken, State.ASSIGNED);
+
+        verify(changeRepository).save(argThat(change ->
+            change.getToken().equals(actualToken) && change.getState() == State.ASSIGNED));
+    }
+
+    @Test
+    void testChangeStateAnnouncesTheJournaledChange() {
+        Booking booking = createMockBooking(State.RECEIVED);
+        String actualToken = booking.getToken();
+        when(bookingRepository.findByToken(actualToken)).thenReturn(Optional.of(booking));
+        when(bookingRepository.save(any(Booking.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        bookingService.changeState(actualToken, State.ASSIGNED);
+
+        InOrder inOrder = inOrder(changeRepository, bookingRepository);
+        inOrder.verify(changeRepository).save(any(BookingChange.class));
+        inOrder.verify(bookingRepository).announce(argThat(change ->
+            change.getToken().equals(actualToken) && change.getState() == State.ASSIGNED));
+    }
+
+    @Test
+    void testBookJournalsCreation() {
+        when(municipalityProvider.isValid("Aveiro")).thenReturn(true);
+        when(bookingRepository.save(any(Booking.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        String token = bookingService.book(futureDate, timeSlot, items, "Aveiro");
+
+        verify(changeRepository).save(argThat(change ->
+            change.getToken().equals(token) && change.getState() == State.RECEIVED));
+    }
+
+    @Test
+    void testGetChangesSinceReturnsCursorAfterEmptyPage() {
+        when(changeHorizon.advance(0)).thenReturn(50L);
+        when(bookingRepository.findByChangeSeqGreaterThanAndChangeSeqLessThanEqualOrderByChangeSeqAsc(42L, 50L, PageRequest.of(0, 100)))
+            .thenReturn(new ArrayList<>());
+
+        ChangeFeedPage page = bookingService.getChangesSince(ChangeCursor.parse("42"), 100);
+
+        assertTrue(page.bookings().isEmpty());
+        assertEquals(ChangeCursor.of(42), page.next());
+        assertFalse(page.hasMore());
+    }
+
+    @Test
+    void testGetChangesSinceCapsLimit() {
+        Booking booking = createMockBooking(State.ASSIGNED);
+        booking.setChangeSeq(7L);
+        when(changeHorizon.advance(0)).thenReturn(7L);
+        when(bookingRepository.findByChangeSeqGreaterThanAndChangeSeqLessThanEqualOrderByChangeSeqAsc(0L, 7L,
+                PageRequest.of(0, BookingServiceImpl.MAX_CHANGE_FEED_LIMIT)))
+            .thenReturn(List.of(booking));
+
+        ChangeFeedPage page = bookingService.getChangesSince(ChangeCursor.parse("0"), 1_000_000);
+
+        assertEquals(1, page.bookings().size());
+        assertEquals("7", page.next().toString());
+    }
+
+    @Test
+    void testLookupServesCacheHitsFirstAndLoadsMissesInOneQuery() {
+        Booking cached = createMockBooking(State.RECEIVED);
+        Booking stored = createMockBooking(State.ASSIGNED);
+        bookingCache.put(cached);
+        when(tokenIndex.mightExist("unknown")).thenReturn(false);
+        when(bookingRepository.findWithCollectionsByTokenIn(List.of(stored.getToken(), "deleted")))
+            .thenReturn(List.of(stored));
+
+        List<String> order = new ArrayList<>();
+        java.util.Map<String, Booking> results = new java.util.HashMap<>();
+        bookingService.lookup(List.of(stored.getToken(), cached.getToken(), "unknown", "deleted", cached.getToken()),
+            (token, booking) -> {
+                order.add(token);
+                results.put(token, booking);
+            });
+
+        assertEquals(List.of(cached.getToken(), "unknown", stored.getToken(), "deleted"), order);
+        assertSame(cached, results.get(cached.getToken()));
+        assertSame(stored, results.get(stored.getToken()));
+        assertNull(results.get("unknown"));
+        assertNull(results.get("deleted"));
+        verify(bookingRepository, times(1)).findWithCollectionsByTokenIn(any());
+        assertSame(stored, bookingCache.getIfPresent(stored.getToken()));
+    }
+
+    @Test
+    void testLookupQueriesInChunks() {
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < BookingServiceImpl.LOOKUP_CHUNK_SIZE + 1; i++) {
+            tokens.add("token-" + i);
+        }
+        when(bookingRepository.findWithCollectionsByTokenIn(any())).thenReturn(List.of());
+
+        List<String> resolved = new ArrayList<>();
+        bookingService.lookup(tokens, (token, booking) -> resolved.add(token));
+
+        assertEquals(tokens, resolved);
+        verify(bookingRepository, times(2)).findWithCollectionsByTokenIn(any());
+    }
+
     @Test
     void testGetAllBookings() {
         List<Booking> bookings = Arrays.asList(
@@ -297,6 +650,67 @@ class BookingServiceImplTest {
         verify(bookingRepository).findByMunicipality("Aveiro");
     }
 
+    @Test
+    void testGetBookingsDelegatesToProjection() {
+        BookingFilter filter = BookingFilter.of("Aveiro", null, null, null);
+        Set<BookingField> fields = Set.of(BookingField.TOKEN);
+        when(bookingRepository.findProjected(filter, fields, Pageable.unpaged()))
+            .thenReturn(new PageImpl<>(List.of(new BookingProjection("TOKEN", null, null, null, null, null, null, null))));
+
+        Page<BookingProjection> result = bookingService.getBookings(filter, fields, Pageable.unpaged());
+
+        assertEquals(1, result.getNumberOfElements());
+        verify(bookingRepository, never()).findByMunicipality(anyString());
+    }
+
+    @Test
+    void testGetBookingsWithoutFieldsThrows() {
+        BookingFilter filter = BookingFilter.of("Aveiro", null, null, null);
+        Set<BookingField> noFields = Set.of();
+
+        Pageable unpaged = Pageable.unpaged();
+
+        assertThrows(IllegalArgumentException.class, () -> bookingService.getBookings(filter, noFields, unpaged));
+        verify(bookingRepository, never()).findProjected(any(), any(), any());
+    }
+
+    @Test
+    void testSearchItemsLoadsOnlyTheIndexedPageInIndexOrder() {
+        Booking first = createMockBooking(State.RECEIVED);
+        Booking second = createMockBooking(State.ASSIGNED);
+        Pageable pageable = PageRequest.of(0, 2);
+        when(itemIndex.search("fridge", "Porto", null, null, pageable))
+            .thenReturn(new PageImpl<>(List.of(second.getToken(), first.getToken()), pageable, 7));
+        when(bookingRepository.findWithCollectionsByTokenIn(List.of(second.getToken(), first.getToken())))
+            .thenReturn(List.of(first, second));
+
+        Page<Booking> result = bookingService.searchItems("fridge", "Porto", null, null, pageable);
+
+        assertEquals(List.of(second, first), result.getContent());
+        assertEquals(7, result.getTotalElements());
+    }
+
+    @Test
+    void testSearchItemsWithBlankQueryThrows() {
+        Pageable pageable = PageRequest.of(0, 10);
+
+        assertThrows(IllegalArgumentException.class, () -> bookingService.searchItems(" ", null, null, null, pageable));
+        verifyNoInteractions(itemIndex);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void testSearchBookingsQueriesWithSpecification() {
+        Pageable pageable = PageRequest.of(0, 20);
+        when(bookingRepository.findAll(any(Specification.class), eq(pageable)))
+            .thenReturn(new PageImpl<>(List.of(createMockBooking(State.RECEIVED)), pageable, 1));
+
+        Page<Booking> result = bookingService.searchBookings(BookingFilter.of("Aveiro", null, null, State.RECEIVED), pageable);
+
+        assertEquals(1, result.getTotalElements());
+        verify(bookingRepository, never()).findByMunicipality(anyString());
+    }
+
     @Test
     void testBookingWithNullMunicipality() {
         assertThrows(IllegalArgumentException.class, () -> {
@@ -363,6 +777,79 @@ class BookingServiceImplTest {
         verify(bookingRepository).save(any(Booking.class));
     }
 
+    @Test
+    void testBulkChangeStateProcessesChunksUntilExhausted() {
+        BookingFilter filter = BookingFilter.of("Aveiro", futureDate, futureDate, State.ASSIGNED);
+        List<BookingRef> firstChunk = new ArrayList<>();
+        for (int i = 0; i < BookingServiceImpl.BULK_CHUNK_SIZE; i++) {
+            firstChunk.add(new BookingRef(String.format("token-%04d", i), "Aveiro", futureDate, timeSlot));
+        }
+        List<BookingRef> secondChunk = List.of(
+            new BookingRef("token-9998", "Aveiro", futureDate, timeSlot),
+            new BookingRef("token-9999", "Aveiro", futureDate, timeSlot));
+        Set<State> sources = EnumSet.of(State.ASSIGNED);
+        when(bookingRepository.findChunk(filter, sources, null, BookingServiceImpl.BULK_CHUNK_SIZE)).thenReturn(firstChunk);
+        when(bookingRepository.findChunk(filter, sources, "token-0499", BookingServiceImpl.BULK_CHUNK_SIZE)).thenReturn(secondChunk);
+        when(bookingRepository.transitionChunk(anyCollection(), eq(sources), eq(State.IN_PROGRESS)))
+            .thenAnswer(invocation -> new ArrayList<String>(invocation.getArgument(0)));
+        List<BulkOperationResult> progress = new ArrayList<>();
+
+        BulkOperationResult result = bookingService.bulkChangeState(filter, State.IN_PROGRESS, null, progress::add);
+
+        assertTrue(result.completed());
+        assertEquals(502, result.matched());
+        assertEquals(502, result.updated());
+        assertEquals(2, result.chunks());
+        assertEquals("token-9999", result.lastToken());
+        assertEquals(2, progress.size());
+        verify(bookingRepository, never()).findAll();
+        verify(eventPublisher, times(502)).publishEvent(any(BookingEvent.class));
+    }
+
+    @Test
+    void testBulkChangeStateOnlyPublishesTransitionedBookings() {
+        BookingFilter filter = BookingFilter.of("Aveiro", null, null, State.RECEIVED);
+        List<BookingRef> chunk = List.of(
+            new BookingRef("token-0001", "Aveiro", futureDate, timeSlot),
+            new BookingRef("token-0002", "Aveiro", futureDate, timeSlot));
+        when(bookingRepository.findChunk(filter, EnumSet.of(State.RECEIVED), null, BookingServiceImpl.BULK_CHUNK_SIZE))
+            .thenReturn(chunk);
+        when(bookingRepository.transitionChunk(List.of("token-0001", "token-0002"), EnumSet.of(State.RECEIVED), State.CANCELLED))
+            .thenReturn(List.of("token-0002"));
+
+        BulkOperationResult result = bookingService.bulkChangeState(filter, State.CANCELLED, null, null);
+
+        assertEquals(2, result.matched());
+        assertEquals(1, result.updated());
+        verify(eventPublisher).publishEvent(new BookingEvent(BookingEvent.Type.STATE_CHANGED, "token-0002", "Aveiro", futureDate, timeSlot, State.CANCELLED, State.RECEIVED));
+        verifyNoMoreInteractions(eventPublisher);
+    }
+
+    @Test
+    void testBulkChangeStateResumesAfterCursor() {
+        BookingFilter filter = BookingFilter.of("Aveiro", null, null, State.RECEIVED);
+        when(bookingRepository.findChunk(filter, EnumSet.of(State.RECEIVED), "token-0499", BookingServiceImpl.BULK_CHUNK_SIZE))
+            .thenReturn(new ArrayList<>());
+
+        BulkOperationResult result = bookingService.bulkChangeState(filter, State.CANCELLED, "token-0499", null);
+
+        assertTrue(result.completed());
+        assertEquals(0, result.matched());
+        assertEquals("token-0499", result.lastToken());
+        verify(bookingRepository, never()).transitionChunk(anyCollection(), anyCollection(), any());
+    }
+
+    @Test
+    void testBulkChangeStateRejectsImpossibleTransition() {
+        BookingFilter filter = BookingFilter.of("Aveiro", null, null, State.FINISHED);
+
+        assertThrows(IllegalArgumentException.class, () ->
+            bookingService.bulkChangeState(filter, State.CANCELLED, null, null)
+        );
+
+        verify(bookingRepository, never()).findChunk(any(), anyCollection(), any(), anyInt());
+    }
+
     private Booking createMockBooking(State state) {
         List<Item> items = new ArrayList<>();
         items.add(new Item("Test Item", "Description"));
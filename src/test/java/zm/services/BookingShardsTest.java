@@ -0,0 +1,63 @@
+package zm.services;
+
+import org.junit.jupiter.api.Test;
+import zm.data.Booking;
+import zm.data.Item;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookingShardsTest {
+
+    @Test
+    void testPinnedMunicipalitiesStayOnTheirShard() {
+        BookingShards shards = new BookingShards(3, "Lisboa=1; Porto=2", null);
+
+        assertEquals(1, shards.shardOf("Lisboa"));
+        assertEquals(2, shards.shardOf("Porto"));
+        assertEquals(Math.floorMod("Aveiro".hashCode(), 3), shards.shardOf("Aveiro"));
+        shards.shutdown();
+    }
+
+    @Test
+    void testInvalidPlacementsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new BookingShards(2, "Lisboa=2", null));
+        assertThrows(IllegalArgumentException.class, () -> new BookingShards(2, "Lisboa", null));
+        assertThrows(IllegalArgumentException.class, () -> new BookingShards(2, "Lisboa=one", null));
+        assertThrows(IllegalArgumentException.class, () -> new BookingShards(0, "", null));
+    }
+
+    @Test
+    void testTokensNameTheShardOfTheirMunicipality() {
+        BookingShards shards = new BookingShards(3, "Lisboa=1;Porto=2", null);
+        Booking booking = new Booking(LocalDate.now().plusDays(3), LocalTime.of(10, 0),
+            new ArrayList<>(List.of(new Item("Sofa", "Old sofa"))), "Porto");
+
+        shards.place(booking);
+
+        assertEquals(2, shards.shardOfToken(booking.getToken()));
+        assertEquals(1, shards.shardOfToken(shards.newToken("Lisboa")));
+        assertEquals(0, shards.shardOfToken(UUID.randomUUID().toString()));
+        // A shard this deployment does not have
+        assertEquals(0, shards.shardOfToken(Booking.newToken(7)));
+        shards.shutdown();
+    }
+
+    @Test
+    void testOneShardRunsEverythingInline() {
+        BookingShards shards = new BookingShards(1, "", null);
+        String token = UUID.randomUUID().toString();
+
+        assertFalse(shards.isSharded());
+        assertEquals(0, shards.shardOf("Lisboa"));
+        assertEquals(0, shards.shardOfToken(token));
+        assertEquals("done", shards.read(0, () -> "done"));
+        assertEquals(List.of(0), shards.gather(shard -> shard));
+        assertEquals(7, shards.newToken("Lisboa").charAt(14) - '0');
+    }
+}
@@ -0,0 +1,65 @@
+package zm.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import zm.data.State;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookingStateNotifierTest {
+
+    private BookingStateNotifier notifier;
+
+    @BeforeEach
+    void setUp() {
+        notifier = new BookingStateNotifier();
+    }
+
+    @Test
+    void testTransitionCompletesAllWaitersOfToken() {
+        CompletableFuture<State> first = notifier.register("token-a");
+        CompletableFuture<State> second = notifier.register("token-a");
+        CompletableFuture<State> other = notifier.register("token-b");
+
+        notifier.onBookingEvent(event("token-a", State.ASSIGNED));
+
+        assertEquals(State.ASSIGNED, first.getNow(null));
+        assertEquals(State.ASSIGNED, second.getNow(null));
+        assertFalse(other.isDone());
+        assertEquals(1, notifier.parkedTokens());
+    }
+
+    @Test
+    void testCancelledWaiterIsUnregistered() {
+        CompletableFuture<State> waiter = notifier.register("token-a");
+
+        waiter.cancel(false);
+
+        assertEquals(0, notifier.parkedTokens());
+    }
+
+    @Test
+    void testCreationDoesNotReleaseWaiters() {
+        CompletableFuture<State> waiter = notifier.register("token-a");
+
+        notifier.onBookingEvent(new BookingEvent(BookingEvent.Type.CREATED, "token-a", "Aveiro",
+            LocalDate.now().plusDays(3), LocalTime.of(10, 0), State.RECEIVED, null));
+
+        assertFalse(waiter.isDone());
+    }
+
+    @Test
+    void testEventWithoutWaitersIsIgnored() {
+        notifier.onBookingEvent(event("token-a", State.CANCELLED));
+
+        assertEquals(0, notifier.parkedTokens());
+    }
+
+    private static BookingEvent event(String token, State state) {
+        return new BookingEvent(BookingEvent.Type.STATE_CHANGED, token, "Aveiro", LocalDate.now().plusDays(3), LocalTime.of(10, 0), state, null);
+    }
+}
@@ -0,0 +1,106 @@
+package zm.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import zm.data.Booking;
+import zm.data.BookingRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BookingTokenIndexTest {
+
+    @Mock
+    private BookingRepository bookingRepository;
+
+    private BookingTokenIndex index;
+    private String existing;
+
+    @BeforeEach
+    void setUp() {
+        index = new BookingTokenIndex(bookingRepository, new BookingShards(1, "", null), true, true, 0.01, Duration.ofMinutes(5));
+        existing = UUID.randomUUID().toString();
+    }
+
+    @Test
+    void testFailsOpenBeforeFirstBuild() {
+        assertTrue(index.mightExist(UUID.randomUUID().toString()));
+    }
+
+    @Test
+    void testRejectsMalformedTokens() {
+        assertFalse(index.mightExist(null));
+        assertFalse(index.mightExist(""));
+        assertFalse(index.mightExist("ABC123TOKEN"));
+        assertFalse(index.mightExist("zzzzzzzz-zzzz-zzzz-zzzz-zzzzzzzzzzzz"));
+    }
+
+    @Test
+    void testRebuildLoadsExistingTokens() {
+        when(bookingRepository.count()).thenReturn(1L);
+        when(bookingRepository.streamAllTokens()).thenReturn(Stream.of(existing));
+
+        index.rebuild();
+
+        assertTrue(index.mightExist(existing));
+        assertFalse(index.mightExist(UUID.randomUUID().toString()));
+    }
+
+    @Test
+    void testRegisteredTokensAreFoundAfterBuild() {
+        when(bookingRepository.count()).thenReturn(0L);
+        when(bookingRepository.streamAllTokens()).thenReturn(Stream.empty());
+        index.rebuild();
+        String issued = UUID.randomUUID().toString();
+
+        index.register(issued);
+
+        assertTrue(index.mightExist(issued));
+    }
+
+    // Another node's booking may not have reached this filter yet, so a token issued moments ago is still looked up
+    @Test
+    void testRecentTokensUnknownToTheFilterAreStillLookedUp() {
+        when(bookingRepository.count()).thenReturn(0L);
+        when(bookingRepository.streamAllTokens()).thenReturn(Stream.empty());
+        index.rebuild();
+
+        assertTrue(index.mightExist(Booking.newToken()));
+        assertTrue(index.mightExist(Booking.newToken(3)));
+        assertFalse(index.mightExist(UUID.randomUUID().toString()));
+        assertFalse(index.mightExist(issuedAt(Instant.now().minus(Duration.ofHours(1)))));
+    }
+
+    @Test
+    void testDisabledIndexAcceptsEverything() {
+        BookingTokenIndex disabled = new BookingTokenIndex(bookingRepository, new BookingShards(1, "", null), false, false, 0.01, Duration.ofMinutes(5));
+
+        disabled.rebuild();
+
+        assertTrue(disabled.mightExist("ABC123TOKEN"));
+        verifyNoInteractions(bookingRepository);
+    }
+
+    @Test
+    void testFilterRefusesToRunWithoutInvalidation() {
+        BookingShards shards = new BookingShards(1, "", null);
+
+        assertThrows(IllegalStateException.class, () -> new BookingTokenIndex(bookingRepository, shards, true, false, 0.01, Duration.ofMinutes(5)));
+    }
+
+    // A version 7 token stamped with the given time
+    private static String issuedAt(Instant issued) {
+        UUID random = UUID.randomUUID();
+        return new UUID((issued.toEpochMilli() << 16) | 0x7000 | (random.getMostSignificantBits() & 0xfff),
+            random.getLeastSignificantBits()).toString();
+    }
+}
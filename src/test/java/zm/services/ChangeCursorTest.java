@@ -0,0 +1,42 @@
+package zm.services;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChangeCursorTest {
+
+    @Test
+    void testBareNumbersStayBare() {
+        ChangeCursor cursor = ChangeCursor.parse("42");
+
+        assertEquals("42", cursor.toString());
+        assertArrayEquals(new long[] {42}, cursor.positions(1));
+    }
+
+    @Test
+    void testShardPositionsRoundTripAndMissingShardsStartAtZero() {
+        ChangeCursor cursor = ChangeCursor.parse("2:7, 0:123");
+
+        assertArrayEquals(new long[] {123, 0, 7}, cursor.positions(3));
+        assertEquals("0:123,1:0,2:7", ChangeCursor.of(cursor.positions(3)).toString());
+        assertEquals(ChangeCursor.of(123, 0, 7), ChangeCursor.parse("0:123,1:0,2:7"));
+    }
+
+    @Test
+    void testASingleNumberCannotStandForSeveralShards() {
+        assertArrayEquals(new long[] {0, 0}, ChangeCursor.parse("0").positions(2));
+        assertThrows(IllegalArgumentException.class, () -> ChangeCursor.parse("42").positions(2));
+        assertThrows(IllegalArgumentException.class, () -> ChangeCursor.parse("3:1").positions(2));
+    }
+
+    @Test
+    void testMalformedCursorsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> ChangeCursor.parse("-1"));
+        assertThrows(IllegalArgumentException.class, () -> ChangeCursor.parse("0:1,0:2"));
+        assertThrows(IllegalArgumentException.class, () -> ChangeCursor.parse("0:1,5"));
+        assertThrows(IllegalArgumentException.class, () -> ChangeCursor.parse("0:x"));
+        assertThrows(IllegalArgumentException.class, () -> ChangeCursor.parse("999:1"));
+        assertThrows(IllegalArgumentException.class, () -> ChangeCursor.parse(""));
+    }
+}
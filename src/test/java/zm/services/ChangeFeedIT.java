@@ -0,0 +1,101 @@
+package zm.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import zm.data.Booking;
+import zm.data.Item;
+import zm.data.State;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@TestPropertySource(locations = "classpath:application-test.properties",
+    properties = "spring.datasource.url=jdbc:h2:mem:change-feed;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000")
+class ChangeFeedIT {
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockBean
+    private MunicipalityProvider municipalityProvider;
+
+    private LocalDate monday;
+
+    @BeforeEach
+    void setUp() {
+        when(municipalityProvider.isValid("Aveiro")).thenReturn(true);
+        monday = LocalDate.now().with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+    }
+
+    // Writers do not wait for each other to take change numbers, but the feed holds back a later change that has
+    // committed while an earlier one is still open, so a reader that saw the second change can never skip the first
+    @Test
+    void testFeedWaitsForEarlierWritersToCommit() throws Exception {
+        String first = bookingService.book(monday, LocalTime.of(10, 0), items(), "Aveiro");
+        String second = bookingService.book(monday, LocalTime.of(11, 0), items(), "Aveiro");
+        ChangeCursor cursor = drain(ChangeCursor.of(0));
+
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        CountDownLatch changed = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        Future<?> slow = executor.submit(() -> transaction.executeWithoutResult(status -> {
+            assertTrue(bookingService.changeState(first, State.ASSIGNED));
+            changed.countDown();
+            try {
+                release.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        assertTrue(changed.await(30, TimeUnit.SECONDS));
+
+        Future<Boolean> fast = executor.submit(() -> bookingService.changeState(second, State.ASSIGNED));
+        assertTrue(fast.get(5, TimeUnit.SECONDS));
+        assertTrue(bookingService.getChangesSince(cursor, 100).bookings().isEmpty());
+
+        release.countDown();
+        slow.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        List<Booking> changes = bookingService.getChangesSince(cursor, 100).bookings();
+        assertEquals(List.of(first, second), changes.stream().map(Booking::getToken).toList());
+        assertTrue(changes.get(0).getChangeSeq() < changes.get(1).getChangeSeq());
+    }
+
+    private ChangeCursor drain(ChangeCursor after) {
+        ChangeFeedPage page;
+        do {
+            page = bookingService.getChangesSince(after, 1000);
+            after = page.next();
+        } while (page.hasMore());
+        return after;
+    }
+
+    private static List<Item> items() {
+        return new ArrayList<>(List.of(new Item("Sofa", "Old sofa")));
+    }
+}
@@ -0,0 +1,122 @@
+package zm.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import zm.data.Closure;
+import zm.data.ClosureRepository;
+
+import java.time.LocalDate;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ClosureCalendarTest {
+
+    @Mock
+    private ClosureRepository closureRepository;
+
+    @Mock
+    private MunicipalityProvider municipalityProvider;
+
+    private final int year = LocalDate.now().getYear();
+
+    @Test
+    void testEasterSunday() {
+        assertEquals(LocalDate.of(2024, 3, 31), ClosureCalendar.easterSunday(2024));
+        assertEquals(LocalDate.of(2025, 4, 20), ClosureCalendar.easterSunday(2025));
+        assertEquals(LocalDate.of(2026, 4, 5), ClosureCalendar.easterSunday(2026));
+    }
+
+    @Test
+    void testNationalDaysCloseEveryMunicipality() {
+        ClosureCalendar calendar = calendar("12-25,easter-2", "");
+        LocalDate goodFriday = ClosureCalendar.easterSunday(year + 1).minusDays(2);
+
+        assertTrue(calendar.isClosed("Aveiro", LocalDate.of(year, 12, 25)));
+        assertTrue(calendar.isClosed("Porto", LocalDate.of(year + 1, 12, 25)));
+        assertTrue(calendar.isClosed("Aveiro", goodFriday));
+        assertFalse(calendar.isClosed("Aveiro", goodFriday.minusDays(1)));
+        assertFalse(calendar.isClosed("Aveiro", LocalDate.of(year, 12, 24)));
+    }
+
+    @Test
+    void testMunicipalDaysCloseOnlyTheirMunicipality() {
+        ClosureCalendar calendar = calendar("12-25", "Porto=06-24;Lisboa=06-13,2030-02-11..2030-02-12");
+
+        assertTrue(calendar.isClosed("Porto", LocalDate.of(year, 6, 24)));
+        assertFalse(calendar.isClosed("Lisboa", LocalDate.of(year, 6, 24)));
+        assertTrue(calendar.isClosed("Lisboa", LocalDate.of(year, 6, 13)));
+        assertTrue(calendar.isClosed("Lisboa", LocalDate.of(year, 12, 25)));
+    }
+
+    @Test
+    void testDatesOutsideTheWindowAreOpen() {
+        ClosureCalendar calendar = calendar("12-25", "");
+
+        assertFalse(calendar.isClosed("Aveiro", LocalDate.of(year + 10, 12, 25)));
+        assertFalse(calendar.isClosed("Aveiro", null));
+    }
+
+    @Test
+    void testReloadCompilesAdHocClosures() {
+        ClosureCalendar calendar = calendar("", "");
+        LocalDate storm = LocalDate.now().plusDays(3);
+        when(closureRepository.findByLastDayGreaterThanEqualOrderByFirstDay(any())).thenReturn(List.of(
+            new Closure("Faro", storm, storm.plusDays(1), "Storm"),
+            new Closure(null, storm.plusDays(7), storm.plusDays(7), "Strike")));
+
+        assertFalse(calendar.isClosed("Faro", storm));
+        calendar.reload();
+
+        assertTrue(calendar.isClosed("Faro", storm));
+        assertTrue(calendar.isClosed("Faro", storm.plusDays(1)));
+        assertFalse(calendar.isClosed("Aveiro", storm));
+        assertTrue(calendar.isClosed("Aveiro", storm.plusDays(7)));
+        assertTrue(calendar.isClosed("Faro", storm.plusDays(7)));
+    }
+
+    @Test
+    void testClosedDaysAreRelativeToTheStartOfTheRange() {
+        ClosureCalendar calendar = calendar("12-25,12-26", "");
+
+        BitSet closed = calendar.closedDays("Aveiro", LocalDate.of(year, 12, 20), 10);
+
+        assertEquals(2, closed.cardinality());
+        assertTrue(closed.get(5));
+        assertTrue(closed.get(6));
+    }
+
+    @Test
+    void testInvalidEntriesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> calendar("13-45", ""));
+        assertThrows(IllegalArgumentException.class, () -> calendar("", "Porto"));
+    }
+
+    @Test
+    void testAddClosureValidatesAndReloads() {
+        ClosureCalendar calendar = calendar("", "");
+        LocalDate day = LocalDate.now().plusDays(2);
+        when(municipalityProvider.isValid("Faro")).thenReturn(true);
+        when(closureRepository.save(any(Closure.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(closureRepository.findByLastDayGreaterThanEqualOrderByFirstDay(any()))
+            .thenReturn(List.of(new Closure("Faro", day, day, "Depot maintenance")));
+
+        Closure closure = calendar.addClosure("Faro", day, null, " Depot maintenance ");
+
+        assertEquals(day, closure.getLastDay());
+        assertEquals("Depot maintenance", closure.getReason());
+        assertTrue(calendar.isClosed("Faro", day));
+        assertThrows(IllegalArgumentException.class, () -> calendar.addClosure("Faro", day, day.minusDays(1), "x"));
+        assertThrows(IllegalArgumentException.class, () -> calendar.addClosure(null, day, day, " "));
+    }
+
+    private ClosureCalendar calendar(String national, String municipal) {
+        return new ClosureCalendar(closureRepository, municipalityProvider, national, municipal, 3);
+    }
+}
@@ -0,0 +1,150 @@
+package zm.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import zm.data.BookingLoad;
+import zm.data.BookingRepository;
+import zm.data.State;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CrewAssignmentServiceTest {
+
+    @Mock
+    private BookingRepository bookingRepository;
+
+    @Mock
+    private BookingCache bookingCache;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private CrewAssignmentService assignmentService;
+    private final LocalDate day = LocalDate.now().plusDays(1);
+
+    @BeforeEach
+    void setUp() {
+        assignmentService = new CrewAssignmentService(bookingRepository, new BookingShards(1, "", null), bookingCache, eventPublisher, Duration.ofSeconds(5));
+    }
+
+    @Test
+    void testPlanPlacesLargestBookingsOnTheRoomiestCrew() {
+        List<BookingLoad> loads = List.of(load("a", "Aveiro", 2), load("b", "Aveiro", 5), load("c", "Aveiro", 4),
+            load("d", "Aveiro", 3));
+        List<CrewShift> crews = List.of(new CrewShift("A1", "Aveiro", 8), new CrewShift("A2", "Aveiro", 7));
+
+        CrewAssignmentService.Plan plan = CrewAssignmentService.plan(loads, crews, System.nanoTime() + 1_000_000_000L);
+
+        assertEquals(List.of("b", "d"), tokens(plan.assignments().get("A1")));
+        assertEquals(List.of("c", "a"), tokens(plan.assignments().get("A2")));
+        assertTrue(plan.unassigned().isEmpty());
+        assertFalse(plan.timedOut());
+    }
+
+    @Test
+    void testPlanLeavesBookingsThatFitNoCrew() {
+        List<BookingLoad> loads = List.of(load("big", "Aveiro", 9), load("small", "Aveiro", 1));
+
+        CrewAssignmentService.Plan plan = CrewAssignmentService.plan(loads, List.of(new CrewShift("A1", "Aveiro", 8)),
+            System.nanoTime() + 1_000_000_000L);
+
+        assertEquals(List.of("small"), tokens(plan.assignments().get("A1")));
+        assertEquals(List.of("big"), tokens(plan.unassigned()));
+    }
+
+    @Test
+    void testPlanStopsAtTheDeadline() {
+        CrewAssignmentService.Plan plan = CrewAssignmentService.plan(List.of(load("a", "Aveiro", 1)),
+            List.of(new CrewShift("A1", "Aveiro", 8)), System.nanoTime() - 1);
+
+        assertTrue(plan.timedOut());
+        assertTrue(plan.assignments().isEmpty());
+        assertEquals(1, plan.unassigned().size());
+    }
+
+    @Test
+    void testAssignAppliesOneBatchAndPublishesEvents() {
+        when(bookingRepository.findLoadsByDateAndState(day, State.RECEIVED)).thenReturn(List.of(
+            load("a", "Aveiro", 2), load("b", "Porto", 3), load("c", "Faro", 1)));
+        when(bookingRepository.assignCrews(anyMap())).thenReturn(List.of("a"));
+
+        AssignmentResult result = assignmentService.assign(day,
+            List.of(new CrewShift("A1", "Aveiro", 10), new CrewShift("P1", "Porto", 10)), false);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Map<String, List<String>>> batch = ArgumentCaptor.forClass(Map.class);
+        verify(bookingRepository).assignCrews(batch.capture());
+        assertEquals(Map.of("A1", List.of("a"), "P1", List.of("b")), batch.getValue());
+        assertTrue(result.applied());
+        assertEquals(1, result.assigned());
+        assertEquals(List.of("c"), result.unassignedTokens());
+        verify(bookingCache).invalidateAll(Set.of("a"));
+        verify(eventPublisher, times(1)).publishEvent(any(BookingEvent.class));
+    }
+
+    @Test
+    void testDryRunWritesNothing() {
+        when(bookingRepository.findLoadsByDateAndState(day, State.RECEIVED)).thenReturn(List.of(load("a", "Aveiro", 2)));
+
+        AssignmentResult result = assignmentService.assign(day, List.of(new CrewShift("A1", "Aveiro", 10)), true);
+
+        assertFalse(result.applied());
+        assertEquals(1, result.assigned());
+        assertEquals(new AssignmentResult.CrewLoad("A1", "Aveiro", 1, 2, 10), result.crews().get(0));
+        verify(bookingRepository, never()).assignCrews(anyMap());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void testRosterIsValidated() {
+        assertThrows(IllegalArgumentException.class, () -> assignmentService.assign(day, List.of(), false));
+        assertThrows(IllegalArgumentException.class, () -> assignmentService.assign(day,
+            List.of(new CrewShift("A1", "Aveiro", 0)), false));
+        assertThrows(IllegalArgumentException.class, () -> assignmentService.assign(day,
+            List.of(new CrewShift("A1", "Aveiro", 5), new CrewShift("A1", "Porto", 5)), false));
+        verifyNoInteractions(bookingRepository);
+    }
+
+    @Test
+    void testTenThousandBookingsPlanWellWithinBudget() {
+        List<BookingLoad> loads = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            loads.add(load(String.format("t%05d", i), "Aveiro", 1 + i % 10));
+        }
+        List<CrewShift> crews = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            crews.add(new CrewShift("A" + i, "Aveiro", 600));
+        }
+
+        long started = System.nanoTime();
+        CrewAssignmentService.Plan plan = CrewAssignmentService.plan(loads, crews, started + 5_000_000_000L);
+
+        assertFalse(plan.timedOut());
+        assertEquals(0, plan.unassigned().size());
+        assertTrue(System.nanoTime() - started < 2_000_000_000L);
+    }
+
+    private BookingLoad load(String token, String municipality, int items) {
+        return new BookingLoad(token, municipality, day, LocalTime.of(10, 0), items);
+    }
+
+    private static List<String> tokens(List<BookingLoad> loads) {
+        return loads.stream().map(BookingLoad::token).toList();
+    }
+}
@@ -0,0 +1,103 @@
+package zm.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ItemInvertedIndexTest {
+
+    private final LocalDate monday = LocalDate.of(2030, 3, 11);
+
+    @Test
+    void testTokenizeFoldsAccentsCaseAndPlurals() {
+        assertEquals(List.of("frigorifico", "avariado"), ItemInvertedIndex.tokenize("Frigoríficos AVARIADOS!"));
+        assertEquals(List.of("glass", "tv"), ItemInvertedIndex.tokenize("glass, a TV"));
+        assertEquals(List.of(), ItemInvertedIndex.tokenize(null));
+    }
+
+    @Test
+    void testSearchRequiresEveryTermAndMatchesLastAsPrefix() {
+        ItemInvertedIndex index = new ItemInvertedIndex();
+        index.put("a", "Porto", monday, List.of("Frigorífico", "Old fridge, leaking gas"));
+        index.put("b", "Porto", monday, List.of("Sofa", "Leather sofa"));
+        index.put("c", "Porto", monday, List.of("Fridge", "Small"));
+
+        assertEquals(List.of("a"), index.search("frigorifico", null, null, null, Pageable.unpaged()).getContent());
+        assertEquals(List.of("a"), index.search("fridge gas", null, null, null, Pageable.unpaged()).getContent());
+        assertEquals(List.of("a", "c"), index.search("frid", null, null, null, Pageable.unpaged()).getContent());
+        assertTrue(index.search("sofa fridge", null, null, null, Pageable.unpaged()).isEmpty());
+    }
+
+    @Test
+    void testSearchCombinesMunicipalityAndDatesAndPagesByDate() {
+        ItemInvertedIndex index = new ItemInvertedIndex();
+        index.put("late", "Porto", monday.plusDays(3), List.of("Fridge"));
+        index.put("early", "Porto", monday, List.of("Fridge"));
+        index.put("lisbon", "Lisboa", monday, List.of("Fridge"));
+        index.put("next-month", "Porto", monday.plusDays(30), List.of("Fridge"));
+
+        Page<String> first = index.search("fridge", "Porto", monday, monday.plusDays(6), PageRequest.of(0, 1));
+        Page<String> second = index.search("fridge", "Porto", monday, monday.plusDays(6), PageRequest.of(1, 1));
+
+        assertEquals(List.of("early"), first.getContent());
+        assertEquals(List.of("late"), second.getContent());
+        assertEquals(2, first.getTotalElements());
+    }
+
+    @Test
+    void testPutReplacesAndRemoveDropsTerms() {
+        ItemInvertedIndex index = new ItemInvertedIndex();
+        index.put("a", "Porto", monday, List.of("Fridge"));
+        index.put("a", "Porto", monday, List.of("Washing machine"));
+
+        assertTrue(index.search("fridge", null, null, null, Pageable.unpaged()).isEmpty());
+        assertEquals(List.of("a"), index.search("washing", null, null, null, Pageable.unpaged()).getContent());
+
+        index.remove("a");
+
+        assertTrue(index.search("washing", null, null, null, Pageable.unpaged()).isEmpty());
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void testSearchStopsOncePageIsFull() {
+        ItemInvertedIndex index = new ItemInvertedIndex();
+        for (int day = 0; day < 5; day++) {
+            index.put("t" + day, "Porto", monday.plusDays(day), List.of("Fridge"));
+        }
+
+        Page<String> first = index.search("fridge", null, null, null, PageRequest.of(0, 2));
+        Page<String> last = index.search("fridge", null, null, null, PageRequest.of(2, 2));
+
+        assertEquals(List.of("t0", "t1"), first.getContent());
+        assertTrue(first.hasNext());
+        assertEquals(List.of("t4"), last.getContent());
+        assertEquals(5, last.getTotalElements());
+        assertFalse(last.hasNext());
+    }
+
+    @Test
+    void testMovedBookingIsFoundOnlyUnderItsNewDate() {
+        ItemInvertedIndex index = new ItemInvertedIndex();
+        index.put("a", "Porto", monday, List.of("Fridge"));
+        index.put("b", "Porto", monday.plusDays(1), List.of("Fridge"));
+        index.put("a", "Porto", monday.plusDays(2), List.of("Fridge", "Frigorífico"));
+
+        assertEquals(List.of("b", "a"), index.search("fri", null, null, null, Pageable.unpaged()).getContent());
+        assertEquals(List.of("b"), index.search("fridge", null, monday, monday.plusDays(1), Pageable.unpaged()).getContent());
+    }
+
+    @Test
+    void testSearchWithoutWordsIsRejected() {
+        ItemInvertedIndex index = new ItemInvertedIndex();
+        Pageable unpaged = Pageable.unpaged();
+
+        assertThrows(IllegalArgumentException.class, () -> index.search("  !! ", null, null, null, unpaged));
+    }
+}
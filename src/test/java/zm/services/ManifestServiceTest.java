@@ -0,0 +1,108 @@
+package zm.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import zm.data.BookingRepository;
+import zm.data.ManifestRow;
+import zm.data.State;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ManifestServiceTest {
+
+    @Mock
+    private BookingRepository bookingRepository;
+
+    private ManifestService manifestService;
+    private final LocalDate today = LocalDate.now();
+
+    @BeforeEach
+    void setUp() {
+        manifestService = new ManifestService(bookingRepository, new BookingShards(1, "", null), 14, Duration.ofMinutes(10));
+    }
+
+    @Test
+    void testBuildsOneManifestPerMunicipalityWithItemTotals() {
+        when(bookingRepository.streamManifestRows(today, ManifestService.MANIFEST_STATES)).thenReturn(Stream.of(
+            row("t1", "Aveiro", 9, State.ASSIGNED, "Sofa"),
+            row("t1", "Aveiro", 9, State.ASSIGNED, "Fridge"),
+            row("t2", "Aveiro", 11, State.RECEIVED, "sofa"),
+            row("t3", "Porto", 10, State.RECEIVED, "Mattress")));
+
+        List<CollectionManifest> manifests = manifestService.getManifests(today);
+
+        assertEquals(List.of("Aveiro", "Porto"), manifests.stream().map(CollectionManifest::municipality).toList());
+        CollectionManifest aveiro = manifests.get(0);
+        assertEquals(2, aveiro.bookings());
+        assertEquals(3, aveiro.items());
+        assertEquals(List.of("t1", "t2"), aveiro.stops().stream().map(CollectionManifest.Stop::token).toList());
+        assertEquals(List.of(new CollectionManifest.ItemTotal("Fridge", 1), new CollectionManifest.ItemTotal("Sofa", 2)),
+            aveiro.itemTotals());
+    }
+
+    @Test
+    void testCachedManifestsAreServedWithoutQuerying() {
+        when(bookingRepository.streamManifestRows(today, ManifestService.MANIFEST_STATES))
+            .thenReturn(Stream.of(row("t1", "Aveiro", 9, State.RECEIVED, "Sofa")));
+
+        manifestService.getManifests(today);
+        manifestService.getManifests(today);
+
+        verify(bookingRepository, times(1)).streamManifestRows(today, ManifestService.MANIFEST_STATES);
+    }
+
+    @Test
+    void testEventRebuildsOnlyItsMunicipality() {
+        when(bookingRepository.streamManifestRows(today, ManifestService.MANIFEST_STATES)).thenReturn(Stream.of(
+            row("t1", "Aveiro", 9, State.RECEIVED, "Sofa"),
+            row("t3", "Porto", 10, State.RECEIVED, "Mattress")));
+        when(bookingRepository.streamManifestRows(today, ManifestService.MANIFEST_STATES, Set.of("Porto")))
+            .thenReturn(Stream.empty());
+        manifestService.getManifests(today);
+
+        manifestService.onBookingEvent(new BookingEvent(BookingEvent.Type.STATE_CHANGED, "t3", "Porto", today,
+            LocalTime.of(10, 0), State.CANCELLED, State.RECEIVED));
+        List<CollectionManifest> manifests = manifestService.getManifests(today);
+
+        assertEquals(List.of("Aveiro"), manifests.stream().map(CollectionManifest::municipality).toList());
+        verify(bookingRepository).streamManifestRows(today, ManifestService.MANIFEST_STATES, Set.of("Porto"));
+    }
+
+    @Test
+    void testNewMunicipalityIsPickedUpAfterItsFirstBooking() {
+        when(bookingRepository.streamManifestRows(today, ManifestService.MANIFEST_STATES)).thenReturn(Stream.empty());
+        when(bookingRepository.streamManifestRows(today, ManifestService.MANIFEST_STATES, Set.of("Faro")))
+            .thenReturn(Stream.of(row("t9", "Faro", 15, State.RECEIVED, "Bike")));
+        assertTrue(manifestService.getManifests(today).isEmpty());
+
+        manifestService.onBookingEvent(new BookingEvent(BookingEvent.Type.CREATED, "t9", "Faro", today,
+            LocalTime.of(15, 0), State.RECEIVED, null));
+
+        assertEquals("Faro", manifestService.getManifest(today, "Faro").orElseThrow().municipality());
+    }
+
+    @Test
+    void testEventsForUncachedDatesAreIgnored() {
+        manifestService.onBookingEvent(new BookingEvent(BookingEvent.Type.CREATED, "t9", "Faro", today.plusDays(3),
+            LocalTime.of(15, 0), State.RECEIVED, null));
+
+        verifyNoInteractions(bookingRepository);
+    }
+
+    private static ManifestRow row(String token, String municipality, int hour, State state, String item) {
+        return new ManifestRow(token, municipality, LocalTime.of(hour, 0), state, item, "");
+    }
+}
@@ -0,0 +1,197 @@
+package zm.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import zm.data.Booking;
+import zm.data.Item;
+import zm.data.ReactiveBookingRepository;
+import zm.data.State;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveBookingServiceImplTest {
+
+    @Mock
+    private ReactiveBookingRepository bookingRepository;
+
+    @Mock
+    private MunicipalityProvider municipalityProvider;
+
+    @Mock
+    private BookingTokenIndex tokenIndex;
+
+    @Mock
+    private BookingItemIndex itemIndex;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private SlotOccupancy slotOccupancy;
+
+    @Mock
+    private ClosureCalendar closureCalendar;
+
+    @Spy
+    private BookingStateNotifier stateNotifier = new BookingStateNotifier();
+
+    @Spy
+    private BookingCache bookingCache = new BookingCache(100, Duration.ofSeconds(30));
+
+    @InjectMocks
+    private ReactiveBookingServiceImpl bookingService;
+
+    private List<Item> items;
+    private LocalDate monday;
+    private LocalTime timeSlot;
+
+    @BeforeEach
+    void setUp() {
+        items = List.of(new Item("Mattress", "Old mattress"));
+        monday = LocalDate.now().with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+        timeSlot = LocalTime.of(10, 0);
+
+        lenient().when(tokenIndex.mightExist(anyString())).thenReturn(true);
+    }
+
+    @Test
+    void testBookWithValidMunicipality() {
+        when(municipalityProvider.isValid("Aveiro")).thenReturn(true);
+        when(bookingRepository.insertIfRoom(any(Booking.class), eq(BookingRules.SLOT_CAPACITY)))
+            .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        StepVerifier.create(bookingService.book(monday, timeSlot, items, "Aveiro"))
+            .assertNext(token -> {
+                verify(tokenIndex).register(token);
+                verify(itemIndex).add(argThat(booking -> booking.getToken().equals(token)));
+                verify(eventPublisher).publishEvent(argThat((Object event) ->
+                    event instanceof BookingEvent e && e.type() == BookingEvent.Type.CREATED && e.token().equals(token)));
+            })
+            .verifyComplete();
+    }
+
+    @Test
+    void testBookSharesServletValidation() {
+        LocalDate saturday = LocalDate.now().with(TemporalAdjusters.next(DayOfWeek.SATURDAY));
+
+        StepVerifier.create(bookingService.book(saturday, timeSlot, items, "Aveiro"))
+            .expectErrorMessage("Bookings cannot be made on weekends")
+            .verify();
+
+        verifyNoInteractions(bookingRepository);
+    }
+
+    @Test
+    void testBookWhenSlotIsFull() {
+        when(municipalityProvider.isValid("Aveiro")).thenReturn(true);
+        when(bookingRepository.insertIfRoom(any(Booking.class), eq(BookingRules.SLOT_CAPACITY))).thenReturn(Mono.empty());
+        List<SlotSuggestion> suggestions = List.of(new SlotSuggestion(monday, LocalTime.of(12, 0)));
+        when(slotOccupancy.suggest("Aveiro", monday, timeSlot)).thenReturn(suggestions);
+
+        StepVerifier.create(bookingService.book(monday, timeSlot, items, "Aveiro"))
+            .expectErrorSatisfies(e -> {
+                assertInstanceOf(CapacityExceededException.class, e);
+                assertEquals(suggestions, ((CapacityExceededException) e).getSuggestions());
+            })
+            .verify();
+
+        verify(bookingRepository, never()).insert(any());
+        verify(slotOccupancy).suggest("Aveiro", monday, timeSlot);
+    }
+
+    @Test
+    void testChangeStateAppliesDomainTransition() {
+        Booking booking = new Booking(monday, timeSlot, items, "Aveiro");
+        when(bookingRepository.findByToken(booking.getToken())).thenReturn(Mono.just(booking));
+        when(bookingRepository.saveTransition(booking)).thenReturn(Mono.just(booking));
+        bookingCache.put(booking);
+
+        StepVerifier.create(bookingService.changeState(booking.getToken(), State.ASSIGNED))
+            .expectNext(true)
+            .verifyComplete();
+
+        assertEquals(State.ASSIGNED, booking.getCurrentState().getState());
+        assertNull(bookingCache.getIfPresent(booking.getToken()));
+        verify(eventPublisher).publishEvent(any(BookingEvent.class));
+    }
+
+    @Test
+    void testChangeStateRejectsInvalidTransitionWithoutWriting() {
+        Booking booking = new Booking(monday, timeSlot, items, "Aveiro");
+        booking.changeState(State.CANCELLED);
+        when(bookingRepository.findByToken(booking.getToken())).thenReturn(Mono.just(booking));
+
+        StepVerifier.create(bookingService.changeState(booking.getToken(), State.ASSIGNED))
+            .expectNext(false)
+            .verifyComplete();
+
+        verify(bookingRepository, never()).saveTransition(any());
+    }
+
+    @Test
+    void testChangeStateLosesToConcurrentWriter() {
+        Booking booking = new Booking(monday, timeSlot, items, "Aveiro");
+        when(bookingRepository.findByToken(booking.getToken())).thenReturn(Mono.just(booking));
+        when(bookingRepository.saveTransition(booking)).thenReturn(Mono.empty());
+
+        StepVerifier.create(bookingService.changeState(booking.getToken(), State.ASSIGNED))
+            .expectNext(false)
+            .verifyComplete();
+
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void testCheckUnknownTokenSkipsDatabase() {
+        when(tokenIndex.mightExist("unknown")).thenReturn(false);
+
+        StepVerifier.create(bookingService.check("unknown")).verifyComplete();
+
+        verifyNoInteractions(bookingRepository);
+    }
+
+    @Test
+    void testAwaitStateChangeCompletesOnTransition() {
+        Booking booking = new Booking(monday, timeSlot, items, "Aveiro");
+        when(bookingRepository.findByToken(booking.getToken())).thenReturn(Mono.just(booking));
+
+        StepVerifier.create(bookingService.awaitStateChange(booking.getToken(), State.RECEIVED, Duration.ofSeconds(5)))
+            .then(() -> {
+                booking.changeState(State.ASSIGNED);
+                stateNotifier.onBookingEvent(BookingEvent.stateChanged(booking));
+            })
+            .expectNext(Optional.of(State.ASSIGNED))
+            .verifyComplete();
+    }
+
+    @Test
+    void testAwaitStateChangeTimesOut() {
+        Booking booking = new Booking(monday, timeSlot, items, "Aveiro");
+        when(bookingRepository.findByToken(booking.getToken())).thenReturn(Mono.just(booking));
+
+        StepVerifier.create(bookingService.awaitStateChange(booking.getToken(), State.RECEIVED, Duration.ofMillis(50)))
+            .expectNext(Optional.empty())
+            .verifyComplete();
+
+        assertEquals(0, stateNotifier.parkedTokens());
+    }
+}
@@ -0,0 +1,66 @@
+package zm.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SequenceGapsTest {
+
+    private SequenceGaps gaps;
+
+    @BeforeEach
+    void setUp() {
+        gaps = new SequenceGaps(5);
+        gaps.reset(10);
+    }
+
+    @Test
+    void testConsecutiveNumbersLeaveNoGaps() {
+        assertTrue(gaps.accept(11, 0));
+        assertTrue(gaps.accept(12, 0));
+
+        assertEquals(12, gaps.last());
+        assertEquals(0, gaps.openCount());
+    }
+
+    @Test
+    void testLateNumbersCloseTheirGap() {
+        gaps.accept(14, 100);
+        assertEquals(3, gaps.openCount());
+
+        gaps.accept(12, 200);
+
+        assertEquals(List.of(11L, 13L), gaps.overdue(100));
+        assertEquals(14, gaps.last());
+    }
+
+    @Test
+    void testGapsOnlyTurnOverdueAfterTheyWereMissed() {
+        gaps.accept(12, 100);
+        gaps.accept(15, 300);
+
+        assertEquals(List.of(11L), gaps.overdue(200));
+        gaps.close(List.of(11L));
+        assertEquals(List.of(13L, 14L), gaps.overdue(300));
+    }
+
+    @Test
+    void testTooManyMissingNumbersAskForAResync() {
+        assertTrue(gaps.accept(14, 0));
+        assertFalse(gaps.accept(18, 0));
+        assertEquals(14, gaps.last());
+
+        gaps.reset(18);
+        assertEquals(0, gaps.openCount());
+        assertTrue(gaps.accept(19, 0));
+    }
+
+    @Test
+    void testAFreshTrackerHasNotStarted() {
+        assertFalse(new SequenceGaps(5).started());
+        assertTrue(gaps.started());
+    }
+}
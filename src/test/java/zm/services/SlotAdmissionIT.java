@@ -0,0 +1,147 @@
+package zm.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import zm.SpringbootApplication;
+import zm.data.BookingRepository;
+import zm.data.Item;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Two application contexts over one database stand in for two nodes behind the load balancer
+class SlotAdmissionIT {
+
+    private static final int NODES = 2;
+    private static final int ATTEMPTS = 80;
+    private static final LocalTime TEN = LocalTime.of(10, 0);
+    private static final LocalTime TWELVE = LocalTime.of(12, 0);
+
+    private final List<ConfigurableApplicationContext> nodes = new ArrayList<>();
+    private LocalDate monday;
+
+    @BeforeEach
+    void startNodes() {
+        monday = LocalDate.now().with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+        String url = "jdbc:h2:mem:admission-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000";
+        MunicipalityProvider aveiroOnly = new MunicipalityProvider() {
+            @Override
+            public List<String> getMunicipalities() {
+                return List.of("Aveiro");
+            }
+
+            @Override
+            public boolean isValid(String municipality) {
+                return "Aveiro".equals(municipality);
+            }
+        };
+        for (int i = 0; i < NODES; i++) {
+            nodes.add(new SpringApplicationBuilder(SpringbootApplication.class)
+                .web(WebApplicationType.NONE)
+                .initializers(context -> ((GenericApplicationContext) context).registerBean("aveiroOnly",
+                    MunicipalityProvider.class, () -> aveiroOnly, definition -> definition.setPrimary(true)))
+                // Command-line arguments, so they win over application.properties
+                .run("--spring.datasource.url=" + url,
+                    "--spring.datasource.driver-class-name=org.h2.Driver",
+                    "--spring.datasource.username=sa",
+                    "--spring.datasource.password=",
+                    "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                    "--spring.jpa.hibernate.ddl-auto=update",
+                    "--spring.jpa.show-sql=false",
+                    "--booking.grpc.enabled=false",
+                    "--booking.closures.national=",
+                    "--booking.closures.municipal="));
+        }
+    }
+
+    @AfterEach
+    void stopNodes() {
+        nodes.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    void testConcurrentBookingsAcrossNodesNeverOverbookASlot() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < ATTEMPTS; i++) {
+            BookingService bookingService = nodes.get(i % NODES).getBean(BookingService.class);
+            results.add(executor.submit(() -> {
+                start.await();
+                try {
+                    bookingService.book(monday, TEN, items(), "Aveiro");
+                    return true;
+                } catch (CapacityExceededException e) {
+                    return false;
+                }
+            }));
+        }
+        start.countDown();
+
+        long booked = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get(60, TimeUnit.SECONDS)) {
+                booked++;
+            }
+        }
+        executor.shutdown();
+
+        assertEquals(BookingRules.SLOT_CAPACITY, booked);
+        assertEquals(BookingRules.SLOT_CAPACITY, nodes.get(0).getBean(BookingRepository.class)
+            .findByDateAndApproxTimeSlotAndMunicipality(monday, TEN, "Aveiro").size());
+    }
+
+    @Test
+    void testALockedSlotOnlyHoldsUpBookingsForThatSlot() throws Exception {
+        TransactionTemplate transaction = new TransactionTemplate(nodes.get(0).getBean(PlatformTransactionManager.class));
+        BookingRepository bookingRepository = nodes.get(0).getBean(BookingRepository.class);
+        BookingService bookingService = nodes.get(1).getBean(BookingService.class);
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        Future<?> holder = executor.submit(() -> transaction.executeWithoutResult(status -> {
+            bookingRepository.lockSlot(monday, TEN, "Aveiro");
+            locked.countDown();
+            try {
+                release.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        assertTrue(locked.await(30, TimeUnit.SECONDS));
+
+        Future<String> sameSlot = executor.submit(() -> bookingService.book(monday, TEN, items(), "Aveiro"));
+        assertNotNull(bookingService.book(monday, TWELVE, items(), "Aveiro"));
+        assertThrows(TimeoutException.class, () -> sameSlot.get(500, TimeUnit.MILLISECONDS));
+
+        release.countDown();
+        assertNotNull(sameSlot.get(30, TimeUnit.SECONDS));
+        holder.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+    }
+
+    private static List<Item> items() {
+        return new ArrayList<>(List.of(new Item("Sofa", "Old sofa")));
+    }
+}
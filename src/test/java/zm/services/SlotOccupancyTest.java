@@ -0,0 +1,128 @@
+package zm.services;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import zm.data.BookingRepository;
+import zm.data.SlotCount;
+import zm.data.State;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SlotOccupancyTest {
+
+    private static final int HORIZON_DAYS = 14;
+    private static final long FULL = BookingRules.SLOT_CAPACITY;
+
+    @Mock
+    private BookingRepository bookingRepository;
+
+    @Mock
+    private ClosureCalendar closureCalendar;
+
+    private SlotOccupancy slotOccupancy;
+    private LocalDate monday;
+
+    @BeforeEach
+    void setUp() {
+        slotOccupancy = new SlotOccupancy(bookingRepository, closureCalendar, new BookingShards(1, "", null), HORIZON_DAYS, Duration.ofMinutes(5), 3);
+        monday = LocalDate.now().with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+        lenient().when(closureCalendar.closedDays(anyString(), any(), anyInt())).thenReturn(new BitSet());
+    }
+
+    @Test
+    void testSuggestsNeighbouringSlotsEarlierFirstOnTies() {
+        loads(monday, count(monday, 10, FULL));
+
+        List<SlotSuggestion> suggestions = slotOccupancy.suggest("Aveiro", monday, LocalTime.of(10, 0), monday.atTime(7, 0));
+
+        assertEquals(List.of(suggestion(monday, 8), suggestion(monday, 12), suggestion(monday, 14)), suggestions);
+    }
+
+    @Test
+    void testSkipsFullSlotsAndWeekends() {
+        LocalDate friday = monday.plusDays(4);
+        LocalDate nextMonday = monday.plusDays(7);
+        loads(friday, count(friday, 8, FULL), count(friday, 10, FULL), count(friday, 12, FULL),
+            count(friday, 14, FULL), count(friday, 16, FULL), count(nextMonday, 8, FULL));
+
+        List<SlotSuggestion> suggestions = slotOccupancy.suggest("Aveiro", friday, LocalTime.of(16, 0), friday.atTime(7, 0));
+
+        assertEquals(List.of(suggestion(nextMonday, 10), suggestion(nextMonday, 12), suggestion(nextMonday, 14)), suggestions);
+    }
+
+    @Test
+    void testSkipsSlotsAlreadyUnderWayToday() {
+        loads(monday, count(monday, 12, FULL));
+
+        List<SlotSuggestion> suggestions = slotOccupancy.suggest("Aveiro", monday, LocalTime.of(12, 0), monday.atTime(11, 0));
+
+        assertEquals(List.of(suggestion(monday, 14), suggestion(monday, 16), suggestion(monday.plusDays(1), 8)), suggestions);
+    }
+
+    @Test
+    void testSkipsClosedDays() {
+        loads(monday, count(monday, 16, FULL));
+        BitSet closedDays = new BitSet();
+        closedDays.set(1);
+        when(closureCalendar.closedDays("Aveiro", monday, HORIZON_DAYS)).thenReturn(closedDays);
+
+        List<SlotSuggestion> suggestions = slotOccupancy.suggest("Aveiro", monday, LocalTime.of(16, 0), monday.atTime(7, 0));
+
+        assertEquals(List.of(suggestion(monday, 14), suggestion(monday, 12), suggestion(monday, 10)), suggestions);
+    }
+
+    @Test
+    void testCreatedBookingsFillSlotsWithoutQuerying() {
+        loads(monday, count(monday, 8, FULL - 1));
+
+        slotOccupancy.suggest("Aveiro", monday, LocalTime.of(10, 0), monday.atTime(7, 0));
+        slotOccupancy.onBookingEvent(new BookingEvent(BookingEvent.Type.CREATED, "t1", "Aveiro", monday,
+            LocalTime.of(8, 0), State.RECEIVED, null));
+        slotOccupancy.onBookingEvent(new BookingEvent(BookingEvent.Type.STATE_CHANGED, "t2", "Aveiro", monday,
+            LocalTime.of(12, 0), State.CANCELLED, State.RECEIVED));
+        List<SlotSuggestion> suggestions = slotOccupancy.suggest("Aveiro", monday, LocalTime.of(10, 0), monday.atTime(7, 0));
+
+        assertEquals(List.of(suggestion(monday, 12), suggestion(monday, 14), suggestion(monday, 16)), suggestions);
+        verify(bookingRepository, times(1)).countSlots(anyString(), any(), any());
+    }
+
+    @Test
+    void testReloadsWhenTheDayRollsOver() {
+        LocalDate tuesday = monday.plusDays(1);
+        loads(monday);
+        loads(tuesday);
+
+        slotOccupancy.suggest("Aveiro", tuesday, LocalTime.of(10, 0), monday.atTime(7, 0));
+        List<SlotSuggestion> suggestions = slotOccupancy.suggest("Aveiro", tuesday, LocalTime.of(10, 0), tuesday.atTime(7, 0));
+
+        assertEquals(suggestion(tuesday, 8), suggestions.get(0));
+        verify(bookingRepository).countSlots("Aveiro", monday, monday.plusDays(HORIZON_DAYS - 1));
+        verify(bookingRepository).countSlots("Aveiro", tuesday, tuesday.plusDays(HORIZON_DAYS - 1));
+    }
+
+    private void loads(LocalDate today, SlotCount... counts) {
+        when(bookingRepository.countSlots("Aveiro", today, today.plusDays(HORIZON_DAYS - 1))).thenReturn(List.of(counts));
+    }
+
+    private static SlotCount count(LocalDate date, int hour, long bookings) {
+        return new SlotCount(date, LocalTime.of(hour, 0), bookings);
+    }
+
+    private static SlotSuggestion suggestion(LocalDate date, int hour) {
+        return new SlotSuggestion(date, LocalTime.of(hour, 0));
+    }
+}
@@ -0,0 +1,56 @@
+package zm.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBloomFilterTest {
+
+    @Test
+    void testNoFalseNegatives() {
+        TokenBloomFilter filter = new TokenBloomFilter(10_000, 0.01);
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            String token = UUID.randomUUID().toString();
+            tokens.add(token);
+            filter.put(token);
+        }
+
+        assertTrue(tokens.stream().allMatch(filter::mightContain));
+    }
+
+    @Test
+    void testFalsePositiveRateStaysNearConfiguredRate() {
+        TokenBloomFilter filter = new TokenBloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put(UUID.randomUUID().toString());
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain(UUID.randomUUID().toString())) {
+                falsePositives++;
+            }
+        }
+
+        assertTrue(falsePositives < 2_000, "False positives: " + falsePositives);
+    }
+
+    @Test
+    void testEmptyFilterContainsNothing() {
+        TokenBloomFilter filter = new TokenBloomFilter(100, 0.01);
+
+        assertFalse(filter.mightContain(UUID.randomUUID().toString()));
+    }
+
+    @Test
+    void testInvalidParameters() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBloomFilter(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBloomFilter(100, 0));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBloomFilter(100, 1));
+    }
+}
@@ -0,0 +1,39 @@
+create table bookings (
+    token varchar(255) not null primary key,
+    date date not null,
+    approx_time_slot time not null,
+    municipality varchar(255) not null,
+    state smallint,
+    timestamp timestamp(6),
+    version bigint not null default 0,
+    change_seq bigint
+);
+
+create table booking_items (
+    booking_token varchar(255) not null,
+    name varchar(255),
+    description varchar(255)
+);
+
+create table booking_previous_states (
+    booking_token varchar(255) not null,
+    state smallint,
+    timestamp timestamp(6)
+);
+
+create table booking_changes (
+    seq bigint not null primary key,
+    token varchar(255) not null,
+    state smallint not null,
+    changed_at timestamp(6) with time zone not null,
+    origin varchar(255)
+);
+
+create table booking_slots (
+    slot_key varchar(255) not null primary key,
+    municipality varchar(255) not null,
+    date date not null,
+    approx_time_slot time not null
+);
+
+create sequence booking_change_seq start with 1 increment by 1